@@ -0,0 +1,275 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.bench;
+
+import com.gmail.br45entei.server.HTTPFraming;
+import com.gmail.br45entei.server.Link;
+import com.gmail.br45entei.server.RequestDeadlines;
+import com.gmail.br45entei.server.RequestDeadlines.Phase;
+import com.gmail.br45entei.server.SocketProfile;
+import com.gmail.br45entei.ssl.TrustAnySSLCertificateSSLSocketFactory;
+import com.gmail.br45entei.util.LatencyHistogram;
+import com.gmail.br45entei.util.TimerWheel;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/** Measures how many new connections per second a server can accept.<br>
+ * Connections are opened (and closed again) at a fixed rate regardless of
+ * how quickly earlier ones complete. The rate is raised step by step until a
+ * step can no longer be sustained, i.e. fewer than 95% of the attempted
+ * connections succeed or the achieved rate falls below 95% of the target.<br>
+ * <br>
+ * Usage: <tt>ConnectionRateBenchmark &lt;url&gt; [startRate=50] [step=50]
+ * [maxRate=5000] [secondsPerStep=5] [sendRequest=false] [profile=short-lived]
+ * [maxInFlight=512]</tt>
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public class ConnectionRateBenchmark {
+	
+	/** The outcome of a single rate step.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Step {
+		
+		public final int targetRate;
+		public final LatencyHistogram connectLatency = new LatencyHistogram("TCP connect"), handshakeLatency = new LatencyHistogram("TLS handshake"), requestLatency = new LatencyHistogram("Request");
+		protected final AtomicLong attempted = new AtomicLong(), succeeded = new AtomicLong(), errors = new AtomicLong(), timeouts = new AtomicLong(), dropped = new AtomicLong();
+		protected volatile long durationNanos;
+		
+		protected Step(int targetRate) {
+			this.targetRate = targetRate;
+		}
+		
+		/** @return The number of connections that succeeded per second of the
+		 *         step */
+		public final double getAchievedRate() {
+			return this.durationNanos == 0 ? 0.0 : this.succeeded.get() / (this.durationNanos / 1000000000.0);
+		}
+		
+		/** @return Whether or not the server kept up with this step's rate */
+		public final boolean isSustained() {
+			long attempted = this.attempted.get();
+			return attempted > 0 && this.succeeded.get() >= attempted * 0.95 && this.getAchievedRate() >= this.targetRate * 0.95;
+		}
+		
+		@Override
+		public String toString() {
+			String str = String.format("%d conn/s: achieved=%.1f/s, attempted=%d, succeeded=%d, errors=%d, timeouts=%d, dropped=%d%s", Integer.valueOf(this.targetRate), Double.valueOf(this.getAchievedRate()), Long.valueOf(this.attempted.get()), Long.valueOf(this.succeeded.get()), Long.valueOf(this.errors.get()), Long.valueOf(this.timeouts.get()), Long.valueOf(this.dropped.get()), this.isSustained() ? "" : " (NOT SUSTAINED)");
+			str = str.concat("\r\n\t").concat(this.connectLatency.toString());
+			if(this.handshakeLatency.getCount() > 0) {
+				str = str.concat("\r\n\t").concat(this.handshakeLatency.toString());
+			}
+			if(this.requestLatency.getCount() > 0) {
+				str = str.concat("\r\n\t").concat(this.requestLatency.toString());
+			}
+			return str;
+		}
+		
+	}
+	
+	private final Link target;
+	private final SSLSocketFactory sslSocketFactory;
+	private final SocketProfile profile;
+	private final byte[] request;
+	private final int maxInFlight;
+	private volatile long timeout = 5000L;
+	
+	/** @param target The server to connect to (its path is used for the
+	 *            optional request)
+	 * @param sslSocketFactory The factory to perform TLS handshakes with
+	 * @param profile The socket options to apply to each connection
+	 * @param sendRequest Whether or not to send a <tt>HEAD</tt> request over
+	 *            each connection before closing it
+	 * @param maxInFlight The maximum number of connections that may be in
+	 *            progress at once; attempts beyond this are counted as
+	 *            dropped */
+	public ConnectionRateBenchmark(Link target, SSLSocketFactory sslSocketFactory, SocketProfile profile, boolean sendRequest, int maxInFlight) {
+		this.target = target;
+		this.sslSocketFactory = sslSocketFactory;
+		this.profile = profile;
+		this.request = sendRequest ? "HEAD ".concat(target.requestPath).concat(" HTTP/1.1\r\nHost: ").concat(target.getHostHeader()).concat("\r\nUser-Agent: HTTPServerTester/1.0\r\nConnection: close\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1) : null;
+		this.maxInFlight = Math.max(1, maxInFlight);
+	}
+	
+	/** @param timeout The timeout for each phase of a connection, in
+	 *            milliseconds
+	 * @return This benchmark */
+	public final ConnectionRateBenchmark setTimeout(long timeout) {
+		this.timeout = timeout;
+		return this;
+	}
+	
+	private final void connectOnce(Step step) {
+		final long timeout = this.timeout;
+		RequestDeadlines deadlines = new RequestDeadlines(TimerWheel.getShared(), timeout, timeout, timeout, timeout, 0L);
+		Socket socket = null;
+		try {
+			deadlines.start(Phase.CONNECT);
+			long startTime = System.nanoTime();
+			socket = Link.createSocket(InetSocketAddress.createUnresolved(this.target.host, this.target.port), deadlines.getConnectTimeout(), null, this.profile);
+			long now = System.nanoTime();
+			step.connectLatency.record(now - startTime);
+			deadlines.setSocket(socket);
+			if(this.target.isSSL()) {
+				deadlines.start(Phase.TLS_HANDSHAKE);
+				startTime = now;
+				socket = Link.startTLS(socket, this.target.host, this.target.port, this.sslSocketFactory);
+				now = System.nanoTime();
+				step.handshakeLatency.record(now - startTime);
+			}
+			if(this.request != null) {
+				deadlines.start(Phase.FIRST_BYTE);
+				startTime = now;
+				socket.getOutputStream().write(this.request);
+				socket.getOutputStream().flush();
+				InputStream in = new BufferedInputStream(socket.getInputStream(), 1024);
+				String statusLine = Link.readLine(in);
+				if(statusLine == null || HTTPFraming.getStatusCode(statusLine) < 0) {
+					throw new EOFException("Connection closed before a response was received");
+				}
+				deadlines.start(Phase.HEADERS);
+				String line;
+				while((line = Link.readLine(in)) != null && !line.isEmpty()) {
+				}
+				step.requestLatency.record(System.nanoTime() - startTime);
+			}
+			deadlines.close();
+			step.succeeded.incrementAndGet();
+		} catch(IOException ex) {
+			deadlines.close();
+			(deadlines.check(ex) instanceof SocketTimeoutException ? step.timeouts : step.errors).incrementAndGet();
+		} finally {
+			if(socket != null) {
+				try {
+					socket.close();
+				} catch(IOException ignored) {
+				}
+			}
+		}
+	}
+	
+	/** Opens connections at the given rate for the given amount of time.
+	 *
+	 * @param rate The number of connections to open per second
+	 * @param duration How long to keep opening connections, in milliseconds
+	 * @return The step's outcome
+	 * @throws InterruptedException Thrown if the current thread was
+	 *             interrupted while waiting for connections to finish */
+	public final Step runStep(int rate, long duration) throws InterruptedException {
+		final Step step = new Step(rate);
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(0, this.maxInFlight, 5L, TimeUnit.SECONDS, new SynchronousQueue<>(), (r) -> {
+			Thread thread = new Thread(r, "ConnectionRateBenchmark");
+			thread.setDaemon(true);
+			return thread;
+		});
+		final long intervalNanos = 1000000000L / Math.max(1, rate);
+		final long startTime = System.nanoTime();
+		final long endTime = startTime + TimeUnit.MILLISECONDS.toNanos(duration);
+		for(long i = 0;; i++) {
+			long next = startTime + (i * intervalNanos);
+			if(next - endTime >= 0) {
+				break;
+			}
+			long wait;
+			while((wait = next - System.nanoTime()) > 0) {
+				LockSupport.parkNanos(wait);
+			}
+			step.attempted.incrementAndGet();
+			try {
+				executor.execute(() -> this.connectOnce(step));
+			} catch(RejectedExecutionException ex) {// Too many connections in flight; the server isn't keeping up
+				step.dropped.incrementAndGet();
+			}
+		}
+		step.durationNanos = System.nanoTime() - startTime;// Connections still in progress count towards the rate they were attempted at
+		executor.shutdown();
+		executor.awaitTermination(this.timeout * 4L, TimeUnit.MILLISECONDS);
+		return step;
+	}
+	
+	/** @param args Program command line arguments
+	 * @throws Exception Thrown if the benchmark could not be run */
+	public static final void main(String[] args) throws Exception {
+		final String usage = "Usage: ConnectionRateBenchmark <url> [startRate=50] [step=50] [maxRate=5000] [secondsPerStep=5] [sendRequest=false] [profile=short-lived] [maxInFlight=512]";
+		if(args.length < 1) {
+			System.err.println(usage);
+			return;
+		}
+		Link target = new Link(args[0]);
+		int startRate = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+		int stepSize = args.length > 2 ? Integer.parseInt(args[2]) : 50;
+		if(startRate <= 0 || stepSize <= 0) {// A step of zero would run the same rate forever
+			System.err.println("The start rate and step must both be greater than zero.");
+			System.err.println(usage);
+			return;
+		}
+		int maxRate = args.length > 3 ? Integer.parseInt(args[3]) : 5000;
+		long seconds = args.length > 4 ? Long.parseLong(args[4]) : 5L;
+		boolean sendRequest = args.length > 5 && Boolean.parseBoolean(args[5]);
+		SocketProfile profile = SocketProfile.forName(args.length > 6 ? args[6] : SocketProfile.SHORT_LIVED.getName());
+		int maxInFlight = args.length > 7 ? Integer.parseInt(args[7]) : 512;
+		
+		ConnectionRateBenchmark benchmark = new ConnectionRateBenchmark(target, new TrustAnySSLCertificateSSLSocketFactory(), profile, sendRequest, maxInFlight);
+		System.out.println("Connecting to " + target.host + ":" + target.port + (target.isSSL() ? " (TLS)" : "") + (sendRequest ? " with one request per connection" : "") + " using profile " + profile);
+		List<Step> steps = new ArrayList<>();
+		Step lastSustained = null;
+		for(int rate = startRate; rate > 0 && rate <= maxRate; rate += stepSize) {// rate > 0 ends the loop if adding the step overflows
+			Step step = benchmark.runStep(rate, seconds * 1000L);
+			steps.add(step);
+			System.out.println(step.toString());
+			if(!step.isSustained()) {
+				break;
+			}
+			lastSustained = step;
+		}
+		System.out.println();
+		if(lastSustained == null) {
+			System.out.println("The server could not sustain even " + startRate + " connections per second.");
+		} else {
+			System.out.println(String.format("Maximum sustained rate: %d connections per second (achieved %.1f/s)", Integer.valueOf(lastSustained.targetRate), Double.valueOf(lastSustained.getAchievedRate())));
+			if(steps.size() > 0 && steps.get(steps.size() - 1) != lastSustained) {
+				Step failed = steps.get(steps.size() - 1);
+				System.out.println("Failed at " + failed.targetRate + " connections per second: errors=" + failed.errors.get() + ", timeouts=" + failed.timeouts.get() + ", dropped=" + failed.dropped.get());
+			}
+		}
+	}
+	
+}
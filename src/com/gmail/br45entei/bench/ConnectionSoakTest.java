@@ -0,0 +1,433 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.bench;
+
+import com.gmail.br45entei.server.DNSCache;
+import com.gmail.br45entei.server.Link;
+import com.gmail.br45entei.server.SocketProfile;
+import com.gmail.br45entei.ssl.SSLEngineChannel;
+import com.gmail.br45entei.ssl.TrustAnySSLCertificateSSLSocketFactory;
+import com.gmail.br45entei.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
+
+/** Opens and holds as many concurrent connections as a server will take
+ * (C10K/C100K testing).<br>
+ * Connections are opened at a fixed ramp rate until the target count is
+ * reached or too many connections have failed, then held open for a while.
+ * Held connections are either left idle or, if a trickle interval is given,
+ * send one small keep-alive request at that interval.<br>
+ * <br>
+ * Every connection is driven by a single selector thread and holds no
+ * buffers of its own while idle (TLS connections use
+ * {@link SSLEngineChannel}, which gives its buffers back whenever they are
+ * empty), so the client's memory per connection is mostly what the JDK and
+ * the kernel need for the socket itself.<br>
+ * <br>
+ * Usage: <tt>ConnectionSoakTest &lt;url&gt; [targetConnections=10000]
+ * [rampPerSecond=500] [holdSeconds=60] [trickleSeconds=0]
+ * [profile=rcvbuf=4096,sndbuf=4096,nodelay=true] [maxFailures=100]</tt>
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public class ConnectionSoakTest {
+	
+	private static final class Connection {
+		
+		protected final SocketChannel channel;
+		protected final long startTime = System.nanoTime();
+		protected SelectionKey key;
+		protected SSLEngineChannel ssl;
+		protected ByteBuffer pendingOut;
+		protected long lastSent;
+		protected boolean established = false;
+		
+		protected Connection(SocketChannel channel) {
+			this.channel = channel;
+		}
+		
+		protected final ByteChannel io() {
+			return this.ssl != null ? this.ssl : this.channel;
+		}
+		
+	}
+	
+	private final Link target;
+	private final SSLContext sslContext;
+	private final SocketProfile profile;
+	private final ByteBuffer request;
+	private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(32768);
+	private final List<Connection> connections = new ArrayList<>();
+	private final Queue<Connection> resumed = new ConcurrentLinkedQueue<>();
+	private final Map<String, Integer> failures = new LinkedHashMap<>();
+	private Selector selector;
+	
+	private long connectTimeout = 10000L;
+	private int open = 0, peak = 0, failureCount = 0, serverClosed = 0, requestsSent = 0;
+	private long bytesReceived = 0L;
+	private String firstFailure = null;
+	private int openAtFirstFailure = -1;
+	/** The time taken to establish each connection (including the TLS
+	 * handshake, if any) */
+	public final LatencyHistogram establishLatency = new LatencyHistogram("Connection established");
+	
+	/** @param target The server to connect to
+	 * @param sslContext The context to create TLS engines from (only used if
+	 *            the target uses TLS)
+	 * @param profile The socket options to apply to each connection */
+	public ConnectionSoakTest(Link target, SSLContext sslContext, SocketProfile profile) {
+		this.target = target;
+		this.sslContext = sslContext;
+		this.profile = profile;
+		this.request = ByteBuffer.wrap("GET ".concat(target.requestPath).concat(" HTTP/1.1\r\nHost: ").concat(target.getHostHeader()).concat("\r\nUser-Agent: HTTPServerTester/1.0\r\nConnection: keep-alive\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1)).asReadOnlyBuffer();
+	}
+	
+	private final void fail(Connection conn, String reason) {
+		this.failureCount++;
+		this.failures.merge(reason, Integer.valueOf(1), (a, b) -> Integer.valueOf(a.intValue() + b.intValue()));
+		if(this.firstFailure == null) {
+			this.firstFailure = reason;
+			this.openAtFirstFailure = this.open;
+		}
+		if(conn != null) {
+			this.close(conn);
+		}
+	}
+	
+	private static final String reason(String prefix, Throwable ex) {
+		String message = ex.getMessage();
+		return prefix.concat(ex.getClass().getSimpleName()).concat(message == null ? "" : ": ".concat(message));
+	}
+	
+	private final void close(Connection conn) {
+		if(conn.established) {
+			this.open--;
+		}
+		conn.established = false;
+		if(conn.key != null) {
+			conn.key.cancel();
+		}
+		try {
+			if(conn.ssl != null) {
+				conn.ssl.close();
+			} else {
+				conn.channel.close();
+			}
+		} catch(IOException ignored) {
+		}
+		conn.pendingOut = null;
+	}
+	
+	private final void openOne() {
+		SocketChannel channel;
+		try {
+			channel = SocketChannel.open();
+		} catch(IOException ex) {// Most likely out of file descriptors
+			this.fail(null, reason("Client: ", ex));
+			return;
+		}
+		Connection conn = new Connection(channel);
+		this.connections.add(conn);
+		try {
+			this.profile.apply(channel);
+			channel.configureBlocking(false);
+			InetSocketAddress address = DNSCache.getDefault().getAddress(this.target.host, this.target.port);
+			if(address.isUnresolved()) {
+				this.fail(conn, "Connect: Unresolved address: ".concat(this.target.host));
+				return;
+			}
+			if(channel.connect(address)) {
+				conn.key = channel.register(this.selector, 0, conn);
+				this.onConnected(conn);
+			} else {
+				conn.key = channel.register(this.selector, SelectionKey.OP_CONNECT, conn);
+			}
+		} catch(IOException ex) {
+			this.fail(conn, reason("Connect: ", ex));
+		}
+	}
+	
+	private final void onConnected(Connection conn) throws IOException {
+		if(this.target.isSSL()) {
+			SSLEngine engine = this.sslContext.createSSLEngine(this.target.host, this.target.port);
+			engine.setUseClientMode(true);
+			conn.ssl = new SSLEngineChannel(conn.channel, engine);
+			conn.ssl.setTaskListener(() -> {
+				this.resumed.add(conn);
+				this.selector.wakeup();
+			});
+			this.continueHandshake(conn);
+			return;
+		}
+		this.onEstablished(conn);
+	}
+	
+	private final void continueHandshake(Connection conn) throws IOException {
+		if(conn.ssl.handshake()) {
+			this.onEstablished(conn);
+		} else if(!conn.ssl.isTaskPending()) {
+			conn.key.interestOps(conn.ssl.isFlushPending() ? SelectionKey.OP_WRITE : SelectionKey.OP_READ);
+		}
+	}
+	
+	private final void onEstablished(Connection conn) {
+		conn.established = true;
+		conn.lastSent = System.nanoTime();
+		this.establishLatency.record(conn.lastSent - conn.startTime);
+		this.open++;
+		this.peak = Math.max(this.peak, this.open);
+		conn.key.interestOps(SelectionKey.OP_READ);
+	}
+	
+	private final void send(Connection conn) throws IOException {
+		if(conn.pendingOut == null) {
+			conn.pendingOut = this.request.duplicate();
+			this.requestsSent++;
+		}
+		conn.io().write(conn.pendingOut);
+		if(conn.ssl != null && !conn.ssl.flush()) {
+			conn.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			return;
+		}
+		if(conn.pendingOut.hasRemaining()) {
+			conn.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+			return;
+		}
+		conn.pendingOut = null;
+		conn.key.interestOps(SelectionKey.OP_READ);
+	}
+	
+	private final void handle(Connection conn, int readyOps) {
+		try {
+			if((readyOps & SelectionKey.OP_CONNECT) != 0) {
+				if(!conn.channel.finishConnect()) {
+					return;
+				}
+				conn.key.interestOps(0);
+				this.onConnected(conn);
+				return;
+			}
+			if(!conn.established) {
+				if(conn.ssl != null) {
+					this.continueHandshake(conn);
+				}
+				return;
+			}
+			if((readyOps & SelectionKey.OP_WRITE) != 0) {
+				this.send(conn);
+			}
+			if((readyOps & SelectionKey.OP_READ) != 0 || (conn.ssl != null && conn.ssl.hasBufferedData())) {
+				int read;
+				do {
+					this.readBuffer.clear();
+					read = conn.io().read(this.readBuffer);
+					if(read > 0) {
+						this.bytesReceived += read;
+					}
+				} while(read > 0);
+				if(read == -1) {
+					this.serverClosed++;
+					this.fail(conn, "Closed by server");
+				}
+			}
+		} catch(IOException ex) {
+			this.fail(conn, reason(conn.established ? "Established: " : "Connect: ", ex));
+		}
+	}
+	
+	private final void tick(long trickleNanos) {
+		final long now = System.nanoTime();
+		final long connectTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(this.connectTimeout);
+		for(Connection conn : this.connections) {
+			if(!conn.channel.isOpen()) {
+				continue;
+			}
+			if(!conn.established) {
+				if(now - conn.startTime >= connectTimeoutNanos) {
+					this.fail(conn, "Connect: Timed out after " + this.connectTimeout + "ms");
+				}
+				continue;
+			}
+			if(trickleNanos > 0 && conn.pendingOut == null && now - conn.lastSent >= trickleNanos) {
+				conn.lastSent = now;
+				try {
+					this.send(conn);
+				} catch(IOException ex) {
+					this.fail(conn, reason("Established: ", ex));
+				}
+			}
+		}
+		this.connections.removeIf((conn) -> !conn.channel.isOpen());
+	}
+	
+	private static final long getUsedMemory() {
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		long used = runtime.totalMemory() - runtime.freeMemory();
+		for(BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+			if(pool.getName().equals("direct")) {
+				used += pool.getMemoryUsed();
+			}
+		}
+		return used;
+	}
+	
+	/** Runs the soak test, printing progress once per second.
+	 *
+	 * @param targetConnections The number of connections to open
+	 * @param rampPerSecond The number of connections to open per second
+	 * @param holdSeconds How long to hold the connections open once the ramp
+	 *            is over
+	 * @param trickleSeconds How often each connection sends a request, or
+	 *            zero to leave connections idle
+	 * @param maxFailures The number of failed connections after which the
+	 *            ramp is stopped
+	 * @return A report of the test's outcome
+	 * @throws IOException Thrown if the selector could not be opened */
+	public final String run(int targetConnections, int rampPerSecond, long holdSeconds, long trickleSeconds, int maxFailures) throws IOException {
+		final long baseline = getUsedMemory();
+		final long trickleNanos = TimeUnit.SECONDS.toNanos(trickleSeconds);
+		this.selector = Selector.open();
+		long memoryPerConnection = -1L;
+		int measuredAt = 0, stillOpen = 0;
+		try {
+			final long startTime = System.nanoTime();
+			long nextTick = startTime, nextReport = startTime + TimeUnit.SECONDS.toNanos(1L);
+			long holdUntil = -1L;
+			int attempted = 0;
+			while(true) {
+				long now = System.nanoTime();
+				if(holdUntil == -1L) {
+					long due = Math.min(targetConnections, (long) (((now - startTime) / 1000000000.0) * rampPerSecond) + 1L);
+					while(attempted < due && this.failureCount < maxFailures) {
+						attempted++;
+						this.openOne();
+					}
+					boolean pending = false;
+					for(Connection conn : this.connections) {
+						if(!conn.established && conn.channel.isOpen()) {
+							pending = true;
+							break;
+						}
+					}
+					if(!pending && (attempted >= targetConnections || this.failureCount >= maxFailures)) {
+						memoryPerConnection = this.open > 0 ? (getUsedMemory() - baseline) / this.open : -1L;
+						measuredAt = this.open;
+						System.out.println("Ramp finished with " + this.open + " open connections; holding for " + holdSeconds + "s");
+						now = System.nanoTime();
+						holdUntil = now + TimeUnit.SECONDS.toNanos(holdSeconds);
+					}
+				} else if(now - holdUntil >= 0) {
+					break;
+				}
+				
+				this.selector.select(10L);
+				for(SelectionKey key : this.selector.selectedKeys()) {
+					if(key.isValid()) {
+						this.handle((Connection) key.attachment(), key.readyOps());
+					}
+				}
+				this.selector.selectedKeys().clear();
+				Connection conn;
+				while((conn = this.resumed.poll()) != null) {
+					if(conn.key != null && conn.key.isValid() && !conn.established) {
+						this.handle(conn, 0);
+					}
+				}
+				
+				now = System.nanoTime();
+				if(now - nextTick >= 0) {
+					nextTick = now + TimeUnit.MILLISECONDS.toNanos(100L);
+					this.tick(trickleNanos);
+				}
+				if(now - nextReport >= 0) {
+					nextReport += TimeUnit.SECONDS.toNanos(1L);
+					System.out.println(String.format("[%4ds] open=%d, peak=%d, attempted=%d, failed=%d, requests=%d", Long.valueOf(TimeUnit.NANOSECONDS.toSeconds(now - startTime)), Integer.valueOf(this.open), Integer.valueOf(this.peak), Integer.valueOf(attempted), Integer.valueOf(this.failureCount), Integer.valueOf(this.requestsSent)));
+				}
+			}
+		} finally {
+			stillOpen = this.open;
+			for(Connection conn : this.connections) {
+				this.close(conn);
+			}
+			this.connections.clear();
+			this.selector.close();
+		}
+		
+		String report = "Peak open connections: ".concat(Integer.toString(this.peak)).concat(" (").concat(Integer.toString(stillOpen)).concat(" still open at the end of the hold)");
+		if(this.firstFailure != null) {
+			report = report.concat("\r\nFirst failure at ").concat(Integer.toString(this.openAtFirstFailure)).concat(" open connections: ").concat(this.firstFailure);
+		}
+		report = report.concat("\r\nFailures: ").concat(Integer.toString(this.failureCount)).concat(" (closed by server: ").concat(Integer.toString(this.serverClosed)).concat(")");
+		for(Map.Entry<String, Integer> entry : this.failures.entrySet()) {
+			report = report.concat("\r\n\t").concat(entry.getValue().toString()).concat("x ").concat(entry.getKey());
+		}
+		if(memoryPerConnection >= 0) {
+			report = report.concat("\r\nClient memory per connection (heap + direct, at ").concat(Integer.toString(measuredAt)).concat(" connections): ~").concat(Long.toString(memoryPerConnection)).concat(" bytes");
+		}
+		report = report.concat("\r\nRequests sent: ").concat(Integer.toString(this.requestsSent)).concat(", bytes received: ").concat(Long.toString(this.bytesReceived));
+		return report.concat("\r\n").concat(this.establishLatency.toString());
+	}
+	
+	/** @param args Program command line arguments
+	 * @throws Exception Thrown if the test could not be run */
+	public static final void main(String[] args) throws Exception {
+		if(args.length < 1) {
+			System.err.println("Usage: ConnectionSoakTest <url> [targetConnections=10000] [rampPerSecond=500] [holdSeconds=60] [trickleSeconds=0] [profile=rcvbuf=4096,sndbuf=4096,nodelay=true] [maxFailures=100]");
+			return;
+		}
+		Link target = new Link(args[0]);
+		int targetConnections = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+		int rampPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+		long holdSeconds = args.length > 3 ? Long.parseLong(args[3]) : 60L;
+		long trickleSeconds = args.length > 4 ? Long.parseLong(args[4]) : 0L;
+		SocketProfile profile = SocketProfile.forName(args.length > 5 ? args[5] : "rcvbuf=4096,sndbuf=4096,nodelay=true");
+		int maxFailures = args.length > 6 ? Integer.parseInt(args[6]) : 100;
+		
+		ConnectionSoakTest test = new ConnectionSoakTest(target, new TrustAnySSLCertificateSSLSocketFactory().getContext(), profile);
+		System.out.println("Opening " + targetConnections + " connections to " + target.host + ":" + target.port + (target.isSSL() ? " (TLS)" : "") + " at " + rampPerSecond + "/s using profile " + profile);
+		System.out.println(test.run(targetConnections, rampPerSecond, holdSeconds, trickleSeconds, maxFailures));
+	}
+	
+}
@@ -0,0 +1,323 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.bench;
+
+import com.gmail.br45entei.server.HTTPFraming;
+import com.gmail.br45entei.server.Link;
+import com.gmail.br45entei.server.RequestDeadlines;
+import com.gmail.br45entei.server.SocketProfile;
+import com.gmail.br45entei.util.LatencyHistogram;
+import com.gmail.br45entei.util.ThreadUtil;
+import com.gmail.br45entei.util.TimerWheel;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.net.ssl.SSLSocketFactory;
+
+/** Sends <tt>GET</tt> requests to a single URL from a fixed number of
+ * keep-alive connections for a fixed amount of time, recording latency and
+ * throughput.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class LoadGenerator {
+	
+	/** The outcome of one or more load runs.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Result {
+		
+		private final String name;
+		/** The time from sending each request until its response body was
+		 * read */
+		public final LatencyHistogram latency;
+		/** The time taken to connect (and complete the TLS handshake, if
+		 * any) */
+		public final LatencyHistogram connectLatency;
+		protected final AtomicLong requests = new AtomicLong(), errors = new AtomicLong(), timeouts = new AtomicLong(), bytes = new AtomicLong(), connections = new AtomicLong();
+		private final List<Long> perSecond = Collections.synchronizedList(new ArrayList<>());
+		private volatile long durationNanos = 0L;
+		
+		/** @param name The name of this result */
+		public Result(String name) {
+			this.name = name;
+			this.latency = new LatencyHistogram(name.concat(" latency"));
+			this.connectLatency = new LatencyHistogram(name.concat(" connect"));
+		}
+		
+		/** @return The name of this result */
+		public final String getName() {
+			return this.name;
+		}
+		
+		/** Adds the samples and counters of the given result to this one.
+		 *
+		 * @param other The result to add */
+		public final void add(Result other) {
+			this.latency.add(other.latency);
+			this.connectLatency.add(other.connectLatency);
+			this.requests.addAndGet(other.getRequests());
+			this.errors.addAndGet(other.getErrors());
+			this.timeouts.addAndGet(other.getTimeouts());
+			this.bytes.addAndGet(other.getBytes());
+			this.connections.addAndGet(other.getConnections());
+			this.perSecond.addAll(other.perSecond);
+			this.durationNanos += other.durationNanos;
+		}
+		
+		/** @return The number of completed requests */
+		public final long getRequests() {
+			return this.requests.get();
+		}
+		
+		/** @return The number of requests that failed (other than by timing
+		 *         out) */
+		public final long getErrors() {
+			return this.errors.get();
+		}
+		
+		/** @return The number of requests that timed out */
+		public final long getTimeouts() {
+			return this.timeouts.get();
+		}
+		
+		/** @return The number of response body bytes read */
+		public final long getBytes() {
+			return this.bytes.get();
+		}
+		
+		/** @return The number of connections that were opened */
+		public final long getConnections() {
+			return this.connections.get();
+		}
+		
+		/** @return The total time spent generating load, in nanoseconds */
+		public final long getDuration() {
+			return this.durationNanos;
+		}
+		
+		/** @return The mean number of completed requests per second */
+		public final double getThroughput() {
+			return this.durationNanos == 0 ? 0.0 : this.getRequests() / (this.durationNanos / 1000000000.0);
+		}
+		
+		/** @return The mean number of response body bytes read per second */
+		public final double getBytesPerSecond() {
+			return this.durationNanos == 0 ? 0.0 : this.getBytes() / (this.durationNanos / 1000000000.0);
+		}
+		
+		/** @param percentile The percentile to fetch, from <tt>0.0</tt> to
+		 *            <tt>100.0</tt>
+		 * @return The number of requests completed in the second at the given
+		 *         percentile of all (whole) seconds measured */
+		public final long getThroughputPercentile(double percentile) {
+			List<Long> samples;
+			synchronized(this.perSecond) {
+				samples = new ArrayList<>(this.perSecond);
+			}
+			if(samples.isEmpty()) {
+				return 0L;
+			}
+			Collections.sort(samples);
+			int index = (int) Math.ceil((Math.min(100.0, Math.max(0.0, percentile)) / 100.0) * samples.size()) - 1;
+			return samples.get(Math.max(0, index)).longValue();
+		}
+		
+		@Override
+		public String toString() {
+			return this.name.concat(": requests=").concat(Long.toString(this.getRequests())).concat(", errors=").concat(Long.toString(this.getErrors())).concat(", timeouts=").concat(Long.toString(this.getTimeouts())).concat(", connections=").concat(Long.toString(this.getConnections()))//
+					.concat("\r\nThroughput: ").concat(String.format("%.1f", Double.valueOf(this.getThroughput()))).concat(" req/s (per second: min=").concat(Long.toString(this.getThroughputPercentile(0.0))).concat(", p50=").concat(Long.toString(this.getThroughputPercentile(50.0))).concat(", max=").concat(Long.toString(this.getThroughputPercentile(100.0))).concat("), ").concat(String.format("%.2f", Double.valueOf(this.getBytesPerSecond() / 1048576.0))).concat(" MiB/s")//
+					.concat("\r\n").concat(this.latency.toString()).concat("\r\n").concat(this.connectLatency.toString());
+		}
+		
+	}
+	
+	private final Link target;
+	private final int concurrency;
+	private final long duration;
+	private final byte[] request;
+	private volatile SocketProfile profile = SocketProfile.DEFAULT;
+	private volatile SSLSocketFactory sslSocketFactory = (SSLSocketFactory) SSLSocketFactory.getDefault();
+	private volatile int connectTimeout = 10000;
+	private volatile long requestTimeout = 30000L;
+	
+	/** @param target The URL to request
+	 * @param concurrency The number of connections to send requests from
+	 * @param duration How long to send requests for, in milliseconds */
+	public LoadGenerator(Link target, int concurrency, long duration) {
+		this.target = target;
+		this.concurrency = Math.max(1, concurrency);
+		this.duration = duration;
+		String host = target.host.indexOf(':') >= 0 && !target.host.startsWith("[") ? "[".concat(target.host).concat("]") : target.host;
+		boolean defaultPort = target.port == (target.isSSL() ? 443 : 80);
+		this.request = ("GET ".concat(target.requestPath).concat(" HTTP/1.1\r\nHost: ").concat(host).concat(defaultPort ? "" : ":".concat(Integer.toString(target.port))).concat("\r\nUser-Agent: HTTPServerTester/1.0\r\nConnection: keep-alive\r\n\r\n")).getBytes(StandardCharsets.ISO_8859_1);
+	}
+	
+	/** @param profile The socket options to apply to each new connection
+	 * @return This load generator */
+	public final LoadGenerator setProfile(SocketProfile profile) {
+		this.profile = profile;
+		return this;
+	}
+	
+	/** @param factory The factory to create TLS connections with
+	 * @return This load generator */
+	public final LoadGenerator setSSLSocketFactory(SSLSocketFactory factory) {
+		this.sslSocketFactory = factory;
+		return this;
+	}
+	
+	/** @param connectTimeout The connect timeout in milliseconds
+	 * @param requestTimeout The timeout for each request (including its
+	 *            response body) in milliseconds
+	 * @return This load generator */
+	public final LoadGenerator setTimeouts(int connectTimeout, long requestTimeout) {
+		this.connectTimeout = connectTimeout;
+		this.requestTimeout = requestTimeout;
+		return this;
+	}
+	
+	/** Generates load until the configured duration has elapsed.
+	 *
+	 * @param name The name to give the result
+	 * @return The result
+	 * @throws InterruptedException Thrown if the current thread was
+	 *             interrupted while waiting for the workers to finish */
+	public final Result run(String name) throws InterruptedException {
+		final Result result = new Result(name);
+		final long startTime = System.nanoTime();
+		final long endTime = startTime + TimeUnit.MILLISECONDS.toNanos(this.duration);
+		final AtomicLongArray perSecond = new AtomicLongArray((int) TimeUnit.MILLISECONDS.toSeconds(this.duration) + 1);
+		Thread[] workers = new Thread[this.concurrency];
+		for(int i = 0; i < workers.length; i++) {
+			workers[i] = new Thread(() -> this.work(result, startTime, endTime, perSecond), "LoadGenerator #" + i);
+			workers[i].setDaemon(true);
+			workers[i].start();
+		}
+		for(Thread worker : workers) {
+			worker.join();
+		}
+		result.durationNanos = System.nanoTime() - startTime;
+		for(int i = 0; i < perSecond.length() - 1; i++) {// The last second is incomplete
+			result.perSecond.add(Long.valueOf(perSecond.get(i)));
+		}
+		return result;
+	}
+	
+	private final Socket connect() throws IOException {
+		return Link.createSocket(InetSocketAddress.createUnresolved(this.target.host, this.target.port), this.connectTimeout, this.target.isSSL() ? this.sslSocketFactory : null, this.profile);
+	}
+	
+	private final void work(Result result, long startTime, long endTime, AtomicLongArray perSecond) {
+		Socket socket = null;
+		InputStream in = null;
+		OutputStream out = null;
+		final List<String> headers = new ArrayList<>();
+		while(System.nanoTime() - endTime < 0) {
+			RequestDeadlines deadlines = null;
+			try {
+				if(socket == null) {
+					final long connectStartTime = System.nanoTime();
+					socket = this.connect();
+					result.connectLatency.record(System.nanoTime() - connectStartTime);
+					result.connections.incrementAndGet();
+					in = new BufferedInputStream(socket.getInputStream());
+					out = socket.getOutputStream();
+				}
+				deadlines = new RequestDeadlines(TimerWheel.getShared(), 0L, 0L, 0L, 0L, this.requestTimeout);
+				deadlines.setSocket(socket);
+				final long requestStartTime = System.nanoTime();
+				out.write(this.request);
+				out.flush();
+				String statusLine = Link.readLine(in);
+				if(statusLine == null) {
+					throw new EOFException("Connection closed before a response was received");
+				}
+				headers.clear();
+				String line;
+				while((line = Link.readLine(in)) != null && !line.isEmpty()) {
+					headers.add(line);
+				}
+				long body = HTTPFraming.discardBody(in, "GET", HTTPFraming.getStatusCode(statusLine), headers);
+				boolean keepAlive = body != -1L && HTTPFraming.isKeepAlive(statusLine.split(" ", 2)[0], headers);
+				if(body == -1L) {
+					body = 0L;
+					byte[] buf = new byte[8192];
+					int read;
+					while((read = in.read(buf)) != -1) {
+						body += read;
+					}
+				}
+				deadlines.close();
+				final long now = System.nanoTime();
+				result.latency.record(now - requestStartTime);
+				result.requests.incrementAndGet();
+				result.bytes.addAndGet(body);
+				int second = (int) TimeUnit.NANOSECONDS.toSeconds(now - startTime);
+				if(second < perSecond.length()) {
+					perSecond.incrementAndGet(second);
+				}
+				if(!keepAlive) {
+					socket.close();
+					socket = null;
+				}
+			} catch(IOException ex) {
+				if(deadlines != null) {
+					deadlines.close();
+					ex = deadlines.check(ex);
+				}
+				(ex instanceof SocketTimeoutException ? result.timeouts : result.errors).incrementAndGet();
+				if(socket == null) {// Couldn't connect; don't hammer the server
+					ThreadUtil.sleep(10L);
+				} else {
+					try {
+						socket.close();
+					} catch(IOException ignored) {
+					}
+					socket = null;
+				}
+			}
+		}
+		if(socket != null) {
+			try {
+				socket.close();
+			} catch(IOException ignored) {
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.bench;
+
+import com.gmail.br45entei.http.server.MimeTypes;
+import com.gmail.br45entei.util.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+/** Measures what loading the MIME type tables costs a freshly started
+ * process, which is what matters when the tool is run many times over from
+ * scripts.<br>
+ * Each run starts a new JVM that either initializes {@link MimeTypes} (the
+ * <tt>compact</tt> mode) or repeats the work that its static initializer used
+ * to do, i.e. putting every entry of <tt>builtin.list</tt> into a
+ * <tt>HashMap</tt> as interned string literals and then indexing the map by
+ * MIME type (the <tt>legacy</tt> mode). The child reports how long that took
+ * and how much heap it retained afterwards; the parent adds the process's
+ * total wall-clock time (which, in <tt>legacy</tt> mode, also includes
+ * reading the list).<br>
+ * <br>
+ * Usage: <tt>MimeTypesStartupBenchmark [runs=50]
+ * [list=resources/mime/builtin.list]</tt>
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public class MimeTypesStartupBenchmark {
+	
+	private static final String CHILD = "--child";
+	
+	/** The results of one mode's runs.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Result {
+		
+		public final String mode;
+		public final LatencyHistogram initTime, processTime;
+		protected long retainedBytes = 0L;
+		protected int runs = 0;
+		
+		protected Result(String mode) {
+			this.mode = mode;
+			this.initTime = new LatencyHistogram(mode.concat(" table init"));
+			this.processTime = new LatencyHistogram(mode.concat(" process"));
+		}
+		
+		/** @return The average number of bytes of heap retained by the
+		 *         tables */
+		public final long getRetainedBytes() {
+			return this.runs == 0 ? 0L : this.retainedBytes / this.runs;
+		}
+		
+		@Override
+		public String toString() {
+			return this.initTime.toString().concat("\r\n").concat(this.processTime.toString()).concat("\r\n").concat(this.mode).concat(" retained heap: ~").concat(Long.toString(this.getRetainedBytes() / 1024L)).concat(" KiB");
+		}
+		
+	}
+	
+	private static final long usedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	/** Runs one measurement in the current (freshly started) JVM and prints
+	 * the time taken and heap retained as <tt>&lt;nanos&gt; &lt;bytes&gt;</tt>.
+	 *
+	 * @param mode <tt>compact</tt> or <tt>legacy</tt>
+	 * @param list The <tt>builtin.list</tt> file (only read in
+	 *            <tt>legacy</tt> mode)
+	 * @throws IOException Thrown if the list could not be read */
+	protected static final void runChild(String mode, File list) throws IOException {
+		final Object retained;
+		final long before, nanos;
+		if(mode.equals("legacy")) {
+			before = usedHeap();
+			List<String[]> entries = new ArrayList<>();
+			for(String line : Files.readAllLines(list.toPath(), StandardCharsets.UTF_8)) {
+				int comment = line.indexOf('#');
+				line = (comment < 0 ? line : line.substring(0, comment)).strip();
+				int space = line.indexOf('\t');
+				if(space > 0) {
+					entries.add(new String[] {line.substring(0, space), line.substring(space + 1).strip()});
+				}
+			}
+			long start = System.nanoTime();
+			Map<String, String> mimeTypes = new HashMap<>();
+			for(String[] entry : entries) {
+				mimeTypes.put(entry[0].intern(), entry[1].intern());// The old static initializer used string literals
+			}
+			Map<String, List<String>> byMimeType = new HashMap<>();
+			for(Entry<String, String> entry : mimeTypes.entrySet()) {
+				String key = entry.getValue().toLowerCase();
+				List<String> extensions = byMimeType.get(key);
+				if(extensions == null) {
+					byMimeType.put(key, extensions = new ArrayList<>());
+				}
+				extensions.add(entry.getKey());
+			}
+			mimeTypes.get(".html");
+			byMimeType.get("text/html");
+			nanos = System.nanoTime() - start;
+			entries.clear();
+			retained = new Object[] {mimeTypes, byMimeType};
+		} else {
+			before = usedHeap();
+			long start = System.nanoTime();
+			MimeTypes.getMimeTypeForExtension(".html");
+			MimeTypes.getFirstExtensionForMimeType("text/html", null);
+			nanos = System.nanoTime() - start;
+			retained = MimeTypes.MIME_Types;
+		}
+		long bytes = usedHeap() - before;
+		System.out.println(Long.toString(nanos).concat(" ").concat(Long.toString(Math.max(0L, bytes))).concat(" ").concat(Integer.toString(System.identityHashCode(retained))));
+	}
+	
+	/** @param mode <tt>compact</tt> or <tt>legacy</tt>
+	 * @param runs The number of processes to start
+	 * @param list The <tt>builtin.list</tt> file
+	 * @return The results
+	 * @throws IOException Thrown if a child process could not be started or
+	 *             failed
+	 * @throws InterruptedException Thrown if the current thread was
+	 *             interrupted while waiting for a child process */
+	public static final Result run(String mode, int runs, File list) throws IOException, InterruptedException {
+		String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+		Result result = new Result(mode);
+		for(int i = 0; i < runs; i++) {
+			long start = System.nanoTime();
+			Process process = new ProcessBuilder(java, "-XX:+UseSerialGC", "-cp", System.getProperty("java.class.path"), MimeTypesStartupBenchmark.class.getName(), CHILD, mode, list.getPath()).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+			String line;
+			try(BufferedReader br = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8))) {
+				line = br.readLine();
+			}
+			int exitCode = process.waitFor();
+			result.processTime.record(System.nanoTime() - start);
+			if(exitCode != 0 || line == null) {
+				throw new IOException("Child process exited with code " + exitCode);
+			}
+			String[] split = line.split(" ");
+			result.initTime.record(Long.parseLong(split[0]));
+			result.retainedBytes += Long.parseLong(split[1]);
+			result.runs++;
+		}
+		return result;
+	}
+	
+	/** @param args Program command line arguments
+	 * @throws Exception Thrown if a child process failed */
+	public static final void main(String[] args) throws Exception {
+		if(args.length > 0 && args[0].equals(CHILD)) {
+			runChild(args[1], new File(args[2]));
+			return;
+		}
+		int runs;
+		try {
+			runs = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+		} catch(NumberFormatException ex) {
+			System.err.println("Usage: MimeTypesStartupBenchmark [runs=50] [list=resources/mime/builtin.list]");
+			return;
+		}
+		File list = new File(args.length > 1 ? args[1] : "resources/mime/builtin.list");
+		if(!list.isFile()) {
+			System.err.println("File not found: ".concat(list.getPath()));
+			return;
+		}
+		run("compact", 3, list);// Warm up the file system cache
+		run("legacy", 3, list);
+		Result legacy = run("legacy", runs, list);
+		Result compact = run("compact", runs, list);
+		System.out.println(legacy.toString());
+		System.out.println(compact.toString());
+		System.out.println(String.format("Table init p50: %.2fx faster, retained heap: %.2fx smaller", Double.valueOf(legacy.initTime.getPercentile(50.0) / (double) Math.max(1L, compact.initTime.getPercentile(50.0))), Double.valueOf(legacy.getRetainedBytes() / (double) Math.max(1L, compact.getRetainedBytes()))));
+	}
+	
+}
@@ -0,0 +1,107 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.bench;
+
+import com.gmail.br45entei.bench.LoadGenerator.Result;
+import com.gmail.br45entei.server.Link;
+import com.gmail.br45entei.server.SocketProfile;
+import com.gmail.br45entei.ssl.TrustAnySSLCertificateSSLSocketFactory;
+import com.gmail.br45entei.util.LatencyHistogram;
+
+/** Runs the same load against a URL under two socket profiles and prints how
+ * their latency and throughput differ.<br>
+ * Rounds alternate between the two profiles (A, B, A, B, ...) so that drift
+ * in the server or network affects both equally.<br>
+ * <br>
+ * Usage: <tt>SocketProfileABTest &lt;url&gt; &lt;profileA&gt; &lt;profileB&gt;
+ * [connections=16] [secondsPerRound=10] [rounds=3]</tt><br>
+ * Profiles are either registered names (see {@link SocketProfile}) or option
+ * lists such as <tt>rcvbuf=262144,nodelay=false</tt>.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public class SocketProfileABTest {
+	
+	private static final String row(String metric, double a, double b, String unit) {
+		String delta = a == 0.0 ? "n/a" : String.format("%+.1f%%", Double.valueOf(((b - a) / a) * 100.0));
+		return String.format("%-16s %14.2f %14.2f %10s  %s", metric, Double.valueOf(a), Double.valueOf(b), delta, unit);
+	}
+	
+	/** @param a The first profile's result
+	 * @param b The second profile's result
+	 * @return A table comparing the two results */
+	public static final String diff(Result a, Result b) {
+		String str = String.format("%-16s %14s %14s %10s", "", a.getName(), b.getName(), "B vs A");
+		str = str.concat("\r\n").concat(row("throughput", a.getThroughput(), b.getThroughput(), "req/s"));
+		str = str.concat("\r\n").concat(row("throughput p50", a.getThroughputPercentile(50.0), b.getThroughputPercentile(50.0), "req/s (per second)"));
+		str = str.concat("\r\n").concat(row("throughput min", a.getThroughputPercentile(0.0), b.getThroughputPercentile(0.0), "req/s (per second)"));
+		str = str.concat("\r\n").concat(row("transfer", a.getBytesPerSecond() / 1048576.0, b.getBytesPerSecond() / 1048576.0, "MiB/s"));
+		str = str.concat("\r\n").concat(row("latency mean", a.latency.getMean() / 1000000.0, b.latency.getMean() / 1000000.0, "ms"));
+		for(double percentile : new double[] {50.0, 90.0, 99.0, 99.9}) {
+			str = str.concat("\r\n").concat(row("latency p".concat(percentile == 99.9 ? "99.9" : Integer.toString((int) percentile)), a.latency.getPercentile(percentile) / 1000000.0, b.latency.getPercentile(percentile) / 1000000.0, "ms"));
+		}
+		str = str.concat("\r\n").concat(row("latency max", a.latency.getMax() / 1000000.0, b.latency.getMax() / 1000000.0, "ms"));
+		str = str.concat("\r\n").concat(row("connect p50", a.connectLatency.getPercentile(50.0) / 1000000.0, b.connectLatency.getPercentile(50.0) / 1000000.0, "ms"));
+		str = str.concat("\r\n").concat(row("connect p99", a.connectLatency.getPercentile(99.0) / 1000000.0, b.connectLatency.getPercentile(99.0) / 1000000.0, "ms"));
+		str = str.concat("\r\n").concat(row("errors", a.getErrors(), b.getErrors(), ""));
+		str = str.concat("\r\n").concat(row("timeouts", a.getTimeouts(), b.getTimeouts(), ""));
+		return str;
+	}
+	
+	/** @param args Program command line arguments
+	 * @throws Exception Thrown if the load could not be generated */
+	public static final void main(String[] args) throws Exception {
+		if(args.length < 3) {
+			System.err.println("Usage: SocketProfileABTest <url> <profileA> <profileB> [connections=16] [secondsPerRound=10] [rounds=3]");
+			System.err.print("Profiles:");
+			for(SocketProfile profile : SocketProfile.getProfiles()) {
+				System.err.print("\r\n\t".concat(profile.toString()));
+			}
+			System.err.println();
+			return;
+		}
+		Link target = new Link(args[0]);
+		SocketProfile[] profiles = {SocketProfile.forName(args[1]), SocketProfile.forName(args[2])};
+		int connections = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+		long seconds = args.length > 4 ? Long.parseLong(args[4]) : 10L;
+		int rounds = args.length > 5 ? Integer.parseInt(args[5]) : 3;
+		
+		Result[] totals = {new Result("A: ".concat(profiles[0].getName())), new Result("B: ".concat(profiles[1].getName()))};
+		for(int round = 1; round <= rounds; round++) {
+			for(int i = 0; i < 2; i++) {
+				System.out.println("Round " + round + "/" + rounds + ": " + profiles[i]);
+				LoadGenerator generator = new LoadGenerator(target, connections, seconds * 1000L).setProfile(profiles[i]).setSSLSocketFactory(new TrustAnySSLCertificateSSLSocketFactory());
+				Result result = generator.run(totals[i].getName());
+				System.out.println(String.format("\t%.1f req/s, p99=%sms, errors=%d, timeouts=%d", Double.valueOf(result.getThroughput()), LatencyHistogram.toMillis(result.latency.getPercentile(99.0)), Long.valueOf(result.getErrors()), Long.valueOf(result.getTimeouts())));
+				totals[i].add(result);
+			}
+		}
+		System.out.println();
+		System.out.println(totals[0].toString());
+		System.out.println();
+		System.out.println(totals[1].toString());
+		System.out.println();
+		System.out.println(diff(totals[0], totals[1]));
+	}
+	
+}
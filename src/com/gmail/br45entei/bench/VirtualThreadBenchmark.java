@@ -0,0 +1,300 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.bench;
+
+import com.gmail.br45entei.http.server.TargetEndpoints;
+import com.gmail.br45entei.http.server.TargetServer;
+import com.gmail.br45entei.server.HTTPFraming;
+import com.gmail.br45entei.server.Link;
+import com.gmail.br45entei.util.LatencyHistogram;
+import com.gmail.br45entei.util.ThreadUtil;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/** Compares serving connections from a {@link TargetServer} on a virtual
+ * thread each with serving them on a pool of platform threads.<br>
+ * <br>
+ * For each mode, a local target server is started and the given number of
+ * keep-alive connections are opened to it, each sending one request and then
+ * leaving the thread that serves it blocked waiting for the next one. The
+ * memory and threads that this costs per connection are then measured.
+ * Finally, requests are sent over the connections in turn, one at a time, so
+ * that every request has to wake up a different blocked thread; the time that
+ * this takes and the number of context switches the operating system made
+ * (Linux only) are reported per request.<br>
+ * <br>
+ * Both ends of each connection are in this process, so the memory figures
+ * include the client's socket as well; the difference between the modes is
+ * what matters. Resident memory is rarely given back to the operating system
+ * once used, so for the most accurate resident memory figures, run each mode
+ * in its own process.<br>
+ * <br>
+ * Usage: <tt>VirtualThreadBenchmark [connections=2000] [requests=20000]
+ * [modes=platform,virtual]</tt>
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public class VirtualThreadBenchmark {
+	
+	/** The outcome of one mode's run.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Result {
+		
+		public final String mode;
+		public final int connections;
+		public final long heapPerConnection, residentPerConnection;
+		public final int threadsAdded;
+		public final long contextSwitches;
+		public final long elapsedNanos;
+		public final LatencyHistogram latency;
+		
+		protected Result(String mode, int connections, long heapPerConnection, long residentPerConnection, int threadsAdded, long contextSwitches, long elapsedNanos, LatencyHistogram latency) {
+			this.mode = mode;
+			this.connections = connections;
+			this.heapPerConnection = heapPerConnection;
+			this.residentPerConnection = residentPerConnection;
+			this.threadsAdded = threadsAdded;
+			this.contextSwitches = contextSwitches;
+			this.elapsedNanos = elapsedNanos;
+			this.latency = latency;
+		}
+		
+		@Override
+		public String toString() {
+			long requests = this.latency.getCount();
+			return String.format("%-8s: %d connections, heap=%d B/conn, resident=%s, platform threads +%d; %d requests in %.2fs (%.0f/s), context switches=%s/request%n\t%s", //
+					this.mode, Integer.valueOf(this.connections), Long.valueOf(this.heapPerConnection), this.residentPerConnection < 0L ? "n/a" : Long.toString(this.residentPerConnection).concat(" B/conn"), Integer.valueOf(this.threadsAdded), //
+					Long.valueOf(requests), Double.valueOf(this.elapsedNanos / 1.0e9), Double.valueOf(requests / (this.elapsedNanos / 1.0e9)), //
+					this.contextSwitches < 0L ? "n/a" : String.format("%.2f", Double.valueOf(this.contextSwitches / (double) Math.max(1L, requests))), this.latency.toString());
+		}
+		
+	}
+	
+	private static final long getUsedHeap() {
+		Runtime runtime = Runtime.getRuntime();
+		for(int i = 0; i < 3; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+	
+	/** @return The number of live platform threads, once it has stopped
+	 *         falling (a terminated pool's threads may take a while to
+	 *         actually exit) */
+	private static final int getSettledThreadCount() {
+		ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+		int count = threads.getThreadCount(), last;
+		do {
+			last = count;
+			if(ThreadUtil.sleep(100L) != null) {
+				break;
+			}
+			count = threads.getThreadCount();
+		} while(count < last);
+		return count;
+	}
+	
+	/** @param file A <tt>/proc</tt> status file
+	 * @param fields The names of the fields to add up
+	 * @return The sum of the given fields' values, or <tt>-1</tt> if the file
+	 *         could not be read */
+	private static final long readStatus(File file, String... fields) {
+		long total = 0L;
+		try {
+			for(String line : Files.readAllLines(file.toPath(), StandardCharsets.ISO_8859_1)) {
+				for(String field : fields) {
+					if(line.startsWith(field) && line.length() > field.length() && line.charAt(field.length()) == ':') {
+						String value = line.substring(field.length() + 1).strip();
+						int space = value.indexOf(' ');
+						total += Long.parseLong(space < 0 ? value : value.substring(0, space));
+					}
+				}
+			}
+		} catch(IOException | NumberFormatException ex) {
+			return -1L;
+		}
+		return total;
+	}
+	
+	/** @return This process's resident memory in bytes, or <tt>-1</tt> if it
+	 *         is not available (it is only available on Linux) */
+	private static final long getResidentMemory() {
+		long kb = readStatus(new File("/proc/self/status"), "VmRSS");
+		return kb < 0L ? -1L : kb * 1024L;
+	}
+	
+	/** @return The number of context switches made by all of this process's
+	 *         threads so far, or <tt>-1</tt> if it is not available (it is
+	 *         only available on Linux) */
+	private static final long getContextSwitches() {
+		File[] tasks = new File("/proc/self/task").listFiles();
+		if(tasks == null) {
+			return -1L;
+		}
+		long total = 0L;
+		for(File task : tasks) {
+			long switches = readStatus(new File(task, "status"), "voluntary_ctxt_switches", "nonvoluntary_ctxt_switches");
+			if(switches > 0L) {// Threads may exit while they are being counted
+				total += switches;
+			}
+		}
+		return total;
+	}
+	
+	private static final void exchange(Socket socket, byte[] request) throws IOException {
+		OutputStream out = socket.getOutputStream();
+		out.write(request);
+		out.flush();
+		InputStream in = socket.getInputStream();
+		String responseLine = Link.readLine(in);
+		if(responseLine == null) {
+			throw new IOException("Connection closed by server");
+		}
+		List<String> headers = new ArrayList<>();
+		String line;
+		while((line = Link.readLine(in)) != null && !line.isEmpty()) {
+			headers.add(line);
+		}
+		if(HTTPFraming.discardBody(in, "GET", HTTPFraming.getStatusCode(responseLine), headers) < 0L) {
+			throw new IOException("Response body is not delimited: ".concat(responseLine));
+		}
+	}
+	
+	/** Runs one mode of the benchmark.
+	 *
+	 * @param virtual Whether to serve connections on virtual threads rather
+	 *            than platform threads
+	 * @param connections The number of connections to open
+	 * @param requests The number of requests to send once every connection
+	 *            is open
+	 * @return The result
+	 * @throws IOException Thrown if the server could not be started, or a
+	 *             connection failed
+	 * @throws UnsupportedOperationException Thrown if virtual threads were
+	 *             requested but the running JVM does not support them */
+	public static final Result run(boolean virtual, int connections, int requests) throws IOException, UnsupportedOperationException {
+		final String mode = virtual ? "virtual" : "platform";
+		final ExecutorService executor;
+		if(virtual) {
+			executor = ThreadUtil.newVirtualThreadPerTaskExecutor("TargetServer connection #");
+		} else {
+			AtomicInteger count = new AtomicInteger();
+			executor = Executors.newCachedThreadPool((r) -> {// The same pool as TargetServer.start() uses
+				Thread thread = new Thread(r, "TargetServer connection #".concat(Integer.toString(count.incrementAndGet())));
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		try(TargetServer server = new TargetServer(new Link("http://127.0.0.1:0/"), 4096)) {
+			TargetEndpoints.addDefaults(server).setIdleTimeout(0);
+			InetSocketAddress address = new InetSocketAddress("127.0.0.1", server.getLink().port);
+			byte[] request = "GET /bytes/16 HTTP/1.1\r\nHost: 127.0.0.1\r\nConnection: keep-alive\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+			List<Socket> sockets = new ArrayList<>(connections);
+			
+			final int baseThreads = getSettledThreadCount();
+			final long baseHeap = getUsedHeap(), baseResident = getResidentMemory();
+			server.start(executor);
+			try {
+				for(int i = 0; i < connections; i++) {
+					Socket socket = new Socket();
+					sockets.add(socket);
+					socket.setTcpNoDelay(true);
+					socket.connect(address, 10000);
+					exchange(socket, request);
+				}
+				final long heapPerConnection = (getUsedHeap() - baseHeap) / Math.max(1, connections);
+				final long resident = getResidentMemory();
+				final long residentPerConnection = resident < 0L || baseResident < 0L ? -1L : (resident - baseResident) / Math.max(1, connections);
+				final int threadsAdded = ManagementFactory.getThreadMXBean().getThreadCount() - baseThreads;
+				
+				LatencyHistogram latency = new LatencyHistogram(mode.concat(" request"));
+				final long baseSwitches = getContextSwitches();
+				final long startTime = System.nanoTime();
+				for(int i = 0; i < requests; i++) {
+					long start = System.nanoTime();
+					exchange(sockets.get(i % connections), request);
+					latency.record(System.nanoTime() - start);
+				}
+				final long elapsed = System.nanoTime() - startTime;
+				final long switches = getContextSwitches();
+				return new Result(mode, connections, heapPerConnection, residentPerConnection, threadsAdded, switches < 0L || baseSwitches < 0L ? -1L : switches - baseSwitches, elapsed, latency);
+			} finally {
+				for(Socket socket : sockets) {
+					try {
+						socket.close();
+					} catch(IOException ignored) {
+					}
+				}
+			}
+		} finally {
+			executor.shutdown();
+			try {// Let the connection threads exit so that they don't count against the next run
+				executor.awaitTermination(30L, TimeUnit.SECONDS);
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+	/** Runs the benchmark.
+	 *
+	 * @param args Program command line arguments
+	 * @throws Exception Thrown if the benchmark failed */
+	public static final void main(String[] args) throws Exception {
+		int connections = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+		int requests = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+		String[] modes = (args.length > 2 ? args[2] : "platform,virtual").split(",");
+		System.out.println("Java " + System.getProperty("java.version") + ", " + Runtime.getRuntime().availableProcessors() + " processors; " + connections + " connections, " + requests + " requests per mode");
+		for(String mode : modes) {
+			mode = mode.strip();
+			boolean virtual = mode.equalsIgnoreCase("virtual");
+			if(!virtual && !mode.equalsIgnoreCase("platform")) {
+				System.err.println("Unknown mode: \"" + mode + "\" (expected platform or virtual)");
+				continue;
+			}
+			if(virtual && !ThreadUtil.isVirtualThreadSupported()) {
+				System.out.println("virtual : skipped; virtual threads are not supported by Java " + System.getProperty("java.version"));
+				continue;
+			}
+			run(virtual, connections, Math.max(1, requests / 10));// Warm up
+			System.out.println(run(virtual, connections, requests));
+		}
+	}
+	
+}
@@ -0,0 +1,314 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/** A least-recently-used cache of compressed (e.g. gzip-encoded)
+ * representations of resources, bounded by the total number of bytes it
+ * holds.<br>
+ * Representations are encoded once, on this cache's own background
+ * thread(s), so requests never wait for compression unless they ask to: a
+ * request that misses can send the resource unencoded while the encoded
+ * representation is being prepared for the requests that follow it.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class CompressionCache implements Closeable {
+	
+	/** The smallest representation worth compressing, in bytes */
+	public static final int MIN_SIZE = 256;
+	/** The number of keys whose representations turned out to be too large
+	 * to cache that are remembered as such */
+	private static final int MAX_TOO_LARGE_KEYS = 1024;
+	
+	private final long maxBytes;
+	private final int maxEntrySize;
+	private final ExecutorService executor;
+	private final LinkedHashMap<String, byte[]> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private final LinkedHashMap<String, Boolean> tooLarge = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+		
+		@Override
+		protected final boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+			return this.size() > MAX_TOO_LARGE_KEYS;
+		}
+	};
+	private final Map<String, CompletableFuture<byte[]>> pending = new ConcurrentHashMap<>();
+	private long size = 0L;
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), compressions = new AtomicLong(), evictions = new AtomicLong();
+	
+	/** Creates a new cache that compresses on a single background thread.
+	 *
+	 * @param maxBytes The maximum total size of the cached representations,
+	 *            in bytes */
+	public CompressionCache(long maxBytes) {
+		this(maxBytes, 1);
+	}
+	
+	/** @param maxBytes The maximum total size of the cached representations,
+	 *            in bytes. No single representation may take up more than an
+	 *            eighth of it.
+	 * @param threads The number of background threads to compress with */
+	public CompressionCache(long maxBytes, int threads) {
+		this.maxBytes = maxBytes;
+		this.maxEntrySize = (int) Math.min(Integer.MAX_VALUE - 8, maxBytes / 8L);
+		AtomicInteger count = new AtomicInteger();
+		ThreadPoolExecutor executor = new ThreadPoolExecutor(Math.max(1, threads), Math.max(1, threads), 30L, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), (r) -> {
+			Thread thread = new Thread(r, "CompressionCache #".concat(Integer.toString(count.incrementAndGet())));
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		});
+		executor.allowCoreThreadTimeOut(true);
+		this.executor = executor;
+	}
+	
+	/** @param resource A string that identifies the resource (and its
+	 *            version, e.g. its entity tag)
+	 * @param encoding The content coding, e.g. <tt>gzip</tt>
+	 * @return The key of the resource's encoded representation */
+	public static final String getKey(String resource, String encoding) {
+		return encoding.concat(" ").concat(resource);
+	}
+	
+	/** @param mimeType A MIME type
+	 * @return Whether or not bodies of the given type are worth compressing
+	 *         (i.e. they are text, and not already compressed) */
+	public static final boolean isCompressible(String mimeType) {
+		if(mimeType == null) {
+			return false;
+		}
+		int semicolon = mimeType.indexOf(';');
+		String type = (semicolon < 0 ? mimeType : mimeType.substring(0, semicolon)).strip().toLowerCase();
+		if(type.startsWith("text/") || type.endsWith("+xml") || type.endsWith("+json")) {
+			return true;
+		}
+		switch(type) {
+		case "application/javascript":
+		case "application/x-javascript":
+		case "application/json":
+		case "application/xml":
+		case "application/x-yaml":
+		case "application/x-sh":
+		case "application/wasm":
+		case "image/svg+xml":
+		case "image/bmp":
+		case "image/x-icon":
+			return true;
+		default:
+			return false;
+		}
+	}
+	
+	/** Compresses the given stream with the best (slowest) gzip compression
+	 * level; since a representation is only compressed once, the extra time
+	 * is repaid by every response that sends it.
+	 *
+	 * @param in The stream to compress
+	 * @return The gzip-encoded data
+	 * @throws IOException Thrown if an error occurred while reading from the
+	 *             stream */
+	public static final byte[] gzip(InputStream in) throws IOException {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		try(GZIPOutputStream out = new GZIPOutputStream(baos, 8192) {
+			{
+				this.def.setLevel(Deflater.BEST_COMPRESSION);
+			}
+		}) {
+			in.transferTo(out);
+		}
+		return baos.toByteArray();
+	}
+	
+	/** @return The largest representation this cache will keep, in bytes */
+	public final int getMaxEntrySize() {
+		return this.maxEntrySize;
+	}
+	
+	/** @param key The key of the representation
+	 * @return The cached representation, or <tt><b>null</b></tt> if it isn't
+	 *         cached */
+	public final byte[] get(String key) {
+		byte[] data;
+		synchronized(this) {
+			data = this.entries.get(key);
+		}
+		(data == null ? this.misses : this.hits).incrementAndGet();
+		return data;
+	}
+	
+	/** @param key The key of the representation
+	 * @return Whether or not the representation has already been encoded
+	 *         once and turned out to be larger than
+	 *         {@link #getMaxEntrySize()}, in which case {@link #compress(String, Callable)}
+	 *         won't encode it again */
+	public final synchronized boolean isTooLarge(String key) {
+		return this.tooLarge.get(key) != null;
+	}
+	
+	/** @param key The key of the representation
+	 * @param data The representation to cache
+	 * @return Whether or not the representation was small enough to be
+	 *         cached (if not, the key is remembered as
+	 *         {@link #isTooLarge(String) too large}) */
+	public final boolean put(String key, byte[] data) {
+		if(data.length > this.maxEntrySize) {
+			synchronized(this) {
+				this.tooLarge.put(key, Boolean.TRUE);
+			}
+			return false;
+		}
+		synchronized(this) {
+			byte[] previous = this.entries.put(key, data);
+			this.size += data.length - (previous == null ? 0 : previous.length);
+			Iterator<byte[]> it = this.entries.values().iterator();
+			while(this.size > this.maxBytes && it.hasNext()) {
+				this.size -= it.next().length;
+				it.remove();
+				this.evictions.incrementAndGet();
+			}
+		}
+		return true;
+	}
+	
+	/** Returns the cached representation, or starts encoding it in the
+	 * background if it isn't cached (and isn't already being encoded).<br>
+	 * Representations that are {@link #isTooLarge(String) too large} to
+	 * cache are only encoded the first time they are asked for; after that,
+	 * the returned future fails right away, and callers should encode such
+	 * representations themselves as they send them.
+	 *
+	 * @param key The key of the representation
+	 * @param encoder The function that encodes the representation
+	 * @return The representation once it has been encoded */
+	public final CompletableFuture<byte[]> compress(String key, Callable<byte[]> encoder) {
+		byte[] data = this.get(key);
+		if(data != null) {
+			return CompletableFuture.completedFuture(data);
+		}
+		if(this.isTooLarge(key)) {
+			return CompletableFuture.failedFuture(new IllegalStateException("Representation is too large to cache: ".concat(key)));
+		}
+		CompletableFuture<byte[]> future = new CompletableFuture<>();
+		CompletableFuture<byte[]> existing = this.pending.putIfAbsent(key, future);
+		if(existing != null) {
+			return existing;
+		}
+		try {
+			this.executor.execute(() -> {
+				try {
+					byte[] encoded = encoder.call();
+					this.compressions.incrementAndGet();
+					this.put(key, encoded);
+					future.complete(encoded);
+				} catch(Throwable ex) {
+					future.completeExceptionally(ex);
+				} finally {
+					this.pending.remove(key, future);
+				}
+			});
+		} catch(RejectedExecutionException ex) {
+			this.pending.remove(key, future);
+			future.completeExceptionally(ex);
+		}
+		return future;
+	}
+	
+	/** @param key The key of the representation
+	 * @param encoder The function that encodes the representation
+	 * @return The cached representation, or <tt><b>null</b></tt> if it isn't
+	 *         cached yet (in which case it is encoded in the background, unless
+	 *         it is {@link #isTooLarge(String) too large} to cache) */
+	public final byte[] getOrCompress(String key, Callable<byte[]> encoder) {
+		CompletableFuture<byte[]> future = this.compress(key, encoder);
+		return future.isDone() && !future.isCompletedExceptionally() ? future.join() : null;
+	}
+	
+	/** @return The total size of the cached representations, in bytes */
+	public final synchronized long size() {
+		return this.size;
+	}
+	
+	/** @return The number of cached representations */
+	public final synchronized int getEntryCount() {
+		return this.entries.size();
+	}
+	
+	/** @return The number of lookups that found a cached representation */
+	public final long getHits() {
+		return this.hits.get();
+	}
+	
+	/** @return The number of lookups that found nothing */
+	public final long getMisses() {
+		return this.misses.get();
+	}
+	
+	/** @return The number of representations encoded so far */
+	public final long getCompressions() {
+		return this.compressions.get();
+	}
+	
+	/** @return The number of representations evicted to make room for
+	 *         others */
+	public final long getEvictions() {
+		return this.evictions.get();
+	}
+	
+	/** Discards every cached representation and stops the background
+	 * threads. */
+	@Override
+	public final void close() {
+		this.executor.shutdownNow();
+		synchronized(this) {
+			this.entries.clear();
+			this.tooLarge.clear();
+			this.size = 0L;
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "entries=".concat(Integer.toString(this.getEntryCount())).concat(", bytes=").concat(Long.toString(this.size())).concat(", hits=").concat(Long.toString(this.getHits())).concat(", misses=").concat(Long.toString(this.getMisses())).concat(", compressions=").concat(Long.toString(this.getCompressions())).concat(", evictions=").concat(Long.toString(this.getEvictions()));
+	}
+	
+}
@@ -0,0 +1,376 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/** Works out the type of a message body from its first few hundred bytes,
+ * as they are read, so that a download can be given a sensible file name
+ * without a second pass over (or buffering of) the whole body.<br>
+ * Binary formats are recognised by their magic numbers (gzip, zip, PNG, JPEG,
+ * PDF and ELF); JSON and HTML are recognised by their leading non-whitespace
+ * characters, following the rules that browsers use for sniffing HTML.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class ContentSniffer {
+	
+	/** The maximum number of bytes that a sniffer looks at */
+	public static final int SNIFF_LENGTH = 512;
+	
+	/** The content types that a {@link ContentSniffer} can recognise.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static enum Signature {
+		/** A gzip stream (<tt>1F 8B</tt>) */
+		GZIP("application/x-gzip", ".gz", true, 0x1F, 0x8B),
+		/** A zip archive (<tt>PK\3\4</tt>, or <tt>PK\5\6</tt> if empty) */
+		ZIP("application/zip", ".zip", true, 'P', 'K', 3, 4),
+		/** A PNG image */
+		PNG("image/png", ".png", true, 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n'),
+		/** A JPEG image (<tt>FF D8 FF</tt>) */
+		JPEG("image/jpeg", ".jpg", true, 0xFF, 0xD8, 0xFF),
+		/** A PDF document (<tt>%PDF-</tt>) */
+		PDF("application/pdf", ".pdf", true, '%', 'P', 'D', 'F', '-'),
+		/** An ELF executable, shared library or object file
+		 * (<tt>7F 'E' 'L' 'F'</tt>) */
+		ELF("application/x-executable", ".elf", true, 0x7F, 'E', 'L', 'F'),
+		/** A JSON object or array */
+		JSON("application/json", ".json", false),
+		/** An HTML document */
+		HTML("text/html", ".html", false);
+		
+		private final String mimeType, extension;
+		private final boolean binary;
+		private final byte[] magic;
+		
+		private Signature(String mimeType, String extension, boolean binary, int... magic) {
+			this.mimeType = mimeType;
+			this.extension = extension;
+			this.binary = binary;
+			this.magic = new byte[magic.length];
+			for(int i = 0; i < magic.length; i++) {
+				this.magic[i] = (byte) magic[i];
+			}
+		}
+		
+		/** @return This type's MIME type */
+		public final String getMimeType() {
+			return this.mimeType;
+		}
+		
+		/** @return The file extension (with leading dot) that this type is
+		 *         usually saved with, if {@link MimeTypes} agrees that it
+		 *         belongs to this type's MIME type; otherwise, the first
+		 *         extension that {@link MimeTypes} knows for it */
+		public final String getExtension() {
+			for(String ext : MimeTypes.getExtensionsForMimeType(this.mimeType)) {
+				if(ext.equalsIgnoreCase(this.extension)) {
+					return ext;
+				}
+			}
+			return MimeTypes.getFirstExtensionForMimeType(this.mimeType, this.extension);
+		}
+		
+		/** @return Whether or not this type is recognised by a magic number
+		 *         (rather than by looking at text), in which case it can't be
+		 *         mistaken for a text format */
+		public final boolean isBinary() {
+			return this.binary;
+		}
+		
+		/** @return <tt>1</tt> if the given bytes start with this type's magic
+		 *         number, <tt>0</tt> if they might once more bytes have been
+		 *         seen, or <tt>-1</tt> if they don't */
+		protected final int matches(byte[] buf, int length) {
+			for(int i = 0; i < this.magic.length; i++) {
+				if(i >= length) {
+					return 0;
+				}
+				if(buf[i] != this.magic[i]) {
+					if(this == ZIP && i == 2) {// An empty archive starts with its end of central directory record
+						return length < 4 ? (buf[2] == 5 ? 0 : -1) : (buf[2] == 5 && buf[3] == 6 ? 1 : -1);
+					}
+					return -1;
+				}
+			}
+			return 1;
+		}
+		
+	}
+	
+	/** The tags that an HTML document may start with, from the WHATWG MIME
+	 * Sniffing standard; each must be followed by a space or <tt>'&gt;'</tt> */
+	private static final String[] HTML_TAGS = {"<!DOCTYPE HTML", "<HTML", "<HEAD", "<SCRIPT", "<IFRAME", "<H1", "<DIV", "<FONT", "<TABLE", "<A", "<STYLE", "<TITLE", "<B", "<BODY", "<BR", "<P", "<!--"};
+	private static final int LONGEST_HTML_TAG = "<!DOCTYPE HTML".length();
+	
+	private final byte[] buf = new byte[SNIFF_LENGTH];
+	private int length = 0;
+	private volatile Signature signature;
+	private volatile boolean complete = false;
+	
+	/** Feeds the next bytes of the body to this sniffer. Once
+	 * {@link #isComplete()} returns <tt>true</tt>, further bytes are
+	 * ignored.
+	 *
+	 * @param b The buffer containing the bytes
+	 * @param off The offset of the first byte
+	 * @param len The number of bytes
+	 * @return Whether or not this sniffer has seen enough bytes to decide */
+	public final boolean update(byte[] b, int off, int len) {
+		if(this.complete) {
+			return true;
+		}
+		int count = Math.min(len, SNIFF_LENGTH - this.length);
+		System.arraycopy(b, off, this.buf, this.length, count);
+		this.length += count;
+		this.detect(this.length == SNIFF_LENGTH);
+		return this.complete;
+	}
+	
+	/** @param b The next byte of the body
+	 * @return Whether or not this sniffer has seen enough bytes to decide
+	 * @see #update(byte[], int, int) */
+	public final boolean update(int b) {
+		if(this.complete) {
+			return true;
+		}
+		this.buf[this.length++] = (byte) b;
+		this.detect(this.length == SNIFF_LENGTH);
+		return this.complete;
+	}
+	
+	/** Forgets every byte seen so far, e.g. because the body turned out to be
+	 * encoded differently than expected and is being read again. */
+	public final void reset() {
+		this.length = 0;
+		this.signature = null;
+		this.complete = false;
+	}
+	
+	/** @return Whether or not this sniffer has seen enough bytes to decide
+	 *         (any further bytes are ignored) */
+	public final boolean isComplete() {
+		return this.complete;
+	}
+	
+	/** @return The number of bytes that this sniffer has looked at */
+	public final int getLength() {
+		return this.length;
+	}
+	
+	private final void detect(boolean end) {
+		if(this.length == 0) {
+			this.complete = end;
+			return;
+		}
+		boolean undecided = false;
+		for(Signature signature : Signature.values()) {
+			if(signature.isBinary()) {
+				int match = signature.matches(this.buf, this.length);
+				if(match > 0) {
+					this.signature = signature;
+					this.complete = true;
+					return;
+				}
+				undecided |= match == 0;
+			}
+		}
+		if(undecided && !end) {
+			return;
+		}
+		int start = 0;
+		if((this.buf[0] & 0xFF) == 0xEF && (this.length < 2 || (this.buf[1] & 0xFF) == 0xBB) && (this.length < 3 || (this.buf[2] & 0xFF) == 0xBF)) {
+			if(this.length < 3) {
+				this.complete = end;
+				return;
+			}
+			start = 3;// UTF-8 byte order mark
+		}
+		while(start < this.length && isWhitespace(this.buf[start])) {
+			start++;
+		}
+		if(start == this.length) {
+			this.complete = end;
+			return;
+		}
+		byte first = this.buf[start];
+		if(first == '{' || first == '[') {
+			int next = start + 1;
+			while(next < this.length && isWhitespace(this.buf[next])) {
+				next++;
+			}
+			if(next == this.length) {
+				this.complete = end;
+				return;
+			}
+			byte second = this.buf[next];
+			if(first == '{' ? second == '"' || second == '}' : second == '{' || second == '[' || second == '"' || second == ']' || second == '-' || (second >= '0' && second <= '9') || second == 't' || second == 'f' || second == 'n') {
+				this.signature = Signature.JSON;
+			}
+			this.complete = true;
+			return;
+		}
+		if(first == '<') {
+			if(this.length - start <= LONGEST_HTML_TAG && !end) {
+				return;// Wait for enough bytes to match every tag
+			}
+			for(String tag : HTML_TAGS) {
+				int after = start + tag.length();
+				if(after < this.length && (this.buf[after] == ' ' || this.buf[after] == '>') && regionMatchesIgnoreCase(this.buf, start, tag)) {
+					this.signature = Signature.HTML;
+					break;
+				}
+			}
+		}
+		this.complete = true;
+	}
+	
+	private static final boolean isWhitespace(byte b) {
+		return b == ' ' || b == '\t' || b == '\n' || b == '\r' || b == '\f';
+	}
+	
+	private static final boolean regionMatchesIgnoreCase(byte[] buf, int start, String upperCase) {
+		for(int i = 0; i < upperCase.length(); i++) {
+			int c = buf[start + i];
+			if(c >= 'a' && c <= 'z') {
+				c -= 'a' - 'A';
+			}
+			if(c != upperCase.charAt(i)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/** @return The type of the bytes seen so far, or <tt><b>null</b></tt> if
+	 *         they don't match any known type */
+	public final Signature getSignature() {
+		if(!this.complete) {
+			this.detect(true);
+		}
+		return this.signature;
+	}
+	
+	/** @param mimeType A MIME type (parameters are ignored)
+	 * @return Whether or not the given MIME type says nothing useful about
+	 *         the content (e.g. <tt>application/octet-stream</tt>) */
+	public static final boolean isGeneric(String mimeType) {
+		String type = stripParameters(mimeType);
+		return type.isEmpty() || type.equalsIgnoreCase(MimeTypes.DEFAULT_MIME_TYPE) || type.equalsIgnoreCase("binary/octet-stream") || type.equalsIgnoreCase("application/unknown") || type.equalsIgnoreCase("application/x-binary") || type.equalsIgnoreCase("unknown/unknown") || type.equalsIgnoreCase("text/plain");
+	}
+	
+	/** @param mimeType A MIME type (parameters are ignored)
+	 * @return Whether or not the given MIME type describes text */
+	public static final boolean isTextual(String mimeType) {
+		String type = stripParameters(mimeType).toLowerCase();
+		return type.startsWith("text/") || type.endsWith("/json") || type.endsWith("+json") || type.endsWith("/xml") || type.endsWith("+xml") || type.equals("application/javascript");
+	}
+	
+	private static final String stripParameters(String mimeType) {
+		int semicolon = mimeType.indexOf(';');
+		return (semicolon < 0 ? mimeType : mimeType.substring(0, semicolon)).strip();
+	}
+	
+	/** Decides which MIME type to go by, given the one that the server sent
+	 * (if any) and what this sniffer has seen.<br>
+	 * A magic number wins over a missing, generic or textual
+	 * <tt>Content-Type</tt> (a PNG image can't be HTML, whatever the server
+	 * says), while JSON and HTML only win over a missing or generic one.
+	 *
+	 * @param declared The <tt>Content-Type</tt> that the server sent, or
+	 *            <tt><b>null</b></tt>
+	 * @return The MIME type to use, or <tt><b>null</b></tt> if there was none
+	 *         declared and the content wasn't recognised */
+	public final String resolveMimeType(String declared) {
+		Signature signature = this.getSignature();
+		if(signature == null) {
+			return declared;
+		}
+		if(declared == null || isGeneric(declared) || (signature.isBinary() && isTextual(declared))) {
+			return signature.getMimeType();
+		}
+		return declared;
+	}
+	
+	/** Decides which file extension to save the content with, given the
+	 * <tt>Content-Type</tt> that the server sent (if any) and what this
+	 * sniffer has seen.<br>
+	 * If the sniffed type is the one that {@link #resolveMimeType(String)}
+	 * goes by, its {@link Signature#getExtension() usual extension} is used;
+	 * otherwise, the first extension that {@link MimeTypes} knows for the
+	 * declared type is.
+	 *
+	 * @param declared The <tt>Content-Type</tt> that the server sent, or
+	 *            <tt><b>null</b></tt>
+	 * @return The file extension (with leading dot), or <tt><b>null</b></tt>
+	 *         if none could be determined */
+	public final String resolveExtension(String declared) {
+		Signature signature = this.getSignature();
+		String mimeType = this.resolveMimeType(declared);
+		if(mimeType == null) {
+			return null;
+		}
+		if(signature != null && stripParameters(mimeType).equalsIgnoreCase(signature.getMimeType())) {
+			return signature.getExtension();
+		}
+		return MimeTypes.getFirstExtensionForMimeType(mimeType, null);
+	}
+	
+	/** @param out The stream that the body is being written to
+	 * @return A stream that writes everything to the given one, feeding the
+	 *         first {@link #SNIFF_LENGTH} bytes to this sniffer as well */
+	public final OutputStream tee(final OutputStream out) {
+		return new OutputStream() {
+			@Override
+			public final void write(int b) throws IOException {
+				out.write(b);
+				ContentSniffer.this.update(b);
+			}
+			
+			@Override
+			public final void write(byte[] b, int off, int len) throws IOException {
+				out.write(b, off, len);
+				ContentSniffer.this.update(b, off, len);
+			}
+			
+			@Override
+			public final void flush() throws IOException {
+				out.flush();
+			}
+			
+			@Override
+			public final void close() throws IOException {
+				out.close();
+			}
+		};
+	}
+	
+	@Override
+	public String toString() {
+		Signature signature = this.getSignature();
+		return signature == null ? "unknown (".concat(Integer.toString(this.length)).concat(" bytes sniffed)") : signature.name().concat(" (").concat(signature.getMimeType()).concat(")");
+	}
+	
+}
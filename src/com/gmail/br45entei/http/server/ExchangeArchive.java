@@ -0,0 +1,369 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** A compact, indexed archive of recorded HTTP exchanges (request line and
+ * headers, plus the response's status line, headers and body), for replaying
+ * production-shaped traffic offline with a {@link ReplayEndpoint}.<br>
+ * <br>
+ * Exchanges are appended as they are recorded. Each one is a small binary
+ * head followed by the raw body, so opening an archive only has to read the
+ * heads; bodies are read (or {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)
+ * transferred}) straight from the file when they are replayed. Closing a
+ * {@link Writer} appends an index of where each exchange starts; archives
+ * whose writer never got to close are re-indexed by scanning them.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class ExchangeArchive implements Closeable {
+	
+	private static final long MAGIC = 0x4853544152433031L;// "HSTARC01"
+	private static final long INDEX_MAGIC = 0x4853544944583031L;// "HSTIDX01"
+	private static final int TRAILER_LENGTH = 16;
+	
+	/** A recorded exchange.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Exchange {
+		
+		public final String method;
+		/** The request target as it was sent, e.g. <tt>/index.html?x=y</tt> */
+		public final String target;
+		public final List<String> requestHeaders;
+		public final String responseLine;
+		public final List<String> responseHeaders;
+		/** The time from sending the request until the response's first byte
+		 * arrived, in nanoseconds */
+		public final long firstByteNanos;
+		/** The time from sending the request until the response had been read,
+		 * in nanoseconds */
+		public final long totalNanos;
+		/** The length of the recorded body, or <tt>-1</tt> if the body wasn't
+		 * read (and so wasn't recorded) */
+		public final long bodyLength;
+		/** The position of the body in the archive */
+		protected final long bodyOffset;
+		
+		protected Exchange(String method, String target, List<String> requestHeaders, String responseLine, List<String> responseHeaders, long firstByteNanos, long totalNanos, long bodyLength, long bodyOffset) {
+			this.method = method;
+			this.target = target;
+			this.requestHeaders = requestHeaders;
+			this.responseLine = responseLine;
+			this.responseHeaders = responseHeaders;
+			this.firstByteNanos = firstByteNanos;
+			this.totalNanos = totalNanos;
+			this.bodyLength = bodyLength;
+			this.bodyOffset = bodyOffset;
+		}
+		
+		@Override
+		public String toString() {
+			return this.method.concat(" ").concat(this.target).concat(" -> ").concat(this.responseLine);
+		}
+		
+	}
+	
+	/** Appends exchanges to an archive file.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Writer implements Closeable {
+		
+		private final File file;
+		private final DataOutputStream out;
+		private final List<Long> offsets = new ArrayList<>();
+		private long position;
+		private boolean closed = false;
+		
+		/** @param file The file to write the archive to (replacing any
+		 *            existing file)
+		 * @throws IOException Thrown if the file could not be created */
+		public Writer(File file) throws IOException {
+			this.file = file;
+			this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file, false), 65536));
+			this.out.writeLong(MAGIC);
+			this.position = 8L;
+		}
+		
+		/** @return The file being written */
+		public final File getFile() {
+			return this.file;
+		}
+		
+		/** @return The number of exchanges recorded so far */
+		public final synchronized int size() {
+			return this.offsets.size();
+		}
+		
+		private static final void writeLines(DataOutputStream out, List<String> lines) throws IOException {
+			out.writeShort(Math.min(0xFFFF, lines.size()));
+			for(int i = 0; i < Math.min(0xFFFF, lines.size()); i++) {
+				out.writeUTF(lines.get(i));
+			}
+		}
+		
+		/** Records an exchange.
+		 *
+		 * @param method The request's method
+		 * @param target The request target as it was sent
+		 * @param requestHeaders The request's headers
+		 * @param responseLine The response's status line
+		 * @param responseHeaders The response's headers
+		 * @param body The response's body (after any chunked framing was
+		 *            removed, but before any content coding was decoded), or
+		 *            <tt><b>null</b></tt> if it wasn't read
+		 * @param firstByteNanos The time from sending the request until the
+		 *            response's first byte arrived, in nanoseconds
+		 * @param totalNanos The time from sending the request until the
+		 *            response had been read, in nanoseconds
+		 * @throws IOException Thrown if the exchange could not be written */
+		public final synchronized void record(String method, String target, List<String> requestHeaders, String responseLine, List<String> responseHeaders, byte[] body, long firstByteNanos, long totalNanos) throws IOException {
+			if(this.closed) {
+				throw new IOException("This archive has already been closed!");
+			}
+			ByteArrayOutputStream baos = new ByteArrayOutputStream(512);
+			DataOutputStream head = new DataOutputStream(baos);
+			head.writeUTF(method);
+			head.writeUTF(target);
+			writeLines(head, requestHeaders);
+			head.writeUTF(responseLine);
+			writeLines(head, responseHeaders);
+			head.writeLong(firstByteNanos);
+			head.writeLong(totalNanos);
+			head.writeLong(body == null ? -1L : body.length);
+			head.flush();
+			this.offsets.add(Long.valueOf(this.position));
+			this.out.writeInt(baos.size());
+			baos.writeTo(this.out);
+			if(body != null) {
+				this.out.write(body);
+			}
+			this.out.flush();
+			this.position += 4L + baos.size() + (body == null ? 0 : body.length);
+		}
+		
+		/** Writes the archive's index and closes it. */
+		@Override
+		public final synchronized void close() throws IOException {
+			if(this.closed) {
+				return;
+			}
+			this.closed = true;
+			try {
+				long indexOffset = this.position;
+				this.out.writeInt(this.offsets.size());
+				for(Long offset : this.offsets) {
+					this.out.writeLong(offset.longValue());
+				}
+				this.out.writeLong(indexOffset);
+				this.out.writeLong(INDEX_MAGIC);
+			} finally {
+				this.out.close();
+			}
+		}
+		
+	}
+	
+	private final File file;
+	private final FileChannel channel;
+	private final List<Exchange> exchanges;
+	private final boolean indexed;
+	
+	/** Opens an archive and reads the heads of its exchanges.
+	 *
+	 * @param file The archive file
+	 * @throws IOException Thrown if the file could not be read or is not an
+	 *             archive */
+	public ExchangeArchive(File file) throws IOException {
+		this.file = file;
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = this.channel.size();
+			ByteBuffer buf = ByteBuffer.allocate(TRAILER_LENGTH);
+			if(size < 8L || this.read(buf.limit(8), 0L).getLong(0) != MAGIC) {
+				throw new IOException("Not an exchange archive: ".concat(file.getPath()));
+			}
+			long[] offsets = null;
+			long end = size;
+			if(size >= 8L + 4L + TRAILER_LENGTH && this.read(buf.clear(), size - TRAILER_LENGTH).getLong(8) == INDEX_MAGIC) {
+				long indexOffset = buf.getLong(0);
+				if(indexOffset >= 8L && indexOffset <= size - TRAILER_LENGTH - 4L) {
+					ByteBuffer index = this.read(ByteBuffer.allocate((int) (size - TRAILER_LENGTH - indexOffset)), indexOffset);
+					int count = index.getInt(0);
+					if(count >= 0 && 4L + (count * 8L) == index.capacity()) {
+						offsets = new long[count];
+						index.position(4).asLongBuffer().get(offsets);
+						end = indexOffset;
+					}
+				}
+			}
+			this.indexed = offsets != null;
+			List<Exchange> exchanges = new ArrayList<>(offsets == null ? 16 : offsets.length);
+			if(offsets != null) {
+				for(long offset : offsets) {
+					exchanges.add(this.readExchange(offset, end));
+				}
+			} else {// The writer never finished; scan for as many complete exchanges as there are
+				long offset = 8L;
+				while(offset < end) {
+					Exchange exchange;
+					try {
+						exchange = this.readExchange(offset, end);
+					} catch(EOFException ex) {
+						break;
+					}
+					exchanges.add(exchange);
+					offset = exchange.bodyOffset + Math.max(0L, exchange.bodyLength);
+				}
+			}
+			this.exchanges = Collections.unmodifiableList(exchanges);
+		} catch(IOException | RuntimeException ex) {
+			this.channel.close();
+			throw ex;
+		}
+	}
+	
+	private final ByteBuffer read(ByteBuffer buf, long position) throws IOException {
+		while(buf.hasRemaining()) {
+			if(this.channel.read(buf, position + buf.position()) < 0) {
+				throw new EOFException("Unexpected end of archive: ".concat(this.file.getPath()));
+			}
+		}
+		return buf.flip();
+	}
+	
+	private static final List<String> readLines(DataInputStream in) throws IOException {
+		String[] lines = new String[in.readUnsignedShort()];
+		for(int i = 0; i < lines.length; i++) {
+			lines[i] = in.readUTF();
+		}
+		return Collections.unmodifiableList(Arrays.asList(lines));
+	}
+	
+	private final Exchange readExchange(long offset, long end) throws IOException {
+		if(offset + 4L > end) {
+			throw new EOFException("Truncated exchange at offset ".concat(Long.toString(offset)));
+		}
+		int headLength = this.read(ByteBuffer.allocate(4), offset).getInt(0);
+		if(headLength < 0 || offset + 4L + headLength > end) {
+			throw new EOFException("Truncated exchange at offset ".concat(Long.toString(offset)));
+		}
+		ByteBuffer head = this.read(ByteBuffer.allocate(headLength), offset + 4L);
+		DataInputStream in = new DataInputStream(new InputStream() {
+			@Override
+			public int read() {
+				return head.hasRemaining() ? head.get() & 0xFF : -1;
+			}
+			
+			@Override
+			public int read(byte[] b, int off, int len) {
+				if(!head.hasRemaining()) {
+					return len == 0 ? 0 : -1;
+				}
+				len = Math.min(len, head.remaining());
+				head.get(b, off, len);
+				return len;
+			}
+		});
+		String method = in.readUTF(), target = in.readUTF();
+		List<String> requestHeaders = readLines(in);
+		String responseLine = in.readUTF();
+		List<String> responseHeaders = readLines(in);
+		long firstByteNanos = in.readLong(), totalNanos = in.readLong(), bodyLength = in.readLong();
+		long bodyOffset = offset + 4L + headLength;
+		if(bodyOffset + Math.max(0L, bodyLength) > end) {
+			throw new EOFException("Truncated body at offset ".concat(Long.toString(bodyOffset)));
+		}
+		return new Exchange(method, target, requestHeaders, responseLine, responseHeaders, firstByteNanos, totalNanos, bodyLength, bodyOffset);
+	}
+	
+	/** @return The archive file */
+	public final File getFile() {
+		return this.file;
+	}
+	
+	/** @return Whether or not the archive had an index (i.e. its writer was
+	 *         closed properly) */
+	public final boolean isIndexed() {
+		return this.indexed;
+	}
+	
+	/** @return The recorded exchanges, in the order they were recorded */
+	public final List<Exchange> getExchanges() {
+		return this.exchanges;
+	}
+	
+	/** @return The channel that the archive is read from */
+	public final FileChannel getChannel() {
+		return this.channel;
+	}
+	
+	/** @param exchange An exchange from this archive
+	 * @return The exchange's recorded body (empty if it wasn't recorded)
+	 * @throws IOException Thrown if the body could not be read */
+	public final byte[] readBody(Exchange exchange) throws IOException {
+		if(exchange.bodyLength <= 0L) {
+			return new byte[0];
+		}
+		if(exchange.bodyLength > Integer.MAX_VALUE - 8) {
+			throw new IOException("The body is too large to read into memory");
+		}
+		return this.read(ByteBuffer.allocate((int) exchange.bodyLength), exchange.bodyOffset).array();
+	}
+	
+	/** @param exchange An exchange from this archive
+	 * @param out The stream to write the exchange's body to
+	 * @throws IOException Thrown if the body could not be read or written */
+	public final void writeBody(Exchange exchange, OutputStream out) throws IOException {
+		out.write(this.readBody(exchange));
+	}
+	
+	@Override
+	public final void close() throws IOException {
+		this.channel.close();
+	}
+	
+	@Override
+	public String toString() {
+		return this.file.getPath().concat(": ").concat(Integer.toString(this.exchanges.size())).concat(" exchange(s)").concat(this.indexed ? "" : " (not indexed)");
+	}
+	
+}
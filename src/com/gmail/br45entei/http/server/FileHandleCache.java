@@ -0,0 +1,237 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A least-recently-used cache of open, read-only {@link FileChannel}s, so
+ * that frequently requested files don't have to be opened (and closed) for
+ * every request.<br>
+ * Handles are reference counted: a handle that is evicted (or found to be
+ * stale) while it is still being read from is only closed once its last user
+ * has released it. Files are checked for changes at most once per
+ * {@link #getValidity() validity period}.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class FileHandleCache implements Closeable {
+	
+	/** An open file, along with the metadata it had when it was opened.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Handle implements Closeable {
+		
+		public final File file;
+		public final FileChannel channel;
+		public final long length;
+		public final long lastModified;
+		/** A strong entity tag derived from the file's length and last
+		 * modification time */
+		public final String etag;
+		
+		private final AtomicInteger refs = new AtomicInteger(1);
+		protected volatile long validatedTime;
+		
+		protected Handle(File file) throws IOException {
+			this.file = file;
+			this.lastModified = file.lastModified();
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+			long length;
+			try {
+				length = this.channel.size();
+			} catch(IOException ex) {
+				this.channel.close();
+				throw ex;
+			}
+			this.length = length;
+			this.etag = "\"".concat(Long.toHexString(length)).concat("-").concat(Long.toHexString(this.lastModified)).concat("\"");
+			this.validatedTime = System.currentTimeMillis();
+		}
+		
+		protected final boolean retain() {
+			int refs;
+			do {
+				refs = this.refs.get();
+				if(refs <= 0) {
+					return false;
+				}
+			} while(!this.refs.compareAndSet(refs, refs + 1));
+			return true;
+		}
+		
+		/** @return Whether or not the file still has the length and last
+		 *         modification time that it had when it was opened */
+		public final boolean isCurrent() {
+			return this.file.lastModified() == this.lastModified && this.file.length() == this.length;
+		}
+		
+		/** Releases this handle. Every handle returned by
+		 * {@link FileHandleCache#acquire(File)} must be released exactly
+		 * once. */
+		@Override
+		public final void close() {
+			if(this.refs.decrementAndGet() == 0) {
+				try {
+					this.channel.close();
+				} catch(IOException ignored) {
+				}
+			}
+		}
+		
+	}
+	
+	private final int maxOpen;
+	private final long validity;
+	private final LinkedHashMap<File, Handle> handles;
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), evictions = new AtomicLong();
+	private volatile boolean closed = false;
+	
+	/** @param maxOpen The maximum number of files kept open
+	 * @param validity The amount of time, in milliseconds, after which a
+	 *            cached file is checked for changes again */
+	public FileHandleCache(int maxOpen, long validity) {
+		this.maxOpen = Math.max(1, maxOpen);
+		this.validity = validity;
+		this.handles = new LinkedHashMap<>(16, 0.75f, true);
+	}
+	
+	/** @return The amount of time, in milliseconds, after which a cached file
+	 *         is checked for changes again */
+	public final long getValidity() {
+		return this.validity;
+	}
+	
+	/** @param file The file to open
+	 * @return An open handle to the given file, which must be
+	 *         {@link Handle#close() released} once it is no longer needed
+	 * @throws IOException Thrown if the file could not be opened */
+	public final Handle acquire(File file) throws IOException {
+		long now = System.currentTimeMillis();
+		Handle handle;
+		synchronized(this) {
+			handle = this.handles.get(file);
+		}
+		if(handle != null) {
+			if(now - handle.validatedTime >= this.validity) {
+				if(handle.isCurrent()) {
+					handle.validatedTime = now;
+				} else {
+					this.remove(file, handle);
+					handle = null;
+				}
+			}
+			if(handle != null && handle.retain()) {
+				this.hits.incrementAndGet();
+				return handle;
+			}
+		}
+		this.misses.incrementAndGet();
+		handle = new Handle(file);
+		if(this.closed) {
+			return handle;
+		}
+		handle.retain();// The cache's own reference
+		List<Handle> evicted = new ArrayList<>();
+		synchronized(this) {
+			Handle previous = this.handles.put(file, handle);
+			if(previous != null) {
+				evicted.add(previous);
+			}
+			Iterator<Handle> it = this.handles.values().iterator();
+			while(this.handles.size() > this.maxOpen && it.hasNext()) {
+				evicted.add(it.next());
+				it.remove();
+			}
+		}
+		for(Handle h : evicted) {
+			this.evictions.incrementAndGet();
+			h.close();
+		}
+		return handle;
+	}
+	
+	private final void remove(File file, Handle handle) {
+		boolean removed;
+		synchronized(this) {
+			removed = this.handles.remove(file, handle);
+		}
+		if(removed) {
+			this.evictions.incrementAndGet();
+			handle.close();
+		}
+	}
+	
+	/** @return The number of files currently held open by this cache */
+	public final synchronized int size() {
+		return this.handles.size();
+	}
+	
+	/** @return The number of times {@link #acquire(File)} reused an open
+	 *         file */
+	public final long getHits() {
+		return this.hits.get();
+	}
+	
+	/** @return The number of times {@link #acquire(File)} had to open a
+	 *         file */
+	public final long getMisses() {
+		return this.misses.get();
+	}
+	
+	/** @return The number of files that were evicted because the cache was
+	 *         full or they had changed */
+	public final long getEvictions() {
+		return this.evictions.get();
+	}
+	
+	/** Releases every cached file. Files that are still being read from are
+	 * closed once they are released. */
+	@Override
+	public final void close() {
+		this.closed = true;
+		List<Handle> handles;
+		synchronized(this) {
+			handles = new ArrayList<>(this.handles.values());
+			this.handles.clear();
+		}
+		for(Handle handle : handles) {
+			handle.close();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "open=".concat(Integer.toString(this.size())).concat(", hits=").concat(Long.toString(this.getHits())).concat(", misses=").concat(Long.toString(this.getMisses())).concat(", evictions=").concat(Long.toString(this.getEvictions()));
+	}
+	
+}
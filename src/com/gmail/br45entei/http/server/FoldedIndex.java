@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import java.util.Arrays;
+
+/** An immutable, case-insensitive hash index that maps a set of strings to
+ * their ordinals.<br>
+ * Keys are compared with their case folded the same way
+ * {@link String#equalsIgnoreCase(String)} compares characters, so lookups
+ * give the same answers as comparing every key with
+ * <tt>equalsIgnoreCase</tt>, but in constant time and without allocating:
+ * the key being looked up may be any range of any {@link CharSequence} (such
+ * as a file path or a header value).<br>
+ * <br>
+ * The whole index is stored as two strings: the keys, each followed by a
+ * <tt>'\n'</tt>, and the hash table's slots, each holding a key's ordinal
+ * plus one (or zero if the slot is empty). Both can be written out as string
+ * constants by a code generator and turned back into an index without
+ * hashing anything (see {@link #FoldedIndex(String, String)}).
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+final class FoldedIndex {
+	
+	/** The maximum number of keys that an index can hold */
+	static final int MAX_SIZE = Character.MAX_VALUE - 1;
+	
+	private final String keys;
+	private final int[] starts;
+	private final char[] slots;
+	private final int mask;
+	
+	/** @param keys The keys, each followed by a <tt>'\n'</tt>
+	 * @param slots The hash table's slots, as returned by {@link #getSlots()}
+	 *            for an index with the same keys */
+	FoldedIndex(String keys, String slots) {
+		this(keys, slots.toCharArray());
+	}
+	
+	private FoldedIndex(String keys, char[] slots) {
+		int size = 0;
+		for(int i = 0; i < keys.length(); i++) {
+			if(keys.charAt(i) == '\n') {
+				size++;
+			}
+		}
+		this.keys = keys;
+		this.starts = new int[size + 1];
+		for(int i = 0, key = 1; i < keys.length(); i++) {
+			if(keys.charAt(i) == '\n') {
+				this.starts[key++] = i + 1;
+			}
+		}
+		if(Integer.bitCount(slots.length) != 1 || slots.length <= size) {
+			throw new IllegalArgumentException("Invalid slot table length: ".concat(Integer.toString(slots.length)));
+		}
+		this.slots = slots;
+		this.mask = slots.length - 1;
+	}
+	
+	/** @return The number of keys in this index */
+	final int size() {
+		return this.starts.length - 1;
+	}
+	
+	/** @param ordinal The key's ordinal
+	 * @return The key, as it was first added */
+	final String getKey(int ordinal) {
+		return this.keys.substring(this.starts[ordinal], this.starts[ordinal + 1] - 1);
+	}
+	
+	/** @param ordinal The key's ordinal
+	 * @return The index of the key's first character in {@link #getKeys()} */
+	final int getKeyStart(int ordinal) {
+		return this.starts[ordinal];
+	}
+	
+	/** @param ordinal The key's ordinal
+	 * @return The index just past the key's last character in
+	 *         {@link #getKeys()} */
+	final int getKeyEnd(int ordinal) {
+		return this.starts[ordinal + 1] - 1;
+	}
+	
+	/** @return The keys, each followed by a <tt>'\n'</tt> */
+	final String getKeys() {
+		return this.keys;
+	}
+	
+	/** @return The hash table's slots, in the form accepted by
+	 *         {@link #FoldedIndex(String, String)} */
+	final String getSlots() {
+		return new String(this.slots);
+	}
+	
+	static final char fold(char c) {
+		if(c < 0x80) {
+			return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+		}
+		return Character.toLowerCase(Character.toUpperCase(c));
+	}
+	
+	static final int hash(CharSequence s, int start, int end) {
+		int hash = 0;
+		for(int i = start; i < end; i++) {
+			hash = (31 * hash) + fold(s.charAt(i));
+		}
+		return hash ^ (hash >>> 16);
+	}
+	
+	static final boolean regionEquals(CharSequence a, int aStart, CharSequence b, int bStart, int length) {
+		for(int i = 0; i < length; i++) {
+			if(fold(a.charAt(aStart + i)) != fold(b.charAt(bStart + i))) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/** @param s The sequence containing the key
+	 * @param start The index of the key's first character
+	 * @param end The index just past the key's last character
+	 * @return The key's ordinal, or <tt>-1</tt> if it isn't in this index */
+	final int indexOf(CharSequence s, int start, int end) {
+		int length = end - start;
+		for(int slot = hash(s, start, end) & this.mask;; slot = (slot + 1) & this.mask) {
+			int ordinal = this.slots[slot] - 1;
+			if(ordinal < 0) {
+				return -1;
+			}
+			int keyStart = this.starts[ordinal];
+			if(this.starts[ordinal + 1] - 1 - keyStart == length && regionEquals(this.keys, keyStart, s, start, length)) {
+				return ordinal;
+			}
+		}
+	}
+	
+	/** Builds a {@link FoldedIndex} one key at a time, without creating a
+	 * string for each key.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	static final class Builder {
+		
+		private final StringBuilder keys = new StringBuilder();
+		private int[] starts = new int[17];
+		private int[] hashes = new int[16];
+		private char[] slots = new char[32];
+		private int size = 0;
+		
+		/** @return The number of distinct (case-insensitive) keys added so
+		 *         far */
+		final int size() {
+			return this.size;
+		}
+		
+		private final int find(CharSequence s, int start, int end, int hash) {
+			int mask = this.slots.length - 1, length = end - start;
+			for(int slot = hash & mask;; slot = (slot + 1) & mask) {
+				int ordinal = this.slots[slot] - 1;
+				if(ordinal < 0) {
+					return slot;
+				}
+				int keyStart = this.starts[ordinal];
+				if(this.hashes[ordinal] == hash && this.starts[ordinal + 1] - 1 - keyStart == length && regionEquals(this.keys, keyStart, s, start, length)) {
+					return slot;
+				}
+			}
+		}
+		
+		/** @param s The sequence containing the key
+		 * @param start The index of the key's first character
+		 * @param end The index just past the key's last character
+		 * @return The key's ordinal, or <tt>-1</tt> if it hasn't been added */
+		final int indexOf(CharSequence s, int start, int end) {
+			return this.slots[this.find(s, start, end, hash(s, start, end))] - 1;
+		}
+		
+		/** Adds the given key, unless a key that differs from it only by case
+		 * has already been added.
+		 *
+		 * @param s The sequence containing the key (which must not contain a
+		 *            <tt>'\n'</tt>)
+		 * @param start The index of the key's first character
+		 * @param end The index just past the key's last character
+		 * @return The key's ordinal */
+		final int add(CharSequence s, int start, int end) {
+			int hash = hash(s, start, end);
+			int slot = this.find(s, start, end, hash);
+			if(this.slots[slot] != 0) {
+				return this.slots[slot] - 1;
+			}
+			if(this.size == MAX_SIZE) {
+				throw new IllegalStateException("This index is full!");
+			}
+			int ordinal = this.size++;
+			if(this.size == this.hashes.length) {
+				this.hashes = Arrays.copyOf(this.hashes, this.size * 2);
+				this.starts = Arrays.copyOf(this.starts, (this.size * 2) + 1);
+			}
+			this.keys.append(s, start, end).append('\n');
+			this.starts[ordinal + 1] = this.keys.length();
+			this.hashes[ordinal] = hash;
+			this.slots[slot] = (char) (ordinal + 1);
+			if(this.size * 2 > this.slots.length) {
+				this.rehash(this.slots.length * 2);
+			}
+			return ordinal;
+		}
+		
+		private final void rehash(int capacity) {
+			this.slots = new char[capacity];
+			int mask = capacity - 1;
+			for(int ordinal = 0; ordinal < this.size; ordinal++) {
+				int slot = this.hashes[ordinal] & mask;
+				while(this.slots[slot] != 0) {
+					slot = (slot + 1) & mask;
+				}
+				this.slots[slot] = (char) (ordinal + 1);
+			}
+		}
+		
+		/** @return A new index containing the keys added so far, with a hash
+		 *         table no larger than it needs to be */
+		final FoldedIndex build() {
+			int capacity = Integer.highestOneBit(Math.max(2, this.size * 2) * 2 - 1);
+			if(capacity != this.slots.length) {
+				this.rehash(capacity);
+			}
+			return new FoldedIndex(this.keys.toString(), this.slots.clone());
+		}
+		
+	}
+	
+}
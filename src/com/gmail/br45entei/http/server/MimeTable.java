@@ -0,0 +1,381 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/** An immutable table of file extensions and their MIME types, with a
+ * reverse index from each MIME type to its extensions.<br>
+ * Extensions are stored without their leading dot, and both extensions and
+ * MIME types are looked up ignoring case. The strings that lookups return are
+ * only created the first time they are asked for, so a table costs little
+ * more than a few arrays until it is used.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+final class MimeTable {
+	
+	private final FoldedIndex extensions, types;
+	private final char[] extensionTypes, typeOffsets, typeExtensions;
+	
+	private final String[] extensionNames, typeNames, firstExtensions;
+	private final List<?>[] extensionLists;
+	
+	/** @param extensions The extensions (without their leading dots)
+	 * @param extensionTypes The ordinal of each extension's MIME type
+	 * @param types The MIME types
+	 * @param typeOffsets For each MIME type, the offset of its first
+	 *            extension in <tt>typeExtensions</tt>; followed by the length
+	 *            of <tt>typeExtensions</tt>
+	 * @param typeExtensions The ordinals of each MIME type's extensions,
+	 *            grouped by MIME type, with the preferred extensions first */
+	MimeTable(FoldedIndex extensions, char[] extensionTypes, FoldedIndex types, char[] typeOffsets, char[] typeExtensions) {
+		if(extensionTypes.length != extensions.size() || typeOffsets.length != types.size() + 1 || typeExtensions.length != typeOffsets[types.size()]) {
+			throw new IllegalArgumentException("Mismatched table lengths");
+		}
+		this.extensions = extensions;
+		this.extensionTypes = extensionTypes;
+		this.types = types;
+		this.typeOffsets = typeOffsets;
+		this.typeExtensions = typeExtensions;
+		this.extensionNames = new String[extensions.size()];
+		this.typeNames = new String[types.size()];
+		this.firstExtensions = new String[types.size()];
+		this.extensionLists = new List<?>[types.size()];
+	}
+	
+	/** Creates a table from the strings returned by {@link #getExtensions()},
+	 * {@link #getExtensionSlots()}, and so on.
+	 *
+	 * @param extensions The extensions, each followed by a <tt>'\n'</tt>
+	 * @param extensionSlots The extension index's hash table
+	 * @param extensionTypes The ordinal of each extension's MIME type
+	 * @param types The MIME types, each followed by a <tt>'\n'</tt>
+	 * @param typeSlots The MIME type index's hash table
+	 * @param typeOffsets The offset of each MIME type's first extension in
+	 *            <tt>typeExtensions</tt>
+	 * @param typeExtensions The ordinals of each MIME type's extensions
+	 * @return The new table */
+	static final MimeTable fromStrings(String extensions, String extensionSlots, String extensionTypes, String types, String typeSlots, String typeOffsets, String typeExtensions) {
+		return new MimeTable(new FoldedIndex(extensions, extensionSlots), extensionTypes.toCharArray(), new FoldedIndex(types, typeSlots), typeOffsets.toCharArray(), typeExtensions.toCharArray());
+	}
+	
+	/** @return The number of extensions in this table */
+	final int size() {
+		return this.extensions.size();
+	}
+	
+	/** @return The number of MIME types in this table */
+	final int getTypeCount() {
+		return this.types.size();
+	}
+	
+	/** @param s The sequence containing the file extension
+	 * @param start The index of the extension's first character (the leading
+	 *            dot is optional)
+	 * @param end The index just past the extension's last character
+	 * @return The extension's ordinal, or <tt>-1</tt> if it isn't in this
+	 *         table */
+	final int indexOfExtension(CharSequence s, int start, int end) {
+		if(start < end && s.charAt(start) == '.') {
+			start++;
+		}
+		return this.extensions.indexOf(s, start, end);
+	}
+	
+	/** @param s The sequence containing the MIME type
+	 * @param start The index of the MIME type's first character
+	 * @param end The index just past the MIME type's last character
+	 * @return The MIME type's ordinal, or <tt>-1</tt> if it isn't in this
+	 *         table */
+	final int indexOfType(CharSequence s, int start, int end) {
+		return this.types.indexOf(s, start, end);
+	}
+	
+	/** @param ordinal The extension's ordinal
+	 * @return The extension, with its leading dot */
+	final String getExtension(int ordinal) {
+		String ext = this.extensionNames[ordinal];
+		if(ext == null) {
+			this.extensionNames[ordinal] = ext = ".".concat(this.extensions.getKey(ordinal));
+		}
+		return ext;
+	}
+	
+	/** @param ordinal The MIME type's ordinal
+	 * @return The MIME type */
+	final String getType(int ordinal) {
+		String type = this.typeNames[ordinal];
+		if(type == null) {
+			this.typeNames[ordinal] = type = this.types.getKey(ordinal);
+		}
+		return type;
+	}
+	
+	/** @param extension The extension's ordinal
+	 * @return The extension's MIME type */
+	final String getTypeOfExtension(int extension) {
+		return this.getType(this.extensionTypes[extension]);
+	}
+	
+	/** @param type The MIME type's ordinal
+	 * @return An unmodifiable list of the MIME type's extensions (with their
+	 *         leading dots), which may be empty */
+	@SuppressWarnings("unchecked")
+	final List<String> getExtensionsOfType(int type) {
+		List<String> list = (List<String>) this.extensionLists[type];
+		if(list == null) {
+			this.extensionLists[type] = list = new ExtensionList(this.typeOffsets[type], this.typeOffsets[type + 1]);
+		}
+		return list;
+	}
+	
+	/** @param type The MIME type's ordinal
+	 * @return The MIME type's preferred extension (see
+	 *         {@link #getFirstExtension(List)}), or <tt><b>null</b></tt> if
+	 *         it has none */
+	final String getFirstExtensionOfType(int type) {
+		String first = this.firstExtensions[type];
+		if(first == null) {
+			List<String> list = this.getExtensionsOfType(type);
+			if(list.isEmpty()) {
+				return null;
+			}
+			this.firstExtensions[type] = first = getFirstExtension(list);
+		}
+		return first;
+	}
+	
+	/** @param extensions A non-empty list of file extensions
+	 * @return The first extension that does not contain a hyphen, or (part
+	 *         of) the first extension if they all do */
+	static final String getFirstExtension(List<String> extensions) {
+		for(String ext : extensions) {
+			if(!ext.contains("-")) {
+				return ext;
+			}
+		}
+		String ext = extensions.get(0);
+		return ext.contains("-") ? ext.substring(ext.lastIndexOf('-' + 1)) : ext;
+	}
+	
+	/** Adds every entry in this table that the given builder doesn't already
+	 * have an entry for to it, keeping the order of each MIME type's
+	 * extensions.
+	 *
+	 * @param builder The builder to add this table's entries to */
+	final void addTo(Builder builder) {
+		String extensions = this.extensions.getKeys(), types = this.types.getKeys();
+		for(int type = 0; type < this.types.size(); type++) {
+			int typeStart = this.types.getKeyStart(type), typeEnd = this.types.getKeyEnd(type);
+			for(int i = this.typeOffsets[type]; i < this.typeOffsets[type + 1]; i++) {
+				int extension = this.typeExtensions[i];
+				builder.putIfAbsent(extensions, this.extensions.getKeyStart(extension), this.extensions.getKeyEnd(extension), types, typeStart, typeEnd);
+			}
+		}
+	}
+	
+	/** @return The extensions, each followed by a <tt>'\n'</tt> */
+	final String getExtensions() {
+		return this.extensions.getKeys();
+	}
+	
+	/** @return The extension index's hash table */
+	final String getExtensionSlots() {
+		return this.extensions.getSlots();
+	}
+	
+	/** @return The ordinal of each extension's MIME type */
+	final String getExtensionTypes() {
+		return new String(this.extensionTypes);
+	}
+	
+	/** @return The MIME types, each followed by a <tt>'\n'</tt> */
+	final String getTypes() {
+		return this.types.getKeys();
+	}
+	
+	/** @return The MIME type index's hash table */
+	final String getTypeSlots() {
+		return this.types.getSlots();
+	}
+	
+	/** @return The offset of each MIME type's first extension in
+	 *         {@link #getTypeExtensions()} */
+	final String getTypeOffsets() {
+		return new String(this.typeOffsets);
+	}
+	
+	/** @return The ordinals of each MIME type's extensions */
+	final String getTypeExtensions() {
+		return new String(this.typeExtensions);
+	}
+	
+	private final class ExtensionList extends AbstractList<String> implements RandomAccess {
+		
+		private final int start, end;
+		
+		protected ExtensionList(int start, int end) {
+			this.start = start;
+			this.end = end;
+		}
+		
+		@Override
+		public final String get(int index) {
+			if(index < 0 || index >= this.size()) {
+				throw new IndexOutOfBoundsException(index);
+			}
+			return MimeTable.this.getExtension(MimeTable.this.typeExtensions[this.start + index]);
+		}
+		
+		@Override
+		public final int size() {
+			return this.end - this.start;
+		}
+		
+	}
+	
+	/** Builds a {@link MimeTable} one entry at a time.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	static final class Builder {
+		
+		private final FoldedIndex.Builder extensions = new FoldedIndex.Builder();
+		private final FoldedIndex.Builder types = new FoldedIndex.Builder();
+		private char[] extensionTypes = new char[64];
+		
+		/** @return The number of distinct extensions added so far */
+		final int size() {
+			return this.extensions.size();
+		}
+		
+		/** Maps the given extension to the given MIME type, replacing any
+		 * MIME type that it was previously mapped to. Extensions keep the
+		 * position that they were first added at.
+		 *
+		 * @param s The sequence containing the extension and MIME type
+		 * @param extStart The index of the extension's first character (the
+		 *            leading dot is optional)
+		 * @param extEnd The index just past the extension's last character
+		 * @param typeStart The index of the MIME type's first character
+		 * @param typeEnd The index just past the MIME type's last character
+		 * @return This builder */
+		final Builder put(CharSequence s, int extStart, int extEnd, int typeStart, int typeEnd) {
+			return this.put(s, extStart, extEnd, s, typeStart, typeEnd);
+		}
+		
+		/** @param ext The sequence containing the extension
+		 * @param extStart The index of the extension's first character (the
+		 *            leading dot is optional)
+		 * @param extEnd The index just past the extension's last character
+		 * @param type The sequence containing the MIME type
+		 * @param typeStart The index of the MIME type's first character
+		 * @param typeEnd The index just past the MIME type's last character
+		 * @return This builder
+		 * @see #put(CharSequence, int, int, int, int) */
+		final Builder put(CharSequence ext, int extStart, int extEnd, CharSequence type, int typeStart, int typeEnd) {
+			if(extStart < extEnd && ext.charAt(extStart) == '.') {
+				extStart++;
+			}
+			int extension = this.extensions.add(ext, extStart, extEnd);
+			if(extension == this.extensionTypes.length) {
+				this.extensionTypes = Arrays.copyOf(this.extensionTypes, extension * 2);
+			}
+			this.extensionTypes[extension] = (char) this.types.add(type, typeStart, typeEnd);
+			return this;
+		}
+		
+		/** Maps the given extension to the given MIME type, unless it has
+		 * already been mapped to one.
+		 *
+		 * @param ext The sequence containing the extension
+		 * @param extStart The index of the extension's first character (the
+		 *            leading dot is optional)
+		 * @param extEnd The index just past the extension's last character
+		 * @param type The sequence containing the MIME type
+		 * @param typeStart The index of the MIME type's first character
+		 * @param typeEnd The index just past the MIME type's last character
+		 * @return Whether or not the extension was added */
+		final boolean putIfAbsent(CharSequence ext, int extStart, int extEnd, CharSequence type, int typeStart, int typeEnd) {
+			if(this.extensions.indexOf(ext, extStart < extEnd && ext.charAt(extStart) == '.' ? extStart + 1 : extStart, extEnd) >= 0) {
+				return false;
+			}
+			this.put(ext, extStart, extEnd, type, typeStart, typeEnd);
+			return true;
+		}
+		
+		/** @param ext The extension (the leading dot is optional)
+		 * @param type The MIME type
+		 * @return This builder */
+		final Builder put(String ext, String type) {
+			return this.put(ext, 0, ext.length(), type, 0, type.length());
+		}
+		
+		/** @param ext The extension (the leading dot is optional)
+		 * @return The extension's ordinal, or <tt>-1</tt> if it hasn't been
+		 *         added */
+		final int indexOfExtension(String ext) {
+			return this.extensions.indexOf(ext, ext.startsWith(".") ? 1 : 0, ext.length());
+		}
+		
+		/** Builds the table, listing each MIME type's extensions in the order
+		 * that they were first added.
+		 *
+		 * @return The new table */
+		final MimeTable build() {
+			char[] order = new char[this.size()];
+			for(int i = 0; i < order.length; i++) {
+				order[i] = (char) i;
+			}
+			return this.build(order);
+		}
+		
+		/** @param order The ordinal of every extension, in the order that
+		 *            each MIME type's extensions should be listed in
+		 * @return The new table */
+		final MimeTable build(char[] order) {
+			int size = this.size(), typeCount = this.types.size();
+			if(order.length != size) {
+				throw new IllegalArgumentException("Expected " + size + " extension ordinals, got " + order.length);
+			}
+			char[] typeOffsets = new char[typeCount + 1];
+			for(int i = 0; i < size; i++) {
+				typeOffsets[this.extensionTypes[i] + 1]++;
+			}
+			for(int i = 0; i < typeCount; i++) {
+				typeOffsets[i + 1] += typeOffsets[i];
+			}
+			char[] next = Arrays.copyOf(typeOffsets, typeCount);
+			char[] typeExtensions = new char[size];
+			for(char extension : order) {
+				typeExtensions[next[this.extensionTypes[extension]]++] = extension;
+			}
+			return new MimeTable(this.extensions.build(), Arrays.copyOf(this.extensionTypes, size), this.types.build(), typeOffsets, typeExtensions);
+		}
+		
+	}
+	
+}
@@ -0,0 +1,209 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/** Generates <tt>MimeTypeTable.java</tt>, which holds the built-in
+ * {@link MimeTypes} tables as a handful of string constants, from the
+ * <tt>builtin.list</tt> and <tt>vlc.list</tt> files in
+ * <tt>resources/mime</tt>.<br>
+ * Loading the tables from constants means that initializing
+ * {@link MimeTypes} takes a few array copies instead of hundreds of
+ * <tt>HashMap.put</tt> calls, which matters when the tool is run many times
+ * over from scripts.<br>
+ * <br>
+ * Run the <tt>generate_mime_table</tt> target in <tt>build.xml</tt> (or this
+ * class directly) after changing either list.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class MimeTableGenerator {
+	
+	private static final String HEADER = "/*******************************************************************************\n" + //
+			" * \n" + //
+			" * Copyright © 2023 Brian Reid (br45entei@gmail.com)\n" + //
+			" * \n" + //
+			" * Permission is hereby granted, free of charge, to any person obtaining a copy\n" + //
+			" * of this software and associated documentation files (the \"Software\"), to deal\n" + //
+			" * in the Software without restriction, including without limitation the rights\n" + //
+			" * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell\n" + //
+			" * copies of the Software, and to permit persons to whom the Software is\n" + //
+			" * furnished to do so, subject to the following conditions:\n" + //
+			" * \n" + //
+			" * The above copyright notice and this permission notice shall be included in all\n" + //
+			" * copies or substantial portions of the Software.\n" + //
+			" * \n" + //
+			" * THE SOFTWARE IS PROVIDED \"AS IS\", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR\n" + //
+			" * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,\n" + //
+			" * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE\n" + //
+			" * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER\n" + //
+			" * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,\n" + //
+			" * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE\n" + //
+			" * SOFTWARE.\n" + //
+			" * \n" + //
+			" *******************************************************************************/\n";
+	
+	private static final int LINE_LENGTH = 100;
+	
+	private MimeTableGenerator() {
+	}
+	
+	/** Reads a list of file extensions and MIME types. Each line holds an
+	 * extension, followed by whitespace and then the MIME type (which is the
+	 * rest of the line); text following a <tt>'#'</tt> is ignored.
+	 *
+	 * @param file The file to read
+	 * @param builder The builder to add the entries to
+	 * @param entries The map to put the entries into (in file order), or
+	 *            <tt><b>null</b></tt>
+	 * @throws IOException Thrown if the file could not be read or is
+	 *             malformed */
+	private static final void readList(File file, MimeTable.Builder builder, Map<String, String> entries) throws IOException {
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		for(int i = 0; i < lines.size(); i++) {
+			String line = lines.get(i);
+			int comment = line.indexOf('#');
+			line = (comment < 0 ? line : line.substring(0, comment)).strip();
+			if(line.isEmpty()) {
+				continue;
+			}
+			String[] split = line.split("\\s+", 2);
+			if(split.length != 2) {
+				throw new IOException(file.getName().concat(":").concat(Integer.toString(i + 1)).concat(": expected an extension and a MIME type, got: \"").concat(line).concat("\""));
+			}
+			builder.put(split[0], split[1]);
+			if(entries != null) {
+				entries.put(split[0], split[1]);
+			}
+		}
+	}
+	
+	private static final void appendConstant(StringBuilder sb, String name, String description, String value) {
+		sb.append("\t/** ").append(description).append(" */\n");
+		sb.append("\tstatic final String ").append(name).append(" = \"");
+		int lineStart = sb.lastIndexOf("\n");
+		for(int i = 0; i < value.length(); i++) {
+			if(sb.length() - lineStart > LINE_LENGTH) {
+				lineStart = sb.length() + 1;
+				sb.append("\" + //\n\t\t\t\"");
+			}
+			char c = value.charAt(i);
+			// Unicode escapes are translated before the source is parsed, so they can't be used for characters that would end the literal:
+			if(c == '\n') {
+				sb.append("\\n");
+			} else if(c == '\r') {
+				sb.append("\\r");
+			} else if(c == '"' || c == '\\') {
+				sb.append('\\').append(c);
+			} else if(c >= 0x20 && c < 0x7F) {
+				sb.append(c);
+			} else {
+				sb.append(String.format("\\u%04x", Integer.valueOf(c)));
+			}
+		}
+		sb.append("\";\n\t\n");
+	}
+	
+	private static final void appendTable(StringBuilder sb, String prefix, String source, MimeTable table) {
+		appendConstant(sb, prefix.concat("EXTENSIONS"), "The extensions in <tt>".concat(source).concat("</tt> (without their leading dots)"), table.getExtensions());
+		appendConstant(sb, prefix.concat("EXTENSION_SLOTS"), "The extension index's hash table", table.getExtensionSlots());
+		appendConstant(sb, prefix.concat("EXTENSION_TYPES"), "The ordinal of each extension's MIME type", table.getExtensionTypes());
+		appendConstant(sb, prefix.concat("TYPES"), "The MIME types in <tt>".concat(source).concat("</tt>"), table.getTypes());
+		appendConstant(sb, prefix.concat("TYPE_SLOTS"), "The MIME type index's hash table", table.getTypeSlots());
+		appendConstant(sb, prefix.concat("TYPE_OFFSETS"), "The offset of each MIME type's first extension", table.getTypeOffsets());
+		appendConstant(sb, prefix.concat("TYPE_EXTENSIONS"), "The ordinals of each MIME type's extensions", table.getTypeExtensions());
+	}
+	
+	/** @param builtin The built-in table
+	 * @param vlc The table of MIME types that VLC expects instead
+	 * @return The source code of <tt>MimeTypeTable.java</tt> */
+	public static final String generate(MimeTable builtin, MimeTable vlc) {
+		StringBuilder sb = new StringBuilder(HEADER);
+		sb.append("package com.gmail.br45entei.http.server;\n\n");
+		sb.append("/** The built-in {@link MimeTypes} tables, generated by\n");
+		sb.append(" * {@link MimeTableGenerator} from <tt>resources/mime</tt>. Do not edit this\n");
+		sb.append(" * file by hand.\n");
+		sb.append(" *\n");
+		sb.append(" * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */\n");
+		sb.append("final class MimeTypeTable {\n\t\n");
+		sb.append("\tprivate MimeTypeTable() {\n\t}\n\t\n");
+		appendTable(sb, "", "builtin.list", builtin);
+		appendTable(sb, "VLC_", "vlc.list", vlc);
+		sb.append("\t/** @return A new copy of the built-in table */\n");
+		sb.append("\tstatic final MimeTable builtin() {\n");
+		sb.append("\t\treturn MimeTable.fromStrings(EXTENSIONS, EXTENSION_SLOTS, EXTENSION_TYPES, TYPES, TYPE_SLOTS, TYPE_OFFSETS, TYPE_EXTENSIONS);\n");
+		sb.append("\t}\n\t\n");
+		sb.append("\t/** @return A new copy of the table of MIME types that VLC expects */\n");
+		sb.append("\tstatic final MimeTable vlc() {\n");
+		sb.append("\t\treturn MimeTable.fromStrings(VLC_EXTENSIONS, VLC_EXTENSION_SLOTS, VLC_EXTENSION_TYPES, VLC_TYPES, VLC_TYPE_SLOTS, VLC_TYPE_OFFSETS, VLC_TYPE_EXTENSIONS);\n");
+		sb.append("\t}\n\t\n");
+		sb.append("}\n");
+		return sb.toString();
+	}
+	
+	/** @param args Program command line arguments: the folder containing
+	 *            <tt>builtin.list</tt> and <tt>vlc.list</tt> (defaults to
+	 *            <tt>resources/mime</tt>), and the file to write (defaults to
+	 *            <tt>src/com/gmail/br45entei/http/server/MimeTypeTable.java</tt>)
+	 * @throws IOException Thrown if a list could not be read or the output
+	 *             file could not be written */
+	public static final void main(String[] args) throws IOException {
+		File folder = new File(args.length > 0 ? args[0] : "resources/mime");
+		File output = new File(args.length > 1 ? args[1] : "src/com/gmail/br45entei/http/server/MimeTypeTable.java");
+		
+		MimeTable.Builder builtin = new MimeTable.Builder();
+		Map<String, String> entries = new HashMap<>();
+		readList(new File(folder, "builtin.list"), builtin, entries);
+		// List each MIME type's extensions in the order that a HashMap of the
+		// same entries iterates over them, which is the order that
+		// getExtensionsForMimeType(...) has always returned them in (so that
+		// e.g. "audio/mpeg" still gets ".mp3" rather than ".$m4a"):
+		char[] order = new char[builtin.size()];
+		boolean[] ordered = new boolean[order.length];
+		int i = 0;
+		for(String ext : entries.keySet()) {
+			int extension = builtin.indexOfExtension(ext);
+			if(!ordered[extension]) {
+				ordered[extension] = true;
+				order[i++] = (char) extension;
+			}
+		}
+		MimeTable.Builder vlc = new MimeTable.Builder();
+		readList(new File(folder, "vlc.list"), vlc, null);
+		
+		String source = generate(builtin.build(order), vlc.build());
+		if(output.getParentFile() != null) {
+			output.getParentFile().mkdirs();
+		}
+		Files.writeString(output.toPath(), source, StandardCharsets.UTF_8);
+		System.out.println("Wrote ".concat(Integer.toString(builtin.size())).concat(" extensions (and ").concat(Integer.toString(vlc.size())).concat(" VLC overrides) to ").concat(output.getPath()));
+	}
+	
+}
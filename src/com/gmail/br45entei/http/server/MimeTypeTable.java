@@ -0,0 +1,647 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+/** The built-in {@link MimeTypes} tables, generated by
+ * {@link MimeTableGenerator} from <tt>resources/mime</tt>. Do not edit this
+ * file by hand.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+final class MimeTypeTable {
+	
+	private MimeTypeTable() {
+	}
+	
+	/** The extensions in <tt>builtin.list</tt> (without their leading dots) */
+	static final String EXTENSIONS = "$323\n$3gp\n$7z\n7z\nabw\nace\nai\naif\naifc\naiff\nalc\nart\nasc" + //
+			"\nasf\n$asn\nasn\naso\nasx\nasp\naspx\natom\natomcat\natomsrv\nau\naup\navi\nbak\nbat\nb\nb" + //
+			"cpio\nbib\nbin\nbmp\nbook\nboo\nbsd\nc3d\ncab\ncac\ncache\ncap\ncascii\ncat\ncbin\ncbr\ncbz" + //
+			"\ncc\ncdf\ncdr\ncdt\ncdx\ncdy\ncef\ncer\nchm\nchrt\ncif\n$class\nclass\ncls\ncmdf\ncml\ncod" + //
+			"\ncollection\ncom\ncpa\ncpio\ncpp\n$cpt\ncpt\ncrl\ncrt\ncsf\n$csh\ncsh\ncsm\ncsml\ncss\ncsv" + //
+			"\nctab\nc\nctx\ncu\ncub\ncxf\ncxx\ndat\ndb\ndcr\ndeb\ndiff\ndif\ndir\ndjv\ndjvu\ndll\ndl\nd" + //
+			"mg\ndms\ndoc\ndot\nd\ndvi\ndv\ndx\ndxr\nemb\nembl\neml\n$ent\nent\neot\neps\nepub\netx\nexe" + //
+			"\nez\nfb\nfbdoc\nfch\nfchk\nfig\nflac\nfli\nflv\nfm\nframe\nfrm\ngal\ngam\ngamin\ngau\ngcd\n" + //
+			"gcf\ngcg\ngen\ngf\ngif\ngitignore\ngjc\ngjf\ngl\ngnumeric\ngpt\ngsf\ngsm\ngtar\nhdf\nhh\nhi" + //
+			"n\nhpp\nhqx\nhs\nhta\nhtc\nhttp\n$h\nhtml\nhtm\nhxx\nica\nice\nico\nics\nicz\nief\niges\nig" + //
+			"s\niii\nini\ninp\nins\niso\nisp\nist\nistr\njad\njar\njava\njdx\njmz\njng\njnlp\njpeg\njpe\n" + //
+			"jpg\njs\njson\nkar\nkey\nkil\nkin\nkml\nkmz\nkpr\nkpt\nksp\nkwd\nkwt\nlang\nlatex\nlha\nlhs" + //
+			"\nlnk\nlsf\nlsx\nltx\nlyx\nlzh\nlzx\n$m3u\nm3u\n$m4a\nm4a\nm4b\nm4p\nm4v\nmaker\nman\nmanif" + //
+			"est\nmcif\nmcm\nmdb\nme\nmesh\nmid\nmidi\nmif\nmkv\nmm\nmmd\nmmf\nmml\nmmod\nmng\nmobi\nmoc" + //
+			"\nmol2\nmol\nmoo\nmop\nmopcrt\nmovie\nmov\nmp2\nmp3\nmp4\nmpc\nmpega\nmpeg\nmpe\nmpga\nmpg\n" + //
+			"ms\nmsh\nmsi\nmvb\nmxu\nnb\nnc\nnwc\no\noda\nodb\nodc\nodf\nodg\nodi\nodm\nodp\nods\nodt\no" + //
+			"gg\noga\nogv\nogx\nold\notf\notg\noth\notp\nots\nott\noza\np7r\npac\npas\npatch\npat\npbm\n" + //
+			"pcap\npcf\npcf.Z\npcx\npdb\npdf\npfa\npfb\npgm\npgn\npgp\nphp3\nphp3p\nphp4\nphp\nphps\npht" + //
+			"\nphtml\npk\npls\npl\npm\npng\npnm\npom\npot\nppm\npps\nppt\npptm\nprf\nprt\nps\npsd\np\npy" + //
+			"c\npyo\npy\nqtl\nqt\n$ra\nra\nram\nrar\nras\nrd\nrdf\nrgb\nrhtml\nrm\nroff\nros\nrpm\nrss\n" + //
+			"rtf\nrtx\nrxn\nsct\nsd2\nsda\nsdc\nsd\nsdd\n$sdf\nsdf\nsds\nsdw\nser\nsfnt\nsgf\nsgl\n$sh\n" + //
+			"shar\nsh\nshtml\nsid\nsik\nsilo\nsis\nsisx\nsit\nsitx\nskd\nskm\nskp\nskt\nsmi\nsmil\nsnd\n" + //
+			"spc\n$spl\nspl\nspx\nsrc\nstc\nstd\nsti\nstl\nstw\nsty\nsv4cpio\nsv4crc\nsvg\nsvgz\nsw\nswf" + //
+			"\nswfl\nsxc\nsxd\nsxg\nsxi\nsxm\nsxw\nt\ntar\ntaz\n$tcl\ntcl\ntexi\ntexinfo\ntex\ntext\ntgf" + //
+			"\ntgz\nthemepack\ntiff\ntif\ntk\ntm\ntorrent\ntr\ntsp\nts\ntsv\nttf\ntxt\nudeb\nuls\nurl\nu" + //
+			"star\nval\nvbe\nvbs\nvcd\nvcf\nvcs\nvmd\nvms\nvp8\nvp9\n$vrml\nvrml\nvrm\nvsd\nwad\nwav\nwa" + //
+			"x\nwbmp\nwbxml\nwebm\nwebp\nwk\nwma\nwmd\nwmlc\nwmlsc\nwmls\nwml\nwm\nwmv\nwmx\nwmz\nwoff\n" + //
+			"woff2\nwp5\nwpd\n$wrl\nwrl\nwsc\nwvx\nwz\nxbm\nxcf\nxht\nxhtml\nxlb\nxls\nxlt\nxml\nxpi\nxp" + //
+			"m\nxsl\nxspf\nxtel\nxul\nxwd\nxyz\nyml\nzip\nzmt\n\nclasspath\nproject\nproperties\nmf\n3dm" + //
+			"\n3dmf\na\naab\naam\naas\nabc\nacgi\nafl\naim\naip\nani\naos\naps\narc\narj\nasm\navs\nbm\n" + //
+			"boz\nbsh\nbz\nbz2\nc++\nccad\ncco\ncha\nchat\nconf\nconfig\ndeepv\ndef\nder\ndp\ndrw\ndump\n" + //
+			"dwf\ndwg\ndxf\nel\nelc\nenv\nes\nevy\nf\nf77\nf90\nfdf\nfif\nflo\nflx\nfmf\nfor\nfpx\nfrl\n" + //
+			"funk\ng\ng3\ngsd\ngsp\ngss\ngz\ngzip\nh\nhelp\nhgl\nhlb\nhlp\nhpg\nhpgl\nhtmls\nhtt\nhtx\ni" + //
+			"dc\niefs\nima\nimap\ninf\nip\nisu\nit\niv\nivr\nivy\njam\njav\njcm\njfif\njfif-tbnl\njps\nj" + //
+			"ut\nksh\nla\nlam\nlhx\nlist\nlma\nlog\nlsp\nlst\nm\nm1v\nm2a\nm2v\nmap\nmar\nmbd\nmc$\nmcd\n" + //
+			"mcf\nmcp\nmd\nmht\nmhtml\nmime\nmjf\nmjpg\nmme\nmod\nmoov\nmpa\nmpp\nmpt\nmpv\nmpx\nmrc\nmv" + //
+			"\nmy\nmzz\nnap\nnaplps\nncm\nnif\nniff\nnix\nnsc\nnvd\nomc\nomcd\nomcr\np10\np12\np7a\np7c\n" + //
+			"p7m\np7s\npart\npcl\npct\npfunk\npic\npict\npkg\npko\nplx\npm4\npm5\npov\nppa\nppz\npre\npv" + //
+			"u\npwz\nqcp\nqd3\nqd3d\nqif\nqtc\nqti\nqtif\nrast\nreadme\nreg\nrexx\nrf\nrmi\nrmm\nrmp\nrn" + //
+			"g\nrnx\nrp\nrt\nrv\ns\ns3m\nsbk\nscm\nsdml\nsdp\nsdr\nsea\nset\nsgm\nsgml\nsl\nsol\nspr\nsp" + //
+			"rite\nssi\nssm\nsst\nstep\nstp\nsvf\nsvr\ntalk\ntbk\ntcsh\ntsi\nturbot\nuil\nuni\nunis\nunv" + //
+			"\nuri\nuris\nuu\nuue\nvda\nvdo\nvew\nviv\nvivo\nvmf\nvoc\nvos\nvox\nvqe\nvqf\nvql\nvrt\nvst" + //
+			"\nvsw\nw60\nw61\nw6w\nwb1\nweb\nwiz\nwk1\nwmf\nword\nwp\nwp6\nwq1\nwri\nwrz\nwsrc\nwtk\nxdr" + //
+			"\nxgz\nxif\nxl\nxla\nxlc\nxld\nxlk\nxll\nxlm\nxlv\nxlw\nxm\nxmz\nxpix\nx-png\nxsr\nz\nzoo\n" + //
+			"zsh\ndocx\ndocm\ndotx\ndotm\nxlsx\nxlsm\nxltx\nxltm\nxlsb\nxlam\npptx\nppsx\nppsm\npotx\npo" + //
+			"tm\nppam\nsldx\nsldm\none\nonetoc2\nonetmp\nonepkg\nthmx\nwebarchive\nrdp\n";
+	
+	/** The extension index's hash table */
+	static final String EXTENSION_SLOTS = "\u01eb\u01de\u024b\u02f3\u02f4\u0000\u0000\u0000\u0000\u00c5" + //
+			"\u0000\u0000\u0000\u0000\u0209\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u01df\u0000\u0000\u0000" + //
+			"\u0000\u016d\u0000\u0000\u0287\u014d\u0000\u0000\u014e\u02cd0\u014f\u019b\u02f6\u0000\u0000" + //
+			"\u0000\u0102\u0000\u0000\u0000\u00001\u00002\u0000\u0000\u00003\u0000\u00004\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0303\u0000\u0000\u01f3\u00005\u0000\u00f2\u0125\u0000\u0000\u0000\u01f4" + //
+			"\u0000\u02fc\u0000\u00006\u019d\u01f5\u0000\u0304\u0000\u0000\u02b5\u00b8\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u01f2\u001dQf\u01f6\u019e\u021c\u0228\u022f\u023c\u0264\u0270\u0254" + //
+			"\u0301\u0106\u0145\u01e0\u0272\u02a7\u0194\u0151\u01e1\u0005\u0017\u00c6\u02fa\u0302P\u0305" + //
+			"\u0000\u0315\u0000\u0000\u0006\u0000\u00ad\u0000\u0000\u00ae\u0000\u00c7\u023f\u00af\u01b5\u030b" + //
+			"\u02cf\u0000\u01a1\u0000\u0000\u011e\u0000\u029c\u0000\u030e\u030d\u0000\u0000\u0000\u0000\u01b6" + //
+			"\u020a\u0218\u0000\u0000\u0121\u011f\u0000\u0000\u0000\u0000\u00007\u0090\u01f7\u024f\u0208" + //
+			"\u0000\u0000\u0000\u02c7\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u009c\u0122k\u0000\u0000" + //
+			"\u01b8\u01b7\u00009\u0000\u0000\u0000m\u0000\u0000\u0000\u0000\u0000\u02d0\u0152\u0000\u0000" + //
+			"\u0000\u01e2\u0000\u0124\u0000\u0000\u0000\u0188\u02f9\u0283\u0000\u0000\u02d1\u0000\u0000\u02d2" + //
+			"\u0000\u0284\u0000\u0000\u0000\u0126\u0242\u01f8\u0000\u0000\u0000o\u0000\u0219\u0243\u0000" + //
+			"\u0127\u0000\u0000\u0000\u0128\u0000\u0000\u0000\u030a\u0000\u022a\u0000\u0091\u0000\u0000\u0000" + //
+			"\u0000\u0092\u0000\u0207\u0000\u00f3\u022b\u022c\u0000\u0000\u0000\u02d4p\u02d3\u0000\u01e5" + //
+			"\u0000\u02d5\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u00b0\u0000\u0000\u0271\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000q\u0129<\u0000\u012a\u0000\u0000" + //
+			"\u01bb\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u02d6\u0000\u0000\u0000\u0000\u0000\u0008" + //
+			"\u0000\u0000\u0000>\u01e6\u01f9\u01bc\u0000\u0000\u01fa\u0000\u0000\u0000\u01b9\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0123\u012b\u012c\u012d\u00ec\u0273\u02d7\u02d8\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0153\u022e\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u016b\u0000\u0000\u0000\u0000\u0000?\u0131\u0000\u0015\u0133\u0000\u0000" + //
+			"A\u0000\u0000\u0162\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0286\u0000\u0000\u0000\u029f" + //
+			"\u0000\u0000\u0000\u02a0\u02a1B\u0000\u0000\u01e7\u000b\u024d\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000D\u0000\u0000\u0000F\u0000s\u0002\u02a2\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u02c4\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u02a3\u0000\u0000\u0000\u0000" + //
+			"\u0000\u01a0\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u02c0\u0000\u0288\u0000\u0000\u01a6\u0000" + //
+			"\u0000\u0000\u0000\u0289\u01a8\u0156\u028b\u028c\u0000\u0213G\u00c8\u01fb\u0000\u0000\u0000" + //
+			"\u0000\u0000H\u0000\u00dc\u01a9\u0000\u021b_\u029b\u0000\u0000\u0093\u0157\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0136I\u0000K\u00b7\u0000L\u028a\u0000\u0000\u0000\u0312N\u0000\u01fc\u0000" + //
+			"\u0000O\u0000\u01e3\u0274\u0000\u00b1\u0000\u0000\u0000\u0000\u0000\u0000t\u00b3\u0000\u0000" + //
+			"\u0244\u030c\u0000\u00b2\u02fe\u018d\u0276\u0245\u0310\u0000\u0000(\u0000\u0000\u01fdR\u0000" + //
+			"\u0139\u0000\u0000\u0000\u0000\u019a\u013a\u0000\u0000T\u0000\u0000\u0000%\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u013b\u0000\u0314\u0000\u0158\u013c\u01fe\u0246\u028d\u01ff" + //
+			"\u0000\u0000\u00ee\u0000\u0000\u0000\u01d3\u028e\u0000\u000c\u0000\u00ca\u0159\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u013d\u0000\u0000\u02fd\r\u01aa\u013e\u0000\u0000\u000e\u00cb\u013f\u015a" + //
+			"\u019f\u0200\u028f\u0011\u0010C\u0013\u00a7\u00b4\u024e\u0000\u0000\u0000\u0000\u0012\u0000" + //
+			"\u0000\u0000\u027a\u0000\u0000\u027c\u02c1U\u027d\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000V\u0290\u0000\u0141\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000*\u0142\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0019\u0000\u0000\u0144\u0000\u0000\u0000\u0000\u0000\u0000\"\u02dc" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u001a\u0000\u0000\u023a" + //
+			"\u0000\u0000\u01bd\u0000\u0000\u0000\u0201\u0000\u01ae\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u015b\u0000\u0094\u0000\u01be\u0000\u01bf\u01db\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u027b\u0000\u0000\u0227\u0000\u0000\u0000\u0000\u0001\u0250\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u00e3\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u017d\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u00cc" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0291\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000w\u0000" + //
+			"\u0000\u0267\u0000\u0000\u0000\u0000\u0277\u0000\u0000\u0000\u0000\u0000\u0251\u00ea\u0000\u0000" + //
+			"\u0000x\u0000\u0231\u0000\u0000\u0000\u0000\u0000\u0292\u0000\u0000\u02dd\u0311\u0000\u0000" + //
+			"\u0000\u01ab\u01d0\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0247" + //
+			"\u021f\u0000\u0000\u0167\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u020b\u0000\u0000" + //
+			"\u0000\u0000\u0146\u027e\u027f\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u02ab\u0000\u0147\u0280" + //
+			"\u0000\u011d\u0000\u0096\u0281\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000W\u00b5\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0278\u0000\u0000\u0000\u0000\u00b6\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0105\u0000\u0000\u00cd\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0236\u0252" + //
+			"\u0282\u0000\u0000\u0253\u0000\u0000\u0000\u00ce\u0295Y\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u01e8\u0000\u0000\u02df\u0000\u00b9\u0232\u00ba\u0000\u0000\u0000\u0000\u0000\u01c8\u0000\u0000" + //
+			"\u02de\u0000\u0000\u0249\u0233\u0000\u0000\u0000\u00cf\u01f1\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u01f0\u02a9\u0000\u0000Z\u015d\u0220\u0000\u020fz\u0000\u0262\u0000\u0000" + //
+			"\u0000\u0000\u0000\u001b\u0000\u0000\u0210\u0000\u0000\u0000\u001c\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u02aa\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u015c\u001e\u0000\u0007\u0000" + //
+			"[\u0000\u0000\u0000\u0000\u0000\u0000\u015e\u0161\u015f\u0018\u0163\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u02ac\u0000\u02ad\u0000\u0000\u0164\u0000\u0000\u029d\u0165\u0000\u0000" + //
+			"\u01c5\u0202\u0000\u0140\u012f\u01c6\u02ae\u02e0\u0308\u0000\u0000\u0000\u0000r\u01ca\u0205" + //
+			"\u02c2\u0000\u0000\u0000\u0234\u0000/\u0166|\u01cc\u01cd\u01ce\u008b\u02af\u0221\u0097\u02ff" + //
+			"\u0300\u0000\u0000\u0309\u0000\u0000}S\u0222\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u02e3\u01d1X\u020d\\\u0223\u0294\u0000\u0000\u0000\u0000\u0000a\u024a\u00d0\u0000]\u00c9\u0098" + //
+			"\u0211\u0000\u0000h\u0168i\u0000\u02e4\u0000\u02b0\u0169\u02bd\u008f\u00d1\u01e4\u02ce\u0293" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0217\u0000\u0000\u01d2\u00d2\u0229\u0000\u021a\u0000" + //
+			"\u0307^\u0000\u0000\u0000u\u0000\u0000\u0000\u0000\u020e\u0000v\u01ac\u0000\u007f:\u0000\u0000" + //
+			"\u0000\u009d\u0000\u0000~\u017a\u0224\u0000\u0000\u0000\u0000\u0000\u016e\u0000\u0000\u0000" + //
+			"\u0000\u009a\u016f\u009b\u0000\u0000\u00bc\u0000\u0000\u0171;\u0000\u0089\u009f\u0173\u0000" + //
+			"\u0000\u0000`\u008e\u029a\u0000\u0237\u0000\u0000\u0000\u0238\u0000\u0225\u01d4\u02c3\u02e5" + //
+			"\u022d\u0000\u0000\u0000\u0000\u0000\u0000\u001f\u0000\u02c5\u0000\u02e6b\u0095\u00dd\u0000" + //
+			"\u0000\u0000\u0000 \u01d5\u0000\u0000\u0000c\u0099\u0175\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0176\u0199\u0000\u0000\u0000\u0177\u0000\u019c\u0000\u0178\u0000\u0000\u0080\u0226\u0000\u0000" + //
+			"\u0000\u0000\u0000\u00d5\u01a4\u023e\u0000\u0197\u0108\u0107\u0240\u0109\u010a\u0241\u02bf\u010b" + //
+			"\u02e8\u010c\u0000\u0000\u0000d\u00d3\u010d\u010e\u0000\u0110\u010f\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000e8\u00bb\u00f9\u0000\u0000\u0179\u025b\u0296\u0000\u0000\u014b\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u00db\u0000\u0258\u0000\u0259\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0285\u0000\u017b\u00a0\u0000\u0000\u01ba\u02c6\u01ad\u025a\u02d9\u0000\u0000\u02da\u0000" + //
+			"\u024c\u0000\u0000\u01d6\u016a\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000!" + //
+			"\u0000\u0000\u0000\u0112\u0130\u0000\u0000\u0000\u0000\u00fc\u0111\u012e\u025c\u025d\u02b3\u0000" + //
+			"\u0000\u00de\u0014\u00e0\u01c0\u01ef\u0248\u025e\u025f\u0000\u0113\u00e6\u0114\u0000\u0000\u0000" + //
+			"\u0000\u00fe\u017c\u0212\u026e\u00df\u0000\u026f\u0000\u017e\u01cf\u0000\u0000\u0000\u0000\u0103" + //
+			"\u0104\u00fa\u02b4\u0000\u02db\u017f\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000#\u02c9" + //
+			"\u0000\u0000\u021d\u0000\u0000\u0000\u0000\u0203\u0000\u0000\u0132\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u00bd\u00e1\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0180\u02f8\u0000\u0000\u0000,\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0135\u0137\u0138\u01ee\u021e\u0000\u0000\u0000\u0143\u0000" + //
+			"\u0000\u0000\u0000\u02b6\u0148\u0000\u0000\u02b7\u0000\u0000\u0000\u0120\u0000\u0000\u0000\u0000" + //
+			"\u02b8g\u0000\u0306\u0000\u0000\u0000\u0000\u0000\u0000\u02f7\u0000M\u0182\u014a\u0181\u0000" + //
+			"\u0115\u0000\u0000\u0183\u0184\u0000\u0000\u0000\u02ba\u014c\u0000\u0000$\u0150\u0214\u0215" + //
+			"\u0204\u0185\u0260\u0186\u029e\u0154\u02e7\u0000\u02a4\u0000\u0134\u0000=\u02a5\u0279\u02a6" + //
+			"\u0000\u0003\u0000\u00e2\u0000\u00e4\u02a8\u0000\u0000\u0000\u0000\u0160\u0000\u0216\u0000\u016c" + //
+			"n\u0000\u0000\u02b2\u0000\u0000\u0000\u0000\u00bej\u0000\u0000\u02bb\u0000\u018b\u0189\u0000" + //
+			"\u030f\u0263\u00da\u0000\u0000\u0170\u0000\u02bc\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u01a2\u0000\u01a3\u0000\u0000\u0000\u0000\u01a5\u01a7\u0000\u0000\u0000\u018c\u0000\u0000\u00a1" + //
+			"\u0000\u0000\u01ed\u00a2\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u00a3\u0000\u0000" + //
+			"\u0000\u00a4\u00e5\u0000\u0000\u0000\u0000\u018f\u018e\u018a\u00a5\u0297\u0190\u02c8\u0191\u0000" + //
+			"\u0298\u0149\u0192\u0239@\u0000\u0000\u0000y\u0000\u0000\u0000\u0193\u0000\u0299\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u01d8\u0000\u0265\n\u00e7\u00e8" + //
+			"\u0009\u02b1\u0000\u00a6\u0000\u00e9\u0000\u00bf\u0000\u00c0\u0082\u0081\u01c4\u0000\u01cb\u0000" + //
+			"\u0000\u02e2\u0084\u01d9\u0206l\u0000\u0000\u0000\u0083\u0000\u01d7\u0000\u01ec\u0000\u00eb" + //
+			"\u0000\u0000\u01c9\u0000\u0000\u0000\u00f5\u0000\u00f7\u00f6\u0000\u0000\u02ec\u02f5\u0000\u0000" + //
+			"\u0000\u0000\u01c7\u02b9\u0000\u0000\u0000\u0000\u00ed\u0000\u0000\u0266\u0000\u0000\u0000\u02e9" + //
+			"\u0000\u0085\u0087\u0086\u00ef\u00f0\u0172\u00f1\u020c\u0000E\u0000\u00a8\u00f4\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0268\u0116\u00f8\u0118\u0004\u00fb\u00fd\u0117\u01af" + //
+			"\u01e9\u0313\u0119\u0000\u0269\u0000\u011b\u011a\u026a\u0000\u026b\u0000\u026c\u0000\u0000\u0000" + //
+			"\u01b0\u0000\u0000\u0000\u0000\u02e1\u0000\u0000\u0000\u0000\u0000\u0000\u0000J\u01b1{\u00a9" + //
+			"\u0000\u0000\u00c1\u0000\u0000\u0000\u0000\u0000\u0088\u0000\u0000\u0000\u0000\u01b2\u0000\u01b3" + //
+			"\u00c2\u0000\u0000\u0000\u0000\u0000\u026d\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u01b4\u0000" + //
+			"\u0000\u02ea\u0000\u0000\u0000\u0000\u0174\u0000\u0230\u02ca\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u02cb\u0000\u0100\u00ff\u0000\u01da\u0000\u0000\u0155" + //
+			"\u0275\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0255\u02eb\u0000\u0000\u0000\u0016" + //
+			"\u0000\u009e\u0000\u0000\u0256\u0000\u0000\u01ea\u0000\u0000\u0000\u0195\u0000\u0000\u0000\u0000" + //
+			"\u0261\u02cc\u01c3\u00c3\u0196\u00c4\u01c2\u0257\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u023b\u02be\u0000\u0000\u0000\u0000\u0000\u0000'&\u008a\u0000\u0000\u000f" + //
+			"\u0000\u0000\u0000\u0000\u00d4\u0000\u0000\u0000\u0000)\u0000\u0000\u0000+\u0101\u011c\u00d7" + //
+			"\u00d6\u0187\u0198\u01c1\u0235\u023d\u008c\u008d\u02fb\u0000\u00aa\u0000\u0000\u00d8\u0000\u00ab" + //
+			"\u0000\u02ed\u0000\u00d9\u00ac\u01dc\u02ee-\u02ef\u0000\u0000\u02f0\u0000\u02f2\u02f1.\u0000" + //
+			"\u0000\u0000\u01dd\u0000";
+	
+	/** The ordinal of each extension's MIME type */
+	static final String EXTENSION_TYPES = "\u0000\u0001\u0002\u0002\u0003\u0004\u0005\u0006\u0006\u0006" + //
+			"\u0007\u0008\u0009\n\u000b\u000c\r\n\u0177\u000f\u0010\u0011\u0012\u0013\u0014\u0015\u0016\u0017" + //
+			"\u0018\u0019\u001a\u001b\u001c\u001d\u001e\u001f !\"\"#$%$&'()*+,-./0123345678\u00179:(;<=>" + //
+			"?@ABBCD$EFGH.(IJKLMNKOO\u0017PQRSSTUNVKWWXYZ[\u0005\\]\u0017^\u001d\u001d__`abc\u001d\u001d" + //
+			"\u001ddeefghijkl\u0009ffmnopqrstutvwxyz{||t}~\u007f\u0080\u0080\u0081\u0082\u0082\u0083\u0009" + //
+			"e\u0084\u0085\u0084\u0086\u0086\u0087\u0088\u0089V\u008a\u008b\u008c\u008d\u008d\u008d\u008e" + //
+			"\u008f\u0090\u0091\u0092\u0093\u0094\u0095\u0096\u0096\u0097\u0098\u0098\u0099\u009a\u009b\u009c" + //
+			"\u0009\u009d\u009d4\u009e\u009f\u00a0\u00a1\u00a2\u00a3\u00a4\u00a5\u00a6\u00a5\u001d\u00a7" + //
+			"\u00a8\u00a9\u00aa\u00ab\u00ac\u00ad\u0090\u0090\u00ae\u00af\u00b0\u00b1\u00b2\u00b3\u00b1\u00b4" + //
+			"\u00b5\u00b6\u00b7\u00b8\u00b9II\u00ba\u00bb\u00a3\u00a3\u00a5I\u00a3\u00bc\u00bc\u00a3\u00bc" + //
+			"\u00bd\u00ad\u00be\u00bf\u00c0\u00c1\u00c2\u00c3\u00c4\u00c5\u00c6\u00c7\u00c8\u00c9\u00ca\u00cb" + //
+			"\u00cc\u00cd\u00ce\u00cf\u00cf\u00d0\u00cf\u0016\u00d1\u00d2\u00d3\u00d4\u00d5\u00d6\u00d7\u00d8" + //
+			"\u00d9\u00daM\u00db\u00dc#pp\u00ddZ\u00depp\u00df\u00e0\u00e1\u00e2\u00e3\u00e4\u00e5\u00e6" + //
+			"\u00e5\u00e5\u00e7\u00e8\u00e9\u00e9\u00ea\u00eb\u00a8\u0009\u00ec\u00ed\u00ed\u00ee\u00efY" + //
+			"\u0005\u00f0\u00da\u00f1\u00f1\u00f2\u00f3\u00bb\u00f4\u00f5\u00f4\u00f6\u00f7\u00f8\u00f9\u00fa" + //
+			"\u00fb\u00f4\u00fc\u00fd\u00fe\u00ff\u0100\u0101\u0102\u0103\u0104\u0105\u0106\u0107\u0108\u0109" + //
+			"\u0107\u010a\u010b\u010c\u010d\u010e\u010f\u0110\u0111\u0112|\u0113\u0016\u00ad\u0114\u0115" + //
+			"\u0116\u0116\u0117\u0117\u0117\u0117\u0118\u0118\u0013\u0119\u011a\u011b\u00cf\u011c\u011d\u011e" + //
+			"\u011f\u0120\u01214\u0122\u0123\u0124\u0124\u0125\u0126\u0126\u0127\u0128\u0129\u012a\u012b" + //
+			"\u012c\u00fc\u012dr\u012e\u012f\u0130\u01304\u0009\u0131r\u0132\u0133\u0133\u012f\u0134\u0135" + //
+			"\u00fc\u0136\u0134\u0137\u0138\u0009L\u0139\u0009\u013a\r\u013b\u013c\u013d\u013e\u013f\u0140" + //
+			"\u0141\u00af\u00af\u0142\u0143\u0143\u0144\u0145\u0146\u0147\u0148\u0149\u00af\u014a\u014b\u014c" + //
+			"\u014d\u014e\u014f\u0150\u0151\u0152\u0153\u0154\u0155\u0156\u0157\u0158\u0159\u0142\u0143\u0103" + //
+			"\u015a\u015b\u015c\u015d\u015e\u015e\u015f\u015f\u015f\u0160\u0161\u0162\u0160\u0163\u0164\u0165" + //
+			"\u0166\u0167\u0168\u0132I\u0169\u00a8\u00a8\u0009\u0009\u016a\u016a\u0169\u016b\u016c\u016d" + //
+			"\u016e|\u016f\u0170\u0171\u0172\u0173\u0174\u0169\u0169\u0176\u0178\u0179\u017a\u017b\u017c" + //
+			"\u017a\u0009\u017d\u017e\u017f\u017f\u0009\u0009\u0180\u0009>\u0181\u0182\u0169\u0184\u0187" + //
+			"\u0187\u0189\u018b\u018c\u018d\u018c\u018f\u018f\u018f\u0190\u0192\u0193\u0194\u0195\u018f\u0197" + //
+			"\u0198\u0199\u0009\u019aq\u019b\u019c\u019e\u019e\u0009\u019f\u01a0\u01a1\u019f\u01a0\u01a0" + //
+			"|\u01a2|\u0009\u0081\u01a3\u01a4\u01a5\u01a6\u01a7\u01a8\u01a9\u01aa\u01ab\u01ac\u01ad\u01ae" + //
+			"\u01af\u008d\u01b0\u01b1\u01b3\u01b5\u01b6\u0169\u0009\u01b5\u0009\u01b8\u0009\u01b9\u00bc\u00a3" + //
+			"\u00bc\u01ba\u0009\u01bb\u01bc\u01be\u01c0\u01c1\u01c2XX\u01c3\u01c4\u01c5\u01c6\u01c8\u00bb" + //
+			"\u00bc\u01c9\u01ca\u01ca\u01ca\u01cb\u00ba\u0199\u01cc\u01cd\u01cd\u01ce\u01cf\u01cf\u01d0\u01d1" + //
+			"\u01d2\u01d3\u01d4\u01d5\u01d6\u01d7\u01d8\u01d9\u01d9\u01da\u01db\u01dc\u01dd\u0199\u01de\u01de" + //
+			"\u01df\u01e0\u01e1\u01e2\u01e2\u01e3\u00ed\u01e4\u01e5\u01e6\u00ed\u01e7\u016a\u016a\u01e8\u01e9" + //
+			"\u01e8\u01e8\u01ea\u0009\u01eb\u01ec\u01ed\u01ee\u00f4\u00f4\u01ef\u01f0\u01f1\u0101\u01f2\u0176" + //
+			"\u01f3\u01f4\u01f5\u0009\u01f6\u01f7\u01f8\u01f9\u01fa\u01fa\u01fb\u01fc\u01fd\u01fd\u01fe\u01ff" + //
+			"\u0200\u0201\u0201\u0186\u0202\u0203\u0204\u0205\u0206\u0193\u0207\u0208\u0208\u0209\u0208\u0208" + //
+			"\u020a\u020a\u020b\u020c\u020d\u020e\u020e\u020f\u0210\u0211\u0212\u0213\u0214\u0213\u0215\u0216" + //
+			"\u0216\u0217\u0218S\u0219\u021aS\u014b\u021bS\u0159\u0159\u021c\u021d\u0142\u011c\u021e\u021f" + //
+			"\u0220\u0221\u0222\u0222\u015f\u0222\u0222\u015f\u015f\u0222\u015f\u0223\u0224\u0225\u00ea\u0226" + //
+			"\u019d\u0169\u0227\u0228\u0229\u022a\u022b\u022c\u022d\u022e\u022f\u0230\u0231\u0232\u0233\u0234" + //
+			"\u0235\u0236\u0237\u0238\u0239\u023a\u023a\u023a\u023a\u023b\u023c\u023d";
+	
+	/** The MIME types in <tt>builtin.list</tt> */
+	static final String TYPES = "text/h323\nvideo/3gpp\napplication/x-7z-compressed\napplication/x-abiw" + //
+			"ord\napplication/x-ace-compressed\napplication/postscript\naudio/x-aiff\nchemical/x-alchemy" + //
+			"\nimage/x-jg\ntext/plain\nvideo/x-ms-asf\nchemical/x-ncbi-asn1\nchemical/x-ncbi-asn1-spec\n" + //
+			"chemical/x-ncbi-asn1-binary\napplication/asp\napplication/aspx\napplication/atom\napplicati" + //
+			"on/atomcat+xml\napplication/atomserv+xml\naudio/basic\napplication/x-audacity\nvideo/x-msvi" + //
+			"deo\napplication/x-trash\napplication/x-msdos-program\nchemical/x-molconn-Z\napplication/x-" + //
+			"bcpio\ntext/x-bibtex\napplication/x-binary\nimage/x-ms-bmp\napplication/x-maker\ntext/x-boo" + //
+			"\nchemical/x-crossfire\nchemical/x-chem3d\napplication/vnd.ms-cab-compressed\nchemical/x-ca" + //
+			"che\napplication/cap\nchemical/x-cactvs-binary\napplication/vnd.ms-pki.seccat\napplication/" + //
+			"x-cbr\napplication/x-cbz\ntext/x-c++src\napplication/x-cdf\nimage/x-coreldraw\nimage/x-core" + //
+			"ldrawtemplate\nchemical/x-cdx\napplication/vnd.cinderella\nchemical/x-cxf\nchemical/x-ceriu" + //
+			"s\nchemical/x-chemdraw\napplication/x-kchart\nchemical/x-cif\napplication/java-vm\ntext/x-t" + //
+			"ex\nchemical/x-cmdf\nchemical/x-cml\napplication/vnd.rim.cod\nfont/collection\nchemical/x-c" + //
+			"ompass\napplication/x-cpio\napplication/mac-compactpro\nimage/x-corelphotopaint\napplicatio" + //
+			"n/x-pkcs7-crl\napplication/x-x509-ca-cert\nchemical/x-cache-csf\napplication/x-csh\ntext/x-" + //
+			"csh\nchemical/x-csml\ntext/css\ntext/csv\ntext/x-csrc\nchemical/x-ctx\napplication/cu-seeme" + //
+			"\nchemical/x-gaussian-cube\nchemical/x-mopac-input\napplication/x-database\napplication/x-d" + //
+			"irector\napplication/x-debian-package\ntext/x-diff\nvideo/dv\nimage/vnd.djvu\nvideo/dl\napp" + //
+			"lication/x-apple-diskimage\napplication/x-dms\napplication/msword\ntext/x-dsrc\napplication" + //
+			"/x-dvi\nchemical/x-jcamp-dx\nchemical/x-embl-dl-nucleotide\nmessage/rfc822\nchemical/x-ncbi" + //
+			"-asn1-ascii\nchemical/x-pdb\napplication/vnd.ms-fontobject\napplication/epub+zip\ntext/x-se" + //
+			"text\napplication/andrew-inset\nchemical/x-gaussian-checkpoint\napplication/x-xfig\naudio/x" + //
+			"-flac\nvideo/fli\nvideo/x-flv\nchemical/x-gaussian-log\nchemical/x-gamess-input\nchemical/x" + //
+			"-gaussian-input\ntext/x-pcs-gcd\napplication/x-graphing-calculator\nchemical/x-gcg8-sequenc" + //
+			"e\nchemical/x-genbank\napplication/x-tex-gf\nimage/gif\nvideo/gl\napplication/x-gnumeric\nc" + //
+			"hemical/x-mopac-graph\napplication/x-font\naudio/x-gsm\napplication/x-gtar\napplication/x-h" + //
+			"df\ntext/x-c++hdr\nchemical/x-hin\napplication/mac-binhex40\ntext/x-haskell\napplication/ht" + //
+			"a\ntext/x-component\nmessage/http\ntext/x-chdr\ntext/html\napplication/x-ica\nx-conference/" + //
+			"x-cooltalk\nimage/x-icon\ntext/calendar\nimage/ief\nmodel/iges\napplication/x-iphone\nappli" + //
+			"cation/x-internet-signup\napplication/x-iso9660-image\nchemical/x-isostar\ntext/vnd.sun.j2m" + //
+			"e.app-descriptor\napplication/java-archive\ntext/x-java\napplication/x-jmol\nimage/x-jng\na" + //
+			"pplication/x-java-jnlp-file\nimage/jpeg\napplication/x-javascript\napplication/json\naudio/" + //
+			"midi\napplication/pgp-keys\napplication/x-killustrator\nchemical/x-kinemage\napplication/vn" + //
+			"d.google-earth.kml+xml\napplication/vnd.google-earth.kmz\napplication/x-kpresenter\napplica" + //
+			"tion/x-kspread\napplication/x-kword\ntext/x-lang\napplication/x-latex\napplication/x-lha\nt" + //
+			"ext/x-literate-haskell\nvideo/x-la-asf\napplication/x-lyx\napplication/x-lzh\napplication/x" + //
+			"-lzx\naudio/mpegurl\naudio/x-mpegurl\naudio/mpeg\naudio/mp4\nvideo/mp4\naudio/aac\napplicat" + //
+			"ion/x-troff-man\ntext/xml\nchemical/x-mmcif\nchemical/x-macmolecule\napplication/msaccess\n" + //
+			"application/x-troff-me\nmodel/mesh\napplication/x-mif\nvideo/webm\napplication/x-freemind\n" + //
+			"chemical/x-macromodel-input\napplication/vnd.smaf\ntext/mathml\nvideo/x-mng\napplication/x-" + //
+			"mobipocket-ebook\ntext/x-moc\nchemical/x-mol2\nchemical/x-mdl-molfile\nchemical/x-mopac-out" + //
+			"\nvideo/x-sgi-movie\nvideo/quicktime\nvideo/mpeg\napplication/x-troff-ms\napplication/x-msi" + //
+			"\nchemical/x-mopac-vib\nvideo/vnd.mpegurl\napplication/mathematica\napplication/x-netcdf\na" + //
+			"pplication/x-nwc\napplication/x-object\napplication/oda\napplication/vnd.oasis.opendocument" + //
+			".database\napplication/vnd.oasis.opendocument.chart\napplication/vnd.oasis.opendocument.for" + //
+			"mula\napplication/vnd.oasis.opendocument.graphics\napplication/vnd.oasis.opendocument.image" + //
+			"\napplication/vnd.oasis.opendocument.text-master\napplication/vnd.oasis.opendocument.presen" + //
+			"tation\napplication/vnd.oasis.opendocument.spreadsheet\napplication/vnd.oasis.opendocument." + //
+			"text\naudio/ogg\nvideo/ogg\nfont/otf\napplication/vnd.oasis.opendocument.graphics-template\n" + //
+			"application/vnd.oasis.opendocument.text-web\napplication/vnd.oasis.opendocument.presentatio" + //
+			"n-template\napplication/vnd.oasis.opendocument.spreadsheet-template\napplication/vnd.oasis." + //
+			"opendocument.text-template\napplication/x-oz-application\napplication/x-pkcs7-certreqresp\n" + //
+			"application/x-ns-proxy-autoconfig\ntext/x-pascal\nimage/x-coreldrawpattern\nimage/x-portabl" + //
+			"e-bitmap\nimage/pcx\napplication/pdf\nimage/x-portable-graymap\napplication/x-chess-pgn\nap" + //
+			"plication/pgp-signature\napplication/x-httpd-php3\napplication/x-httpd-php3-preprocessed\na" + //
+			"pplication/x-httpd-php4\napplication/x-httpd-php\napplication/x-httpd-php-source\napplicati" + //
+			"on/x-tex-pk\naudio/x-scpls\ntext/x-perl\nimage/png\nimage/x-portable-anymap\nimage/x-portab" + //
+			"le-pixmap\napplication/vnd.ms-powerpoint\napplication/vnd.ms-powerpoint.presentation.macroE" + //
+			"nabled.12\napplication/pics-rules\nimage/x-photoshop\napplication/x-python-code\ntext/x-pyt" + //
+			"hon\napplication/x-quicktimeplayer\naudio/x-pn-realaudio\naudio/x-realaudio\napplication/x-" + //
+			"rar-compressed\nimage/x-cmu-raster\nchemical/x-mdl-rdfile\napplication/rdf+xml\nimage/x-rgb" + //
+			"\napplication/x-httpd-eruby\napplication/x-troff\nchemical/x-rosdal\napplication/x-redhat-p" + //
+			"ackage-manager\napplication/rss+xml\napplication/rtf\ntext/richtext\nchemical/x-mdl-rxnfile" + //
+			"\ntext/scriptlet\naudio/x-sd2\napplication/vnd.stardivision.draw\napplication/vnd.stardivis" + //
+			"ion.calc\nchemical/x-mdl-sdfile\napplication/vnd.stardivision.impress\napplication/vnd.star" + //
+			"division.math\napplication/vnd.stardivision.chart\napplication/vnd.stardivision.writer\napp" + //
+			"lication/java-serialized-object\nfont/sfnt\napplication/x-go-sgf\napplication/vnd.stardivis" + //
+			"ion.writer-global\napplication/x-sh\napplication/x-shar\ntext/x-sh\naudio/prs.sid\napplicat" + //
+			"ion/vnd.symbian.install\nx-epoc/x-sisx-app\napplication/x-stuffit\napplication/x-koan\nappl" + //
+			"ication/smil\nchemical/x-galactic-spc\napplication/futuresplash\napplication/x-futuresplash" + //
+			"\napplication/x-wais-source\napplication/vnd.sun.xml.calc.template\napplication/vnd.sun.xml" + //
+			".draw.template\napplication/vnd.sun.xml.impress.template\napplication/vnd.ms-pki.stl\nappli" + //
+			"cation/vnd.sun.xml.writer.template\napplication/x-sv4cpio\napplication/x-sv4crc\nimage/svg+" + //
+			"xml\nchemical/x-swissprot\napplication/x-shockwave-flash\napplication/vnd.sun.xml.calc\napp" + //
+			"lication/vnd.sun.xml.draw\napplication/vnd.sun.xml.writer.global\napplication/vnd.sun.xml.i" + //
+			"mpress\napplication/vnd.sun.xml.math\napplication/vnd.sun.xml.writer\napplication/x-tar\nap" + //
+			"plication/x-tcl\ntext/x-tcl\napplication/x-texinfo\nchemical/x-mdl-tgf\napplication/zip\nim" + //
+			"age/tiff\ntext/texmacs\napplication/x-bittorrent\napplication/dsptype\ntext/tab-separated-v" + //
+			"alues\nfont/ttf\ntext/iuls\napplication/x-ustar\ntext/x-vbe\ntext/x-vbs\napplication/x-cdli" + //
+			"nk\ntext/x-vcard\ntext/x-vcalendar\nchemical/x-vmd\nchemical/x-vamas-iso14976\nmodel/vrml\n" + //
+			"x-world/x-vrml\napplication/vnd.visio\napplication/x-doom\naudio/x-wav\naudio/x-ms-wax\nima" + //
+			"ge/vnd.wap.wbmp\napplication/vnd.wap.wbxml\nimage/webp\napplication/x-123\naudio/x-ms-wma\n" + //
+			"application/x-ms-wmd\napplication/vnd.wap.wmlc\napplication/vnd.wap.wmlscriptc\ntext/vnd.wa" + //
+			"p.wmlscript\ntext/vnd.wap.wml\nvideo/x-ms-wm\nvideo/x-ms-wmv\nvideo/x-ms-wmx\napplication/x" + //
+			"-ms-wmz\nfont/woff\nfont/woff2\napplication/wordperfect5.1\napplication/wordperfect\nvideo/" + //
+			"x-ms-wvx\napplication/x-wingz\nimage/x-xbitmap\napplication/x-xcf\napplication/xhtml+xml\na" + //
+			"pplication/vnd.ms-excel\napplication/xml\napplication/x-xpinstall\nimage/x-xpixmap\napplica" + //
+			"tion/xspf+xml\nchemical/x-xtel\napplication/vnd.mozilla.xul+xml\nimage/x-xwindowdump\nchemi" + //
+			"cal/x-xyz\ntext/x-yaml\napplication/octet-stream\nx-world/x-3dmf\napplication/x-authorware-" + //
+			"bin\napplication/x-authorware-map\napplication/x-authorware-seg\ntext/vnd.abc\nvideo/animaf" + //
+			"lex\napplication/x-aim\ntext/x-audiosoft-intra\napplication/x-navi-animation\napplication/x" + //
+			"-nokia-9000-communicator-add-on-software\napplication/mime\napplication/arj\ntext/x-asm\nte" + //
+			"xt/asp\nvideo/avs-video\nimage/bmp\napplication/x-bzip2\napplication/x-bsh\napplication/x-b" + //
+			"zip\napplication/clariscad\napplication/x-cocoa\napplication/x-chat\napplication/x-deepv\na" + //
+			"pplication/commonground\napplication/drafting\ndrawing/x-dwf (old)\nmodel/vnd.dwf\napplicat" + //
+			"ion/acad\nimage/vnd.dwg\nimage/x-dwg\napplication/dxf\ntext/x-script.elisp\napplication/x-b" + //
+			"ytecode.elisp\napplication/x-elc\napplication/x-envoy\napplication/x-esrehber\napplication/" + //
+			"envoy\ntext/x-fortran\napplication/vnd.fdf\napplication/fractals\nimage/fif\nimage/florian\n" + //
+			"text/vnd.fmi.flexstor\nvideo/x-atomic3d-feature\nimage/vnd.fpx\nimage/vnd.net-fpx\napplicat" + //
+			"ion/freeloader\naudio/make\nimage/g3fax\napplication/x-gsp\napplication/x-gss\napplication/" + //
+			"x-compressed\napplication/x-gzip\napplication/x-helpfile\napplication/vnd.hp-hpgl\ntext/x-s" + //
+			"cript\ntext/webviewhtml\napplication/x-ima\napplication/x-httpd-imap\napplication/inf\nappl" + //
+			"ication/x-ip2\nvideo/x-isvideo\naudio/it\napplication/x-inventor\ni-world/i-vrml\napplicati" + //
+			"on/x-livescreen\naudio/x-jam\ntext/x-java-source\napplication/x-java-commerce\nimage/pjpeg\n" + //
+			"image/x-jps\nimage/jutvision\napplication/x-ksh\ntext/x-script.ksh\naudio/nspaudio\naudio/x" + //
+			"-nspaudio\naudio/x-liveaudio\napplication/x-lisp\ntext/x-script.lisp\ntext/x-m\napplication" + //
+			"/x-navimap\napplication/mbedlet\napplication/x-magic-cap-package-1.0\napplication/mcad\napp" + //
+			"lication/x-mathcad\nimage/vasa\ntext/mcf\napplication/netmc\ntext/x-markdown\nwww/mime\naud" + //
+			"io/x-vnd.audioexplosion.mjuicemediafile\nvideo/x-motion-jpeg\napplication/base64\naudio/mod" + //
+			"\naudio/x-mod\napplication/vnd.ms-project\napplication/x-project\napplication/marc\napplica" + //
+			"tion/x-vnd.audioexplosion.mzz\nimage/naplps\napplication/vnd.nokia.configuration-message\ni" + //
+			"mage/x-niff\napplication/x-mix-transfer\napplication/x-conference\napplication/x-navidoc\na" + //
+			"pplication/x-omc\napplication/x-omcdatamaker\napplication/x-omcregerator\napplication/pkcs1" + //
+			"0\napplication/pkcs-12\napplication/x-pkcs7-signature\napplication/pkcs7-mime\napplication/" + //
+			"pkcs7-signature\napplication/pro_eng\napplication/vnd.hp-pcl\nimage/x-pict\nimage/pict\napp" + //
+			"lication/x-newton-compatible-pkg\napplication/vnd.ms-pki.pko\napplication/x-pixclscript\nap" + //
+			"plication/x-pagemaker\nmodel/x-pov\napplication/mspowerpoint\napplication/x-freelance\npale" + //
+			"ovu/x-pv\naudio/vnd.qcelp\nimage/x-quicktime\nvideo/x-qtc\nimage/cmu-raster\napplication/re" + //
+			"gistry-editor\ntext/x-script.rexx\nimage/vnd.rn-realflash\naudio/mid\napplication/ringing-t" + //
+			"ones\napplication/vnd.rn-realplayer\nimage/vnd.rn-realpix\nvideo/vnd.rn-realvideo\naudio/s3" + //
+			"m\napplication/x-tbook\ntext/x-script.scheme\napplication/sdp\napplication/sounder\napplica" + //
+			"tion/sea\napplication/set\ntext/sgml\napplication/x-seelogo\napplication/solids\napplicatio" + //
+			"n/x-sprite\ntext/x-server-parsed-html\napplication/streamingmedia\napplication/vnd.ms-pki.c" + //
+			"ertstore\napplication/step\napplication/x-world\ntext/x-speech\napplication/toolbook\ntext/" + //
+			"x-script.tcsh\naudio/tsp-audio\ntext/x-uil\ntext/uri-list\napplication/i-deas\ntext/x-uuenc" + //
+			"ode\napplication/vda\nvideo/vdo\napplication/groupwise\nvideo/vnd.vivo\napplication/vocalte" + //
+			"c-media-file\naudio/voc\nvideo/vosaic\naudio/voxware\naudio/x-twinvq-plugin\naudio/x-twinvq" + //
+			"\nx-world/x-vrt\napplication/x-visio\napplication/wordperfect6.0\napplication/wordperfect6." + //
+			"1\napplication/x-qpro\napplication/vnd.xara\nwindows/metafile\napplication/x-lotus\napplica" + //
+			"tion/mswrite\napplication/x-wintalk\nvideo/x-amt-demorun\nxgl/drawing\nimage/vnd.xiff\nappl" + //
+			"ication/excel\naudio/xm\nxgl/movie\napplication/x-vnd.ls-xpix\nvideo/x-amt-showrun\ntext/x-" + //
+			"script.zsh\napplication/vnd.openxmlformats-officedocument.wordprocessingml.document\napplic" + //
+			"ation/vnd.ms-word.document.macroEnabled.12\napplication/vnd.openxmlformats-officedocument.w" + //
+			"ordprocessingml.template\napplication/vnd.ms-word.template.macroEnabled.12\napplication/vnd" + //
+			".openxmlformats-officedocument.spreadsheetml.sheet\napplication/vnd.ms-excel.sheet.macroEna" + //
+			"bled.12\napplication/vnd.openxmlformats-officedocument.spreadsheetml.template\napplication/" + //
+			"vnd.ms-excel.template.macroEnabled.12\napplication/vnd.ms-excel.sheet.binary.macroEnabled.1" + //
+			"2\napplication/vnd.ms-excel.addin.macroEnabled.12\napplication/vnd.openxmlformats-officedoc" + //
+			"ument.presentationml.presentation\napplication/vnd.openxmlformats-officedocument.presentati" + //
+			"onml.slideshow\napplication/vnd.ms-powerpoint.slideshow.macroEnabled.12\napplication/vnd.op" + //
+			"enxmlformats-officedocument.presentationml.template\napplication/vnd.ms-powerpoint.template" + //
+			".macroEnabled.12\napplication/vnd.ms-powerpoint.addin.macroEnabled.12\napplication/vnd.open" + //
+			"xmlformats-officedocument.presentationml.slide\napplication/vnd.ms-powerpoint.slide.macroEn" + //
+			"abled.12\napplication/msonenote\napplication/vnd.ms-officetheme\napplication/x-webarchive\n" + //
+			"application/x-rdp\n";
+	
+	/** The MIME type index's hash table */
+	static final String TYPE_SLOTS = "\u0000\u0000\u0000\u0000(\u0000\u0000\u0000\u0000\u0000\u0000\u0199" + //
+			"\u0086\u01f1\u0000\u01b3\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000b\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0141\u0000\u0000\u00006\u00f4\u0000\u0000\u0000\u00a9\u0100\u012f\u013a" + //
+			"\u0000\u0000\u01a9\u01ec\u0000\u0000\u0000}\u01a7\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"'\u00fe\u0000\u0000\u01bb-\u0000\u0000\u014d\u0000\u0000\u0000\u0000\u0000\u00f1\u011d\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u01b4\u0089\u0000\u0000\u0000\u0000\u023b\u022e\u0000\u0000\u0214" + //
+			"\u0000\u0000\u0000\u00ac<\u0000\u0000\u0204\u0000\u0000\u0000\u0000\u0000\u0000\u01ba\u022f" + //
+			"\u0000\u0000\u0000\u0000\u0000*\u0000\u0000\"\u0000\u0000\u0000\u0000\u0186\u0000\u0000\u0000" + //
+			"\u0000\u0000I\u0000\u0000\u0000\u0000\u0000\u007f\u0000\u0000\u0000\u0000\u010e\u00bf\u014b" + //
+			"\u00f6\u0176\u0000\u0000\u0000\u0191\u01cd\u0000\u0093\u0000\u0000\u0000\u0000\u0000\u0000\u0007" + //
+			"\u0220\u01d3\u0197\u0000\u0000\u0000\u0000\u0000\u0110\u0000\u000f\u0000\u0201\u0000\u0000\u018f" + //
+			"\u01fe\u0000\u0000\u0000\u0101\u0087h\u00ed\u0105\u0000[\u0000\u0000\u0000\u0000\u01e2\u0000" + //
+			"\u0000\u0000\u00d9\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u00003\u01a4\u0209\u01ee\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u016f\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u00eb\u01aa\u008b\u01b7\u0228\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u00d0\u0000\u012e\u0000\u0000\u0000\u0000\u0000\u0000\u0200\u0000\u0000\u0000\u00e6\u0000" + //
+			"Z\u0000\u0000\u0000\u0000\u0000\u001c\u0000\u0000\u022b\u0000\u0000\u0000\u01d0\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u01fb\u0000\u0107\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u015e\u0000\u0000\u0000\u0005\u0000]\u0000\u0000\u0000\u0000" + //
+			"\u0000\u01c0\u0000\u0000\u0000\u0000\u0000\u019a\u0000\u0000\u0000\u0159\u0000\u0000\u0000\u0000" + //
+			"\u0115\u00b4\u01cc\u018d\u0000\u0000\u012c\u0000\u0000\u0000\u0000\u0000\u018e\u0202\u0000\u0000" + //
+			"\u0177\u00b3\u0000\u0000\u0000\u0000\u0000\u0000\u00008\u0181\u0000\u0000\u012d\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0238\u0000\u0000\u0000" + //
+			"\u0000\u0000)\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0192\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u00f7" + //
+			"\u00d3~\u015dF\u0000\u0000\u0000\u0000\u0000\u0000\u0147\u0000\u0205\u0019\u001e\u0139\u0194" + //
+			"\u0000\u0000\u0000\u016a\u0000\u0000\u000b\u00de\u0095\u00b5\u00fa\u0124\u0000\u0000\u0000\u00a4" + //
+			"\u0000\u0000\u00db\u0000\u0000\u01bf\u0000\u0000\u0000\u0000\u01de\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u00a3\u0000\u0000\u01c3\u0000\u0000\u0125\u0185\u0000\u0000\u0000\u01e8\u0000" + //
+			"\u0000\u0000\u0000\u01b2\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u01d6\u020f\u0000" + //
+			"\u00f0\u0000\u00c2\u00fc\u01ea\u0224\u0000\u0000\u0000\u0000\u0000\u0000x\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u00b1\u0000\u0000\u0000\u0188\u00ec\u0000\u0000C\u0126\u0000\u0000" + //
+			"\u0000y\u0000\u0000\u0000\u0000\u0000\u0000\u001d\u0000\u0000\u0000\u0000\u0000\u0016\u0000" + //
+			"\u0000\u0000\u0000\u0235\u0000\u0142\u00c0\u0000\u0000\u0000\u0000/\u0222\u0000\u0000\u0000" + //
+			"\u0000\u0000\u022a\u0000\u0114\u01a3\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u018a\u0000" + //
+			"\u0000\u0000\u0017\u0000\u0000\u0000\u0000\u0000E\u01d7\u0000\u0000\u0000D\u0000\u0000\u017c" + //
+			"\u0000u\u0000\u0000\u01d8\u00be\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u01d4\u0165\u0000\u001bk\u00af\u00ad\u011e\u0000\u0000\u0000\u0000\u0000\u0000V\u009b" + //
+			"\u0000\u0000\u020e\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u01fc\u0000\u0000\u0000\u0000G" + //
+			"\u0000\u00bd\u0000\u0000\u0000\u0104\u0000\u0000\u00c6\u0000\u014c\u00cc\u0000\u0000\u001f\u0138" + //
+			"\u0178\u0000\u0000\u0132\u0000m\u01f9\u0000\u0000\u0000\u0000\u0000\u01e5\u0000\u0000\u0000" + //
+			"\u0000\u016b\u0000\u0000\u0000\u0198\u01f7\u01dc\u0000%\u0179\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u021a\u0172\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u001a\u00cf\u0118\u01faa\u0000\u0000\u0000\u0000\u0000\u000e\u0000\u01b8\u0000\u0237" + //
+			"\u0000\u01e0\u0000\u0173\u0000\u0000\u0225\u0000\u0000\u0000\u0157\u0000\u0000\u0000\u01dd\u0000" + //
+			"\u0000\u0000\u0000\u0000\u01ed\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0144\u0000\u0000\u0000\u0000\u0000\u0000\u00ba\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u01cf\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000K\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000+!\u0000\u0000\u0000,\u01a2\u0000\u0000\u0000\u017e\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000S\u0000\u0000\u0000\u0000\u0000\u0160\u0000\u0000\u0000\u0000\u0000\u0000\u0123\u0000" + //
+			"\u0000\u0000\u01c6\u01c4\u0000\u0000\u0208\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u00c7\u0000\u0000\u01f0\u009d\u0000\u0000\u0000\u021d\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u01af\u0000\u0000\u00b9.\u0006\u0000\u0000\u0000\u0000\u0000" + //
+			"7\u0000\u0000\u0000\u0000\u0000\u0000\u01ae\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0236\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000s\u0000\u0000\u0000\u0082\u010c\u0000" + //
+			"\u0000\u0000\u015c\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0229\u023a\u013e\u0000\u01ce" + //
+			"\u009f\u0195\u0000\u0000\u009e\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u023d" + //
+			"\u0000\u0000\u0000\u0000\u0000e\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u021e\u018b\u0000\u0000\u0150?\u0206\u0000\u0083\u0000\u0102\u0000\u0000\u0000\u020a" + //
+			"\u0000\u0184\u01f5\u0000\u0000\u0000\u0000\u0000\u0000\u00e7\u0112\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000M\u0000\u0000\u012b\u0000\u0000\u0000\u0000\u0000\u0000\u0121\u0000\u019f\u0000\u0168" + //
+			"\u0000\u00a0\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0011\u0000\u0000\u0000\u0000\u0000" + //
+			"\u01a5\u00a1\u0234\u0000i\u0000\u0000\u0099\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u00b6\u013c\u0000\u0091\u021b\u0000\u0000\u0000\u0000\u0018\u0097\u0000" + //
+			"\u0000\u0000\u0000\u00fb\u0000\u01ac\u00d6\u00b8f\u013d\u01e3\u0217\u011c\u0000\u0000\u0000" + //
+			"\u0000\u00f9\u0000\u00c1\u0000\u00c3\u0000\u0000\u0000\u0000\u0106\u0000\u0000\u0000\u01e6\u0000" + //
+			"\u0000\u0000\u0000\u0211\u0000\u0000\u0163\u0000\u0000\u00bc\u0000\u00a6\u0000\u0111\u0092\u00b0" + //
+			"\u0000\u0000\u0000\u0000P\u0000\u0000\u0153\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u022c\u0000 \u00e9\u0000\u0000\u0000\u0190" + //
+			"\u0000\u0000\u0000\u0002\u0000\u00e1\u0116\u0000\u0000\u0000\u00e5\u00e3\u0000\u0000\u0000\u0000" + //
+			"#\u01e1\u0000\u0000\u0000\u0109\u0133\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0189\u0000\u0000\u0000\u0000\u0000\u0000\u01cb\u0000\u020b\u0000\u020d\u0000\u0000\u0000\u0001" + //
+			"\u0000\u0000\u023c\u0096\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u01a8\u0000\u0000" + //
+			"\u0000\u0000\u0000\u008fR\u0000\u0000\u015b\u0000\u0130\u0000\u016c\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u00c4\u0000\u0000\u01c7\u0000>\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u016d\u0000" + //
+			"\u0000\u0000L\u0000\u0000\u0000\u01b0\u00d2\u01b5\u0000\u0000\u0000\u0000\u0000\u0000\u00ff" + //
+			"\u0000\u0000\u01d5\u0000\u0113\u0167;\u0183\u00bb\u0000\u010b\u0000\u0000\u0000\u00d5\u0000" + //
+			"\u0000\u0000\u0000\u0175\u0000\u0000\u00005\u0013\u01be\u0000\u0000\u0000\u0000j\u0000\u0000" + //
+			"\u00e0\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0127\u0000\u0000\u0000\u0000\u0000\u0000\u008a" + //
+			"\u00ef\u013b\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000v\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u01ca\u01ab\u0000\u009a\u0000\u01c5\u0000\u0000\u0000\u0000\u0000\u0000\u00d7" + //
+			"t\u0131\u0000\u0000\u0000\u0000\u0000\u0000\u0000{\u0000\u0000\u0000\u0000\u0000\u01c2\u0000" + //
+			"\u017a\u0000\u0000\u0000l\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u00f8\u0000\u0000\u0000\u0084\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0085\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u00ee\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0134" + //
+			"\u0117\u0000\u0000\u0000\u0000\u014a\u0170\u0000\u014e\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000g\u0000\u0169\u0215\u0000\u0128\u0000\u0000\u0000\u010f\u0000\u00d4\u0156\u0000" + //
+			"\u0000\u0000\u0000\u00aa\u0000\u0000\u0000\u0000^:\u017d\u0000\u00ab\u0000\u0000\u0000\u0000" + //
+			"\u008d\u0000\u0000\u0137\u0000\u00a7\u0000\u0000\u0000\u0000\u0000\u009c\u0146\u01c1\u0088\u01c9" + //
+			"\u0000\u0000\u00cd\u0000\u0009\u0000\u0000\u0000\u0000\u0000\u00b7\u01a1\u0203\u0000\u0000\u01b6" + //
+			"\u0080\u00da\u019e\u0000\u0008\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u016e\u0000\u0000\u0000\u0180\u00cb\u017b\u0012\u0210\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u013f\u0000\u0000\u0000\u0000\u0000\u00f2o\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0162\u0218\u0219\u0000\u0000\u0000\u0000\u0000\u01b9\u0000\u0000Y\u0145OA\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u01a0\u0000\u0000\u0000\u0000\u0239\u0000\u0000\u0000" + //
+			"\u01f2\u0000\u0000\u0000\u0000\u00a5\u0000\u0000\u0000\u0000\u0000\u00df\u0136\u014f\u0000\u0000" + //
+			"\u00ea\u0000\u0004\u0000\u0000\u0000\u00dc\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000QU\u0103\u01f8\u0000\u0122\u0000\u0000\u0000\u0000\u0000\u0010\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0094\u0000\u0000\u0000\u0000\u0000\u0143\u0000\u0000\u021c\u01e9n" + //
+			"\u0000\u019b\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u00e8\u0187\u0000\u0000" + //
+			"\u0000\u012a\u0000\u0000\u0000\u01c8\u0000\u0000`\u0000\u0000\u022d\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0227\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u00004\u0000\u0000\u0000\u0221\u0000\u0000\u0000\u0000_\u010a\u00000\u00d1\u0000W\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000T\u00a2\u0000\u01f3\u0000\u0000\u0182\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0015\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0149\u0000\u0000X\u0000\u0000\u01d9\u01daB\u0000\u01e4\u0000" + //
+			"\u0000\u000c\u017f\u01ad\u0000\u0000\u0000\u0000\u0000\u0000\u0193\u0000\u0000\u0000\u0098\u00f5" + //
+			"\u0000\nH\u0000\u0000\u0000=\u0000\u0000\u0000\u0000\u01ff\u0000\u0000\u0000q\u0000\u0000\u0000" + //
+			"\u01d2\u0000\u0000\u0000\u0000\u0000p\u0151\u0230\u0120\u0000\u0000\u00c9\u0000\u0000\u0000" + //
+			"\u021f\u0000\u0000$\u00e2\u01df\u0000\u0000\u0166\u0213\u00fd\u011f\u0000\u0000\u0000\u019d" + //
+			"\u0000\u0000\u019c\u00dd\u0000\u0000\u0000\u0000J\u0000\u0000\u0000\u0000\u0140\u0000\u0000" + //
+			"\u0000\u0158\u0000\u0090\u00a8\u0000\u0000\u0000\u0000\u0000\u0000\u01fd\u0000\u0000\u0000\u0000" + //
+			"\u0196\u0000\u0135\u0233\u01a6N\u01b1\u01e7\u0000\u00d8\u0119\u0000\u0000\u0000\u0081\u0161" + //
+			"\u01bd\u0000\u0000\u0000\u0108\u0000\u0000\u0000\u008c\u0000\u0000\u0000\u0000z\u015f\u0000" + //
+			"\u0000\u0171\u01db\u0000\u0000\u0000\u0000\u0000\u0000\u00001\u0014\u01d1\u0000\u0000|\u01bc" + //
+			"\u0000\u0000\u0000\u0000\u01eb\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000w\u0000\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0129\u0000\u0000\u0000\u0223" + //
+			"\u0000\u0000\u0000\u0232\u0000\u0000\u00c5\u023e\u0000\u0000\u0000\u0207\u0000\u0000\u0000\u0000" + //
+			"\u0000&\u00b2\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u00ca\u0000\u0000" + //
+			"\u0000\u011a\u0148\u0000\u0000\u0000\u0000\u01ef\u0000\u0000\u020cc\u0000\u0000\u0000\u0000" + //
+			"\u0154\u01f4\rr\u0155\u0000\u0000\u0152\u0000\u0000\u0000\u0003\u0000\u0000\u0000\u0212\u0000" + //
+			"\u00ae\u008e\u00c8\u0000\u0000\u0000\u02169\u0231\u0000\u0000\u0000@\u0000\u0000\u0000d\u0000" + //
+			"\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u0000\u00ce\u0000\u0000\u0000\u0000\u0000" + //
+			"\u0000\u00e4\u010d\u0000\u0000\u0000\u018c\u0000\u0000\u0000\u0000\u0000\u00002\u011b\u0000" + //
+			"\u01f6\u0000\u00f3\u015a\u0226\u0000\u0000\u0164\u0000\u0174\\";
+	
+	/** The offset of each MIME type's first extension */
+	static final String TYPE_OFFSETS = "\u0000\u0001\u0002\u0004\u0005\u0006\u0009\u000c\r\u000e%'()++," + //
+			"-./1236:;<=>?FGHIJLNQRSTWXYZ[\\^_`abdhijklmnopqstuvxyz{|}~\u0083\u0084\u0087\u0089\u008b\u008d" + //
+			"\u008f\u0090\u0091\u0092\u0097\u0098\u0099\u009b\u009d\u00a0\u00a2\u00a4\u00a5\u00a6\u00a7\u00a8" + //
+			"\u00aa\u00ab\u00ac\u00ad\u00ae\u00af\u00b2\u00b5\u00b6\u00b7\u00b8\u00b9\u00ba\u00bb\u00bc\u00bd" + //
+			"\u00be\u00c3\u00c5\u00c8\u00c9\u00cc\u00cd\u00ce\u00cf\u00d0\u00d1\u00d2\u00d3\u00d9\u00da\u00db" + //
+			"\u00dc\u00de\u00e0\u00e2\u00e3\u00e5\u00e6\u00e8\u00e9\u00ea\u00eb\u00ec\u00ed\u00ee\u00f2\u00f3" + //
+			"\u00f4\u00f7\u00f8\u00f9\u00fa\u00fb\u00fc\u00fe\u00ff\u0101\u0102\u0103\u0104\u0105\u0107\u0108" + //
+			"\u0109\u010a\u010b\u010c\u0112\u0113\u0116\u0117\u0118\u011c\u011d\u011e\u011f\u0120\u0123\u0124" + //
+			"\u0128\u0129\u012b\u012c\u012d\u012e\u012f\u0130\u0131\u0132\u0133\u0135\u0138\u013e\u013f\u0140" + //
+			"\u0141\u0142\u0143\u0144\u0145\u0146\u0147\u0148\u0149\u014a\u014b\u014c\u014d\u014e\u014f\u0150" + //
+			"\u0154\u0155\u0156\u0157\u0158\u0159\u015a\u015b\u015c\u015d\u015e\u0160\u0161\u0162\u0163\u0164" + //
+			"\u0165\u0166\u0167\u0168\u0169\u016a\u016d\u016e\u016f\u0170\u0172\u0174\u0175\u0176\u017a\u017b" + //
+			"\u017c\u017d\u017f\u0180\u0181\u0186\u0187\u0188\u0189\u018a\u018b\u018c\u018d\u0190\u0191\u0192" + //
+			"\u0193\u0194\u0196\u0197\u0199\u019a\u019b\u019c\u019e\u019f\u01a0\u01a1\u01a2\u01a3\u01a4\u01a5" + //
+			"\u01a6\u01a7\u01a8\u01a9\u01aa\u01ab\u01ac\u01ae\u01b2\u01b4\u01b5\u01b6\u01b7\u01b9\u01ba\u01bb" + //
+			"\u01bc\u01bd\u01be\u01bf\u01c0\u01c2\u01c3\u01c5\u01c6\u01c7\u01c8\u01c9\u01ca\u01cb\u01cc\u01cd" + //
+			"\u01cf\u01d1\u01d2\u01d4\u01d6\u01d8\u01d9\u01da\u01db\u01dc\u01dd\u01de\u01df\u01e0\u01e1\u01e2" + //
+			"\u01e3\u01e4\u01e5\u01e8\u01eb\u01ec\u01ed\u01ee\u01ef\u01f0\u01f1\u01f2\u01f4\u01f5\u01f6\u01f7" + //
+			"\u01f8\u01f9\u01fa\u01fb\u01fc\u01fd\u01fe\u01ff\u0200\u0201\u0204\u0205\u0206\u0207\u0208\u020a" + //
+			"\u0211\u0213\u0214\u0215\u0216\u0217\u0218\u0219\u021a\u021b\u0222\u0226\u0227\u0228\u0229\u022a" + //
+			"\u022b\u022c\u022d\u022e\u022f\u0230\u0230\u0232\u0233\u0234\u0235\u0237\u0238\u0239\u023a\u023b" + //
+			"\u023d\u023e\u023f\u0240\u0240\u0241\u0241\u0242\u0244\u0244\u0245\u0245\u0246\u0248\u0249\u0249" + //
+			"\u024d\u024e\u024e\u024f\u0251\u0252\u0253\u0253\u0254\u0255\u0258\u0259\u025a\u025b\u025c\u025e" + //
+			"\u0260\u0263\u0264\u0265\u0266\u0267\u0268\u0269\u026a\u026b\u026c\u026d\u026e\u026f\u0270\u0271" + //
+			"\u0272\u0273\u0274\u0274\u0275\u0275\u0277\u0278\u0278\u0279\u027a\u027b\u027c\u027d\u027d\u027e" + //
+			"\u027e\u027f\u0280\u0281\u0282\u0283\u0284\u0285\u0285\u0286\u0287\u028a\u028b\u028c\u028e\u028f" + //
+			"\u0291\u0292\u0293\u0294\u0295\u0296\u0297\u0298\u0299\u029a\u029c\u029d\u029e\u029f\u02a0\u02a2" + //
+			"\u02a3\u02a4\u02a5\u02a7\u02a8\u02a9\u02aa\u02ab\u02ac\u02af\u02b0\u02b1\u02b2\u02b3\u02b4\u02b5" + //
+			"\u02b6\u02b7\u02b8\u02b9\u02ba\u02bb\u02bc\u02bd\u02be\u02bf\u02c0\u02c2\u02c3\u02c4\u02c6\u02c7" + //
+			"\u02c8\u02c9\u02cb\u02cc\u02cd\u02ce\u02cf\u02d0\u02d1\u02d5\u02d6\u02d8\u02d9\u02da\u02db\u02dd" + //
+			"\u02de\u02df\u02e0\u02e1\u02e3\u02e4\u02e5\u02e7\u02e8\u02e9\u02ea\u02eb\u02ec\u02ed\u02ee\u02ef" + //
+			"\u02f0\u02f1\u02f2\u02f7\u02f8\u02f9\u02fa\u02fb\u02fc\u02fd\u02fe\u02ff\u0300\u0301\u0302\u0303" + //
+			"\u0304\u0305\u0306\u0307\u0308\u0309\u030a\u030b\u030c\u030d\u030e\u0312\u0313\u0314\u0315";
+	
+	/** The ordinals of each MIME type's extensions */
+	static final String TYPE_EXTENSIONS = "\u0000\u0001\u0003\u0002\u0004\u0005\u0006p\u0142\u0007\u0009" + //
+			"\u0008\n\u000b\u020c\u00a9\u0206\u01ed\u01ee\u008a\u020b\u013b\u024e\u01a9\u000c\u00cb\u0250" + //
+			"\u0252\u019b\u020e\u0227\u022e\u02aa\u0258\u01ac\u029a\u0238\u0011\r\u000e\u000f\u01ae\u0010" + //
+			"\u0013\u0014\u0015\u0016\u0017\u017a\u0018\u0019\u001a\u016e\u0114@s\u001b_\u001c\u001d\u001e" + //
+			"\u001f \u00d9u}~\u007f!v\"#$%'&\u0122(O+)*,-.CU/01234T56789:\u019a;\u00ce\u0185<=>?ABDEFG\u020f" + //
+			"HIJKLMNPQRS\u00f7\u00f0\u01e9\u00f1VWX\\iY\u01aa\u011fZg[^]`ab\u02e0\u02dddc\u02daefh\u00b3" + //
+			"jkl\u0260\u025f\u0141mn\u0126oqrtwxyz{|\u0080\u00aa\u0082\u0081\u008c\u008b\u0083\u0084\u0085" + //
+			"\u0086\u0087\u0088\u0089\u008d\u008e\u008f\u0123\u0090\u0129\u0128\u0124\u0091\u0229\u0195\u019d" + //
+			"\u0092\u0093\u0094\u0096\u009f\u0095\u0097\u0098\u0099\u009a\u009b\u009c\u009d\u01f6\u009e\u0237" + //
+			"\u016c\u0235\u00a0\u00a1\u00a2\u00a4\u00a3\u0239\u00a5\u00a7\u00a6\u00a8\u00ab\u00ad\u00ac\u00af" + //
+			"\u00ae\u00b0\u00b1\u00b2\u00b4\u00b5\u00b6\u0247\u00b7\u00b9\u00b8\u00ba\u00bb\u00e2\u00bc\u00e1" + //
+			"\u00bd\u00be\u00bf\u00c0\u00c1\u00c2\u00c3\u00c4\u00c6\u00c5\u00c7\u00c8\u00c9\u00ca\u00cc\u00cd" + //
+			"\u00cf\u00d0\u00d1\u00d2\u00d3\u00f5\u00f4\u0255\u00fb\u00f8\u00d4\u00d5\u00f6\u00d6\u00d8\u00d7" + //
+			"\u00da\u01eb\u01ec\u013a\u00db\u00dc\u00dd\u00de\u00df\u00fe\u016f\u00e0\u00e3\u01b6\u01b7\u01c1" + //
+			"\u00e4\u00e5\u00e9\u00e6\u00e7\u00e8\u00ea\u00eb\u00ec\u00ed\u00ee\u00ef\u026d\u00f2\u00f3\u0149" + //
+			"\u0266\u00fc\u00fa\u0267\u0254\u0256\u00f9\u00fd\u00ff\u0100\u0101\u0102\u0103\u0104\u0105\u0106" + //
+			"\u0107\u0108\u0109\u010a\u010b\u010c\u010d\u010e\u010f\u0111\u0113\u0110\u017e\u0112\u0115\u0116" + //
+			"\u0117\u0118\u0119\u011a\u011b\u011c\u011d\u011e\u0144\u0120\u0121\u0125\u0127\u012a\u012b\u012c" + //
+			"\u012d\u012e\u012f\u0133\u0132\u0130\u0131\u0134\u0135\u0136\u0137\u02f7\u0138\u0139\u013c\u028d" + //
+			"\u013e\u013d\u0291\u013f\u0140\u0143\u0146\u0145\u0147\u0148\u014c\u02a0\u029f\u0153\u014a\u014b" + //
+			"\u014d\u014e\u014f\u0150\u0151\u0152\u0154\u01a4\u0193\u0155\u0156\u0157\u0158\u02a4\u0159\u015a" + //
+			"\u015b\u01d4\u015c\u015d\u015e\u015f\u0162\u0160\u0161\u0163\u0164\u0165\u0166\u0167\u0168\u0169" + //
+			"\u016a\u016b\u016d\u0170\u0171\u0173\u0172\u0174\u0175\u0177\u0176\u0179\u0178\u017b\u017c\u017d" + //
+			"\u02e6\u017f\u0180\u0181\u0182\u0183\u0184\u0186\u0187\u0189\u0188\u018a\u018c\u018b\u018d\u018e" + //
+			"\u018f\u0190\u0191\u0192\u0194\u0196\u0197\u01a1\u0199\u0198\u019c\u01e8\u019e\u019f\u01a0\u01a2" + //
+			"\u01a6\u01a3\u01a5\u01a7\u01a8\u01ab\u01ad\u01af\u01b0\u01b1\u01b2\u01b3\u01b4\u01b5\u01b8\u01d2" + //
+			"\u02e5\u01ba\u01b9\u01d3\u01bb\u01bc\u01bd\u01be\u01bf\u01c0\u01c2\u01c3\u02de\u01c4\u01c5\u01c6" + //
+			"\u01c7\u01c8\u01c9\u01ca\u01cb\u01cc\u01cd\u01ce\u01cf\u01d0\u02e1\u02e2\u01d1\u01d5\u01d6\u01d7" + //
+			"\u01d8\u01d9\u01da\u02f3\u01dd\u01dc\u01db\u02ed\u02f0\u02f1\u01de\u01e1\u01df\u01e0\u01e2\u01e3" + //
+			"\u01e4\u01e5\u01e6\u01e7\u01ea\u02fa\u0212\u01fd\u01fe\u024d\u01f1\u01ef\u0293\u0294\u01f0\u01f2" + //
+			"\u01f3\u01f4\u01f5\u01f7\u01f8\u01f9\u01fa\u01fb\u01fc\u01ff\u02a6\u0012\u0200\u0201\u0202\u0205" + //
+			"\u0203\u0204\u0207\u0208\u0209\u020a\u020d\u0210\u0211\u0213\u02ba\u0214\u0215\u0216\u0217\u0218" + //
+			"\u021a\u0219\u0223\u021b\u021c\u021d\u021e\u021f\u0220\u02c0\u0221\u0222\u0224\u0225\u0226\u026e" + //
+			"\u0284\u0228\u022a\u022b\u02f9\u022d\u022c\u022f\u0232\u0234\u0230\u0233\u0231\u0236\u023a\u023b" + //
+			"\u023c\u023d\u023e\u023f\u0240\u0241\u0242\u0243\u0244\u0245\u0246\u0248\u0249\u024a\u024b\u024f" + //
+			"\u024c\u0251\u0253\u0257\u0259\u025a\u025b\u025c\u025d\u025e\u0261\u0262\u0263\u0264\u0265\u0268" + //
+			"\u026b\u026a\u0269\u026c\u026f\u0270\u0271\u0272\u0274\u0273\u0275\u0276\u0277\u0278\u0279\u027a" + //
+			"\u027b\u027c\u027d\u027f\u027e\u0280\u0281\u0282\u0283\u0285\u0286\u0287\u0288\u0289\u028b\u028a" + //
+			"\u028c\u028e\u028f\u0290\u0292\u0298\u0295\u0297\u0296\u0299\u029b\u029c\u029d\u029e\u02a1\u02a2" + //
+			"\u02a3\u02a5\u02a7\u02a8\u02a9\u02ab\u02ac\u02ad\u02ae\u02b0\u02af\u02b1\u02b2\u02b4\u02b3\u02b5" + //
+			"\u02b6\u02b7\u02b8\u02b9\u02bb\u02bc\u02bd\u02be\u02bf\u02c1\u02c3\u02c6\u02c2\u02c5\u02c4\u02c7" + //
+			"\u02c8\u02c9\u02ca\u02cb\u02cc\u02cd\u02ce\u02cf\u02d0\u02d1\u02d2\u02d4\u02d3\u02d5\u02d7\u02d6" + //
+			"\u02d8\u02d9\u02db\u02dc\u02df\u02e3\u02e4\u02e7\u02e8\u02e9\u02ea\u02ec\u02f2\u02ee\u02ef\u02eb" + //
+			"\u02f4\u02f5\u02f6\u02f8\u02fb\u02fc\u02fd\u02fe\u02ff\u0300\u0301\u0302\u0303\u0304\u0305\u0306" + //
+			"\u0307\u0308\u0309\u030a\u030b\u030c\u030d\u030f\u0311\u0310\u030e\u0312\u0313\u0314";
+	
+	/** The extensions in <tt>vlc.list</tt> (without their leading dots) */
+	static final String VLC_EXTENSIONS = "m4a\nmkv\n";
+	
+	/** The extension index's hash table */
+	static final String VLC_EXTENSION_SLOTS = "\u0000\u0002\u0000\u0001";
+	
+	/** The ordinal of each extension's MIME type */
+	static final String VLC_EXTENSION_TYPES = "\u0000\u0001";
+	
+	/** The MIME types in <tt>vlc.list</tt> */
+	static final String VLC_TYPES = "audio/x-m4a\nvideo/x-matroska\n";
+	
+	/** The MIME type index's hash table */
+	static final String VLC_TYPE_SLOTS = "\u0000\u0002\u0000\u0001";
+	
+	/** The offset of each MIME type's first extension */
+	static final String VLC_TYPE_OFFSETS = "\u0000\u0001\u0002";
+	
+	/** The ordinals of each MIME type's extensions */
+	static final String VLC_TYPE_EXTENSIONS = "\u0000\u0001";
+	
+	/** @return A new copy of the built-in table */
+	static final MimeTable builtin() {
+		return MimeTable.fromStrings(EXTENSIONS, EXTENSION_SLOTS, EXTENSION_TYPES, TYPES, TYPE_SLOTS, TYPE_OFFSETS, TYPE_EXTENSIONS);
+	}
+	
+	/** @return A new copy of the table of MIME types that VLC expects */
+	static final MimeTable vlc() {
+		return MimeTable.fromStrings(VLC_EXTENSIONS, VLC_EXTENSION_SLOTS, VLC_EXTENSION_TYPES, VLC_TYPES, VLC_TYPE_SLOTS, VLC_TYPE_OFFSETS, VLC_TYPE_EXTENSIONS);
+	}
+	
+}
@@ -0,0 +1,248 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.function.Consumer;
+
+/** Reads <tt>mime.types</tt> files, the format used by Apache httpd, nginx,
+ * and most Unix systems (<tt>/etc/mime.types</tt>): one MIME type per line,
+ * followed by any number of file extensions (without leading dots), separated
+ * by whitespace. Text following a <tt>'#'</tt> is ignored, as are MIME types
+ * that aren't followed by any extensions.<br>
+ * Files are read into a single buffer and parsed in place; no string is
+ * created for any line, type, or extension until the resulting
+ * {@link MimeTable} is asked for one. They aren't memory-mapped, as a mapping
+ * would keep the file locked on Windows (so that it couldn't be saved, and
+ * thus reloaded) until the mapping was garbage collected.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+final class MimeTypesFile {
+	
+	private MimeTypesFile() {
+	}
+	
+	/** A read-only {@link CharSequence} view of the bytes of a
+	 * {@link ByteBuffer}, one ISO-8859-1 character per byte.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	private static final class ByteSequence implements CharSequence {
+		
+		private final ByteBuffer buf;
+		
+		protected ByteSequence(ByteBuffer buf) {
+			this.buf = buf;
+		}
+		
+		@Override
+		public final int length() {
+			return this.buf.limit();
+		}
+		
+		@Override
+		public final char charAt(int index) {
+			return (char) (this.buf.get(index) & 0xFF);
+		}
+		
+		@Override
+		public final CharSequence subSequence(int start, int end) {
+			char[] chars = new char[end - start];
+			for(int i = start; i < end; i++) {
+				chars[i - start] = this.charAt(i);
+			}
+			return new String(chars);
+		}
+		
+		@Override
+		public final String toString() {
+			return this.subSequence(0, this.length()).toString();
+		}
+		
+	}
+	
+	private static final boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\r' || c == '\f';
+	}
+	
+	/** @param buf The contents of a <tt>mime.types</tt> file (from position
+	 *            zero to the buffer's limit)
+	 * @param builder The builder to add the file's entries to */
+	static final void parse(ByteBuffer buf, MimeTable.Builder builder) {
+		ByteSequence s = new ByteSequence(buf);
+		int length = s.length();
+		int pos = 0;
+		while(pos < length) {
+			int lineEnd = pos;
+			while(lineEnd < length && s.charAt(lineEnd) != '\n') {
+				lineEnd++;
+			}
+			int end = pos;
+			while(end < lineEnd && s.charAt(end) != '#') {
+				end++;
+			}
+			
+			int i = pos;
+			while(i < end && isWhitespace(s.charAt(i))) {
+				i++;
+			}
+			int typeStart = i;
+			boolean slash = false;
+			while(i < end && !isWhitespace(s.charAt(i))) {
+				slash |= s.charAt(i) == '/';
+				i++;
+			}
+			int typeEnd = i;
+			if(slash) {
+				while(true) {
+					while(i < end && isWhitespace(s.charAt(i))) {
+						i++;
+					}
+					if(i == end) {
+						break;
+					}
+					int extStart = i;
+					while(i < end && !isWhitespace(s.charAt(i))) {
+						i++;
+					}
+					builder.put(s, extStart, i, typeStart, typeEnd);
+				}
+			}
+			pos = lineEnd + 1;
+		}
+	}
+	
+	/** Reads and parses the given file.
+	 *
+	 * @param file The <tt>mime.types</tt> file to read
+	 * @param base The table whose entries fill in for any extensions that the
+	 *            file doesn't mention, or <tt><b>null</b></tt>
+	 * @return A table of the extensions and MIME types in the file (plus
+	 *         those in the base table), listing each MIME type's extensions
+	 *         in the order that the file does, followed by any others from
+	 *         the base table
+	 * @throws IOException Thrown if the file could not be read */
+	static final MimeTable load(File file, MimeTable base) throws IOException {
+		MimeTable.Builder builder = new MimeTable.Builder();
+		ByteBuffer buf;
+		try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			if(size > Integer.MAX_VALUE) {
+				throw new IOException("File is too large: ".concat(file.getPath()));
+			}
+			buf = ByteBuffer.allocate((int) size);
+			while(buf.hasRemaining() && channel.read(buf) >= 0) {
+			}
+		}
+		buf.flip();// If the file shrank while it was being read, only what was read is parsed
+		parse(buf, builder);
+		if(base != null) {
+			base.addTo(builder);
+		}
+		return builder.build();
+	}
+	
+	/** Watches a <tt>mime.types</tt> file, loading it again every time it is
+	 * created or changed.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	static final class Watcher implements Closeable {
+		
+		private final File file;
+		private final MimeTable base;
+		private final WatchService watchService;
+		private final Consumer<MimeTable> onLoad;
+		private final Thread thread;
+		
+		/** @param file The file to watch
+		 * @param base The table to {@link MimeTypesFile#load(File, MimeTable)
+		 *            load} the file on top of
+		 * @param onLoad The code to run with each successfully loaded table
+		 * @throws IOException Thrown if the file's folder could not be
+		 *             watched */
+		Watcher(File file, MimeTable base, Consumer<MimeTable> onLoad) throws IOException {
+			this.file = file.getAbsoluteFile();
+			this.base = base;
+			this.onLoad = onLoad;
+			this.watchService = FileSystems.getDefault().newWatchService();
+			this.file.getParentFile().toPath().register(this.watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+			this.thread = new Thread(this::run, "MimeTypes watcher (".concat(this.file.getName()).concat(")"));
+			this.thread.setDaemon(true);
+			this.thread.start();
+		}
+		
+		private final void run() {
+			Path name = this.file.toPath().getFileName();
+			try {
+				while(true) {
+					WatchKey key = this.watchService.take();
+					boolean changed = false;
+					for(WatchEvent<?> event : key.pollEvents()) {
+						changed |= name.equals(event.context());
+					}
+					key.reset();
+					if(!changed) {
+						continue;
+					}
+					// Let the writer finish, and coalesce the burst of events that most editors cause:
+					Thread.sleep(50L);
+					WatchKey more;
+					while((more = this.watchService.poll()) != null) {
+						more.pollEvents();
+						more.reset();
+					}
+					try {
+						this.onLoad.accept(load(this.file, this.base));
+					} catch(IOException ex) {
+						System.err.println("Failed to reload \"".concat(this.file.getPath()).concat("\": ").concat(ex.toString()));
+					}
+				}
+			} catch(InterruptedException | ClosedWatchServiceException ignored) {
+			}
+		}
+		
+		/** @return The file being watched */
+		final File getFile() {
+			return this.file;
+		}
+		
+		@Override
+		public final void close() throws IOException {
+			this.watchService.close();
+		}
+		
+	}
+	
+}
@@ -0,0 +1,236 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import com.gmail.br45entei.http.server.ExchangeArchive.Exchange;
+import com.gmail.br45entei.http.server.TargetServer.Endpoint;
+import com.gmail.br45entei.http.server.TargetServer.Request;
+import com.gmail.br45entei.http.server.TargetServer.Response;
+import com.gmail.br45entei.server.HTTPFraming;
+import com.gmail.br45entei.server.Link;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** An {@link Endpoint} that answers requests with the responses recorded in
+ * an {@link ExchangeArchive}, turning the target server into a mock of the
+ * server the exchanges were recorded from.<br>
+ * <br>
+ * Requests are matched to recorded exchanges by their method, path (and
+ * optionally query string) and the values of a chosen set of headers (such
+ * as <tt>Accept-Encoding</tt>), through a hash index that is built when the
+ * endpoint is created. When several exchanges share a key, they are replayed
+ * in the order they were recorded, wrapping around once they run out.
+ * Requests that match nothing are answered with <tt>404 Not Found</tt>.<br>
+ * <br>
+ * Responses can be replayed as fast as possible or with their recorded timing
+ * (scaled by any factor): the head is delayed until the recorded time to
+ * first byte, and the body is paced so that it finishes at the recorded total
+ * time.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public class ReplayEndpoint implements Endpoint {
+	
+	private static final class Entry {
+		
+		protected final Exchange[] exchanges;
+		protected final AtomicInteger next = new AtomicInteger();
+		
+		protected Entry(List<Exchange> exchanges) {
+			this.exchanges = exchanges.toArray(new Exchange[exchanges.size()]);
+		}
+		
+		protected final Exchange next() {
+			return this.exchanges[Math.floorMod(this.next.getAndIncrement(), this.exchanges.length)];
+		}
+		
+	}
+	
+	private final ExchangeArchive archive;
+	private final boolean matchQuery;
+	private final String[] matchHeaders;
+	private final Map<String, Entry> index;
+	private volatile double timingScale = 0.0;
+	
+	private final AtomicLong replayed = new AtomicLong(), unmatched = new AtomicLong();
+	
+	/** @param archive The archive to replay responses from
+	 * @param matchQuery Whether or not requests must have the same query
+	 *            string as a recorded exchange to match it
+	 * @param matchHeaders The names of the headers whose values requests must
+	 *            share with a recorded exchange to match it */
+	public ReplayEndpoint(ExchangeArchive archive, boolean matchQuery, String... matchHeaders) {
+		this.archive = archive;
+		this.matchQuery = matchQuery;
+		this.matchHeaders = matchHeaders.clone();
+		Map<String, List<Exchange>> keys = new HashMap<>();
+		for(Exchange exchange : archive.getExchanges()) {
+			String target = exchange.target;
+			int fragmentStart = target.indexOf('#');
+			if(fragmentStart >= 0) {
+				target = target.substring(0, fragmentStart);
+			}
+			int queryStart = target.indexOf('?');
+			String path = queryStart >= 0 ? target.substring(0, queryStart) : target;
+			if(path.regionMatches(true, 0, "http://", 0, 7) || path.regionMatches(true, 0, "https://", 0, 8)) {
+				path = new Link(path).requestPath;
+			}
+			String[] values = new String[this.matchHeaders.length];
+			for(int i = 0; i < values.length; i++) {
+				values[i] = HTTPFraming.getHeader(exchange.requestHeaders, this.matchHeaders[i]);
+			}
+			keys.computeIfAbsent(this.getKey(exchange.method, path, queryStart >= 0 ? target.substring(queryStart + 1) : null, values), (k) -> new ArrayList<>()).add(exchange);
+		}
+		this.index = new HashMap<>(Math.max(16, (int) (keys.size() / 0.75f) + 1));
+		for(Map.Entry<String, List<Exchange>> entry : keys.entrySet()) {
+			this.index.put(entry.getKey(), new Entry(entry.getValue()));
+		}
+	}
+	
+	private final String getKey(String method, String path, String query, String[] headerValues) {
+		StringBuilder sb = new StringBuilder(64).append(method).append(' ').append(path);
+		if(this.matchQuery && query != null) {
+			sb.append('?').append(query);
+		}
+		for(String value : headerValues) {
+			sb.append('\n');
+			if(value != null) {
+				sb.append(value.toLowerCase(Locale.ENGLISH));
+			}
+		}
+		return sb.toString();
+	}
+	
+	/** @return The archive that this endpoint replays responses from */
+	public final ExchangeArchive getArchive() {
+		return this.archive;
+	}
+	
+	/** @return The number of distinct keys that recorded exchanges can be
+	 *         matched by */
+	public final int getKeyCount() {
+		return this.index.size();
+	}
+	
+	/** @return The factor that recorded timings are scaled by, or
+	 *         <tt>0.0</tt> if responses are replayed as fast as possible */
+	public final double getTimingScale() {
+		return this.timingScale;
+	}
+	
+	/** @param timingScale The factor to scale recorded timings by (e.g.
+	 *            <tt>1.0</tt> for the original timing, or <tt>0.5</tt> for
+	 *            twice as fast), or <tt>0.0</tt> to replay responses as fast
+	 *            as possible
+	 * @return This endpoint */
+	public final ReplayEndpoint setTimingScale(double timingScale) {
+		this.timingScale = Double.isFinite(timingScale) ? Math.max(0.0, timingScale) : 0.0;
+		return this;
+	}
+	
+	/** @return The number of requests that were answered with a recorded
+	 *         response */
+	public final long getReplayedCount() {
+		return this.replayed.get();
+	}
+	
+	/** @return The number of requests that didn't match any recorded
+	 *         exchange */
+	public final long getUnmatchedCount() {
+		return this.unmatched.get();
+	}
+	
+	/** @param request The request to match
+	 * @return The recorded exchange to answer the given request with, or
+	 *         <tt><b>null</b></tt> if it doesn't match any. <tt>HEAD</tt>
+	 *         requests that weren't recorded match recorded <tt>GET</tt>
+	 *         requests instead. */
+	public final Exchange match(Request request) {
+		String[] values = new String[this.matchHeaders.length];
+		for(int i = 0; i < values.length; i++) {
+			values[i] = request.getHeader(this.matchHeaders[i]);
+		}
+		Entry entry = this.index.get(this.getKey(request.method, request.getPath(), request.query, values));
+		if(entry == null && request.isHead()) {
+			entry = this.index.get(this.getKey("GET", request.getPath(), request.query, values));
+		}
+		return entry == null ? null : entry.next();
+	}
+	
+	@Override
+	public void handle(Request request, Response response) throws IOException {
+		Exchange exchange = this.match(request);
+		if(exchange == null) {
+			this.unmatched.incrementAndGet();
+			response.sendText(404, "No recorded exchange matches ".concat(request.method).concat(" ").concat(request.target).concat("\r\n"));
+			return;
+		}
+		this.replayed.incrementAndGet();
+		double scale = this.timingScale;
+		if(scale > 0.0) {
+			SyntheticEndpoint.sleepNanos((long) (exchange.firstByteNanos * scale));
+		}
+		int status = HTTPFraming.getStatusCode(exchange.responseLine);
+		response.setStatus(status < 100 ? 502 : status);
+		for(String header : exchange.responseHeaders) {
+			int colon = header.indexOf(':');
+			String name = colon < 0 ? header : header.substring(0, colon).strip();
+			// The body is re-framed (and the connection managed) by this server:
+			if(colon < 0 || name.equalsIgnoreCase("Content-Length") || name.equalsIgnoreCase("Transfer-Encoding") || name.equalsIgnoreCase("Connection") || name.equalsIgnoreCase("Keep-Alive")) {
+				continue;
+			}
+			response.addHeader(name, header.substring(colon + 1).strip());
+		}
+		long length = Math.max(0L, exchange.bodyLength);
+		try(OutputStream out = response.openBody(length)) {
+			long bodyNanos = (long) ((exchange.totalNanos - exchange.firstByteNanos) * scale);
+			if(bodyNanos <= 0L || length == 0L || request.isHead()) {
+				response.transferFrom(this.archive.getChannel(), exchange.bodyOffset, length);
+				return;
+			}
+			// Pace the body over its recorded duration, in about fifty slices per second:
+			long bodyStart = System.nanoTime(), slices = Math.max(1L, Math.min(length, bodyNanos / 20000000L)), sent = 0L;
+			for(long i = 1; i <= slices; i++) {
+				SyntheticEndpoint.sleepNanos((bodyStart + ((bodyNanos * i) / slices)) - System.nanoTime());
+				long end = (length * i) / slices;
+				response.transferFrom(this.archive.getChannel(), exchange.bodyOffset + sent, end - sent);
+				sent = end;
+				out.flush();
+			}
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "ReplayEndpoint[".concat(this.archive.toString()).concat(", keys=").concat(Integer.toString(this.getKeyCount())).concat(", replayed=").concat(Long.toString(this.getReplayedCount())).concat(", unmatched=").concat(Long.toString(this.getUnmatchedCount())).concat("]");
+	}
+	
+}
@@ -0,0 +1,470 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import com.gmail.br45entei.http.server.TargetServer.BodyInputStream;
+import com.gmail.br45entei.http.server.TargetServer.Endpoint;
+import com.gmail.br45entei.http.server.TargetServer.Request;
+import com.gmail.br45entei.http.server.TargetServer.Response;
+import com.gmail.br45entei.server.ConnectionPool;
+import com.gmail.br45entei.server.ConnectionPool.PooledConnection;
+import com.gmail.br45entei.server.HTTPFraming;
+import com.gmail.br45entei.server.Link;
+import com.gmail.br45entei.server.SocketProfile;
+import com.gmail.br45entei.util.LatencyHistogram;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** An {@link Endpoint} that forwards the requests made to it to one or more
+ * upstream servers (in round-robin order) and relays their responses, so that
+ * a {@link TargetServer} can be put between clients and servers as a
+ * reverse proxy.<br>
+ * <br>
+ * Upstream connections are kept alive and pooled (see
+ * {@link ConnectionPool}), and request and response bodies are streamed
+ * through as they arrive rather than being buffered. The time spent on each
+ * hop is recorded separately, so that the upstream servers' latency can be
+ * told apart from the network's:
+ * <ul>
+ * <li>{@link #connectLatency}: establishing new upstream connections</li>
+ * <li>{@link #requestLatency}: forwarding the request (and streaming its
+ * body) upstream</li>
+ * <li>{@link #upstreamLatency}: waiting for the upstream server's response to
+ * start</li>
+ * <li>{@link #responseLatency}: relaying the response's body to the
+ * client</li>
+ * </ul>
+ * Requests made to a prefix that the endpoint is registered for are forwarded
+ * with the prefix replaced by the upstream link's path, e.g. with the endpoint
+ * registered for <tt>/api/</tt> and an upstream of
+ * <tt>http://10.0.0.5:8080/v2/</tt>, <tt>/api/users?id=1</tt> is forwarded as
+ * <tt>/v2/users?id=1</tt>.<br>
+ * <br>
+ * Usage: <tt>ReverseProxyEndpoint &lt;listen url&gt; &lt;upstream url&gt;
+ * [upstream url...]</tt>
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public class ReverseProxyEndpoint implements Endpoint, Closeable {
+	
+	/** Headers that only apply to a single connection, and so must not be
+	 * forwarded (RFC 9110, section 7.6.1) */
+	private static final Set<String> HOP_BY_HOP = Set.of("connection", "keep-alive", "proxy-connection", "proxy-authenticate", "proxy-authorization", "te", "trailer", "transfer-encoding", "upgrade", "content-length");
+	
+	/** The time taken to establish new upstream connections */
+	public final LatencyHistogram connectLatency = new LatencyHistogram("Upstream connect");
+	/** The time taken to forward requests (including their bodies) upstream */
+	public final LatencyHistogram requestLatency = new LatencyHistogram("Request forwarding");
+	/** The time taken from forwarding a request until the upstream server's
+	 * response headers were read */
+	public final LatencyHistogram upstreamLatency = new LatencyHistogram("Upstream response");
+	/** The time taken to relay response bodies to clients */
+	public final LatencyHistogram responseLatency = new LatencyHistogram("Response relay");
+	/** The total time taken to answer proxied requests */
+	public final LatencyHistogram totalLatency = new LatencyHistogram("Proxied total");
+	
+	private final Link[] upstreams;
+	private final ConnectionPool pool;
+	private final AtomicInteger next = new AtomicInteger();
+	private volatile int connectTimeout = 10000, readTimeout = 60000;
+	private volatile boolean preserveHost = false, serverTiming = false;
+	
+	private final AtomicLong forwarded = new AtomicLong(), retries = new AtomicLong(), failures = new AtomicLong();
+	
+	/** Creates a new reverse proxy that keeps up to 64 idle connections per
+	 * upstream server for thirty seconds each.
+	 *
+	 * @param upstreams The upstream servers to forward requests to */
+	public ReverseProxyEndpoint(Link... upstreams) {
+		this(new ConnectionPool(64, 30000L), upstreams);
+	}
+	
+	/** @param pool The pool to keep idle upstream connections in
+	 * @param upstreams The upstream servers to forward requests to */
+	public ReverseProxyEndpoint(ConnectionPool pool, Link... upstreams) {
+		if(upstreams.length == 0) {
+			throw new IllegalArgumentException("At least one upstream server is required");
+		}
+		this.upstreams = upstreams.clone();
+		this.pool = pool;
+	}
+	
+	@Override
+	public final boolean isStreaming() {
+		return true;
+	}
+	
+	/** @param connectTimeout The connect timeout for new upstream
+	 *            connections, in milliseconds
+	 * @return This endpoint */
+	public final ReverseProxyEndpoint setConnectTimeout(int connectTimeout) {
+		this.connectTimeout = connectTimeout;
+		return this;
+	}
+	
+	/** @param readTimeout The longest that an upstream server may take to
+	 *            send any part of a response, in milliseconds
+	 * @return This endpoint */
+	public final ReverseProxyEndpoint setReadTimeout(int readTimeout) {
+		this.readTimeout = readTimeout;
+		return this;
+	}
+	
+	/** @param preserveHost Whether or not to forward the client's
+	 *            <tt>Host</tt> header as-is (instead of replacing it with the
+	 *            upstream server's host)
+	 * @return This endpoint */
+	public final ReverseProxyEndpoint setPreserveHost(boolean preserveHost) {
+		this.preserveHost = preserveHost;
+		return this;
+	}
+	
+	/** @param serverTiming Whether or not to add a <tt>Server-Timing</tt>
+	 *            header with the connect and upstream durations to each
+	 *            relayed response
+	 * @return This endpoint */
+	public final ReverseProxyEndpoint setServerTiming(boolean serverTiming) {
+		this.serverTiming = serverTiming;
+		return this;
+	}
+	
+	/** @return The pool that idle upstream connections are kept in */
+	public final ConnectionPool getPool() {
+		return this.pool;
+	}
+	
+	/** @return The number of requests forwarded so far */
+	public final long getForwardedCount() {
+		return this.forwarded.get();
+	}
+	
+	/** @return The number of requests that were retried on a new connection
+	 *         because a pooled one turned out to have been closed */
+	public final long getRetryCount() {
+		return this.retries.get();
+	}
+	
+	/** @return The number of requests that couldn't be forwarded or whose
+	 *         response couldn't be read */
+	public final long getFailureCount() {
+		return this.failures.get();
+	}
+	
+	private static final String getKey(Link upstream) {
+		return upstream.protocol.concat(upstream.host).concat(":").concat(Integer.toString(upstream.port));
+	}
+	
+	private final PooledConnection connect(Link upstream) throws IOException {
+		Socket socket = Link.createSocket(InetSocketAddress.createUnresolved(upstream.host, upstream.port), this.connectTimeout, upstream.isSSL(), SocketProfile.DEFAULT);
+		try {
+			socket.setSoTimeout(this.readTimeout);
+			return new PooledConnection(socket, new TargetServer.HTTPInputStream(socket.getInputStream(), 16384), new BufferedOutputStream(socket.getOutputStream(), 16384));
+		} catch(IOException ex) {
+			socket.close();
+			throw ex;
+		}
+	}
+	
+	/** @param headers A message's headers
+	 * @return The lower-case names of the headers that must not be forwarded
+	 *         along with the message */
+	private static final Set<String> getHopByHopHeaders(List<String> headers) {
+		String connection = HTTPFraming.getHeader(headers, "Connection");
+		if(connection == null) {
+			return HOP_BY_HOP;
+		}
+		Set<String> names = new HashSet<>(HOP_BY_HOP);
+		for(String token : connection.split(",")) {
+			names.add(token.strip().toLowerCase(Locale.ENGLISH));
+		}
+		return names;
+	}
+	
+	private static final String getName(String header) {
+		int colon = header.indexOf(':');
+		return (colon < 0 ? header : header.substring(0, colon)).strip().toLowerCase(Locale.ENGLISH);
+	}
+	
+	private final void forward(Request request, Link upstream, PooledConnection conn) throws IOException {
+		String subPath = request.getSubPath();
+		String path = upstream.requestPath.endsWith("/") && subPath.startsWith("/") ? upstream.requestPath.concat(subPath.substring(1)) : upstream.requestPath.concat(subPath);
+		StringBuilder sb = new StringBuilder(512).append(request.method).append(' ').append(path);
+		if(request.query != null) {
+			sb.append('?').append(request.query);
+		}
+		sb.append(" HTTP/1.1\r\n");
+		Set<String> hopByHop = getHopByHopHeaders(request.headers);
+		String forwardedFor = null;
+		for(String header : request.headers) {
+			String name = getName(header);
+			if(hopByHop.contains(name) || (name.equals("host") && !this.preserveHost)) {
+				continue;
+			}
+			if(name.equals("x-forwarded-for")) {
+				forwardedFor = header.substring(header.indexOf(':') + 1).strip();
+				continue;
+			}
+			sb.append(header).append("\r\n");
+		}
+		if(!this.preserveHost || request.getHeader("Host") == null) {
+			boolean defaultPort = upstream.port == (upstream.isSSL() ? 443 : 80);
+			sb.append("Host: ").append(upstream.host.indexOf(':') >= 0 ? "[".concat(upstream.host).concat("]") : upstream.host).append(defaultPort ? "" : ":".concat(Integer.toString(upstream.port))).append("\r\n");
+		}
+		String client = request.socket.getInetAddress().getHostAddress();
+		sb.append("X-Forwarded-For: ").append(forwardedFor == null || forwardedFor.isEmpty() ? client : forwardedFor.concat(", ").concat(client)).append("\r\n");
+		sb.append("X-Forwarded-Proto: ").append(request.server.getLink().isSSL() ? "https" : "http").append("\r\n");
+		sb.append("Via: ").append(request.protocol.regionMatches(true, 0, "HTTP/", 0, 5) ? request.protocol.substring(5) : request.protocol).append(" HTTPServerTester\r\n");
+		long length = request.getContentLength();
+		if(length < 0L) {
+			sb.append("Transfer-Encoding: chunked\r\n");
+		} else if(length > 0L || request.getHeader("Content-Length") != null) {
+			sb.append("Content-Length: ").append(length).append("\r\n");
+		}
+		conn.out.write(sb.append("\r\n").toString().getBytes(StandardCharsets.ISO_8859_1));
+		if(length != 0L) {
+			InputStream body = request.getBodyStream();
+			byte[] buf = new byte[16384];
+			int read;
+			while((read = body.read(buf, 0, buf.length)) != -1) {
+				if(length < 0L) {
+					conn.out.write(Integer.toHexString(read).concat("\r\n").getBytes(StandardCharsets.ISO_8859_1));
+					conn.out.write(buf, 0, read);
+					conn.out.write(TargetServer.CRLF);
+				} else {
+					conn.out.write(buf, 0, read);
+				}
+				if(body.available() == 0) {// Don't hold on to what the client has sent so far while it sends the rest
+					conn.out.flush();
+				}
+			}
+			if(length < 0L) {
+				conn.out.write("0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1));
+			}
+		}
+		conn.out.flush();
+	}
+	
+	private static final String readHead(PooledConnection conn, List<String> headers, byte[] buf) throws IOException {
+		String statusLine;
+		int status;
+		do {
+			statusLine = TargetServer.readLine(conn.in, buf, 502);
+			if(statusLine == null) {
+				throw new EOFException("The upstream server closed the connection before responding");
+			}
+			status = HTTPFraming.getStatusCode(statusLine);
+			if(status < 100 || !statusLine.regionMatches(true, 0, "HTTP/1.", 0, 7)) {
+				throw new IOException("Malformed status line from the upstream server: ".concat(statusLine));
+			}
+			headers.clear();
+			String line;
+			while((line = TargetServer.readLine(conn.in, buf, 502)) != null && !line.isEmpty()) {
+				if(headers.size() == TargetServer.MAX_HEADER_COUNT) {
+					throw new IOException("Too many headers from the upstream server");
+				}
+				headers.add(line);
+			}
+			if(line == null) {
+				throw new EOFException("The upstream server closed the connection in the middle of its response's headers");
+			}
+		} while(status < 200 && status != 101);// Interim responses (such as 100 Continue) aren't relayed; the client's body has already been sent
+		if(status == 101) {
+			throw new IOException("The upstream server attempted to switch protocols");
+		}
+		return statusLine;
+	}
+	
+	private static final String toMillis(long nanos) {
+		return String.format("%.3f", Double.valueOf(nanos / 1000000.0));
+	}
+	
+	@Override
+	public void handle(Request request, Response response) throws IOException {
+		long startTime = System.nanoTime();
+		Link upstream = this.upstreams[Math.floorMod(this.next.getAndIncrement(), this.upstreams.length)];
+		String key = getKey(upstream);
+		byte[] buf = new byte[TargetServer.MAX_LINE_LENGTH];
+		List<String> headers = new ArrayList<>();
+		PooledConnection conn;
+		String statusLine;
+		long connectNanos = 0L, forwardedTime, headTime;
+		for(int attempt = 0;; attempt++) {
+			conn = attempt == 0 ? this.pool.acquire(key) : null;
+			boolean reused = conn != null;
+			long connectStart = System.nanoTime();
+			if(conn == null) {
+				try {
+					conn = this.connect(upstream);
+				} catch(IOException ex) {
+					this.failures.incrementAndGet();
+					response.sendText(ex instanceof SocketTimeoutException ? 504 : 502, "Failed to connect to ".concat(key).concat(": ").concat(ex.toString()).concat("\r\n"));
+					return;
+				}
+				connectNanos = System.nanoTime() - connectStart;
+				this.connectLatency.record(connectNanos);
+			}
+			try {
+				this.forward(request, upstream, conn);
+				forwardedTime = System.nanoTime();
+				statusLine = readHead(conn, headers, buf);
+				headTime = System.nanoTime();
+				break;
+			} catch(IOException ex) {
+				conn.close();
+				// A pooled connection may have been closed by the upstream server while it sat idle; try again on a new one (if the request can be sent again)
+				if(reused && attempt == 0 && request.getContentLength() == 0L && !(ex instanceof SocketTimeoutException)) {
+					this.retries.incrementAndGet();
+					continue;
+				}
+				this.failures.incrementAndGet();
+				if(!response.isCommitted()) {
+					response.setClose().sendText(ex instanceof SocketTimeoutException ? 504 : 502, "Failed to forward the request to ".concat(key).concat(": ").concat(ex.toString()).concat("\r\n"));
+				}
+				return;
+			}
+		}
+		this.forwarded.incrementAndGet();
+		this.requestLatency.record(forwardedTime - startTime - connectNanos);
+		this.upstreamLatency.record(headTime - forwardedTime);
+		
+		int status = HTTPFraming.getStatusCode(statusLine);
+		Set<String> hopByHop = getHopByHopHeaders(headers);
+		response.setStatus(status);
+		for(String header : headers) {
+			int colon = header.indexOf(':');
+			if(colon > 0 && !hopByHop.contains(getName(header))) {
+				response.addHeader(header.substring(0, colon).strip(), header.substring(colon + 1).strip());
+			}
+		}
+		if(this.serverTiming) {
+			response.addHeader("Server-Timing", "connect;dur=".concat(toMillis(connectNanos)).concat(", upstream;dur=").concat(toMillis(headTime - forwardedTime)));
+		}
+		
+		boolean bodyless = request.isHead() || status < 200 || status == 204 || status == 304;
+		boolean chunked = HTTPFraming.hasToken(HTTPFraming.getHeader(headers, "Transfer-Encoding"), "chunked");
+		String contentLength = HTTPFraming.getHeader(headers, "Content-Length");
+		long length = -1L;
+		if(!chunked && contentLength != null) {
+			try {
+				length = Long.parseLong(contentLength);
+			} catch(NumberFormatException ex) {
+				length = -1L;
+			}
+		}
+		String protocol = statusLine.substring(0, statusLine.indexOf(' '));
+		boolean reusable = HTTPFraming.isKeepAlive(protocol, headers) && (bodyless || chunked || length >= 0L);
+		boolean released = false;
+		try {
+			try(OutputStream out = response.openBody(bodyless && length < 0L ? 0L : length)) {
+				if(!bodyless) {
+					InputStream body = chunked ? new BodyInputStream(conn.in, -1L, buf) : length >= 0L ? new BodyInputStream(conn.in, length, buf) : conn.in;
+					byte[] b = new byte[16384];
+					int read;
+					while((read = body.read(b, 0, b.length)) != -1) {
+						out.write(b, 0, read);
+						if(body.available() == 0) {// Pass on what has arrived so far while the upstream server sends the rest
+							out.flush();
+						}
+					}
+				}
+			}
+			if(reusable) {
+				released = this.pool.release(key, conn);
+			}
+		} finally {
+			if(!released) {
+				conn.close();
+			}
+			long endTime = System.nanoTime();
+			this.responseLatency.record(endTime - headTime);
+			this.totalLatency.record(endTime - startTime);
+		}
+	}
+	
+	@Override
+	public final void close() {
+		this.pool.close();
+	}
+	
+	@Override
+	public String toString() {
+		StringBuilder sb = new StringBuilder("ReverseProxyEndpoint: forwarded=").append(this.getForwardedCount()).append(", retries=").append(this.getRetryCount()).append(", failures=").append(this.getFailureCount()).append("\r\nUpstream connections: ").append(this.pool.toString());
+		for(LatencyHistogram histogram : new LatencyHistogram[] {this.connectLatency, this.requestLatency, this.upstreamLatency, this.responseLatency, this.totalLatency}) {
+			sb.append("\r\n").append(histogram.toString());
+		}
+		return sb.toString();
+	}
+	
+	/** Runs a reverse proxy that forwards every request to the given upstream
+	 * servers until the process is killed.<br>
+	 * The <tt>proxy.serverTiming</tt> system property adds a
+	 * <tt>Server-Timing</tt> header to responses, and
+	 * <tt>server.virtualThreads</tt> serves connections on virtual threads
+	 * (see {@link TargetServer#startDefault()}).
+	 *
+	 * @param args Program command line arguments
+	 * @throws IOException Thrown if the server socket could not be bound */
+	public static final void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.err.println("Usage: ReverseProxyEndpoint <listen url> <upstream url> [upstream url...]");
+			return;
+		}
+		Link[] upstreams = new Link[args.length - 1];
+		for(int i = 1; i < args.length; i++) {
+			upstreams[i - 1] = new Link(args[i]);
+		}
+		ReverseProxyEndpoint proxy = new ReverseProxyEndpoint(upstreams).setServerTiming(Boolean.getBoolean("proxy.serverTiming"));
+		try(TargetServer server = new TargetServer(new Link(args[0]), 0)) {
+			server.addEndpoint("/", proxy).startDefault();
+			System.out.println("Reverse proxy listening on ".concat(server.getLink().toString()));
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+				System.out.println(server.toString());
+				System.out.println(proxy.toString());
+			}));
+			try {
+				server.join();
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		} finally {
+			proxy.close();
+		}
+	}
+	
+}
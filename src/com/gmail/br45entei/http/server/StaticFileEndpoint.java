@@ -0,0 +1,409 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import com.gmail.br45entei.http.server.FileHandleCache.Handle;
+import com.gmail.br45entei.http.server.TargetServer.Endpoint;
+import com.gmail.br45entei.http.server.TargetServer.Request;
+import com.gmail.br45entei.http.server.TargetServer.Response;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.InvalidPathException;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+
+/** A {@link TargetServer} endpoint that serves the files in a directory, as a
+ * realistic local origin for download benchmarks.<br>
+ * Files are sent with {@link Response#transferFrom(java.nio.channels.FileChannel, long, long)
+ * zero-copy transfers} from a {@link FileHandleCache}, with their content
+ * type looked up by {@link MimeTypes#getMimeType(File, String)} (so VLC
+ * clients get the types VLC expects). Single byte ranges,
+ * <tt>If-Range</tt>, <tt>If-None-Match</tt> and <tt>If-Modified-Since</tt>
+ * are supported.<br>
+ * Clients that accept gzip are sent text files from an up-to-date
+ * <tt>.gz</tt> sidecar file if there is one, or else from a
+ * {@link CompressionCache} once it has compressed them.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class StaticFileEndpoint implements Endpoint {
+	
+	/** The format of HTTP dates (RFC 9110, section 5.6.7) */
+	public static final DateTimeFormatter HTTP_DATE = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss 'GMT'", Locale.US).withZone(ZoneOffset.UTC);
+	
+	private final File root;
+	private final Path rootPath;
+	private final FileHandleCache cache;
+	private volatile CompressionCache compressionCache = new CompressionCache(64L * 1024L * 1024L);
+	private volatile String indexFile = "index.html";
+	
+	/** Serves the given directory, keeping up to 256 files open.
+	 *
+	 * @param root The directory to serve */
+	public StaticFileEndpoint(File root) {
+		this(root, new FileHandleCache(256, 1000L));
+	}
+	
+	/** @param root The directory to serve
+	 * @param cache The cache to keep open files in */
+	public StaticFileEndpoint(File root, FileHandleCache cache) {
+		this.root = root.getAbsoluteFile();
+		this.rootPath = this.root.toPath().normalize();
+		this.cache = cache;
+	}
+	
+	/** @return The directory being served */
+	public final File getRoot() {
+		return this.root;
+	}
+	
+	/** @return The cache that open files are kept in */
+	public final FileHandleCache getCache() {
+		return this.cache;
+	}
+	
+	/** @return The cache that gzip-encoded copies of text files are kept in,
+	 *         or <tt><b>null</b></tt> if they aren't compressed */
+	public final CompressionCache getCompressionCache() {
+		return this.compressionCache;
+	}
+	
+	/** @param compressionCache The cache to keep gzip-encoded copies of text
+	 *            files in, or <tt><b>null</b></tt> to never send gzip-encoded
+	 *            responses (not even from <tt>.gz</tt> sidecar files)
+	 * @return This endpoint */
+	public final StaticFileEndpoint setCompressionCache(CompressionCache compressionCache) {
+		this.compressionCache = compressionCache;
+		return this;
+	}
+	
+	/** @param indexFile The name of the file to serve for requests for a
+	 *            directory, or <tt><b>null</b></tt> to answer them with
+	 *            <tt>404</tt>
+	 * @return This endpoint */
+	public final StaticFileEndpoint setIndexFile(String indexFile) {
+		this.indexFile = indexFile;
+		return this;
+	}
+	
+	/** @param millis A time, in milliseconds since the epoch
+	 * @return The time, formatted as an HTTP date */
+	public static final String formatDate(long millis) {
+		return HTTP_DATE.format(Instant.ofEpochMilli(millis));
+	}
+	
+	/** @param date An HTTP date
+	 * @return The date in milliseconds since the epoch, or <tt>-1</tt> if it
+	 *         could not be parsed */
+	public static final long parseDate(String date) {
+		try {
+			return ZonedDateTime.parse(date.strip(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+		} catch(DateTimeParseException ex) {
+			return -1L;
+		}
+	}
+	
+	/** @param path A percent-encoded path
+	 * @return The decoded path, or <tt><b>null</b></tt> if it is malformed
+	 *         or contains a NUL character */
+	public static final String decodePath(String path) {
+		if(path.indexOf('%') < 0) {
+			return path;
+		}
+		ByteArrayOutputStream baos = new ByteArrayOutputStream(path.length());
+		for(int i = 0; i < path.length(); i++) {
+			char c = path.charAt(i);
+			if(c != '%') {
+				byte[] b = String.valueOf(c).getBytes(StandardCharsets.UTF_8);
+				baos.write(b, 0, b.length);
+				continue;
+			}
+			int hi = i + 2 < path.length() ? Character.digit(path.charAt(i + 1), 16) : -1;
+			int lo = hi >= 0 ? Character.digit(path.charAt(i + 2), 16) : -1;
+			if(lo < 0 || (hi | lo) == 0) {
+				return null;
+			}
+			baos.write((hi << 4) | lo);
+			i += 2;
+		}
+		return new String(baos.toByteArray(), StandardCharsets.UTF_8);
+	}
+	
+	/** @param path The (percent-encoded) path to resolve, relative to the
+	 *            directory being served
+	 * @return The file that the path refers to, or <tt><b>null</b></tt> if
+	 *         the path is malformed or leads outside of the directory being
+	 *         served */
+	public final File resolve(String path) {
+		path = decodePath(path);
+		if(path == null || path.indexOf('\\') >= 0) {
+			return null;
+		}
+		int start = 0;
+		while(start < path.length() && path.charAt(start) == '/') {
+			start++;
+		}
+		try {
+			Path resolved = this.rootPath.resolve(path.substring(start)).normalize();
+			return resolved.startsWith(this.rootPath) ? resolved.toFile() : null;
+		} catch(InvalidPathException ex) {
+			return null;
+		}
+	}
+	
+	/** @param value The value of an <tt>If-None-Match</tt> header
+	 * @param etag The current entity tag
+	 * @return Whether or not the header matches the entity tag (using weak
+	 *         comparison) */
+	protected static final boolean matchesETag(String value, String etag) {
+		for(String tag : value.split(",")) {
+			tag = tag.strip();
+			if(tag.equals("*") || (tag.startsWith("W/") ? tag.substring(2) : tag).equals(etag)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/** @param request The request
+	 * @param etag The entity tag of the representation that would be sent
+	 * @param lastModified The time the file was last modified
+	 * @return Whether or not the client's cached copy of the representation
+	 *         is still current */
+	protected static final boolean isNotModified(Request request, String etag, long lastModified) {
+		String ifNoneMatch = request.getHeader("If-None-Match");
+		if(ifNoneMatch != null) {
+			return matchesETag(ifNoneMatch, etag);
+		}
+		String ifModifiedSince = request.getHeader("If-Modified-Since");
+		long since = ifModifiedSince == null ? -1L : parseDate(ifModifiedSince);
+		return since >= 0L && lastModified / 1000L <= since / 1000L;
+	}
+	
+	/** Adds the given validators to the response, and answers the request
+	 * with <tt>304 Not Modified</tt> if they show that the client's cached
+	 * copy is still current.
+	 *
+	 * @return Whether or not a <tt>304</tt> was sent */
+	private static final boolean sendNotModified(Request request, Response response, String etag, long lastModified) throws IOException {
+		response.addHeader("ETag", etag).addHeader("Last-Modified", formatDate(lastModified));
+		if(isNotModified(request, etag, lastModified)) {
+			response.setStatus(304).openBody(0L).close();
+			return true;
+		}
+		return false;
+	}
+	
+	/** @param request The request
+	 * @param handle The requested file
+	 * @return Whether or not the request's <tt>Range</tt> header should be
+	 *         honored (i.e. it has no <tt>If-Range</tt> header, or that
+	 *         header matches the file) */
+	protected static final boolean isRangeCurrent(Request request, Handle handle) {
+		String ifRange = request.getHeader("If-Range");
+		if(ifRange == null) {
+			return true;
+		}
+		if(ifRange.startsWith("\"") || ifRange.startsWith("W/")) {
+			return ifRange.equals(handle.etag);// Strong comparison
+		}
+		long date = parseDate(ifRange);
+		return date >= 0L && date / 1000L == handle.lastModified / 1000L;
+	}
+	
+	/** @param range The value of a <tt>Range</tt> header
+	 * @param length The length of the file
+	 * @return The first and last (inclusive) positions of the requested
+	 *         range, an empty array if the range can't be satisfied, or
+	 *         <tt><b>null</b></tt> if the header should be ignored (because it
+	 *         is malformed or asks for more than one range) */
+	public static final long[] parseRange(String range, long length) {
+		if(!range.regionMatches(true, 0, "bytes=", 0, 6) || range.indexOf(',') >= 0) {
+			return null;
+		}
+		String spec = range.substring(6).strip();
+		int dash = spec.indexOf('-');
+		if(dash < 0) {
+			return null;
+		}
+		long first = dash == 0 ? -1L : parseDigits(spec.substring(0, dash).strip());
+		long last = dash == spec.length() - 1 ? -1L : parseDigits(spec.substring(dash + 1).strip());
+		if((dash > 0 && first < 0L) || (dash < spec.length() - 1 && last < 0L) || (first < 0L && last < 0L)) {
+			return null;
+		}
+		if(first < 0L) {// Suffix range: the last n bytes
+			if(last == 0L || length == 0L) {
+				return new long[0];
+			}
+			return new long[] {Math.max(0L, length - last), length - 1L};
+		}
+		if(last >= 0L && last < first) {
+			return null;
+		}
+		if(first >= length) {
+			return new long[0];
+		}
+		return new long[] {first, last < 0L ? length - 1L : Math.min(last, length - 1L)};
+	}
+	
+	private static final long parseDigits(String s) {
+		if(s.isEmpty() || s.length() > 18) {
+			return -1L;
+		}
+		long value = 0L;
+		for(int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if(c < '0' || c > '9') {
+				return -1L;
+			}
+			value = (value * 10L) + (c - '0');
+		}
+		return value;
+	}
+	
+	/** Sends the gzip-encoded representation of the given file: its
+	 * <tt>.gz</tt> sidecar if it has an up-to-date one, or else the copy in
+	 * the compression cache.
+	 *
+	 * @return Whether or not a response was sent (if not, the file is still
+	 *         being compressed) */
+	private final boolean sendGzipped(Request request, Response response, File file, Handle handle, String mimeType, CompressionCache compressionCache) throws IOException {
+		String etag = handle.etag.substring(0, handle.etag.length() - 1).concat("-gzip\"");
+		File sidecar = new File(file.getPath().concat(".gz"));
+		if(sidecar.isFile()) {
+			try(Handle gz = this.cache.acquire(sidecar)) {
+				if(gz.lastModified >= handle.lastModified) {
+					if(!sendNotModified(request, response, etag, handle.lastModified)) {
+						response.addHeader("Content-Type", mimeType).addHeader("Content-Encoding", "gzip");
+						OutputStream out = response.openBody(gz.length);
+						response.transferFrom(gz.channel, 0L, gz.length);
+						out.close();
+					}
+					return true;
+				}
+			} catch(FileNotFoundException | NoSuchFileException ex) {
+				// Deleted since it was checked for; compress the file instead
+			}
+		}
+		if(handle.length > compressionCache.getMaxEntrySize()) {
+			return false;
+		}
+		byte[] data = compressionCache.getOrCompress(CompressionCache.getKey(file.getPath().concat(handle.etag), "gzip"), () -> {
+			try(InputStream in = new FileInputStream(file)) {
+				return CompressionCache.gzip(in);
+			}
+		});
+		if(data == null) {
+			return false;
+		}
+		if(!sendNotModified(request, response, etag, handle.lastModified)) {
+			response.addHeader("Content-Type", mimeType).addHeader("Content-Encoding", "gzip");
+			try(OutputStream out = response.openBody(data.length)) {
+				out.write(data);
+			}
+		}
+		return true;
+	}
+	
+	@Override
+	public final void handle(Request request, Response response) throws IOException {
+		if(!request.method.equals("GET") && !request.isHead()) {
+			response.setStatus(405).addHeader("Allow", "GET, HEAD");
+			response.openBody(0L).close();
+			return;
+		}
+		File file = this.resolve(request.getSubPath());
+		if(file == null) {
+			return;
+		}
+		if(file.isDirectory()) {
+			if(!request.getPath().endsWith("/")) {
+				response.setStatus(301).addHeader("Location", request.getPath().concat("/").concat(request.query == null ? "" : "?".concat(request.query)));
+				response.openBody(0L).close();
+				return;
+			}
+			String indexFile = this.indexFile;
+			if(indexFile == null) {
+				return;
+			}
+			file = new File(file, indexFile);
+		}
+		final Handle handle;
+		try {
+			handle = this.cache.acquire(file);
+		} catch(FileNotFoundException | NoSuchFileException ex) {
+			return;
+		}
+		try(handle) {
+			String mimeType = MimeTypes.getMimeType(file, request.getHeader("User-Agent"));
+			String range = request.getHeader("Range");
+			CompressionCache compressionCache = this.compressionCache;
+			if(compressionCache != null && handle.length >= CompressionCache.MIN_SIZE && CompressionCache.isCompressible(mimeType)) {
+				response.addHeader("Vary", "Accept-Encoding");
+				if(range == null && request.acceptsEncoding("gzip") && this.sendGzipped(request, response, file, handle, mimeType, compressionCache)) {
+					return;
+				}
+			}
+			if(sendNotModified(request, response, handle.etag, handle.lastModified)) {
+				return;
+			}
+			response.addHeader("Accept-Ranges", "bytes");
+			long first = 0L, last = handle.length - 1L;
+			long[] requested = range == null || !isRangeCurrent(request, handle) ? null : parseRange(range, handle.length);
+			if(requested != null && requested.length == 0) {
+				response.setStatus(416).addHeader("Content-Range", "bytes */".concat(Long.toString(handle.length)));
+				response.openBody(0L).close();
+				return;
+			}
+			if(requested != null) {
+				first = requested[0];
+				last = requested[1];
+				response.setStatus(206).addHeader("Content-Range", "bytes ".concat(Long.toString(first)).concat("-").concat(Long.toString(last)).concat("/").concat(Long.toString(handle.length)));
+			}
+			response.addHeader("Content-Type", mimeType);
+			long count = (last - first) + 1L;
+			OutputStream out = response.openBody(count);
+			response.transferFrom(handle.channel, first, count);
+			out.close();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "Files from ".concat(this.root.getPath()).concat(": ").concat(this.cache.toString());
+	}
+	
+}
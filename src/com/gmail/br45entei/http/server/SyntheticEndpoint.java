@@ -0,0 +1,510 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import com.gmail.br45entei.http.server.TargetServer.Endpoint;
+import com.gmail.br45entei.http.server.TargetServer.Request;
+import com.gmail.br45entei.http.server.TargetServer.Response;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/** A {@link TargetServer} endpoint that generates response bodies from a
+ * seeded pseudo-random stream rather than storing them, with body sizes and
+ * response delays drawn from configurable distributions. This lets
+ * production-like size and latency distributions be reproduced locally
+ * (e.g. to check that the client measures tail latency correctly).<br>
+ * <br>
+ * Each request may override the endpoint's settings with query parameters:
+ * <ul>
+ * <li><tt>size=</tt> a size distribution (see
+ * {@link #parseSizeDistribution(String)}, except that <tt>replay</tt> is
+ * not allowed)</li>
+ * <li><tt>latency=</tt> a latency distribution (see
+ * {@link #parseLatencyDistribution(String)})</li>
+ * <li><tt>trickle=</tt> a rate, in bytes per second, to send the body
+ * at</li>
+ * <li><tt>framing=</tt> <tt>chunked</tt> or <tt>identity</tt></li>
+ * <li><tt>seed=</tt> the seed to draw the response from, so that one
+ * response can be reproduced exactly (every response's seed is sent back
+ * in its <tt>X-Synthetic-Seed</tt> header)</li>
+ * </ul>
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class SyntheticEndpoint implements Endpoint {
+	
+	/** The largest body that any size distribution will produce */
+	public static final long MAX_SIZE = 1L << 30;
+	
+	/** Draws response body sizes.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	@FunctionalInterface
+	public static interface SizeDistribution {
+		
+		/** @param random The random number generator to draw from
+		 * @return The size of the next body, in bytes */
+		public long nextSize(SplittableRandom random);
+		
+	}
+	
+	/** Draws the delay before each response is sent.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	@FunctionalInterface
+	public static interface LatencyDistribution {
+		
+		/** @param random The random number generator to draw from
+		 * @return The delay before the next response, in nanoseconds */
+		public long nextDelay(SplittableRandom random);
+		
+	}
+	
+	/** @param size The size of every body
+	 * @return A distribution that always produces the given size */
+	public static final SizeDistribution fixedSize(long size) {
+		final long s = Math.max(0L, Math.min(MAX_SIZE, size));
+		return (random) -> s;
+	}
+	
+	/** @param min The smallest size (inclusive)
+	 * @param max The largest size (inclusive)
+	 * @return A distribution that produces sizes uniformly between the given
+	 *         sizes */
+	public static final SizeDistribution uniformSize(long min, long max) {
+		final long lo = Math.max(0L, Math.min(MAX_SIZE, Math.min(min, max))), hi = Math.max(0L, Math.min(MAX_SIZE, Math.max(min, max)));
+		return (random) -> lo == hi ? lo : random.nextLong(lo, hi + 1L);
+	}
+	
+	/** @param random The random number generator to draw from
+	 * @return A normally distributed value with a mean of zero and a standard
+	 *         deviation of one */
+	public static final double nextGaussian(SplittableRandom random) {
+		double u;
+		do {
+			u = random.nextDouble();
+		} while(u == 0.0);
+		return Math.sqrt(-2.0 * Math.log(u)) * Math.cos(2.0 * Math.PI * random.nextDouble());// Box-Muller
+	}
+	
+	/** Response sizes on the web are famously close to log-normal: most are
+	 * small, with a long tail of large ones.
+	 *
+	 * @param median The median size
+	 * @param sigma The standard deviation of the sizes' natural logarithm
+	 *            (e.g. <tt>1.0</tt>; larger values give a longer tail)
+	 * @return A distribution that produces log-normally distributed sizes */
+	public static final SizeDistribution logNormalSize(long median, double sigma) {
+		final double mu = Math.log(Math.max(1L, median));
+		return (random) -> Math.min(MAX_SIZE, Math.round(Math.exp(mu + (sigma * nextGaussian(random)))));
+	}
+	
+	/** @param sizes The sizes to replay, e.g. as recorded from production
+	 *            traffic
+	 * @return A distribution that produces the given sizes in order, starting
+	 *         over once it has produced all of them */
+	public static final SizeDistribution replayedSizes(long[] sizes) {
+		if(sizes.length == 0) {
+			throw new IllegalArgumentException("There must be at least one size to replay!");
+		}
+		final long[] s = sizes.clone();
+		final AtomicLong next = new AtomicLong();
+		return (random) -> Math.max(0L, Math.min(MAX_SIZE, s[(int) (next.getAndIncrement() % s.length)]));
+	}
+	
+	/** @param file A text file with one size per line (blank lines and lines
+	 *            starting with <tt>#</tt> are ignored)
+	 * @return A distribution that replays the sizes in the given file
+	 * @throws IOException Thrown if the file could not be read or contains
+	 *             an invalid size */
+	public static final SizeDistribution replayedSizes(File file) throws IOException {
+		List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+		long[] sizes = new long[lines.size()];
+		int count = 0;
+		for(String line : lines) {
+			line = line.strip();
+			if(line.isEmpty() || line.startsWith("#")) {
+				continue;
+			}
+			long size = TargetEndpoints.parseSize(line);
+			if(size < 0L) {
+				throw new IOException("Invalid size in ".concat(file.getPath()).concat(": \"").concat(line).concat("\""));
+			}
+			sizes[count++] = size;
+		}
+		if(count == 0) {
+			throw new IOException("No sizes were found in ".concat(file.getPath()));
+		}
+		return replayedSizes(Arrays.copyOf(sizes, count));
+	}
+	
+	/** @return A distribution that never delays responses */
+	public static final LatencyDistribution noDelay() {
+		return (random) -> 0L;
+	}
+	
+	/** @param millis The delay before every response, in milliseconds
+	 * @return A distribution that always produces the given delay */
+	public static final LatencyDistribution fixedDelay(double millis) {
+		final long nanos = toNanos(millis);
+		return (random) -> nanos;
+	}
+	
+	/** @param millis The average delay, in milliseconds
+	 * @param jitter The most that each delay may differ from the average by,
+	 *            in milliseconds
+	 * @return A distribution that produces delays uniformly within the given
+	 *         range */
+	public static final LatencyDistribution jitteredDelay(double millis, double jitter) {
+		final long nanos = toNanos(millis), range = toNanos(Math.abs(jitter));
+		return (random) -> range == 0L ? nanos : Math.max(0L, nanos + random.nextLong(-range, range + 1L));
+	}
+	
+	/** Produces a step-wise delay distribution from percentiles, e.g.
+	 * <tt>{50, 99, 100}</tt> and <tt>{1, 20, 500}</tt> delays half of the
+	 * responses by 1ms, the next 49% by 20ms, and stalls the slowest 1% for
+	 * half a second.
+	 *
+	 * @param percentiles The percentiles, in ascending order
+	 * @param millis The delay for the responses up to each percentile (and
+	 *            above the one before it), in milliseconds
+	 * @return A distribution that produces the given delays */
+	public static final LatencyDistribution percentileDelays(double[] percentiles, double[] millis) {
+		if(percentiles.length == 0 || percentiles.length != millis.length) {
+			throw new IllegalArgumentException("There must be one delay for each percentile!");
+		}
+		final double[] p = percentiles.clone();
+		final long[] nanos = new long[millis.length];
+		for(int i = 0; i < p.length; i++) {
+			if(i > 0 && p[i] <= p[i - 1]) {
+				throw new IllegalArgumentException("Percentiles must be in ascending order!");
+			}
+			nanos[i] = toNanos(millis[i]);
+		}
+		return (random) -> {
+			double percentile = random.nextDouble() * 100.0;
+			for(int i = 0; i < p.length; i++) {
+				if(percentile < p[i]) {
+					return nanos[i];
+				}
+			}
+			return nanos[nanos.length - 1];
+		};
+	}
+	
+	private static final long toNanos(double millis) {
+		return Math.max(0L, Math.round(millis * 1000000.0));
+	}
+	
+	private static final double parseMillis(String s) {
+		double millis = Double.parseDouble(s);
+		if(!(millis >= 0.0) || Double.isInfinite(millis)) {
+			throw new IllegalArgumentException("Invalid delay: ".concat(s));
+		}
+		return millis;
+	}
+	
+	private static final long parseBytes(String s) {
+		long size = TargetEndpoints.parseSize(s);
+		if(size < 0L) {
+			throw new IllegalArgumentException("Invalid size: ".concat(s));
+		}
+		return size;
+	}
+	
+	/** @param spec <tt>fixed:&lt;size&gt;</tt>,
+	 *            <tt>uniform:&lt;min&gt;:&lt;max&gt;</tt>,
+	 *            <tt>lognormal:&lt;median&gt;:&lt;sigma&gt;</tt> or
+	 *            <tt>replay:&lt;file&gt;</tt>, where sizes may end with
+	 *            <tt>k</tt>, <tt>m</tt> or <tt>g</tt>. A plain size is the
+	 *            same as <tt>fixed</tt>.
+	 * @return The distribution
+	 * @throws IllegalArgumentException Thrown if the spec is invalid
+	 * @throws IOException Thrown if a replay file could not be read */
+	public static final SizeDistribution parseSizeDistribution(String spec) throws IllegalArgumentException, IOException {
+		String[] args = spec.split(":", -1);
+		switch(args[0].toLowerCase()) {
+		case "fixed":
+			if(args.length == 2) {
+				return fixedSize(parseBytes(args[1]));
+			}
+			break;
+		case "uniform":
+			if(args.length == 3) {
+				return uniformSize(parseBytes(args[1]), parseBytes(args[2]));
+			}
+			break;
+		case "lognormal":
+			if(args.length == 3) {
+				double sigma = Double.parseDouble(args[2]);
+				if(!(sigma >= 0.0) || sigma > 10.0) {
+					throw new IllegalArgumentException("Invalid sigma: ".concat(args[2]));
+				}
+				return logNormalSize(parseBytes(args[1]), sigma);
+			}
+			break;
+		case "replay":
+			if(args.length >= 2) {
+				return replayedSizes(new File(spec.substring(args[0].length() + 1)));
+			}
+			break;
+		default:
+			if(args.length == 1) {
+				return fixedSize(parseBytes(args[0]));
+			}
+			break;
+		}
+		throw new IllegalArgumentException("Invalid size distribution: ".concat(spec));
+	}
+	
+	/** @param spec <tt>none</tt>, <tt>fixed:&lt;millis&gt;</tt>,
+	 *            <tt>jitter:&lt;millis&gt;:&lt;jitter&gt;</tt> or
+	 *            <tt>percentiles:&lt;percentile&gt;=&lt;millis&gt;,...</tt>
+	 *            (e.g. <tt>percentiles:50=1,99=20,100=500</tt>). A plain
+	 *            number is the same as <tt>fixed</tt>.
+	 * @return The distribution
+	 * @throws IllegalArgumentException Thrown if the spec is invalid */
+	public static final LatencyDistribution parseLatencyDistribution(String spec) throws IllegalArgumentException {
+		String[] args = spec.split(":", -1);
+		switch(args[0].toLowerCase()) {
+		case "none":
+			if(args.length == 1) {
+				return noDelay();
+			}
+			break;
+		case "fixed":
+			if(args.length == 2) {
+				return fixedDelay(parseMillis(args[1]));
+			}
+			break;
+		case "jitter":
+			if(args.length == 3) {
+				return jitteredDelay(parseMillis(args[1]), parseMillis(args[2]));
+			}
+			break;
+		case "percentiles":
+			if(args.length == 2) {
+				String[] steps = args[1].split(",");
+				double[] percentiles = new double[steps.length], millis = new double[steps.length];
+				for(int i = 0; i < steps.length; i++) {
+					int equals = steps[i].indexOf('=');
+					if(equals < 0) {
+						throw new IllegalArgumentException("Invalid percentile: ".concat(steps[i]));
+					}
+					percentiles[i] = Double.parseDouble(steps[i].substring(0, equals));
+					millis[i] = parseMillis(steps[i].substring(equals + 1));
+				}
+				return percentileDelays(percentiles, millis);
+			}
+			break;
+		default:
+			if(args.length == 1) {
+				return fixedDelay(parseMillis(args[0]));
+			}
+			break;
+		}
+		throw new IllegalArgumentException("Invalid latency distribution: ".concat(spec));
+	}
+	
+	private static final ThreadLocal<byte[]> buffers = ThreadLocal.withInitial(() -> new byte[16384]);
+	
+	/** Writes the given number of pseudo-random bytes, generated from the
+	 * given seed as they are written.
+	 *
+	 * @param out The stream to write to
+	 * @param seed The seed that the bytes are generated from
+	 * @param length The number of bytes to write
+	 * @param bytesPerSecond The rate to write the bytes at (flushing as it
+	 *            goes), or zero to write them as quickly as possible
+	 * @throws IOException Thrown if an error occurred while writing */
+	public static final void writeBody(OutputStream out, long seed, long length, long bytesPerSecond) throws IOException {
+		byte[] buf = buffers.get();
+		SplittableRandom random = new SplittableRandom(seed);
+		// When trickling, send about fifty slices per second (but at least one byte at a time):
+		int sliceSize = bytesPerSecond <= 0L ? buf.length : (int) Math.max(1L, Math.min(buf.length, bytesPerSecond / 50L));
+		long startTime = System.nanoTime(), written = 0L;
+		while(written < length) {
+			int len = (int) Math.min(sliceSize, length - written);
+			for(int i = 0; i < len; i += 8) {
+				long value = random.nextLong();
+				for(int j = i; j < Math.min(len, i + 8); j++) {
+					buf[j] = (byte) value;
+					value >>>= 8;
+				}
+			}
+			if(bytesPerSecond > 0L) {
+				long wait = (startTime + ((written * 1000000000L) / bytesPerSecond)) - System.nanoTime();
+				if(wait > 0L) {
+					sleepNanos(wait);
+				}
+			}
+			out.write(buf, 0, len);
+			written += len;
+			if(bytesPerSecond > 0L) {
+				out.flush();
+			}
+		}
+	}
+	
+	static final void sleepNanos(long nanos) throws InterruptedIOException {
+		long deadline = System.nanoTime() + nanos;
+		while((nanos = deadline - System.nanoTime()) > 0L) {
+			LockSupport.parkNanos(nanos);
+			if(Thread.interrupted()) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while delaying a response");
+			}
+		}
+	}
+	
+	private static final long mix(long z) {// SplitMix64's finalizer, so that consecutive sequence numbers get unrelated seeds
+		z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+		z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+		return z ^ (z >>> 31);
+	}
+	
+	private final long seed;
+	private final AtomicLong sequence = new AtomicLong();
+	private volatile SizeDistribution sizes = fixedSize(1024L);
+	private volatile LatencyDistribution latency = noDelay();
+	private volatile long trickleRate = 0L;
+	private volatile double chunkedRatio = 0.0;
+	
+	/** @param seed The seed that every response's seed is derived from; the
+	 *            same seed produces the same sequence of responses */
+	public SyntheticEndpoint(long seed) {
+		this.seed = seed;
+	}
+	
+	/** @param sizes The distribution of response body sizes
+	 * @return This endpoint */
+	public final SyntheticEndpoint setSizes(SizeDistribution sizes) {
+		this.sizes = sizes;
+		return this;
+	}
+	
+	/** @param latency The distribution of delays before each response
+	 * @return This endpoint */
+	public final SyntheticEndpoint setLatency(LatencyDistribution latency) {
+		this.latency = latency;
+		return this;
+	}
+	
+	/** @param bytesPerSecond The rate to trickle response bodies out at, or
+	 *            zero to send them as quickly as possible
+	 * @return This endpoint */
+	public final SyntheticEndpoint setTrickleRate(long bytesPerSecond) {
+		this.trickleRate = Math.max(0L, bytesPerSecond);
+		return this;
+	}
+	
+	/** @param chunkedRatio The fraction of responses (from <tt>0.0</tt> to
+	 *            <tt>1.0</tt>) to send with chunked framing; the rest are sent
+	 *            with a <tt>Content-Length</tt>
+	 * @return This endpoint */
+	public final SyntheticEndpoint setChunkedRatio(double chunkedRatio) {
+		this.chunkedRatio = Math.max(0.0, Math.min(1.0, chunkedRatio));
+		return this;
+	}
+	
+	/** @return The number of responses generated so far */
+	public final long getResponseCount() {
+		return this.sequence.get();
+	}
+	
+	@Override
+	public final void handle(Request request, Response response) throws IOException {
+		SizeDistribution sizes = this.sizes;
+		LatencyDistribution latency = this.latency;
+		long trickleRate = this.trickleRate;
+		Boolean chunked = null;
+		long seed = mix(this.seed + this.sequence.getAndIncrement());
+		if(request.query != null) {
+			try {
+				for(String param : request.query.split("&")) {
+					int equals = param.indexOf('=');
+					String name = equals < 0 ? param : param.substring(0, equals);
+					String value = equals < 0 ? "" : StaticFileEndpoint.decodePath(param.substring(equals + 1));
+					if(value == null) {
+						throw new IllegalArgumentException("Invalid percent-encoding: ".concat(param));
+					}
+					switch(name) {
+					case "size":
+						if(value.regionMatches(true, 0, "replay:", 0, 7)) {
+							throw new IllegalArgumentException("Replayed sizes can't be requested");
+						}
+						sizes = parseSizeDistribution(value);
+						break;
+					case "latency":
+						latency = parseLatencyDistribution(value);
+						break;
+					case "trickle":
+						trickleRate = parseBytes(value);
+						break;
+					case "framing":
+						if(!value.equalsIgnoreCase("chunked") && !value.equalsIgnoreCase("identity")) {
+							throw new IllegalArgumentException("Invalid framing: ".concat(value));
+						}
+						chunked = Boolean.valueOf(value.equalsIgnoreCase("chunked"));
+						break;
+					case "seed":
+						seed = Long.parseLong(value);
+						break;
+					default:
+						break;
+					}
+				}
+			} catch(IllegalArgumentException ex) {// Includes NumberFormatException
+				response.sendText(400, "400 Bad Request\r\n".concat(String.valueOf(ex.getMessage())).concat("\r\n"));
+				return;
+			}
+		}
+		SplittableRandom random = new SplittableRandom(seed);
+		long size = sizes.nextSize(random);
+		long delay = latency.nextDelay(random);
+		boolean chunk = chunked != null ? chunked.booleanValue() : random.nextDouble() < this.chunkedRatio;
+		if(delay > 0L) {
+			sleepNanos(delay);
+		}
+		response.addHeader("Content-Type", "application/octet-stream").addHeader("X-Synthetic-Seed", Long.toString(seed));
+		try(OutputStream out = response.openBody(chunk ? -1L : size)) {
+			writeBody(out, random.nextLong(), size, trickleRate);
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "SyntheticEndpoint[seed=".concat(Long.toString(this.seed)).concat(", responses=").concat(Long.toString(this.getResponseCount())).concat("]");
+	}
+	
+}
@@ -0,0 +1,407 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import com.gmail.br45entei.http.server.TargetServer.Endpoint;
+import com.gmail.br45entei.http.server.TargetServer.PreEncodedResponse;
+import com.gmail.br45entei.http.server.TargetServer.Request;
+import com.gmail.br45entei.http.server.TargetServer.Response;
+import com.gmail.br45entei.util.ThreadUtil;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.function.LongFunction;
+import java.util.zip.GZIPOutputStream;
+
+/** The built-in {@link TargetServer} endpoints. Between them they exercise
+ * every way that the tester's client can read a response: fixed-length,
+ * chunked and gzip-encoded bodies, redirects (relative and absolute), and
+ * <tt>401</tt> challenges.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class TargetEndpoints {
+	
+	private TargetEndpoints() {
+	}
+	
+	/** The largest response body that is encoded once and then reused, in
+	 * bytes */
+	public static final int PRE_ENCODED_LIMIT = 64 * 1024;
+	/** The maximum number of pre-encoded responses each endpoint keeps */
+	public static final int CACHE_SIZE = 256;
+	/** The largest body that {@link #gzip()} will compress, in bytes */
+	public static final long MAX_GZIP_SIZE = 64L * 1024L * 1024L;
+	
+	/** 64 KiB of printable text that generated bodies are cut from */
+	protected static final byte[] PATTERN;
+	
+	static {
+		byte[] line = "HTTPServerTester target body 0123456789 abcdefghijklmnopqrstuvw\n".getBytes(StandardCharsets.ISO_8859_1);
+		PATTERN = new byte[64 * 1024];
+		for(int i = 0; i < PATTERN.length; i += line.length) {
+			System.arraycopy(line, 0, PATTERN, i, Math.min(line.length, PATTERN.length - i));
+		}
+	}
+	
+	private static final PreEncodedResponse OK = new PreEncodedResponse(200, "text/plain; charset=UTF-8", "OK\r\n".getBytes(StandardCharsets.UTF_8));
+	private static final PreEncodedResponse BAD_SIZE = new PreEncodedResponse(400, "text/plain; charset=UTF-8", "400 Bad Request\r\nExpected a size, e.g. 1024, 64k or 10m\r\n".getBytes(StandardCharsets.UTF_8));
+	
+	/** Registers the default endpoints:
+	 * <ul>
+	 * <li><tt>/</tt>: lists the endpoints</li>
+	 * <li><tt>/bytes/&lt;size&gt;</tt>: a fixed-length body</li>
+	 * <li><tt>/echo</tt>: the request's body (or head, if it has none)</li>
+	 * <li><tt>/delay/&lt;millis&gt;[/&lt;path&gt;]</tt>: waits, then answers
+	 * as the given path would</li>
+	 * <li><tt>/chunked/&lt;size&gt;[/&lt;chunkSize&gt;]</tt>: a chunked
+	 * body</li>
+	 * <li><tt>/gzip/&lt;size&gt;</tt>: a gzip-encoded body</li>
+	 * <li><tt>/redirect/&lt;n&gt;</tt> and
+	 * <tt>/absolute-redirect/&lt;n&gt;</tt>: <tt>n</tt> redirects in a
+	 * row</li>
+	 * <li><tt>/basic-auth/&lt;user&gt;/&lt;password&gt;</tt>: a <tt>401</tt>
+	 * challenge for the given credentials</li>
+	 * <li><tt>/synthetic</tt>: generated bodies with configurable size and
+	 * latency distributions (see {@link SyntheticEndpoint})</li>
+	 * </ul>
+	 * Sizes may end with <tt>k</tt>, <tt>m</tt> or <tt>g</tt> (for KiB, MiB
+	 * and GiB).
+	 *
+	 * @param server The server to add the endpoints to
+	 * @return The server */
+	public static final TargetServer addDefaults(TargetServer server) {
+		return server.addEndpoint("/", index())//
+				.addEndpoint("/bytes/", fixedSize())//
+				.addEndpoint("/echo", echo())//
+				.addEndpoint("/delay/", delay())//
+				.addEndpoint("/chunked/", chunked())//
+				.addEndpoint("/gzip/", gzip())//
+				.addEndpoint("/redirect/", redirect(false))//
+				.addEndpoint("/absolute-redirect/", redirect(true))//
+				.addEndpoint("/basic-auth/", basicAuth("HTTPServerTester"))//
+				.addEndpoint("/synthetic", new SyntheticEndpoint(0L));
+	}
+	
+	/** @param s The size to parse, e.g. <tt>1024</tt>, <tt>64k</tt> or
+	 *            <tt>10m</tt>
+	 * @return The size in bytes, or <tt>-1</tt> if it could not be parsed */
+	public static final long parseSize(String s) {
+		if(s.isEmpty()) {
+			return -1L;
+		}
+		int shift = 0;
+		switch(Character.toLowerCase(s.charAt(s.length() - 1))) {
+		case 'k':
+			shift = 10;
+			break;
+		case 'm':
+			shift = 20;
+			break;
+		case 'g':
+			shift = 30;
+			break;
+		default:
+			break;
+		}
+		long value = 0L;
+		for(int i = 0; i < s.length() - (shift == 0 ? 0 : 1); i++) {
+			char c = s.charAt(i);
+			if(c < '0' || c > '9' || value > (Long.MAX_VALUE >> (shift + 4))) {
+				return -1L;
+			}
+			value = (value * 10L) + (c - '0');
+		}
+		return value << shift;
+	}
+	
+	/** @param request The request
+	 * @return The first segment of the request's sub-path, e.g.
+	 *         <tt>100</tt> for <tt>/delay/100/bytes/5</tt> */
+	protected static final String getArgument(Request request) {
+		String subPath = request.getSubPath();
+		int slash = subPath.indexOf('/');
+		return slash < 0 ? subPath : subPath.substring(0, slash);
+	}
+	
+	/** Writes the given number of bytes cut from {@link #PATTERN}.
+	 *
+	 * @param out The stream to write to
+	 * @param length The number of bytes to write
+	 * @param chunkSize The largest number of bytes to write at once
+	 * @throws IOException Thrown if an error occurred while writing */
+	protected static final void writePattern(OutputStream out, long length, int chunkSize) throws IOException {
+		chunkSize = Math.max(1, Math.min(PATTERN.length, chunkSize));
+		int offset = 0;
+		while(length > 0L) {
+			int len = (int) Math.min(length, Math.min(chunkSize, PATTERN.length - offset));
+			out.write(PATTERN, offset, len);
+			offset = (offset + len) % PATTERN.length;
+			length -= len;
+		}
+	}
+	
+	/** @param length The length of the body
+	 * @return A body of the given length, cut from {@link #PATTERN} */
+	protected static final byte[] getPattern(int length) {
+		byte[] body = new byte[length];
+		for(int i = 0; i < length; i += PATTERN.length) {
+			System.arraycopy(PATTERN, 0, body, i, Math.min(PATTERN.length, length - i));
+		}
+		return body;
+	}
+	
+	/** @param cache The cache to look in
+	 * @param key The key of the response
+	 * @param encoder The function that encodes the response if it isn't
+	 *            cached
+	 * @return The cached (or, if the cache is full, freshly encoded)
+	 *         response */
+	protected static final PreEncodedResponse getCached(Map<Long, PreEncodedResponse> cache, long key, LongFunction<PreEncodedResponse> encoder) {
+		Long k = Long.valueOf(key);
+		PreEncodedResponse response = cache.get(k);
+		if(response == null) {
+			response = encoder.apply(key);
+			if(cache.size() < CACHE_SIZE) {
+				cache.putIfAbsent(k, response);
+			}
+		}
+		return response;
+	}
+	
+	/** @return An endpoint that lists the default endpoints (at <tt>/</tt>
+	 *         only) */
+	public static final Endpoint index() {
+		final PreEncodedResponse index = new PreEncodedResponse(200, "text/plain; charset=UTF-8", ("HTTPServerTester target server\r\n\r\n"//
+				+ "/bytes/<size>                 A fixed-length body\r\n"//
+				+ "/echo                         The request's body (or head, if it has none)\r\n"//
+				+ "/delay/<millis>[/<path>]      Waits, then answers as <path> would\r\n"//
+				+ "/chunked/<size>[/<chunkSize>] A chunked body\r\n"//
+				+ "/gzip/<size>                  A gzip-encoded body\r\n"//
+				+ "/redirect/<n>                 n relative redirects\r\n"//
+				+ "/absolute-redirect/<n>        n absolute redirects\r\n"//
+				+ "/basic-auth/<user>/<password> A 401 challenge\r\n"//
+				+ "/synthetic?size=&latency=&trickle=&framing=&seed=\r\n"//
+				+ "                              Generated bodies, e.g. size=lognormal:16k:1.0\r\n"//
+				+ "                              and latency=percentiles:50=1,99=20,100=500\r\n\r\n"//
+				+ "Sizes may end with k, m or g.\r\n").getBytes(StandardCharsets.UTF_8));
+		return (request, response) -> {
+			if(request.getPath().equals("/")) {
+				response.send(index);
+			}
+		};
+	}
+	
+	/** @return An endpoint that sends a fixed-length
+	 *         <tt>application/octet-stream</tt> body of the requested size */
+	public static final Endpoint fixedSize() {
+		final Map<Long, PreEncodedResponse> cache = new ConcurrentHashMap<>();
+		return (request, response) -> {
+			long length = parseSize(getArgument(request));
+			if(length < 0L) {
+				response.send(BAD_SIZE);
+			} else if(length <= PRE_ENCODED_LIMIT) {
+				response.send(getCached(cache, length, (l) -> new PreEncodedResponse(200, "application/octet-stream", getPattern((int) l))));
+			} else {
+				response.addHeader("Content-Type", "application/octet-stream");
+				try(OutputStream out = response.openBody(length)) {
+					writePattern(out, length, PATTERN.length);
+				}
+			}
+		};
+	}
+	
+	/** @return An endpoint that sends back the request's body (with the same
+	 *         <tt>Content-Type</tt>), or the request's head if it doesn't
+	 *         have a body */
+	public static final Endpoint echo() {
+		return (request, response) -> {
+			if(request.body.length > 0) {
+				String contentType = request.getHeader("Content-Type");
+				response.send(200, contentType == null ? "application/octet-stream" : contentType, request.body);
+			} else {
+				response.send(200, "text/plain; charset=ISO-8859-1", request.getHead().getBytes(StandardCharsets.ISO_8859_1));
+			}
+		};
+	}
+	
+	/** @return An endpoint that waits for the requested number of
+	 *         milliseconds, then answers as the rest of the path would (or
+	 *         with a short <tt>OK</tt> if there is none) */
+	public static final Endpoint delay() {
+		return (request, response) -> {
+			String argument = getArgument(request);
+			long millis = parseSize(argument);
+			if(millis < 0L) {
+				response.send(BAD_SIZE);
+				return;
+			}
+			if(millis > 0L && ThreadUtil.sleep(millis) != null) {
+				response.setClose();
+			}
+			String rest = request.getSubPath().substring(argument.length());
+			if(rest.length() > 1) {
+				request.forward(rest, response);
+			} else {
+				response.send(OK);
+			}
+		};
+	}
+	
+	/** @return An endpoint that sends a chunked body of the requested size
+	 *         (in chunks of 8 KiB, or the requested chunk size) */
+	public static final Endpoint chunked() {
+		return (request, response) -> {
+			String subPath = request.getSubPath();
+			int slash = subPath.indexOf('/');
+			long length = parseSize(slash < 0 ? subPath : subPath.substring(0, slash));
+			long chunkSize = slash < 0 ? 8192L : parseSize(subPath.substring(slash + 1));
+			if(length < 0L || chunkSize <= 0L) {
+				response.send(BAD_SIZE);
+				return;
+			}
+			response.addHeader("Content-Type", "application/octet-stream");
+			try(OutputStream out = response.openBody(-1L)) {
+				writePattern(out, length, (int) Math.min(Integer.MAX_VALUE, chunkSize));
+			}
+		};
+	}
+	
+	/** @param length The length of the uncompressed body
+	 * @return The gzip-encoded body */
+	protected static final byte[] compress(long length) {
+		ByteArrayOutputStream baos = new ByteArrayOutputStream((int) Math.min(PATTERN.length, (length / 32L) + 64L));
+		try(GZIPOutputStream out = new GZIPOutputStream(baos, 8192)) {
+			writePattern(out, length, 8192);
+		} catch(IOException ex) {
+			throw new InternalError(ex);// ByteArrayOutputStream doesn't throw
+		}
+		return baos.toByteArray();
+	}
+	
+	/** @return An endpoint that sends a text body of the requested size,
+	 *         gzip-encoded (by a 16 MiB {@link CompressionCache}) if the
+	 *         client accepts it */
+	public static final Endpoint gzip() {
+		return gzip(new CompressionCache(16L * 1024L * 1024L));
+	}
+	
+	/** @param cache The cache to compress bodies with. Each size is
+	 *            compressed once, in the background; concurrent requests for
+	 *            a size that is still being compressed all wait for the same
+	 *            result. Sizes whose compressed bodies are too large for the
+	 *            cache are compressed by each request as it is sent instead.
+	 * @return An endpoint that sends a text body of the requested size,
+	 *         gzip-encoded if the client accepts it */
+	public static final Endpoint gzip(CompressionCache cache) {
+		return (request, response) -> {
+			long length = parseSize(getArgument(request));
+			final String key = CompressionCache.getKey(Long.toString(length), "gzip");
+			if(length < 0L || length > MAX_GZIP_SIZE) {
+				response.send(BAD_SIZE);
+			} else if(request.acceptsEncoding("gzip")) {
+				byte[] body = null;
+				if(!cache.isTooLarge(key)) {
+					try {
+						body = cache.compress(key, () -> compress(length)).get();
+					} catch(InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while waiting for the body to be compressed");
+					} catch(ExecutionException ex) {
+						if(!cache.isTooLarge(key)) {// Unless another request found it to be too large in the meantime
+							throw new IOException("Failed to compress the body", ex.getCause());
+						}
+					}
+				}
+				response.addHeader("Content-Encoding", "gzip").addHeader("Vary", "Accept-Encoding");
+				if(body != null) {
+					response.send(200, "text/plain; charset=UTF-8", body);
+				} else {
+					response.addHeader("Content-Type", "text/plain; charset=UTF-8");
+					try(OutputStream out = new GZIPOutputStream(response.openBody(-1L), 8192)) {
+						writePattern(out, length, 8192);
+					}
+				}
+			} else {
+				response.addHeader("Content-Type", "text/plain; charset=UTF-8").addHeader("Vary", "Accept-Encoding");
+				try(OutputStream out = response.openBody(length)) {
+					writePattern(out, length, PATTERN.length);
+				}
+			}
+		};
+	}
+	
+	/** @param absolute Whether to send absolute (<tt>http://host/...</tt>)
+	 *            or relative locations
+	 * @return An endpoint that redirects (with <tt>302 Found</tt>) to itself
+	 *         with a count of one less, until the count reaches zero */
+	public static final Endpoint redirect(boolean absolute) {
+		final Map<Long, PreEncodedResponse> cache = new ConcurrentHashMap<>();
+		return (request, response) -> {
+			long count = parseSize(getArgument(request));
+			if(count < 0L) {
+				response.send(BAD_SIZE);
+			} else if(count == 0L) {
+				response.send(OK);
+			} else if(!absolute) {
+				response.send(getCached(cache, count, (c) -> new PreEncodedResponse(302, null, new byte[0], "Location: ".concat(request.getPrefix()).concat(Long.toString(c - 1L)))));
+			} else {
+				String host = request.getHeader("Host");
+				String origin = request.server.getLink().protocol.concat(host == null ? request.server.getLink().host.concat(":").concat(Integer.toString(request.server.getLink().port)) : host);
+				response.setStatus(302).addHeader("Location", origin.concat(request.getPrefix()).concat(Long.toString(count - 1L)));
+				response.openBody(0L).close();
+			}
+		};
+	}
+	
+	/** @param realm The realm to send in the challenge
+	 * @return An endpoint that answers <tt>/&lt;user&gt;/&lt;password&gt;</tt>
+	 *         with a <tt>401</tt> Basic challenge unless the request's
+	 *         <tt>Authorization</tt> header has the given credentials */
+	public static final Endpoint basicAuth(String realm) {
+		final PreEncodedResponse challenge = new PreEncodedResponse(401, "text/plain; charset=UTF-8", "401 Unauthorized\r\n".getBytes(StandardCharsets.UTF_8), "WWW-Authenticate: Basic realm=\"".concat(realm).concat("\""));
+		return (request, response) -> {
+			String subPath = request.getSubPath();
+			int slash = subPath.indexOf('/');
+			if(slash <= 0) {
+				return;
+			}
+			String credentials = subPath.substring(0, slash).concat(":").concat(subPath.substring(slash + 1));
+			String expected = "Basic ".concat(Base64.getEncoder().encodeToString(credentials.getBytes(StandardCharsets.ISO_8859_1)));
+			String authorization = request.getHeader("Authorization");
+			if(authorization != null && authorization.equals(expected)) {
+				response.sendText(200, "Authenticated as ".concat(subPath.substring(0, slash)).concat("\r\n"));
+			} else {
+				response.send(challenge);
+			}
+		};
+	}
+	
+}
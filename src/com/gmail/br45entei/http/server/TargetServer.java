@@ -0,0 +1,1541 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.http.server;
+
+import com.gmail.br45entei.server.HTTPFraming;
+import com.gmail.br45entei.server.Link;
+import com.gmail.br45entei.util.LatencyHistogram;
+import com.gmail.br45entei.util.ThreadUtil;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ServerSocketFactory;
+
+/** A small, embedded HTTP/1.1 server that can be run on the local machine as
+ * a benchmark target, so that the client can be measured without a network
+ * (or a real server) getting in the way.<br>
+ * Requests are dispatched to {@link Endpoint}s by path prefix (see
+ * {@link TargetEndpoints} for the built-in ones). Connections are kept alive
+ * for as long as the client allows, and pipelined requests are answered in
+ * order, with their responses sent together once no more requests are
+ * waiting. Endpoints that always send the same response can send it as a
+ * {@link PreEncodedResponse} so that nothing has to be formatted or encoded
+ * per request.<br>
+ * <br>
+ * Usage: <tt>TargetServer [url=http://127.0.0.1:8080/] [directory]</tt><br>
+ * If a directory is given, it is served from <tt>/</tt> by a
+ * {@link StaticFileEndpoint} (the other default endpoints remain available).
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class TargetServer implements Closeable {
+	
+	/** The maximum length of the request line and of each request header
+	 * line, in bytes */
+	public static final int MAX_LINE_LENGTH = 8192;
+	/** The maximum number of request headers */
+	public static final int MAX_HEADER_COUNT = 100;
+	
+	protected static final byte[] CRLF = {'\r', '\n'};
+	private static final byte[] HTTP_1_1 = "HTTP/1.1".getBytes(StandardCharsets.ISO_8859_1);
+	private static final byte[] HTTP_1_0 = "HTTP/1.0".getBytes(StandardCharsets.ISO_8859_1);
+	private static final byte[] CONNECTION_CLOSE = "Connection: close\r\n".getBytes(StandardCharsets.ISO_8859_1);
+	private static final byte[] CONNECTION_KEEP_ALIVE = "Connection: keep-alive\r\n".getBytes(StandardCharsets.ISO_8859_1);
+	private static final byte[] CONTINUE = " 100 Continue\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+	
+	/** Handles the requests made to one or more paths.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	@FunctionalInterface
+	public static interface Endpoint {
+		
+		/** Answers the given request.<br>
+		 * If this method returns without sending a response, the client is
+		 * sent a <tt>404 Not Found</tt> response instead.
+		 *
+		 * @param request The request to answer
+		 * @param response The response to send the answer with
+		 * @throws IOException Thrown if an error occurred while sending the
+		 *             response */
+		public void handle(Request request, Response response) throws IOException;
+		
+		/** @return Whether or not requests should be handed to this endpoint
+		 *         before their bodies have been read, so that the bodies can
+		 *         be streamed from {@link Request#getBodyStream()} instead of
+		 *         being buffered (and limited to the server's
+		 *         {@link TargetServer#setMaxBodySize(int) maximum body size}) */
+		public default boolean isStreaming() {
+			return false;
+		}
+		
+	}
+	
+	/** A response whose status line (save for the protocol version), headers
+	 * and body have been encoded ahead of time.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class PreEncodedResponse {
+		
+		/** Everything after the protocol version: the rest of the status line,
+		 * the headers, the blank line ending them, and the body */
+		protected final byte[] data;
+		/** The offset of the blank line that ends the headers */
+		protected final int headLength;
+		
+		/** @param status The response's status code
+		 * @param contentType The body's content type, or <tt><b>null</b></tt>
+		 *            for none
+		 * @param body The body
+		 * @param headers Any additional header lines (e.g.
+		 *            <tt>"Location: /"</tt>) */
+		public PreEncodedResponse(int status, String contentType, byte[] body, String... headers) {
+			StringBuilder sb = new StringBuilder(128).append(' ').append(status).append(' ').append(getReasonPhrase(status)).append("\r\n");
+			if(contentType != null) {
+				sb.append("Content-Type: ").append(contentType).append("\r\n");
+			}
+			for(String header : headers) {
+				sb.append(header).append("\r\n");
+			}
+			sb.append("Content-Length: ").append(body.length).append("\r\n");
+			byte[] head = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+			this.data = new byte[head.length + CRLF.length + body.length];
+			System.arraycopy(head, 0, this.data, 0, head.length);
+			System.arraycopy(CRLF, 0, this.data, head.length, CRLF.length);
+			System.arraycopy(body, 0, this.data, head.length + CRLF.length, body.length);
+			this.headLength = head.length;
+		}
+		
+		/** @return The length of this response's body */
+		public final int getBodyLength() {
+			return this.data.length - this.headLength - CRLF.length;
+		}
+		
+		/** @return The number of bytes this response takes up in memory */
+		public final int size() {
+			return this.data.length;
+		}
+		
+	}
+	
+	/** A request that has been read (along with its body, unless its endpoint
+	 * {@link Endpoint#isStreaming() streams it}) from a client.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Request {
+		
+		public final TargetServer server;
+		public final Socket socket;
+		public final String method;
+		/** The request target as sent, e.g. <tt>/bytes/1024?x=y</tt> */
+		public final String target;
+		/** The request target's query string (without the <tt>?</tt>), or
+		 * <tt><b>null</b></tt> if it doesn't have one */
+		public final String query;
+		public final String protocol;
+		public final List<String> headers;
+		/** The request's body, or <tt><b>null</b></tt> if the endpoint that
+		 * the request was made to {@link Endpoint#isStreaming() streams it} */
+		public final byte[] body;
+		private final BodyInputStream bodyStream;
+		/** Whether or not the client allows the connection to be kept open
+		 * after this request has been answered */
+		public final boolean keepAlive;
+		
+		private volatile String path, prefix = "";
+		
+		protected Request(TargetServer server, Socket socket, String method, String target, String protocol, List<String> headers, byte[] body, BodyInputStream bodyStream) {
+			this.server = server;
+			this.socket = socket;
+			this.method = method;
+			this.target = target;
+			int queryStart = target.indexOf('?');
+			int fragmentStart = target.indexOf('#');
+			this.path = getPath(target);
+			this.query = queryStart >= 0 ? target.substring(queryStart + 1, fragmentStart > queryStart ? fragmentStart : target.length()) : null;
+			this.protocol = protocol;
+			this.headers = headers;
+			this.body = body;
+			this.bodyStream = bodyStream;
+			this.keepAlive = HTTPFraming.isKeepAlive(protocol, headers);
+		}
+		
+		/** @param target A request target
+		 * @return The target's path, without its query string or fragment */
+		protected static final String getPath(String target) {
+			int queryStart = target.indexOf('?');
+			int fragmentStart = target.indexOf('#');
+			int pathEnd = queryStart >= 0 ? queryStart : fragmentStart >= 0 ? fragmentStart : target.length();
+			String path = target.substring(0, pathEnd);
+			if(path.regionMatches(true, 0, "http://", 0, 7) || path.regionMatches(true, 0, "https://", 0, 8)) {// Absolute-form (RFC 9112, section 3.2.2)
+				path = new Link(path).requestPath;
+			}
+			return path;
+		}
+		
+		/** @return The path that this request is currently being dispatched
+		 *         with (without the query string) */
+		public final String getPath() {
+			return this.path;
+		}
+		
+		/** @return The registered prefix (or exact path) that matched this
+		 *         request's path */
+		public final String getPrefix() {
+			return this.prefix;
+		}
+		
+		/** @return The rest of this request's path after the prefix that
+		 *         matched it, e.g. <tt>1024</tt> for <tt>/bytes/1024</tt> */
+		public final String getSubPath() {
+			return this.path.substring(Math.min(this.prefix.length(), this.path.length()));
+		}
+		
+		/** @param name The name of the header to look for (case-insensitive)
+		 * @return The (stripped) value of the first header with the given
+		 *         name, or <tt><b>null</b></tt> if there is no such header */
+		public final String getHeader(String name) {
+			return HTTPFraming.getHeader(this.headers, name);
+		}
+		
+		/** @return The stream to read this request's body from (without its
+		 *         transfer coding). For requests that weren't
+		 *         {@link Endpoint#isStreaming() streamed}, this just reads the
+		 *         {@link #body}. */
+		public final InputStream getBodyStream() {
+			return this.bodyStream != null ? this.bodyStream : new ByteArrayInputStream(this.body);
+		}
+		
+		/** @return The length of this request's body, or <tt>-1</tt> if it is
+		 *         being streamed with chunked transfer coding (so its length
+		 *         isn't known ahead of time) */
+		public final long getContentLength() {
+			return this.bodyStream != null ? this.bodyStream.contentLength : this.body.length;
+		}
+		
+		/** @return Whether or not this is an HTCPCP request to brew coffee
+		 *         (<tt>BREW</tt>, or any request made with the HTCPCP
+		 *         protocol; see RFC 2324) */
+		public final boolean isBrew() {
+			return this.method.equals("BREW") || this.protocol.regionMatches(true, 0, "HTCPCP/", 0, 7);
+		}
+		
+		/** @return Whether or not this is a <tt>HEAD</tt> request */
+		public final boolean isHead() {
+			return this.method.equals("HEAD");
+		}
+		
+		/** @param encoding A content coding, e.g. <tt>gzip</tt>
+		 * @return Whether or not the client accepts the given content coding */
+		public final boolean acceptsEncoding(String encoding) {
+			String value = this.getHeader("Accept-Encoding");
+			if(value == null) {
+				return false;
+			}
+			for(String s : value.split(",")) {
+				int semicolon = s.indexOf(';');
+				if((semicolon < 0 ? s : s.substring(0, semicolon)).strip().equalsIgnoreCase(encoding)) {
+					return semicolon < 0 || !s.substring(semicolon + 1).replace(" ", "").matches("(?i)q=0(\\.0*)?");
+				}
+			}
+			return false;
+		}
+		
+		/** Dispatches this request again as if it had been made to the given
+		 * path instead (keeping its query string).
+		 *
+		 * @param path The path to dispatch this request with
+		 * @param response The response to answer this request with
+		 * @throws IOException Thrown if an error occurred while sending the
+		 *             response */
+		public final void forward(String path, Response response) throws IOException {
+			this.path = path.startsWith("/") ? path : "/".concat(path);
+			this.server.dispatch(this, response);
+		}
+		
+		/** @return The request line, headers and blank line that ended them,
+		 *         as they were received (save for line endings) */
+		public final String getHead() {
+			StringBuilder sb = new StringBuilder(256).append(this.method).append(' ').append(this.target).append(' ').append(this.protocol).append("\r\n");
+			for(String header : this.headers) {
+				sb.append(header).append("\r\n");
+			}
+			return sb.append("\r\n").toString();
+		}
+		
+		@Override
+		public String toString() {
+			return this.method.concat(" ").concat(this.target).concat(" ").concat(this.protocol);
+		}
+		
+	}
+	
+	/** The response to a {@link Request}.<br>
+	 * Every request must be answered with exactly one of the <tt>send</tt>
+	 * methods, or by writing the body returned by {@link #openBody(long)}.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Response {
+		
+		private final Request request;
+		private final OutputStream out;
+		private final byte[] protocol;
+		private final List<String> headers = new ArrayList<>();
+		private int status = 200;
+		private boolean close;
+		private OutputStream body;
+		private long bytesWritten = 0L;
+		
+		protected Response(Request request, OutputStream out) {
+			this.request = request;
+			this.out = out;
+			// Answer with the version the client used so that HTTP/1.0 (and HTCPCP) clients that check it don't balk:
+			this.protocol = request.protocol.equalsIgnoreCase("HTTP/1.1") ? HTTP_1_1 : request.protocol.equalsIgnoreCase("HTTP/1.0") ? HTTP_1_0 : request.protocol.getBytes(StandardCharsets.ISO_8859_1);
+			this.close = !request.keepAlive;
+		}
+		
+		/** @return Whether or not a response has been sent (or started) */
+		public final boolean isCommitted() {
+			return this.body != null;
+		}
+		
+		/** @return Whether or not the connection will be closed once this
+		 *         response has been sent */
+		public final boolean isClose() {
+			return this.close;
+		}
+		
+		/** @return The number of bytes written for this response so far,
+		 *         including its head */
+		public final long getBytesWritten() {
+			return this.bytesWritten;
+		}
+		
+		/** @param status The status code to send
+		 * @return This response */
+		public final Response setStatus(int status) {
+			this.status = status;
+			return this;
+		}
+		
+		/** @param name The name of the header to add
+		 * @param value The header's value
+		 * @return This response */
+		public final Response addHeader(String name, String value) {
+			this.headers.add(name.concat(": ").concat(value));
+			return this;
+		}
+		
+		/** Causes the connection to be closed once this response has been
+		 * sent.
+		 *
+		 * @return This response */
+		public final Response setClose() {
+			this.close = true;
+			return this;
+		}
+		
+		private final void checkNotCommitted() {
+			if(this.body != null) {
+				throw new IllegalStateException("A response has already been sent!");
+			}
+		}
+		
+		private final void write(byte[] b, int off, int len) throws IOException {
+			this.out.write(b, off, len);
+			this.bytesWritten += len;
+		}
+		
+		private final void writeConnectionHeader() throws IOException {
+			if(this.close) {
+				this.write(CONNECTION_CLOSE, 0, CONNECTION_CLOSE.length);
+			} else if(this.protocol == HTTP_1_0) {
+				this.write(CONNECTION_KEEP_ALIVE, 0, CONNECTION_KEEP_ALIVE.length);
+			}
+		}
+		
+		/** Sends the given pre-encoded response (and any headers added with
+		 * {@link #addHeader(String, String)}).
+		 *
+		 * @param response The response to send
+		 * @throws IOException Thrown if an error occurred while sending the
+		 *             response */
+		public final void send(PreEncodedResponse response) throws IOException {
+			this.checkNotCommitted();
+			this.body = this.out;
+			this.write(this.protocol, 0, this.protocol.length);
+			this.write(response.data, 0, response.headLength);
+			for(String header : this.headers) {
+				byte[] b = header.concat("\r\n").getBytes(StandardCharsets.ISO_8859_1);
+				this.write(b, 0, b.length);
+			}
+			this.writeConnectionHeader();
+			this.write(response.data, response.headLength, this.request.isHead() ? CRLF.length : response.data.length - response.headLength);
+		}
+		
+		/** @param status The status code to send
+		 * @param contentType The body's content type, or <tt><b>null</b></tt>
+		 *            for none
+		 * @param body The body to send
+		 * @throws IOException Thrown if an error occurred while sending the
+		 *             response */
+		public final void send(int status, String contentType, byte[] body) throws IOException {
+			this.setStatus(status);
+			if(contentType != null) {
+				this.addHeader("Content-Type", contentType);
+			}
+			try(OutputStream out = this.openBody(body.length)) {
+				out.write(body);
+			}
+		}
+		
+		/** @param status The status code to send
+		 * @param text The plain text body to send
+		 * @throws IOException Thrown if an error occurred while sending the
+		 *             response */
+		public final void sendText(int status, String text) throws IOException {
+			this.send(status, "text/plain; charset=UTF-8", text.getBytes(StandardCharsets.UTF_8));
+		}
+		
+		/** Sends this response's status line and headers, and returns the
+		 * stream that its body must be written to. The stream must be closed
+		 * once the body has been written.<br>
+		 * For <tt>HEAD</tt> requests (and statuses that have no body, such as
+		 * <tt>304 Not Modified</tt>), anything written to the stream is
+		 * discarded.
+		 *
+		 * @param contentLength The length of the body, or <tt>-1</tt> to send
+		 *            it with chunked transfer encoding (or, for HTTP/1.0
+		 *            clients, to close the connection after it)
+		 * @return The stream to write the body to
+		 * @throws IOException Thrown if an error occurred while sending the
+		 *             status line and headers */
+		public final OutputStream openBody(long contentLength) throws IOException {
+			this.checkNotCommitted();
+			boolean bodyless = (this.status >= 100 && this.status < 200) || this.status == 204 || this.status == 304;
+			boolean chunked = !bodyless && contentLength < 0 && this.protocol != HTTP_1_0;
+			if(!bodyless && contentLength < 0 && !chunked) {
+				this.close = true;
+			}
+			StringBuilder sb = new StringBuilder(128).append(' ').append(this.status).append(' ').append(getReasonPhrase(this.status)).append("\r\n");
+			for(String header : this.headers) {
+				sb.append(header).append("\r\n");
+			}
+			if(bodyless) {
+				// No framing headers; the client knows that there is no body
+			} else if(chunked) {
+				sb.append("Transfer-Encoding: chunked\r\n");
+			} else if(contentLength >= 0) {
+				sb.append("Content-Length: ").append(contentLength).append("\r\n");
+			}
+			byte[] head = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+			this.write(this.protocol, 0, this.protocol.length);
+			this.write(head, 0, head.length);
+			this.writeConnectionHeader();
+			this.write(CRLF, 0, CRLF.length);
+			this.body = new BodyOutputStream(this, contentLength, chunked, bodyless || this.request.isHead());
+			return this.body;
+		}
+		
+		/** Sends part of a file as the next part of this response's body
+		 * (which must have been opened with {@link #openBody(long)} first).<br>
+		 * On plain (non-TLS) connections this uses
+		 * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)
+		 * FileChannel.transferTo}, so the operating system can copy the file
+		 * straight from its page cache to the socket (e.g. with
+		 * <tt>sendfile</tt> on Linux).
+		 *
+		 * @param file The file to send from
+		 * @param position The position in the file to start at
+		 * @param count The number of bytes to send
+		 * @throws IOException Thrown if an error occurred while reading the
+		 *             file or sending it */
+		public final void transferFrom(FileChannel file, long position, long count) throws IOException {
+			if(!(this.body instanceof BodyOutputStream)) {
+				throw new IllegalStateException("The response's body has not been opened!");
+			}
+			((BodyOutputStream) this.body).transferFrom(file, position, count);
+		}
+		
+		/** Completes this response if the endpoint that handled it didn't.
+		 *
+		 * @return Whether or not the connection may be reused */
+		protected final boolean finish() throws IOException {
+			if(this.body instanceof BodyOutputStream) {
+				BodyOutputStream body = (BodyOutputStream) this.body;
+				body.close();
+				if(body.remaining > 0) {// The endpoint sent less than it said it would; the client can't tell where the next response starts
+					this.close = true;
+				}
+			}
+			return !this.close;
+		}
+		
+	}
+	
+	/** Writes a response body with the framing its head announced.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	private static final class BodyOutputStream extends OutputStream {
+		
+		private final Response response;
+		private final boolean chunked, discard;
+		protected long remaining;
+		private boolean closed = false;
+		
+		protected BodyOutputStream(Response response, long contentLength, boolean chunked, boolean discard) {
+			this.response = response;
+			this.chunked = chunked && !discard;
+			this.discard = discard;
+			this.remaining = discard ? 0L : chunked || contentLength < 0 ? Long.MAX_VALUE : contentLength;
+		}
+		
+		@Override
+		public final void write(int b) throws IOException {
+			this.write(new byte[] {(byte) b}, 0, 1);
+		}
+		
+		@Override
+		public final void write(byte[] b, int off, int len) throws IOException {
+			if(this.closed) {
+				throw new IOException("The response body has already been closed!");
+			}
+			if(len <= 0 || this.discard) {
+				return;
+			}
+			if(len > this.remaining) {
+				throw new IOException("Attempted to write more than the response's Content-Length!");
+			}
+			if(this.chunked) {
+				byte[] size = Integer.toHexString(len).concat("\r\n").getBytes(StandardCharsets.ISO_8859_1);
+				this.response.write(size, 0, size.length);
+				this.response.write(b, off, len);
+				this.response.write(CRLF, 0, CRLF.length);
+			} else {
+				this.response.write(b, off, len);
+				this.remaining -= len;
+			}
+		}
+		
+		protected final void transferFrom(FileChannel file, long position, long count) throws IOException {
+			if(this.closed) {
+				throw new IOException("The response body has already been closed!");
+			}
+			if(count <= 0L || this.discard) {
+				return;
+			}
+			if(count > this.remaining) {
+				throw new IOException("Attempted to write more than the response's Content-Length!");
+			}
+			SocketChannel channel = this.chunked ? null : this.response.request.socket.getChannel();
+			if(channel == null) {// TLS (or chunked framing); copy the file through the stream instead
+				ByteBuffer buf = ByteBuffer.allocate((int) Math.min(count, 65536L));
+				while(count > 0L) {
+					buf.clear().limit((int) Math.min(buf.capacity(), count));
+					int read = file.read(buf, position);
+					if(read < 0) {
+						throw new EOFException("The file was truncated while it was being sent");
+					}
+					this.write(buf.array(), 0, read);
+					position += read;
+					count -= read;
+				}
+				return;
+			}
+			this.response.out.flush();
+			for(long left = count; left > 0L;) {
+				long sent = file.transferTo(position, left, channel);
+				if(sent <= 0L && position >= file.size()) {
+					throw new EOFException("The file was truncated while it was being sent");
+				}
+				position += sent;
+				left -= sent;
+			}
+			this.response.bytesWritten += count;
+			this.remaining -= count;
+		}
+		
+		@Override
+		public final void flush() throws IOException {
+			this.response.out.flush();
+		}
+		
+		@Override
+		public final void close() throws IOException {
+			if(this.closed) {
+				return;
+			}
+			this.closed = true;
+			if(this.chunked) {
+				byte[] end = "0\r\n\r\n".getBytes(StandardCharsets.ISO_8859_1);
+				this.response.write(end, 0, end.length);
+				this.remaining = 0L;
+			} else if(this.remaining == Long.MAX_VALUE) {
+				this.remaining = 0L;
+			}
+		}
+		
+	}
+	
+	/** Reads a message body (such as a request body that is being streamed to
+	 * an endpoint), removing its framing.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	static final class BodyInputStream extends InputStream {
+		
+		private final InputStream in;
+		private final byte[] buf;
+		/** The body's length, or <tt>-1</tt> if it is chunked */
+		protected final long contentLength;
+		/** The number of bytes left in the body (or in the current chunk) */
+		private long remaining;
+		private boolean finished;
+		
+		/** @param in The stream to read the body from
+		 * @param contentLength The body's length, or <tt>-1</tt> if it is
+		 *            chunked
+		 * @param buf The buffer to read chunk headers into, which may be
+		 *            <tt><b>null</b></tt> if the stream is an
+		 *            {@link HTTPInputStream} (or the body isn't chunked) */
+		protected BodyInputStream(InputStream in, long contentLength, byte[] buf) {
+			this.in = in;
+			this.buf = buf != null || in instanceof HTTPInputStream || contentLength >= 0L ? buf : new byte[MAX_LINE_LENGTH];
+			this.contentLength = contentLength;
+			this.remaining = Math.max(0L, contentLength);
+			this.finished = contentLength == 0L;
+		}
+		
+		private final boolean nextChunk() throws IOException {
+			if(this.remaining == 0L && this.contentLength < 0L && !this.finished) {
+				String line = readLine(this.in, this.buf, 400);
+				if(line == null) {
+					throw new EOFException("Connection closed in the middle of a chunked request body");
+				}
+				int end = line.indexOf(';');
+				try {
+					this.remaining = Long.parseLong((end < 0 ? line : line.substring(0, end)).strip(), 16);
+				} catch(NumberFormatException ex) {
+					throw new BadRequestException(400, "Invalid chunk size: ".concat(line));
+				}
+				if(this.remaining < 0L) {
+					throw new BadRequestException(400, "Invalid chunk size: ".concat(line));
+				}
+				if(this.remaining == 0L) {
+					while((line = readLine(this.in, this.buf, 431)) != null && !line.isEmpty()) {// Trailers
+					}
+					this.finished = true;
+				}
+			}
+			return !this.finished;
+		}
+		
+		@Override
+		public final int read() throws IOException {
+			byte[] b = new byte[1];
+			return this.read(b, 0, 1) == -1 ? -1 : b[0] & 0xFF;
+		}
+		
+		@Override
+		public final int read(byte[] b, int off, int len) throws IOException {
+			if(len == 0) {
+				return 0;
+			}
+			if(!this.nextChunk()) {
+				return -1;
+			}
+			int read = this.in.read(b, off, (int) Math.min(len, this.remaining));
+			if(read == -1) {
+				throw new EOFException("Connection closed in the middle of a request body");
+			}
+			this.remaining -= read;
+			if(this.remaining == 0L) {
+				if(this.contentLength >= 0L) {
+					this.finished = true;
+				} else if(readLine(this.in, this.buf, 400) == null) {// The chunk's trailing CRLF
+					throw new EOFException("Connection closed in the middle of a chunked request body");
+				}
+			}
+			return read;
+		}
+		
+		@Override
+		public final int available() throws IOException {
+			return this.finished ? 0 : (int) Math.min(this.in.available(), this.remaining);
+		}
+		
+		/** Reads and discards the rest of the body.
+		 *
+		 * @param limit The most bytes to discard
+		 * @return Whether or not the end of the body was reached */
+		protected final boolean drain(long limit) throws IOException {
+			byte[] b = new byte[8192];
+			int read;
+			while(limit >= 0L && (read = this.read(b, 0, b.length)) != -1) {
+				limit -= read;
+			}
+			return this.finished;
+		}
+		
+	}
+	
+	/** A buffered input stream that HTTP/1.x message heads can be read from
+	 * a line at a time. Lines are found by scanning the buffer rather than
+	 * reading byte by byte, and whatever follows a line (such as the next
+	 * pipelined request) stays buffered for the next read.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	static final class HTTPInputStream extends InputStream {
+		
+		private final InputStream in;
+		private final byte[] buf;
+		private int pos = 0, limit = 0;
+		
+		/** @param in The stream to read from
+		 * @param size The size of the buffer (which is always large enough
+		 *            to hold a line of {@link TargetServer#MAX_LINE_LENGTH}
+		 *            bytes and its line ending) */
+		protected HTTPInputStream(InputStream in, int size) {
+			this.in = in;
+			this.buf = new byte[Math.max(size, MAX_LINE_LENGTH + 2)];
+		}
+		
+		/** @return The number of bytes that have been received but not read
+		 *         yet (which can be read without blocking) */
+		protected final int buffered() {
+			return this.limit - this.pos;
+		}
+		
+		/** Reads more data into the buffer, first moving any unread data to
+		 * the start of the buffer if the buffer is full.
+		 *
+		 * @return The number of bytes read, or <tt>-1</tt> at the end of the
+		 *         stream */
+		private final int fill() throws IOException {
+			if(this.pos == this.limit) {
+				this.pos = this.limit = 0;
+			} else if(this.limit == this.buf.length) {
+				System.arraycopy(this.buf, this.pos, this.buf, 0, this.limit - this.pos);
+				this.limit -= this.pos;
+				this.pos = 0;
+			}
+			int read = this.in.read(this.buf, this.limit, this.buf.length - this.limit);
+			if(read > 0) {
+				this.limit += read;
+			}
+			return read;
+		}
+		
+		/** Waits until there is data to read.
+		 *
+		 * @return Whether or not there is data to read (<tt>false</tt> means
+		 *         that the end of the stream has been reached) */
+		protected final boolean await() throws IOException {
+			return this.pos < this.limit || this.fill() > 0;
+		}
+		
+		/** @param status The status code to answer the request with if the
+		 *            line is longer than {@link TargetServer#MAX_LINE_LENGTH}
+		 * @return The next line (without its line ending), or
+		 *         <tt><b>null</b></tt> if the end of the stream was reached
+		 *         before it began */
+		protected final String readLine(int status) throws IOException {
+			int scanned = 0;// Relative to pos, as the buffer may be compacted
+			for(;;) {
+				for(int i = this.pos + scanned; i < this.limit; i++) {
+					if(this.buf[i] == '\n') {
+						if(i - this.pos > MAX_LINE_LENGTH) {
+							throw new BadRequestException(status, "Line too long");
+						}
+						int end = i > this.pos && this.buf[i - 1] == '\r' ? i - 1 : i;
+						String line = new String(this.buf, this.pos, end - this.pos, StandardCharsets.ISO_8859_1);
+						this.pos = i + 1;
+						return line;
+					}
+				}
+				scanned = this.limit - this.pos;
+				if(scanned > MAX_LINE_LENGTH) {
+					throw new BadRequestException(status, "Line too long");
+				}
+				if(this.fill() < 0) {
+					if(this.pos == this.limit) {
+						return null;
+					}
+					throw new EOFException("Connection closed in the middle of a line");
+				}
+			}
+		}
+		
+		@Override
+		public final int read() throws IOException {
+			if(this.pos == this.limit && this.fill() < 0) {
+				return -1;
+			}
+			return this.buf[this.pos++] & 0xFF;
+		}
+		
+		@Override
+		public final int read(byte[] b, int off, int len) throws IOException {
+			if(len == 0) {
+				return 0;
+			}
+			if(this.pos == this.limit) {
+				if(len >= this.buf.length) {// Nothing is buffered, so large reads needn't be copied through the buffer
+					return this.in.read(b, off, len);
+				}
+				if(this.fill() < 0) {
+					return -1;
+				}
+			}
+			int read = Math.min(len, this.limit - this.pos);
+			System.arraycopy(this.buf, this.pos, b, off, read);
+			this.pos += read;
+			return read;
+		}
+		
+		@Override
+		public final int available() throws IOException {
+			return this.pos < this.limit ? this.limit - this.pos : this.in.available();
+		}
+		
+		@Override
+		public final void close() throws IOException {
+			this.in.close();
+		}
+		
+	}
+	
+	/** Thrown when a request can't be read, along with the status code to
+	 * answer it with.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	private static final class BadRequestException extends IOException {
+		
+		private static final long serialVersionUID = 1L;
+		
+		protected final int status;
+		
+		protected BadRequestException(int status, String message) {
+			super(message);
+			this.status = status;
+		}
+		
+	}
+	
+	/** Creates server sockets that belong to a {@link ServerSocketChannel},
+	 * so that the sockets they accept have a {@link SocketChannel} that files
+	 * can be transferred to directly.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	private static final class ChannelServerSocketFactory extends ServerSocketFactory {
+		
+		protected static final ChannelServerSocketFactory INSTANCE = new ChannelServerSocketFactory();
+		
+		@Override
+		public final ServerSocket createServerSocket() throws IOException {
+			return ServerSocketChannel.open().socket();
+		}
+		
+		@Override
+		public final ServerSocket createServerSocket(int port) throws IOException {
+			return this.createServerSocket(port, 0, null);
+		}
+		
+		@Override
+		public final ServerSocket createServerSocket(int port, int backlog) throws IOException {
+			return this.createServerSocket(port, backlog, null);
+		}
+		
+		@Override
+		public final ServerSocket createServerSocket(int port, int backlog, InetAddress ifAddress) throws IOException {
+			ServerSocket server = this.createServerSocket();
+			try {
+				server.setReuseAddress(true);
+				server.bind(new InetSocketAddress(ifAddress, port), backlog);
+			} catch(IOException ex) {
+				server.close();
+				throw ex;
+			}
+			return server;
+		}
+		
+	}
+	
+	/** @param status An HTTP status code
+	 * @return The status code's reason phrase, or <tt>Unknown</tt> */
+	public static final String getReasonPhrase(int status) {
+		switch(status) {
+		case 100:
+			return "Continue";
+		case 200:
+			return "OK";
+		case 201:
+			return "Created";
+		case 204:
+			return "No Content";
+		case 206:
+			return "Partial Content";
+		case 301:
+			return "Moved Permanently";
+		case 302:
+			return "Found";
+		case 303:
+			return "See Other";
+		case 304:
+			return "Not Modified";
+		case 307:
+			return "Temporary Redirect";
+		case 308:
+			return "Permanent Redirect";
+		case 400:
+			return "Bad Request";
+		case 401:
+			return "Unauthorized";
+		case 403:
+			return "Forbidden";
+		case 404:
+			return "Not Found";
+		case 405:
+			return "Method Not Allowed";
+		case 408:
+			return "Request Timeout";
+		case 411:
+			return "Length Required";
+		case 412:
+			return "Precondition Failed";
+		case 413:
+			return "Content Too Large";
+		case 414:
+			return "URI Too Long";
+		case 416:
+			return "Range Not Satisfiable";
+		case 418:
+			return "I'm a teapot";
+		case 431:
+			return "Request Header Fields Too Large";
+		case 500:
+			return "Internal Server Error";
+		case 501:
+			return "Not Implemented";
+		case 502:
+			return "Bad Gateway";
+		case 503:
+			return "Service Unavailable";
+		case 504:
+			return "Gateway Timeout";
+		case 505:
+			return "HTTP Version Not Supported";
+		default:
+			return "Unknown";
+		}
+	}
+	
+	private static final PreEncodedResponse TEAPOT = new PreEncodedResponse(418, "text/plain; charset=UTF-8", "418 I'm a teapot\r\n".getBytes(StandardCharsets.UTF_8));
+	private static final PreEncodedResponse NOT_FOUND = new PreEncodedResponse(404, "text/plain; charset=UTF-8", "404 Not Found\r\n".getBytes(StandardCharsets.UTF_8));
+	
+	private final Link link;
+	private final ServerSocket server;
+	private final Map<String, Endpoint> endpoints = new ConcurrentHashMap<>();
+	private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+	private final AtomicInteger activeConnections = new AtomicInteger();
+	private final AtomicLong acceptedConnections = new AtomicLong(), requests = new AtomicLong(), bytesWritten = new AtomicLong(), errors = new AtomicLong();
+	private final AtomicLong reusedRequests = new AtomicLong(), pipelinedRequests = new AtomicLong(), idleTimeouts = new AtomicLong(), idleCloses = new AtomicLong();
+	/** The time that kept-alive connections spent waiting for their next
+	 * request */
+	public final LatencyHistogram keepAliveIdle = new LatencyHistogram("Keep-alive idle");
+	private volatile ExecutorService executor;
+	private volatile int idleTimeout = 30000;
+	private volatile int maxBodySize = 16 * 1024 * 1024;
+	private volatile Thread thread;
+	private volatile boolean closed = false;
+	
+	/** Binds a new target server to the given link's host and port (an
+	 * <tt>https://</tt> link binds with the default
+	 * {@link javax.net.ssl.SSLServerSocketFactory SSLServerSocketFactory}, so
+	 * the <tt>javax.net.ssl.keyStore</tt> system properties must be set).
+	 * Plain links are bound through a {@link ServerSocketChannel} so that
+	 * files can be sent with {@link Response#transferFrom(FileChannel, long, long)
+	 * zero-copy transfers}.
+	 *
+	 * @param link The address to listen on. A port of zero picks an
+	 *            ephemeral port (see {@link #getLink()}).
+	 * @param backlog The listen backlog, or zero for the platform's default
+	 * @throws IOException Thrown if the server socket could not be bound */
+	public TargetServer(Link link, int backlog) throws IOException {
+		InetAddress ifAddress = InetAddress.getByName(link.host);
+		this.server = link.isSSL() ? link.bindSocket(backlog, ifAddress) : link.bindSocket(ChannelServerSocketFactory.INSTANCE, backlog, ifAddress);
+		String host = link.host.indexOf(':') >= 0 ? "[".concat(link.host).concat("]") : link.host;
+		this.link = new Link(link.protocol.concat(host).concat(":").concat(Integer.toString(this.server.getLocalPort())).concat("/"));
+	}
+	
+	/** @return A link to the root of this server (with the port it was
+	 *         actually bound to) */
+	public final Link getLink() {
+		return this.link;
+	}
+	
+	/** @param idleTimeout The amount of time, in milliseconds, that a
+	 *            connection may wait for its next request before it is
+	 *            closed
+	 * @return This server */
+	public final TargetServer setIdleTimeout(int idleTimeout) {
+		this.idleTimeout = idleTimeout;
+		return this;
+	}
+	
+	/** @param maxBodySize The largest request body that will be accepted, in
+	 *            bytes
+	 * @return This server */
+	public final TargetServer setMaxBodySize(int maxBodySize) {
+		this.maxBodySize = maxBodySize;
+		return this;
+	}
+	
+	/** Registers an endpoint. Paths that end with a <tt>/</tt> are prefixes
+	 * that match every path beneath them (the longest registered prefix
+	 * wins); any other path must be matched exactly.
+	 *
+	 * @param path The path or path prefix to register the endpoint for
+	 * @param endpoint The endpoint
+	 * @return This server */
+	public final TargetServer addEndpoint(String path, Endpoint endpoint) {
+		this.endpoints.put(path, endpoint);
+		return this;
+	}
+	
+	/** @param path The path or path prefix that the endpoint was registered
+	 *            for
+	 * @return The endpoint that was removed, or <tt><b>null</b></tt> if
+	 *         there wasn't one */
+	public final Endpoint removeEndpoint(String path) {
+		return this.endpoints.remove(path);
+	}
+	
+	/** @return The registered paths and path prefixes */
+	public final Set<String> getEndpointPaths() {
+		return Collections.unmodifiableSet(this.endpoints.keySet());
+	}
+	
+	/** @param path A request path
+	 * @return The registered path or path prefix that matches the given
+	 *         path, or <tt><b>null</b></tt> if there isn't one */
+	private final String findPrefix(String path) {
+		if(this.endpoints.containsKey(path)) {
+			return path;
+		}
+		int slash = path.endsWith("/") ? path.length() - 1 : path.length();
+		while(slash > 0 && (slash = path.lastIndexOf('/', slash - 1)) >= 0) {
+			String prefix = path.substring(0, slash + 1);
+			if(this.endpoints.containsKey(prefix)) {
+				return prefix;
+			}
+		}
+		return null;
+	}
+	
+	/** Dispatches the given request to the endpoint registered for its
+	 * current {@link Request#getPath() path}, or sends a <tt>404</tt>.
+	 *
+	 * @param request The request
+	 * @param response The response to answer the request with
+	 * @throws IOException Thrown if an error occurred while sending the
+	 *             response */
+	public final void dispatch(Request request, Response response) throws IOException {
+		if(request.isBrew()) {
+			response.send(TEAPOT);
+			return;
+		}
+		String prefix = this.findPrefix(request.getPath());
+		Endpoint endpoint = prefix == null ? null : this.endpoints.get(prefix);
+		if(endpoint != null) {
+			request.prefix = prefix;
+			endpoint.handle(request, response);
+		}
+		if(!response.isCommitted()) {
+			response.send(NOT_FOUND);
+		}
+	}
+	
+	/** Starts accepting connections, serving each one on a thread from a
+	 * cached pool of daemon threads.
+	 *
+	 * @return This server
+	 * @throws IllegalStateException Thrown if this server has already been
+	 *             started or closed */
+	public final TargetServer start() throws IllegalStateException {
+		AtomicInteger count = new AtomicInteger();
+		return this.start(Executors.newCachedThreadPool((r) -> {
+			Thread thread = new Thread(r, "TargetServer connection #".concat(Integer.toString(count.incrementAndGet())));
+			thread.setDaemon(true);
+			return thread;
+		}));
+	}
+	
+	private final void checkNotStarted() throws IllegalStateException {
+		if(this.closed) {
+			throw new IllegalStateException("This server has been closed!");
+		}
+		if(this.thread != null) {
+			throw new IllegalStateException("This server has already been started!");
+		}
+	}
+	
+	/** Starts accepting connections, serving each one on its own virtual
+	 * thread. A virtual thread that blocks while reading from its connection
+	 * gives up its carrier thread until data arrives, so idle keep-alive
+	 * connections cost a small stack on the heap rather than a platform
+	 * thread each, and very large numbers of them can be held open.
+	 *
+	 * @return This server
+	 * @throws IllegalStateException Thrown if this server has already been
+	 *             started or closed
+	 * @throws UnsupportedOperationException Thrown if the running JVM does not
+	 *             support virtual threads (see
+	 *             {@link ThreadUtil#isVirtualThreadSupported()}) */
+	public final TargetServer startVirtual() throws IllegalStateException, UnsupportedOperationException {
+		this.checkNotStarted();
+		return this.start(ThreadUtil.newVirtualThreadPerTaskExecutor("TargetServer connection #"));
+	}
+	
+	/** Starts accepting connections, serving each one on a virtual thread if
+	 * the <tt>server.virtualThreads</tt> system property is <tt>true</tt> (and
+	 * the running JVM supports them), or on a pooled platform thread
+	 * otherwise.
+	 *
+	 * @return This server
+	 * @throws IllegalStateException Thrown if this server has already been
+	 *             started or closed */
+	public final TargetServer startDefault() throws IllegalStateException {
+		if(Boolean.getBoolean("server.virtualThreads")) {
+			if(ThreadUtil.isVirtualThreadSupported()) {
+				return this.startVirtual();
+			}
+			System.err.println("Virtual threads are not supported by this JVM; using platform threads instead.");
+		}
+		return this.start();
+	}
+	
+	/** Starts accepting connections.
+	 *
+	 * @param executor The executor to serve each connection with (one task
+	 *            per connection). It is shut down when this server is closed.
+	 * @return This server
+	 * @throws IllegalStateException Thrown if this server has already been
+	 *             started or closed */
+	public final TargetServer start(ExecutorService executor) throws IllegalStateException {
+		this.checkNotStarted();
+		this.executor = executor;
+		Thread thread = new Thread(this::acceptLoop, "TargetServer (".concat(this.link.toString()).concat(")"));
+		thread.setDaemon(true);
+		this.thread = thread;
+		thread.start();
+		return this;
+	}
+	
+	private final void acceptLoop() {
+		while(!this.closed) {
+			Socket socket;
+			try {
+				socket = this.server.accept();
+			} catch(IOException ex) {
+				if(this.closed || this.server.isClosed()) {
+					break;
+				}
+				this.errors.incrementAndGet();
+				continue;
+			}
+			this.acceptedConnections.incrementAndGet();
+			try {
+				this.executor.execute(() -> this.serve(socket));
+			} catch(RejectedExecutionException ex) {
+				try {
+					socket.close();
+				} catch(IOException ignored) {
+				}
+			}
+		}
+	}
+	
+	static final String readLine(InputStream in, byte[] buf, int status) throws IOException {
+		if(in instanceof HTTPInputStream) {
+			return ((HTTPInputStream) in).readLine(status);
+		}
+		int length = 0, b;
+		while((b = in.read()) != -1) {
+			if(b == '\n') {
+				return new String(buf, 0, length > 0 && buf[length - 1] == '\r' ? length - 1 : length, StandardCharsets.ISO_8859_1);
+			}
+			if(length == buf.length) {
+				throw new BadRequestException(status, "Line too long");
+			}
+			buf[length++] = (byte) b;
+		}
+		if(length == 0) {
+			return null;
+		}
+		throw new EOFException("Connection closed in the middle of a line");
+	}
+	
+	private static final long getContentLength(List<String> headers) throws BadRequestException {
+		String transferEncoding = HTTPFraming.getHeader(headers, "Transfer-Encoding");
+		String contentLength = HTTPFraming.getHeader(headers, "Content-Length");
+		if(HTTPFraming.hasToken(transferEncoding, "chunked")) {
+			return -1L;
+		}
+		if(transferEncoding != null) {
+			throw new BadRequestException(501, "Unsupported Transfer-Encoding: ".concat(transferEncoding));
+		}
+		long length = 0L;
+		if(contentLength != null) {
+			try {
+				length = Long.parseLong(contentLength);
+			} catch(NumberFormatException ex) {
+				length = -1L;
+			}
+			if(length < 0L) {
+				throw new BadRequestException(400, "Invalid Content-Length: ".concat(contentLength));
+			}
+		}
+		return length;
+	}
+	
+	private final byte[] readBody(HTTPInputStream in, long length) throws IOException {
+		if(length == 0L) {
+			return new byte[0];
+		}
+		if(length > 0L) {
+			byte[] body = in.readNBytes((int) length);
+			if(body.length < length) {
+				throw new EOFException("Connection closed in the middle of a request body");
+			}
+			return body;
+		}
+		BodyInputStream body = new BodyInputStream(in, -1L, null);
+		ByteArrayOutputStream baos = new ByteArrayOutputStream();
+		byte[] b = new byte[8192];
+		int read;
+		while((read = body.read(b, 0, b.length)) != -1) {
+			if(baos.size() + read > this.maxBodySize) {
+				throw new BadRequestException(413, "Request body too large");
+			}
+			baos.write(b, 0, read);
+		}
+		return baos.toByteArray();
+	}
+	
+	private final Request readRequest(Socket socket, HTTPInputStream in, OutputStream out) throws IOException {
+		String line;
+		while((line = in.readLine(414)) != null && line.isEmpty()) {// Ignore stray CRLFs between requests (RFC 9112, section 2.2)
+		}
+		if(line == null) {
+			return null;
+		}
+		int first = line.indexOf(' '), last = line.lastIndexOf(' ');
+		if(first <= 0 || last <= first + 1 || last == line.length() - 1) {
+			throw new BadRequestException(400, "Malformed request line: ".concat(line));
+		}
+		String method = line.substring(0, first), target = line.substring(first + 1, last), protocol = line.substring(last + 1);
+		if(!protocol.regionMatches(true, 0, "HTTP/1.", 0, 7) && !protocol.regionMatches(true, 0, "HTCPCP/1.", 0, 9)) {
+			throw new BadRequestException(505, "Unsupported protocol: ".concat(protocol));
+		}
+		List<String> headers = new ArrayList<>();
+		while((line = in.readLine(431)) != null && !line.isEmpty()) {
+			if(headers.size() == MAX_HEADER_COUNT) {
+				throw new BadRequestException(431, "Too many headers");
+			}
+			headers.add(line);
+		}
+		if(line == null) {
+			throw new EOFException("Connection closed in the middle of a request's headers");
+		}
+		long length = getContentLength(headers);
+		String prefix = this.findPrefix(Request.getPath(target));
+		Endpoint endpoint = prefix == null ? null : this.endpoints.get(prefix);
+		boolean streaming = endpoint != null && endpoint.isStreaming();
+		if(!streaming && length > this.maxBodySize) {
+			throw new BadRequestException(413, "Request body too large");
+		}
+		if(length != 0L && protocol.equalsIgnoreCase("HTTP/1.1") && HTTPFraming.hasToken(HTTPFraming.getHeader(headers, "Expect"), "100-continue")) {
+			out.write(HTTP_1_1);
+			out.write(CONTINUE);
+			out.flush();
+		}
+		if(streaming) {
+			if(length != 0L && in.buffered() == 0) {// The endpoint may block reading the body, so send any pipelined responses first
+				out.flush();
+			}
+			return new Request(this, socket, method, target, protocol, headers, null, new BodyInputStream(in, length, null));
+		}
+		return new Request(this, socket, method, target, protocol, headers, this.readBody(in, length), null);
+	}
+	
+	private final void serve(Socket socket) {
+		this.connections.add(socket);
+		this.activeConnections.incrementAndGet();
+		try(socket) {
+			socket.setTcpNoDelay(true);
+			socket.setSoTimeout(this.idleTimeout);
+			HTTPInputStream in = new HTTPInputStream(socket.getInputStream(), 8192);
+			OutputStream out = new BufferedOutputStream(socket.getOutputStream(), 16384);
+			for(int count = 0; !this.closed; count++) {
+				if(in.buffered() == 0) {// Wait for the next request (or for the client to close the connection)
+					long idleStart = System.nanoTime();
+					try {
+						if(!in.await()) {
+							if(count > 0) {
+								this.idleCloses.incrementAndGet();
+							}
+							break;
+						}
+					} catch(SocketTimeoutException ex) {
+						this.idleTimeouts.incrementAndGet();
+						break;
+					}
+					if(count > 0) {
+						this.keepAliveIdle.record(System.nanoTime() - idleStart);
+					}
+				} else if(count > 0) {
+					this.pipelinedRequests.incrementAndGet();
+				}
+				if(count > 0) {
+					this.reusedRequests.incrementAndGet();
+				}
+				Request request;
+				try {
+					request = this.readRequest(socket, in, out);
+				} catch(BadRequestException ex) {
+					this.errors.incrementAndGet();
+					byte[] body = Integer.toString(ex.status).concat(" ").concat(getReasonPhrase(ex.status)).concat("\r\n").concat(ex.getMessage()).concat("\r\n").getBytes(StandardCharsets.UTF_8);
+					out.write(HTTP_1_1);
+					out.write(new PreEncodedResponse(ex.status, "text/plain; charset=UTF-8", body, "Connection: close").data);
+					out.flush();
+					break;
+				}
+				if(request == null) {
+					break;
+				}
+				this.requests.incrementAndGet();
+				Response response = new Response(request, out);
+				boolean keepAlive;
+				try {
+					this.dispatch(request, response);
+					keepAlive = response.finish();
+					if(keepAlive && request.bodyStream != null && !request.bodyStream.drain(this.maxBodySize)) {// Don't read an endless body just to reuse the connection
+						keepAlive = false;
+					}
+				} finally {
+					this.bytesWritten.addAndGet(response.getBytesWritten());
+				}
+				if(!keepAlive) {
+					out.flush();
+					break;
+				}
+				if(in.buffered() == 0) {// Pipelined responses are sent together once every buffered request has been answered
+					out.flush();
+				}
+			}
+		} catch(SocketTimeoutException | EOFException ex) {
+			// Idle (or abandoned) connection
+		} catch(SocketException ex) {
+			// Closed by the client or by close()
+		} catch(IOException | RuntimeException ex) {
+			this.errors.incrementAndGet();
+			if(!this.closed) {
+				System.err.println("TargetServer: error while serving ".concat(String.valueOf(socket.getRemoteSocketAddress())).concat(": ").concat(ex.toString()));
+			}
+		} finally {
+			this.activeConnections.decrementAndGet();
+			this.connections.remove(socket);
+		}
+	}
+	
+	/** Waits until this server has stopped accepting connections (i.e. it
+	 * has been closed, or was never started).
+	 *
+	 * @throws InterruptedException Thrown if the current thread was
+	 *             interrupted while waiting */
+	public final void join() throws InterruptedException {
+		Thread thread = this.thread;
+		if(thread != null) {
+			thread.join();
+		}
+	}
+	
+	/** @return The number of connections accepted so far */
+	public final long getAcceptedConnections() {
+		return this.acceptedConnections.get();
+	}
+	
+	/** @return The number of connections currently open */
+	public final int getActiveConnections() {
+		return this.activeConnections.get();
+	}
+	
+	/** @return The number of requests answered so far */
+	public final long getRequests() {
+		return this.requests.get();
+	}
+	
+	/** @return The number of response bytes written so far */
+	public final long getBytesWritten() {
+		return this.bytesWritten.get();
+	}
+	
+	/** @return The number of malformed requests and failed connections */
+	public final long getErrors() {
+		return this.errors.get();
+	}
+	
+	/** @return The number of requests that were read from a connection that
+	 *         had already been used for an earlier request */
+	public final long getReusedRequests() {
+		return this.reusedRequests.get();
+	}
+	
+	/** @return The number of requests that had already been received
+	 *         (pipelined) by the time the previous request on their connection
+	 *         had been answered */
+	public final long getPipelinedRequests() {
+		return this.pipelinedRequests.get();
+	}
+	
+	/** @return The number of connections that were closed because no request
+	 *         arrived within the {@link #setIdleTimeout(int) idle timeout} */
+	public final long getIdleTimeouts() {
+		return this.idleTimeouts.get();
+	}
+	
+	/** @return The number of kept-alive connections that the client closed
+	 *         while they were waiting for the next request */
+	public final long getIdleCloses() {
+		return this.idleCloses.get();
+	}
+	
+	/** Stops accepting connections and closes every open connection. */
+	@Override
+	public final void close() {
+		this.closed = true;
+		try {
+			this.server.close();
+		} catch(IOException ignored) {
+		}
+		for(Socket socket : this.connections) {
+			try {
+				socket.close();
+			} catch(IOException ignored) {
+			}
+		}
+		ExecutorService executor = this.executor;
+		if(executor != null) {
+			executor.shutdown();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "TargetServer on ".concat(this.link.toString()).concat(": connections=").concat(Long.toString(this.getAcceptedConnections())).concat(" (").concat(Integer.toString(this.getActiveConnections())).concat(" open), requests=").concat(Long.toString(this.getRequests())).concat(", bytesWritten=").concat(Long.toString(this.getBytesWritten())).concat(", errors=").concat(Long.toString(this.getErrors()))//
+				.concat("\r\nKeep-alive: reused=").concat(Long.toString(this.getReusedRequests())).concat(" (").concat(String.format("%.1f", Double.valueOf((100.0 * this.getReusedRequests()) / Math.max(1L, this.getRequests())))).concat("% of requests), pipelined=").concat(Long.toString(this.getPipelinedRequests())).concat(", idleTimeouts=").concat(Long.toString(this.getIdleTimeouts())).concat(", idleCloses=").concat(Long.toString(this.getIdleCloses()))//
+				.concat("\r\n").concat(this.keepAliveIdle.toString());
+	}
+	
+	/** Runs a target server with the {@link TargetEndpoints#addDefaults(TargetServer)
+	 * default endpoints} (and optionally a directory's files) until the
+	 * process is killed.<br>
+	 * If a file is given instead of a directory, it is opened as an
+	 * {@link ExchangeArchive} and its recorded responses are replayed by a
+	 * {@link ReplayEndpoint} instead. The <tt>replay.headers</tt> system
+	 * property lists the (comma-separated) headers that requests must share
+	 * with a recorded exchange to match it, and <tt>replay.timing</tt> scales
+	 * the recorded timing (<tt>0</tt>, the default, replays responses as fast
+	 * as possible).<br>
+	 * Connections are served on virtual threads if the
+	 * <tt>server.virtualThreads</tt> system property is <tt>true</tt> (see
+	 * {@link #startDefault()}).
+	 *
+	 * @param args Program command line arguments
+	 * @throws IOException Thrown if the server socket could not be bound */
+	public static final void main(String[] args) throws IOException {
+		Link link = new Link(args.length >= 1 ? args[0] : "http://127.0.0.1:8080/");
+		try(TargetServer server = new TargetServer(link, 0)) {
+			if(args.length >= 2 && new File(args[1]).isFile()) {
+				String matchHeaders = System.getProperty("replay.headers", "");
+				final double timingScale;
+				try {
+					timingScale = Double.parseDouble(System.getProperty("replay.timing", "0"));
+				} catch(NumberFormatException ex) {
+					throw new IllegalArgumentException("Invalid replay.timing: ".concat(System.getProperty("replay.timing")), ex);
+				}
+				@SuppressWarnings("resource")
+				ExchangeArchive archive = new ExchangeArchive(new File(args[1]));// Closed when the process exits
+				ReplayEndpoint replay = new ReplayEndpoint(archive, true, matchHeaders.isBlank() ? new String[0] : matchHeaders.strip().split("\\s*,\\s*")).setTimingScale(timingScale);
+				server.addEndpoint("/", replay);
+				System.out.println("Replaying ".concat(archive.toString()).concat(" (").concat(Integer.toString(replay.getKeyCount())).concat(" distinct request(s))"));
+				Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(replay.toString())));
+			} else if(args.length >= 2) {
+				TargetEndpoints.addDefaults(server);
+				StaticFileEndpoint files = new StaticFileEndpoint(new File(args[1]));
+				server.addEndpoint("/", files);
+				System.out.println("Serving files from ".concat(files.getRoot().getAbsolutePath()));
+			} else {
+				TargetEndpoints.addDefaults(server);
+			}
+			server.startDefault();
+			System.out.println("Target server listening on ".concat(server.getLink().toString()));
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(server.toString())));
+			try {
+				server.join();
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+}
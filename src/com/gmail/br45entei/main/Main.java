@@ -23,11 +23,24 @@
  *******************************************************************************/
 package com.gmail.br45entei.main;
 
+import com.gmail.br45entei.http.server.ContentSniffer;
+import com.gmail.br45entei.http.server.ExchangeArchive;
 import com.gmail.br45entei.http.server.MimeTypes;
+import com.gmail.br45entei.server.ConnectionPool.PooledConnection;
+import com.gmail.br45entei.server.DNSCache;
+import com.gmail.br45entei.server.HappyEyeballs;
+import com.gmail.br45entei.server.HTTPFraming;
 import com.gmail.br45entei.server.Link;
+import com.gmail.br45entei.server.RequestDeadlines;
+import com.gmail.br45entei.server.RequestDeadlines.Phase;
+import com.gmail.br45entei.server.SocketProfile;
+import com.gmail.br45entei.server.TunnelPool;
+import com.gmail.br45entei.ssl.TLSMetrics;
 import com.gmail.br45entei.ssl.TrustAnySSLCertificateSSLSocketFactory;
+import com.gmail.br45entei.util.LatencyHistogram;
 import com.gmail.br45entei.util.SWTUtil;
 import com.gmail.br45entei.util.ThreadUtil;
+import com.gmail.br45entei.util.TimerWheel;
 
 import java.awt.Desktop;
 import java.io.ByteArrayInputStream;
@@ -52,7 +65,6 @@ import java.util.List;
 import java.util.regex.Pattern;
 import java.util.zip.GZIPInputStream;
 
-import javax.net.SocketFactory;
 import javax.net.ssl.SNIHostName;
 import javax.net.ssl.SNIServerName;
 import javax.net.ssl.SSLParameters;
@@ -144,6 +156,20 @@ public final class Main {
 		sslSocketFactory = factory;
 	}
 	
+	/** Established proxy tunnels that may be reused by later requests */
+	protected static final TunnelPool tunnelPool = new TunnelPool();
+	/** The TLS metrics of every connection made so far */
+	protected static final TLSMetrics.Aggregate tlsStatistics = new TLSMetrics.Aggregate();
+	/** The socket options applied to every new connection */
+	public static volatile SocketProfile socketProfile = SocketProfile.DEFAULT;
+	/** Per-phase request deadlines, in milliseconds (zero or less disables a
+	 * deadline) */
+	public static volatile long connectTimeout = 10000L, tlsHandshakeTimeout = 10000L, firstByteTimeout = 30000L, headersTimeout = 30000L, requestTimeout = 600000L;
+	/** The archive that every exchange is recorded to (set with the
+	 * <tt>record.archive</tt> system property), or <tt><b>null</b></tt> if
+	 * exchanges aren't being recorded */
+	public static volatile ExchangeArchive.Writer exchangeRecorder = null;
+	
 	protected final Thread swtThread;
 	protected final Display display;
 	protected final Shell shell;
@@ -172,8 +198,46 @@ public final class Main {
 	/** @param args System command arguments
 	 * @wbp.parser.entryPoint */
 	public static final void main(String[] args) {
+		String mimeTypesFile = System.getProperty("mime.types");
+		if(mimeTypesFile != null) {
+			try {
+				MimeTypes.watch(new File(mimeTypesFile));
+			} catch(IOException ex) {
+				System.err.println("Failed to load \"".concat(mimeTypesFile).concat("\": ").concat(ex.toString()));
+			}
+		}
+		String recordArchiveFile = System.getProperty("record.archive");
+		if(recordArchiveFile != null) {
+			try {
+				exchangeRecorder = new ExchangeArchive.Writer(new File(recordArchiveFile));
+			} catch(IOException ex) {
+				System.err.println("Failed to create \"".concat(recordArchiveFile).concat("\": ").concat(ex.toString()));
+			}
+		}
+		MimeTypes.writeReferenceFiles(new File(System.getProperty("user.dir")));
 		instance = new Main();
 		instance.open();
+		tunnelPool.close();
+		if(exchangeRecorder != null) {
+			try {
+				exchangeRecorder.close();
+				System.out.println("Recorded ".concat(Integer.toString(exchangeRecorder.size())).concat(" exchange(s) to ").concat(exchangeRecorder.getFile().getPath()));
+			} catch(IOException ex) {
+				System.err.println("Failed to finish \"".concat(recordArchiveFile).concat("\": ").concat(ex.toString()));
+			}
+		}
+		if(tlsStatistics.getConnections() > 0) {
+			System.out.println(tlsStatistics.toString());
+		}
+		if(DNSCache.getDefault().getMisses() > 0) {
+			System.out.println(DNSCache.getDefault().toString());
+		}
+		if(!RequestDeadlines.getTimeoutSummary().isEmpty()) {
+			System.out.println(RequestDeadlines.getTimeoutSummary());
+		}
+		if(HappyEyeballs.getDefault().ipv4.getAttempts() + HappyEyeballs.getDefault().ipv6.getAttempts() > 0) {
+			System.out.println(HappyEyeballs.getDefault().toString());
+		}
 	}
 	
 	/** Updates window elements */
@@ -359,15 +423,25 @@ public final class Main {
 		System.out.println(str);
 	}
 	
-	@SuppressWarnings("resource")
 	public static final String sendRequest(String ip, int port, boolean https, String method, String protocol, String requestURI, String headers, boolean saveDownloadedFile, boolean acceptEncodingGZip) {
+		return sendRequest(ip, port, https, method, protocol, requestURI, headers, saveDownloadedFile, acceptEncodingGZip, true);
+	}
+	
+	/** @param reuseTunnel Whether or not an idle proxy tunnel may be reused
+	 *            for a <tt>CONNECT</tt> request (if not, a new one is always
+	 *            established) */
+	@SuppressWarnings("resource")
+	private static final String sendRequest(String ip, int port, boolean https, String method, String protocol, String requestURI, String headers, boolean saveDownloadedFile, boolean acceptEncodingGZip, boolean reuseTunnel) {
 		requestURI = requestURI.trim().isEmpty() ? "/" : requestURI;//requestURI.startsWith("/") ? requestURI : "/" + requestURI;
 		System.out.println("Connecting to http" + (https ? "s" : "") + "://" + ip + ":" + port + " (HTTP Request: " + method + " " + requestURI + " " + protocol + ")");
-		InetSocketAddress addr = new InetSocketAddress(ip, port);
+		final long dnsStartTime = System.nanoTime();
+		InetSocketAddress addr = DNSCache.getDefault().getAddress(ip, port);
+		System.out.println("DNS: " + ip + " -> " + (addr.isUnresolved() ? "(unresolved)" : addr.getAddress().getHostAddress()) + " in " + LatencyHistogram.toMillis(System.nanoTime() - dnsStartTime) + "ms");
 		boolean failedToConnect = addr.isUnresolved();
 		if(failedToConnect) {
 			return "Failed to connect to server \"" + ip + ":" + port + "\": Address is unresolved";
 		}
+		final RequestDeadlines deadlines = new RequestDeadlines(TimerWheel.getShared(), connectTimeout, tlsHandshakeTimeout, firstByteTimeout, headersTimeout, requestTimeout);
 		try {
 			String hostHeader = null;
 			String userAgentHeader = "User-Agent: HTTPServerTester/1.0 (Windows NT 6.1; Win64; x64)";// TODO Actually fetch the OS name and version instead of hard-coding it here
@@ -386,127 +460,232 @@ public final class Main {
 				}
 			}
 			
-			Socket server = https ? sslSocketFactory.createSocket(ip, port) : SocketFactory.getDefault().createSocket(ip, port);
-			server.setTcpNoDelay(true);
-			if(https) {
-				SSLSocket socket = (SSLSocket) server;
-				SSLParameters parameters = socket.getSSLParameters();
-				if(hostHeader != null) {
-					SNIServerName serverName;
-					try {
-						serverName = new SNIHostName(hostHeader);
-					} catch(IllegalArgumentException ex) {
-						ByteArrayOutputStream baos = new ByteArrayOutputStream();
-						try(PrintWriter pr = new PrintWriter(new OutputStreamWriter(baos, StandardCharsets.UTF_8), true)) {
-							ex.printStackTrace(pr);
-							pr.flush();
-						}
-						byte[] data = baos.toByteArray();
-						String throwableToStr = new String(data, 0, data.length, StandardCharsets.UTF_8);
-						
-						return "Failed to connect to server \"" + ip + ":" + port + "\": Invalid SNI Hostname: \"" + hostHeader + "\";\r\n" + throwableToStr;
-					}
-					
-					parameters.setServerNames(Arrays.asList(serverName));
-				}
-				
-				socket.setSSLParameters(parameters);
-				socket.startHandshake();
-			}
-			OutputStream outStream = server.getOutputStream();
-			InputStream in = server.getInputStream();
-			PrintWriter out = new PrintWriter(new OutputStreamWriter(outStream, StandardCharsets.UTF_8), true);
-			if(requestURI.contains("://") && method.equalsIgnoreCase("CONNECT")) {
-				Link link = new Link(requestURI);
-				out.println("CONNECT " + link.protocol + link.host + (link.port == (link.protocol.equalsIgnoreCase("https://") ? 443 : (link.protocol.equalsIgnoreCase("http://") ? 80 : -1)) ? "" : ":".concat(Integer.toString(link.port))) + "/ " + protocol);
-			} else {
-				out.println(method + " " + requestURI.replace(" ", "%20").replace("#", "%23") + " " + protocol);
-			}
+			final boolean tunnel = requestURI.contains("://") && method.equalsIgnoreCase("CONNECT");
+			final Link tunnelLink = tunnel ? new Link(requestURI) : null;
+			// The request's headers as they are sent (save for Connection), for the exchange recorder:
+			final List<String> requestHeaders = new ArrayList<>();
 			if(hostHeader == null) {
-				if(requestURI.contains("://") && method.equalsIgnoreCase("CONNECT")) {
-					Link link = new Link(requestURI);
-					out.println("Host: " + link.host + (link.port == (link.protocol.equalsIgnoreCase("https://") ? 443 : (link.protocol.equalsIgnoreCase("http://") ? 80 : -1)) ? "" : ":".concat(Integer.toString(link.port))));
-				} else {
-					out.println("Host: " + ip);
-				}
+				requestHeaders.add("Host: ".concat(tunnel ? tunnelLink.host : ip));
 			}
 			if(!userAgentDefined) {
-				out.println(userAgentHeader);
+				requestHeaders.add(userAgentHeader);
 			}
 			if(!acceptEncodingDefined && acceptEncodingGZip) {
-				out.println("Accept-Encoding: gzip");
+				requestHeaders.add("Accept-Encoding: gzip");
 			}
-			out.println("Connection: close");
-			out.println(headers);
-			if(!headers.isEmpty()) {
-				out.println();
+			for(String header : headers.split(Pattern.quote("\n"))) {
+				header = header.strip();
+				if(!header.isEmpty() && !header.toLowerCase().startsWith("connection:")) {
+					requestHeaders.add(header);
+				}
 			}
-			out.flush();
+			// The SNI name of the TLS session with the origin through the tunnel, if any:
+			final String tunnelServerName = tunnel && tunnelLink.isSSL() ? (hostHeader != null ? hostHeader : tunnelLink.host) : null;
+			final String tunnelKey = tunnel ? TunnelPool.getKey(ip, port, https, tunnelLink, hostHeader, tunnelServerName) : null;
+			PooledConnection tunnelConnection = tunnel && reuseTunnel ? tunnelPool.acquire(tunnelKey) : null;
+			final boolean reusedTunnel = tunnelConnection != null;
+			// [0] is the connection to the server (or proxy) itself, [1] is the connection to the origin through a proxy tunnel
+			final TLSMetrics[] tlsMetrics = tunnelConnection != null ? (TLSMetrics[]) tunnelConnection.attachment : new TLSMetrics[2];
 			
+			Socket server;
+			OutputStream outStream;
+			InputStream in;
+			PrintWriter out;
 			String getResponseLine = null;
 			final List<String> headerList = new ArrayList<>();
+			long requestSentTime = 0L, firstByteTime = 0L;
 			String response = "";
-			String line;
-			while((line = readLine(in)) != null && !line.trim().isEmpty()) {
-				response += line + "\n";
-				if(getResponseLine == null) {
-					getResponseLine = line.trim();
-					continue;
+			String line = null;
+			if(tunnelConnection != null) {
+				System.out.println("Reusing established proxy tunnel " + tunnelKey + " (use #" + tunnelConnection.getUseCount() + ")");
+				server = tunnelConnection.socket;
+				deadlines.setSocket(server);
+				outStream = tunnelConnection.out;
+				in = tunnelConnection.in;
+				out = new PrintWriter(new OutputStreamWriter(outStream, StandardCharsets.UTF_8), true);
+			} else {
+				deadlines.start(Phase.CONNECT);
+				Socket plain = HappyEyeballs.getDefault().connect(ip, addr.getAddress(), port, deadlines.getConnectTimeout(), socketProfile);// Start with the address logged above
+				deadlines.end();
+				deadlines.setSocket(plain);
+				if(https) {
+					tlsMetrics[0] = new TLSMetrics();
+					server = tlsMetrics[0].layer(sslSocketFactory, plain, ip, port);
+				} else {
+					server = plain;
 				}
-				headerList.add(line);
-			}
-			final String responseLine;
-			if(getResponseLine != null && getResponseLine.toLowerCase().contains("200 connection established")) {
-				if(requestURI.contains("://") && method.equalsIgnoreCase("CONNECT")) {
-					method = "GET";
-					Link link = new Link(requestURI);
-					requestURI = link.requestPath;
-					
-					if(link.isSSL()) {
-						server = ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(server, link.host, link.port, true);
-						((SSLSocket) server).startHandshake();
-						outStream = server.getOutputStream();
-						in = server.getInputStream();
-						out = new PrintWriter(new OutputStreamWriter(outStream, StandardCharsets.UTF_8), true);
+				if(https) {
+					SSLSocket socket = (SSLSocket) server;
+					if(hostHeader != null) {
+						try {
+							setServerName(socket, hostHeader);
+						} catch(IllegalArgumentException ex) {
+							server.close();
+							deadlines.close();
+							return "Failed to connect to server \"" + ip + ":" + port + "\": Invalid SNI Hostname: \"" + hostHeader + "\";\r\n" + throwableToStr(ex);
+						}
 					}
-					
+					deadlines.start(Phase.TLS_HANDSHAKE);
+					tlsMetrics[0].startHandshake(socket);
+					deadlines.end();
+					outStream = tlsMetrics[0].meter(server.getOutputStream());
+					in = tlsMetrics[0].meter(server.getInputStream());
+				} else {
+					outStream = server.getOutputStream();
+					in = server.getInputStream();
+				}
+				out = new PrintWriter(new OutputStreamWriter(outStream, StandardCharsets.UTF_8), true);
+				final long connectStartTime = System.nanoTime();
+				if(tunnel) {
+					out.println("CONNECT " + tunnelLink.protocol + tunnelLink.host + (tunnelLink.port == (tunnelLink.protocol.equalsIgnoreCase("https://") ? 443 : (tunnelLink.protocol.equalsIgnoreCase("http://") ? 80 : -1)) ? "" : ":".concat(Integer.toString(tunnelLink.port))) + "/ " + protocol);
+				} else {
 					out.println(method + " " + requestURI.replace(" ", "%20").replace("#", "%23") + " " + protocol);
-					if(hostHeader == null) {
-						out.println("Host: " + link.host);
-					}
-					if(!userAgentDefined) {
-						out.println(userAgentHeader);
+				}
+				if(hostHeader == null) {
+					if(tunnel) {
+						out.println("Host: " + tunnelLink.host + (tunnelLink.port == (tunnelLink.protocol.equalsIgnoreCase("https://") ? 443 : (tunnelLink.protocol.equalsIgnoreCase("http://") ? 80 : -1)) ? "" : ":".concat(Integer.toString(tunnelLink.port))));
+					} else {
+						out.println("Host: " + ip);
 					}
-					if(!acceptEncodingDefined && acceptEncodingGZip) {
-						out.println("Accept-Encoding: gzip");
+				}
+				if(!userAgentDefined) {
+					out.println(userAgentHeader);
+				}
+				if(!acceptEncodingDefined && acceptEncodingGZip) {
+					out.println("Accept-Encoding: gzip");
+				}
+				if(!tunnel) {// The tunnel's lifetime is up to us, not the proxy
+					out.println("Connection: close");
+				}
+				out.println(headers);
+				if(!headers.isEmpty()) {
+					out.println();
+				}
+				out.flush();
+				requestSentTime = System.nanoTime();
+				
+				deadlines.start(Phase.FIRST_BYTE);
+				while((line = readLine(in)) != null && !line.trim().isEmpty()) {
+					response += line + "\n";
+					if(getResponseLine == null) {
+						getResponseLine = line.trim();
+						firstByteTime = System.nanoTime();
+						deadlines.start(Phase.HEADERS);
+						continue;
 					}
-					StringBuilder sb = new StringBuilder();
-					for(String header : headers.split(Pattern.quote("\n"))) {
-						header = header.endsWith("\r") ? header.substring(0, header.length() - 1) : header;
-						if(header.toLowerCase().startsWith("proxy-")) {
-							continue;
+					headerList.add(line);
+				}
+				deadlines.end();
+				if(tunnel && getResponseLine != null && getResponseLine.toLowerCase().contains("200 connection established")) {
+					final long connectTime = System.nanoTime() - connectStartTime;
+					tunnelPool.connectLatency.record(connectTime);
+					System.out.println("Proxy CONNECT to " + tunnelLink.host + ":" + tunnelLink.port + " took " + LatencyHistogram.toMillis(connectTime) + "ms");
+					
+					if(tunnelLink.isSSL()) {
+						tlsMetrics[1] = new TLSMetrics();
+						SSLSocket socket = tlsMetrics[1].layer(sslSocketFactory, server, tunnelLink.host, tunnelLink.port);
+						String serverName = tunnelServerName;
+						try {
+							setServerName(socket, serverName);
+						} catch(IllegalArgumentException ex) {
+							socket.close();
+							deadlines.close();
+							return response + "Failed to establish TLS through proxy tunnel to \"" + tunnelLink.host + ":" + tunnelLink.port + "\": Invalid SNI Hostname: \"" + serverName + "\";\r\n" + throwableToStr(ex);
 						}
-						sb.append(header).append("\r\n");
+						deadlines.start(Phase.TLS_HANDSHAKE);
+						tlsMetrics[1].startHandshake(socket);
+						deadlines.end();
+						server = socket;
+						tunnelConnection = new PooledConnection(server, tlsMetrics[1].meter(server.getInputStream()), tlsMetrics[1].meter(server.getOutputStream()));
+					} else {
+						tunnelConnection = new PooledConnection(server, in, outStream);
 					}
-					out.println("Connection: close");
-					out.println(sb.toString());
-					if(!headers.isEmpty()) {
-						out.println();
+					tunnelConnection.attachment = tlsMetrics;
+					outStream = tunnelConnection.out;
+					in = tunnelConnection.in;
+					out = new PrintWriter(new OutputStreamWriter(outStream, StandardCharsets.UTF_8), true);
+				}
+			}
+			final String responseLine;
+			boolean pooled = false;
+			if(tunnelConnection != null) {
+				final String connectMethod = method, connectURI = requestURI;// For sending the request again through a new tunnel
+				method = "GET";
+				requestURI = tunnelLink.requestPath;
+				// Downloads are read until the connection closes, so only plain requests may keep the tunnel open afterwards
+				final boolean keepAlive = !saveDownloadedFile;
+				
+				final long originStartTime = System.nanoTime();
+				out.println(method + " " + requestURI.replace(" ", "%20").replace("#", "%23") + " " + protocol);
+				if(hostHeader == null) {
+					out.println("Host: " + tunnelLink.host);
+				}
+				if(!userAgentDefined) {
+					out.println(userAgentHeader);
+				}
+				if(!acceptEncodingDefined && acceptEncodingGZip) {
+					out.println("Accept-Encoding: gzip");
+				}
+				StringBuilder sb = new StringBuilder();
+				for(String header : headers.split(Pattern.quote("\n"))) {
+					header = header.endsWith("\r") ? header.substring(0, header.length() - 1) : header;
+					if(header.toLowerCase().startsWith("proxy-") || header.toLowerCase().startsWith("connection:")) {
+						continue;
 					}
-					
-					getResponseLine = null;
-					headerList.clear();
+					sb.append(header).append("\r\n");
+				}
+				out.println(keepAlive ? "Connection: keep-alive" : "Connection: close");
+				out.println(sb.toString());
+				if(!headers.isEmpty()) {
+					out.println();
+				}
+				
+				getResponseLine = null;
+				headerList.clear();
+				requestSentTime = System.nanoTime();
+				deadlines.start(Phase.FIRST_BYTE);
+				try {
 					while((line = readLine(in)) != null && !line.trim().isEmpty()) {
 						response += line.strip() + "\n";
 						if(getResponseLine == null) {
 							getResponseLine = line.trim();
+							firstByteTime = System.nanoTime();
+							deadlines.start(Phase.HEADERS);
 							continue;
 						}
 						headerList.add(line.strip());
 					}
-					responseLine = getResponseLine == null ? "" : getResponseLine;
-				} else {
-					responseLine = getResponseLine;
+				} catch(IOException ex) {
+					if(!reusedTunnel || getResponseLine != null || deadlines.check(ex) != ex) {
+						throw ex;
+					}
+					// Most likely reset by the proxy or origin; handled below
+				}
+				deadlines.end();
+				if(reusedTunnel && getResponseLine == null && deadlines.getExpiredPhase() == null) {
+					// The proxy or origin closed the tunnel while it sat idle; send the request again through a new one
+					System.out.println("Reused proxy tunnel " + tunnelKey + " was closed before a response was received; retrying through a new tunnel");
+					tunnelConnection.close();
+					deadlines.close();
+					tunnelPool.recordRetry();
+					return sendRequest(ip, port, https, connectMethod, protocol, connectURI, headers, saveDownloadedFile, acceptEncodingGZip, false);
+				}
+				responseLine = getResponseLine == null ? "" : getResponseLine;
+				if(getResponseLine != null) {
+					final long originTime = System.nanoTime() - originStartTime;
+					tunnelPool.originLatency.record(originTime);
+					System.out.println("Origin response through proxy tunnel took " + LatencyHistogram.toMillis(originTime) + "ms");
+				}
+				
+				if(keepAlive && getResponseLine != null && HTTPFraming.isKeepAlive(responseLine.split(" ", 2)[0], headerList)) {// Go by the version that the origin responded with
+					try {
+						if(HTTPFraming.discardBody(in, method, HTTPFraming.getStatusCode(responseLine), headerList) != -1L) {
+							deadlines.close();// Don't let the request's deadline close the tunnel once it's back in the pool
+							pooled = tunnelPool.release(tunnelKey, tunnelConnection);
+						}
+					} catch(IOException ex) {
+						System.err.println("Failed to read the response body from the proxy tunnel: " + throwableToStr(ex));
+					}
 				}
 			} else {
 				responseLine = getResponseLine == null ? "" : getResponseLine;
@@ -518,9 +697,28 @@ public final class Main {
 				final InputStream IN = in;
 				final String METHOD = method;
 				final String reqURI = requestURI;
+				final long REQUEST_SENT_TIME = requestSentTime, FIRST_BYTE_TIME = firstByteTime;
 				Runnable code = new Runnable() {
 					@Override
 					public void run() {
+						try {
+							this.download();
+						} finally {
+							this.release();
+						}
+					}
+					
+					/** Cancels the request's deadlines and closes the
+					 * connection; safe to call more than once. */
+					private void release() {
+						deadlines.close();
+						try {
+							SERVER.close();
+						} catch(IOException ignored) {
+						}
+					}
+					
+					private void download() {
 						boolean chunkedTransferEncoding = false;
 						boolean gzip = false;
 						/*for(String header : headers.split(Pattern.quote("\n"))) {
@@ -596,6 +794,8 @@ public final class Main {
 						}
 						
 						if(responseStatusCode.equals("301") || responseStatusCode.equals("302") || responseStatusCode.equals("303") || responseStatusCode.equals("307") || responseStatusCode.equals("308")) {
+							recordExchange(METHOD, reqURI, requestHeaders, responseLine, headerList, null, REQUEST_SENT_TIME, FIRST_BYTE_TIME);
+							this.release();// Don't keep this request's deadline (or connection) around while following the redirect
 							if(location != null) {
 								if(location.startsWith("http://") || location.startsWith("https://")) {
 									Link link = new Link(location);
@@ -611,6 +811,8 @@ public final class Main {
 							return;
 						}
 						if(responseStatusCode.equals("401")) {
+							recordExchange(METHOD, reqURI, requestHeaders, responseLine, headerList, null, REQUEST_SENT_TIME, FIRST_BYTE_TIME);
+							this.release();// Nor while waiting for credentials and retrying
 							if(wwwAuthenticate != null) {
 								String[] split = wwwAuthenticate.split(Pattern.quote(" "));
 								String authScheme = split.length >= 1 ? split[0] : "";
@@ -717,48 +919,6 @@ public final class Main {
 								}
 							}
 						}
-						{
-							String ext = FilenameUtils.getExtension(fileName);
-							if(mimeType != null) {
-								mimeType = mimeType.contains(";") ? mimeType.substring(0, mimeType.indexOf(";")) : mimeType;
-								String mimeExt = MimeTypes.getFirstExtensionForMimeType(mimeType, null);
-								if(mimeExt != null) {
-									mimeExt = mimeExt.startsWith(".") ? mimeExt.substring(1) : mimeExt;
-									
-									if(ext.isBlank()) {
-										fileName = fileName.concat(".").concat(mimeExt);
-									} else {
-										fileName = FilenameUtils.getBaseName(fileName).concat(".").concat(mimeExt);
-									}
-									ext = mimeExt;
-								}
-							}
-							if(ext.isBlank()) {
-								ext = "html";
-								
-								fileName = fileName.concat(fileName.endsWith(".") ? "" : ".").concat(ext);
-							}
-							
-							if(FilenameUtils.getBaseName(fileName).isBlank()) {
-								String name = reqURI.contains("?") ? reqURI.substring(0, reqURI.indexOf("?")) : reqURI;
-								while(name.endsWith("/")) {
-									name = name.endsWith("/") ? name.substring(0, name.lastIndexOf("/")) : name;
-								}
-								name = name.contains("/") ? name.substring(name.lastIndexOf("/")) : name;
-								if(!name.isBlank()) {
-									fileName = name.strip().concat(ext.isBlank() ? "" : ".").concat(ext);
-								}
-							}
-							if(FilenameUtils.getBaseName(fileName).isBlank()) {
-								if(fileName.isBlank()) {
-									fileName = ip.replace(":", "-").replace("%", "-").concat(".txt");
-								} else {
-									fileName = ip.replace(":", "-").replace("%", "-").concat(".").concat(FilenameUtils.getExtension(fileName));
-								}
-							}
-						}
-						
-						fileName = fileName.startsWith("/") ? fileName.substring(1) : fileName;
 						File folder = new File(System.getProperty("user.dir") + File.separatorChar + "downloads");
 						if(!folder.exists()) {
 							folder.mkdirs();
@@ -766,6 +926,9 @@ public final class Main {
 						try {
 							InputStream in = IN;
 							ByteArrayOutputStream baos = new ByteArrayOutputStream();
+							// Sniff the (decoded) body as it is read, in case the server didn't send a usable Content-Type:
+							ContentSniffer sniffer = new ContentSniffer();
+							OutputStream body = gzip ? baos : sniffer.tee(baos);
 							/*if(gzip) {
 								System.out.println("GZIP: Is the whole thing gzipped?");
 								byte[] buf = new byte[4096];
@@ -803,7 +966,7 @@ public final class Main {
 										System.out.flush();
 										System.err.println("Expected integer hex length; got: " + getLength);
 										System.err.flush();
-										baos.write(ogLine.getBytes());
+										body.write(ogLine.getBytes());
 										fallback = true;
 										break;
 									}
@@ -811,7 +974,7 @@ public final class Main {
 									int count = 0;
 									int b;
 									while((b = in.read()) != -1) {
-										baos.write(b);
+										body.write(b);
 										count++;
 										if(count >= length) {
 											break;
@@ -827,11 +990,11 @@ public final class Main {
 											System.err.println("Encountered unexpected data near end of chunk:");
 											System.err.println(check);
 											System.err.flush();
-											baos.write(check.getBytes());
+											body.write(check.getBytes());
 											fallback = true;
 										}
 										if(b1 != -1) {
-											baos.write(b1 & 0xFF);
+											body.write(b1 & 0xFF);
 										}
 										break;
 									}
@@ -840,7 +1003,7 @@ public final class Main {
 									byte[] buf = new byte[4096];
 									int read;
 									while((read = in.read(buf)) != -1) {
-										baos.write(buf, 0, read);
+										body.write(buf, 0, read);
 									}
 								}
 							} else {
@@ -848,9 +1011,11 @@ public final class Main {
 								byte[] buf = new byte[4096];
 								int read;
 								while((read = in.read(buf)) != -1) {
-									baos.write(buf, 0, read);
+									body.write(buf, 0, read);
 								}
 							}
+							// Record the body as it was sent (minus any chunked framing), so that it can be replayed with its original headers:
+							recordExchange(METHOD, reqURI, requestHeaders, responseLine, headerList, exchangeRecorder == null ? null : baos.toByteArray(), REQUEST_SENT_TIME, FIRST_BYTE_TIME);
 							
 							if(gzip) {
 								final byte[] data = baos.toByteArray();
@@ -860,12 +1025,13 @@ public final class Main {
 									System.out.println("GZIP: Let's decompress the stream (" + Integer.toString(data.length) + " byte" + (data.length == 1 ? "" : "s") + ")...");
 								}
 								baos = new ByteArrayOutputStream();
+								body = sniffer.tee(baos);
 								try(InputStream gzIn = new GZIPInputStream(new ByteArrayInputStream(data))) {
 									System.out.println("GZIP: Looks like we're able to uncompress the chunked data, yay!");
 									byte[] buf = new byte[4096];
 									int read;
 									while((read = gzIn.read(buf)) != -1) {
-										baos.write(buf, 0, read);
+										body.write(buf, 0, read);
 									}
 								} catch(Throwable ignored) {
 									System.out.flush();
@@ -874,11 +1040,57 @@ public final class Main {
 									System.err.flush();
 									baos = new ByteArrayOutputStream();
 									baos.write(data);
+									sniffer.reset();
+									sniffer.update(data, 0, data.length);
 								}
 								
 							}
 							
 							if(baos.size() > 0) {
+								{
+									String ext = FilenameUtils.getExtension(fileName);
+									String contentType = sniffer.resolveMimeType(mimeType);
+									if(contentType != mimeType) {
+										System.out.println("Content sniffed as ".concat(contentType).concat(mimeType == null ? "" : " (Content-Type was: ".concat(mimeType).concat(")")));
+									}
+									if(contentType != null) {
+										String mimeExt = sniffer.resolveExtension(mimeType);
+										if(mimeExt != null) {
+											mimeExt = mimeExt.startsWith(".") ? mimeExt.substring(1) : mimeExt;
+											
+											if(ext.isBlank()) {
+												fileName = fileName.concat(".").concat(mimeExt);
+											} else {
+												fileName = FilenameUtils.getBaseName(fileName).concat(".").concat(mimeExt);
+											}
+											ext = mimeExt;
+										}
+									}
+									if(ext.isBlank()) {
+										ext = "html";
+										
+										fileName = fileName.concat(fileName.endsWith(".") ? "" : ".").concat(ext);
+									}
+									
+									if(FilenameUtils.getBaseName(fileName).isBlank()) {
+										String name = reqURI.contains("?") ? reqURI.substring(0, reqURI.indexOf("?")) : reqURI;
+										while(name.endsWith("/")) {
+											name = name.endsWith("/") ? name.substring(0, name.lastIndexOf("/")) : name;
+										}
+										name = name.contains("/") ? name.substring(name.lastIndexOf("/")) : name;
+										if(!name.isBlank()) {
+											fileName = name.strip().concat(ext.isBlank() ? "" : ".").concat(ext);
+										}
+									}
+									if(FilenameUtils.getBaseName(fileName).isBlank()) {
+										if(fileName.isBlank()) {
+											fileName = ip.replace(":", "-").replace("%", "-").concat(".txt");
+										} else {
+											fileName = ip.replace(":", "-").replace("%", "-").concat(".").concat(FilenameUtils.getExtension(fileName));
+										}
+									}
+								}
+								fileName = fileName.startsWith("/") ? fileName.substring(1) : fileName;
 								
 								File file = new File(folder, makeStringFilesystemSafe(fileName));
 								if(file.exists()) {
@@ -898,8 +1110,11 @@ public final class Main {
 								fout.close();
 							}
 							SERVER.close();
+							deadlines.close();
+							reportTLSMetrics(tlsMetrics);
 						} catch(IOException e) {
-							System.err.println("Failed to download file \"" + fileName + "\": " + throwableToStr(e));
+							deadlines.close();
+							System.err.println("Failed to download file \"" + fileName + "\": " + throwableToStr(deadlines.check(e)));
 						}
 					}
 				};
@@ -909,17 +1124,80 @@ public final class Main {
 					code.run();
 				}
 			} else {
-				server.close();
+				recordExchange(method, requestURI, requestHeaders, responseLine, headerList, null, requestSentTime, firstByteTime);
+				if(!pooled) {
+					server.close();
+				}
+				deadlines.close();
+				reportTLSMetrics(tlsMetrics);
 			}
 			return response;
 		} catch(IOException e) {
-			return throwableToStr(e);
+			deadlines.close();
+			return throwableToStr(deadlines.check(e));
 		}
 		/*String serverResponse = method + " " + (https ? "https://" : "http://") + ip + ":" + port + requestURI + " " + protocol + "\r\n";
 		serverResponse += headers + "\r\n";
 		return serverResponse;*/
 	}
 	
+	/** Sets the SNI server name that the given socket will send during its
+	 * handshake.
+	 *
+	 * @param socket The socket whose handshake hasn't started yet
+	 * @param hostName The server name to send
+	 * @throws IllegalArgumentException Thrown if the given host name isn't a
+	 *             valid SNI host name */
+	protected static final void setServerName(SSLSocket socket, String hostName) throws IllegalArgumentException {
+		SSLParameters parameters = socket.getSSLParameters();
+		SNIServerName serverName = new SNIHostName(hostName);
+		parameters.setServerNames(Arrays.asList(serverName));
+		socket.setSSLParameters(parameters);
+	}
+	
+	/** Records an exchange to the {@link #exchangeRecorder}, if there is one.
+	 *
+	 * @param method The request's method
+	 * @param requestURI The request's target (before it was escaped)
+	 * @param requestHeaders The request's headers
+	 * @param responseLine The response's status line
+	 * @param headerList The response's headers
+	 * @param body The response's body, or <tt><b>null</b></tt> if it wasn't
+	 *            read
+	 * @param requestSentTime The time that the request was sent, in
+	 *            nanoseconds
+	 * @param firstByteTime The time that the response's status line was read,
+	 *            in nanoseconds */
+	protected static final void recordExchange(String method, String requestURI, List<String> requestHeaders, String responseLine, List<String> headerList, byte[] body, long requestSentTime, long firstByteTime) {
+		ExchangeArchive.Writer recorder = exchangeRecorder;
+		if(recorder == null || responseLine.isEmpty()) {
+			return;
+		}
+		List<String> responseHeaders = new ArrayList<>(headerList.size());
+		for(String header : headerList) {// The direct connection's header lines still have their line endings
+			responseHeaders.add(header.strip());
+		}
+		try {
+			recorder.record(method, requestURI.replace(" ", "%20").replace("#", "%23"), requestHeaders, responseLine, responseHeaders, body, firstByteTime - requestSentTime, System.nanoTime() - requestSentTime);
+		} catch(IOException ex) {
+			System.err.println("Failed to record the exchange: ".concat(throwableToStr(ex)));
+		}
+	}
+	
+	/** Prints the given connections' TLS metrics and adds them to the
+	 * {@link #tlsStatistics}.
+	 *
+	 * @param metrics The metrics to report (elements may be
+	 *            <tt><b>null</b></tt> for connections that didn't use TLS) */
+	protected static final void reportTLSMetrics(TLSMetrics... metrics) {
+		for(TLSMetrics m : metrics) {
+			if(m != null) {
+				System.out.println("TLS: " + m.toString());
+				m.reportTo(tlsStatistics);
+			}
+		}
+	}
+	
 	protected static final String readLine(InputStream in) throws IOException {
 		if(in == null) {
 			return null;
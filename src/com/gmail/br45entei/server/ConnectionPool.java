@@ -0,0 +1,238 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A keyed pool of idle, reusable (keep-alive) connections.<br>
+ * Connections are handed out most-recently-used first so that the least
+ * recently used ones are the first to hit the idle timeout.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class ConnectionPool implements Closeable {
+	
+	/** A connection that may be returned to a {@link ConnectionPool} once
+	 * the current exchange on it has been completed.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class PooledConnection implements Closeable {
+		
+		public final Socket socket;
+		public final InputStream in;
+		public final OutputStream out;
+		public final long createdTime;
+		
+		/** An arbitrary object that the owner of this connection may use to
+		 * keep track of per-connection state (such as metrics) while it sits
+		 * in the pool */
+		public volatile Object attachment;
+		
+		protected volatile long lastUsedTime;
+		protected volatile int useCount;
+		
+		/** @param socket The connected socket
+		 * @throws IOException Thrown if the socket's streams could not be
+		 *             obtained */
+		public PooledConnection(Socket socket) throws IOException {
+			this(socket, socket.getInputStream(), socket.getOutputStream());
+		}
+		
+		/** @param socket The connected socket
+		 * @param in The stream to read from the socket with (which may wrap
+		 *            the socket's own input stream)
+		 * @param out The stream to write to the socket with (which may wrap
+		 *            the socket's own output stream) */
+		public PooledConnection(Socket socket, InputStream in, OutputStream out) {
+			this.socket = socket;
+			this.in = in;
+			this.out = out;
+			this.createdTime = this.lastUsedTime = System.currentTimeMillis();
+		}
+		
+		/** @return The number of times this connection has been handed out
+		 *         by a pool */
+		public final int getUseCount() {
+			return this.useCount;
+		}
+		
+		/** @return The last time this connection was acquired or released, in
+		 *         milliseconds */
+		public final long getLastUsedTime() {
+			return this.lastUsedTime;
+		}
+		
+		/** @return Whether or not the underlying socket still appears to be
+		 *         usable */
+		public final boolean isOpen() {
+			return !this.socket.isClosed() && this.socket.isConnected() && !this.socket.isInputShutdown() && !this.socket.isOutputShutdown();
+		}
+		
+		@Override
+		public final void close() {
+			try {
+				this.socket.close();
+			} catch(IOException ignored) {
+			}
+		}
+		
+	}
+	
+	private final Map<String, Deque<PooledConnection>> idle = new ConcurrentHashMap<>();
+	private final int maxIdlePerKey;
+	private final long idleTimeout;
+	private volatile boolean closed = false;
+	
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), evictions = new AtomicLong();
+	
+	/** @param maxIdlePerKey The maximum number of idle connections kept for
+	 *            any one key
+	 * @param idleTimeout The amount of time, in milliseconds, that a
+	 *            connection may sit idle in the pool before it is discarded */
+	public ConnectionPool(int maxIdlePerKey, long idleTimeout) {
+		this.maxIdlePerKey = Math.max(1, maxIdlePerKey);
+		this.idleTimeout = idleTimeout;
+	}
+	
+	/** @param key The key that identifies the connection's destination
+	 * @return An idle connection to the given destination, or
+	 *         <tt><b>null</b></tt> if there isn't one available */
+	public final PooledConnection acquire(String key) {
+		Deque<PooledConnection> deque = this.idle.get(key);
+		if(deque != null) {
+			long now = System.currentTimeMillis();
+			PooledConnection conn;
+			while((conn = deque.pollFirst()) != null) {
+				if(conn.isOpen() && now - conn.lastUsedTime < this.idleTimeout) {
+					conn.lastUsedTime = now;
+					conn.useCount++;
+					this.hits.incrementAndGet();
+					return conn;
+				}
+				this.evictions.incrementAndGet();
+				conn.close();
+			}
+		}
+		this.misses.incrementAndGet();
+		return null;
+	}
+	
+	/** Returns the given connection to this pool, or closes it if the pool is
+	 * full, closed, or the connection is no longer usable.
+	 *
+	 * @param key The key that identifies the connection's destination
+	 * @param conn The connection to release
+	 * @return Whether or not the connection was kept for reuse */
+	public final boolean release(String key, PooledConnection conn) {
+		if(this.closed || !conn.isOpen()) {
+			conn.close();
+			return false;
+		}
+		Deque<PooledConnection> deque = this.idle.computeIfAbsent(key, (k) -> new ConcurrentLinkedDeque<>());
+		if(deque.size() >= this.maxIdlePerKey) {
+			this.evictions.incrementAndGet();
+			conn.close();
+			return false;
+		}
+		conn.lastUsedTime = System.currentTimeMillis();
+		deque.offerFirst(conn);
+		if(this.closed && deque.remove(conn)) {
+			conn.close();
+			return false;
+		}
+		return true;
+	}
+	
+	/** Closes and discards every idle connection that has exceeded the idle
+	 * timeout.
+	 *
+	 * @return The number of connections that were evicted */
+	public final int evictExpired() {
+		long now = System.currentTimeMillis();
+		int evicted = 0;
+		for(Deque<PooledConnection> deque : this.idle.values()) {
+			for(PooledConnection conn : deque) {
+				if((!conn.isOpen() || now - conn.lastUsedTime >= this.idleTimeout) && deque.remove(conn)) {
+					conn.close();
+					evicted++;
+				}
+			}
+		}
+		this.evictions.addAndGet(evicted);
+		return evicted;
+	}
+	
+	/** @return The total number of idle connections currently pooled */
+	public final int getIdleCount() {
+		int count = 0;
+		for(Deque<PooledConnection> deque : this.idle.values()) {
+			count += deque.size();
+		}
+		return count;
+	}
+	
+	/** @return The number of times {@link #acquire(String)} returned a pooled
+	 *         connection */
+	public final long getHits() {
+		return this.hits.get();
+	}
+	
+	/** @return The number of times {@link #acquire(String)} found no usable
+	 *         pooled connection */
+	public final long getMisses() {
+		return this.misses.get();
+	}
+	
+	/** @return The number of pooled connections that were closed because
+	 *         they expired, broke, or did not fit in the pool */
+	public final long getEvictions() {
+		return this.evictions.get();
+	}
+	
+	@Override
+	public final void close() {
+		this.closed = true;
+		for(Deque<PooledConnection> deque : this.idle.values()) {
+			PooledConnection conn;
+			while((conn = deque.pollFirst()) != null) {
+				conn.close();
+			}
+		}
+		this.idle.clear();
+	}
+	
+	@Override
+	public String toString() {
+		return "idle=".concat(Integer.toString(this.getIdleCount())).concat(", hits=").concat(Long.toString(this.getHits())).concat(", misses=").concat(Long.toString(this.getMisses())).concat(", evictions=").concat(Long.toString(this.getEvictions()));
+	}
+	
+}
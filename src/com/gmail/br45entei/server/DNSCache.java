@@ -0,0 +1,274 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.server;
+
+import com.gmail.br45entei.util.LatencyHistogram;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.UnknownHostException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A caching DNS resolver.<br>
+ * Every address record of a host is cached for a configurable amount of time
+ * (and failed lookups for a shorter one), concurrent lookups of the same host
+ * share a single query, and {@link #getAddress(String, int)} hands out the
+ * host's addresses in round-robin order so that load is spread across all of
+ * them.<br>
+ * The time spent on actual lookups is recorded separately in
+ * {@link #lookupLatency} so that it doesn't leak into request measurements.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class DNSCache {
+	
+	private static final DNSCache defaultCache = new DNSCache(30000L, 5000L);
+	
+	/** @return The cache shared by the rest of the application */
+	public static final DNSCache getDefault() {
+		return defaultCache;
+	}
+	
+	private static final class Entry {
+		
+		protected final CompletableFuture<InetAddress[]> lookup = new CompletableFuture<>();
+		protected final AtomicInteger next = new AtomicInteger();
+		protected volatile long expires = Long.MAX_VALUE;
+		
+		protected Entry() {
+		}
+		
+	}
+	
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private volatile long ttl, negativeTTL;
+	
+	/** The time taken by lookups that weren't answered from the cache */
+	public final LatencyHistogram lookupLatency = new LatencyHistogram("DNS lookup");
+	private final AtomicLong hits = new AtomicLong(), misses = new AtomicLong(), failures = new AtomicLong();
+	
+	/** @param ttl How long successful lookups are cached for, in
+	 *            milliseconds
+	 * @param negativeTTL How long failed lookups are cached for, in
+	 *            milliseconds */
+	public DNSCache(long ttl, long negativeTTL) {
+		this.ttl = ttl;
+		this.negativeTTL = negativeTTL;
+	}
+	
+	/** @return How long successful lookups are cached for, in milliseconds */
+	public final long getTTL() {
+		return this.ttl;
+	}
+	
+	/** @param ttl How long successful lookups should be cached for, in
+	 *            milliseconds
+	 * @return This cache */
+	public final DNSCache setTTL(long ttl) {
+		this.ttl = ttl;
+		return this;
+	}
+	
+	/** @return How long failed lookups are cached for, in milliseconds */
+	public final long getNegativeTTL() {
+		return this.negativeTTL;
+	}
+	
+	/** @param negativeTTL How long failed lookups should be cached for, in
+	 *            milliseconds
+	 * @return This cache */
+	public final DNSCache setNegativeTTL(long negativeTTL) {
+		this.negativeTTL = negativeTTL;
+		return this;
+	}
+	
+	private static final String normalize(String host) {
+		if(host.startsWith("[") && host.endsWith("]")) {
+			host = host.substring(1, host.length() - 1);
+		}
+		return host.toLowerCase();
+	}
+	
+	private final Entry getEntry(String host) {
+		final String key = normalize(host);
+		while(true) {
+			Entry entry = this.entries.get(key);
+			if(entry != null) {
+				if(System.currentTimeMillis() < entry.expires) {
+					this.hits.incrementAndGet();
+					return entry;
+				}
+				this.entries.remove(key, entry);
+			}
+			Entry created = new Entry();
+			entry = this.entries.putIfAbsent(key, created);
+			if(entry != null) {
+				continue;// Another thread started a lookup first; wait for it instead
+			}
+			this.misses.incrementAndGet();
+			final long startTime = System.nanoTime();
+			try {
+				InetAddress[] addresses = InetAddress.getAllByName(key);
+				created.expires = System.currentTimeMillis() + this.ttl;
+				created.lookup.complete(addresses);
+			} catch(UnknownHostException | RuntimeException ex) {
+				this.failures.incrementAndGet();
+				created.expires = System.currentTimeMillis() + this.negativeTTL;
+				created.lookup.completeExceptionally(ex);
+			} finally {
+				this.lookupLatency.record(System.nanoTime() - startTime);
+			}
+			return created;
+		}
+	}
+	
+	/** @param host The hostname or IP address to resolve
+	 * @return All of the host's addresses
+	 * @throws UnknownHostException Thrown if the host could not be resolved
+	 *             (which is cached as well) */
+	public final InetAddress[] resolve(String host) throws UnknownHostException {
+		Entry entry = this.getEntry(host);
+		try {
+			return entry.lookup.get().clone();
+		} catch(InterruptedException ex) {
+			Thread.currentThread().interrupt();
+			throw new UnknownHostException(host.concat(": interrupted while waiting for DNS lookup"));
+		} catch(ExecutionException ex) {
+			Throwable cause = ex.getCause();
+			UnknownHostException rethrown = new UnknownHostException(cause.getMessage() == null ? host : cause.getMessage());
+			rethrown.initCause(cause);
+			throw rethrown;
+		}
+	}
+	
+	/** @param host The hostname or IP address to resolve
+	 * @return The next of the host's addresses, in round-robin order
+	 * @throws UnknownHostException Thrown if the host could not be resolved */
+	public final InetAddress next(String host) throws UnknownHostException {
+		Entry entry = this.getEntry(host);
+		InetAddress[] addresses;
+		try {
+			addresses = entry.lookup.get();
+		} catch(InterruptedException | ExecutionException ex) {
+			return this.resolve(host)[0];// Throws the appropriate exception
+		}
+		return addresses[Math.floorMod(entry.next.getAndIncrement(), addresses.length)];
+	}
+	
+	/** @param host The hostname or IP address to resolve
+	 * @return All of the host's addresses, starting with the next one in
+	 *         round-robin order (the one that {@link #next(String)} would have
+	 *         returned) and otherwise in the order the resolver gave them
+	 * @throws UnknownHostException Thrown if the host could not be resolved */
+	public final InetAddress[] resolveNext(String host) throws UnknownHostException {
+		Entry entry = this.getEntry(host);
+		InetAddress[] addresses;
+		try {
+			addresses = entry.lookup.get();
+		} catch(InterruptedException | ExecutionException ex) {
+			return this.resolve(host);// Throws the appropriate exception
+		}
+		int start = Math.floorMod(entry.next.getAndIncrement(), addresses.length);
+		InetAddress[] rotated = new InetAddress[addresses.length];
+		for(int i = 0; i < addresses.length; i++) {
+			rotated[i] = addresses[(start + i) % addresses.length];
+		}
+		return rotated;
+	}
+	
+	/** @param host The hostname or IP address to resolve
+	 * @param port The port
+	 * @return A resolved socket address for the next of the host's addresses
+	 *         (in round-robin order), or an
+	 *         {@link InetSocketAddress#isUnresolved() unresolved} one if the
+	 *         host could not be resolved */
+	public final InetSocketAddress getAddress(String host, int port) {
+		try {
+			return new InetSocketAddress(this.next(host), port);
+		} catch(UnknownHostException ex) {
+			return InetSocketAddress.createUnresolved(host, port);
+		}
+	}
+	
+	/** Resolves the given hosts ahead of time (e.g. before a load run starts)
+	 * so that none of the run's requests have to wait on DNS.
+	 *
+	 * @param hosts The hosts to resolve
+	 * @return A map of each host to its addresses (or to
+	 *         <tt><b>null</b></tt> if it couldn't be resolved) */
+	public final Map<String, InetAddress[]> preResolve(String... hosts) {
+		Map<String, CompletableFuture<InetAddress[]>> lookups = new LinkedHashMap<>();
+		for(String host : hosts) {
+			lookups.put(host, CompletableFuture.supplyAsync(() -> {
+				try {
+					return this.resolve(host);
+				} catch(UnknownHostException ex) {
+					return null;
+				}
+			}));
+		}
+		Map<String, InetAddress[]> results = new LinkedHashMap<>();
+		for(Map.Entry<String, CompletableFuture<InetAddress[]>> entry : lookups.entrySet()) {
+			results.put(entry.getKey(), entry.getValue().join());
+		}
+		return results;
+	}
+	
+	/** @param host The host to forget, so that it is looked up again the
+	 *            next time it is needed */
+	public final void invalidate(String host) {
+		this.entries.remove(normalize(host));
+	}
+	
+	/** Forgets every cached lookup. */
+	public final void clear() {
+		this.entries.clear();
+	}
+	
+	/** @return The number of lookups that were answered from the cache */
+	public final long getHits() {
+		return this.hits.get();
+	}
+	
+	/** @return The number of lookups that had to query the resolver */
+	public final long getMisses() {
+		return this.misses.get();
+	}
+	
+	/** @return The number of queries that failed */
+	public final long getFailures() {
+		return this.failures.get();
+	}
+	
+	@Override
+	public String toString() {
+		return "DNS cache: hits=".concat(Long.toString(this.getHits())).concat(", misses=").concat(Long.toString(this.getMisses())).concat(", failures=").concat(Long.toString(this.getFailures())).concat("\r\n").concat(this.lookupLatency.toString());
+	}
+	
+}
@@ -0,0 +1,174 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.server;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+
+/** Utility methods for working out where an HTTP/1.x message body ends, so
+ * that the connection it was read from can be reused.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class HTTPFraming {
+	
+	private HTTPFraming() {
+	}
+	
+	/** @param headers The list of header lines to search through
+	 * @param name The name of the header to look for (case-insensitive)
+	 * @return The (stripped) value of the first header with the given name,
+	 *         or <tt><b>null</b></tt> if there is no such header */
+	public static final String getHeader(List<String> headers, String name) {
+		for(String header : headers) {
+			int colon = header.indexOf(':');
+			if(colon == name.length() && header.regionMatches(true, 0, name, 0, colon)) {
+				return header.substring(colon + 1).strip();
+			}
+		}
+		return null;
+	}
+	
+	/** @param value A comma-separated header value, such as that of the
+	 *            <tt>Connection</tt> header
+	 * @param token The token to look for (case-insensitive)
+	 * @return Whether or not the given value contains the given token */
+	public static final boolean hasToken(String value, String token) {
+		if(value == null) {
+			return false;
+		}
+		for(String s : value.split(",")) {
+			if(s.strip().equalsIgnoreCase(token)) {
+				return true;
+			}
+		}
+		return false;
+	}
+	
+	/** @param responseLine The response's status line, e.g.
+	 *            <tt>HTTP/1.1 200 OK</tt>
+	 * @return The response's status code, or <tt>-1</tt> if it could not be
+	 *         parsed */
+	public static final int getStatusCode(String responseLine) {
+		if(responseLine == null) {
+			return -1;
+		}
+		int start = responseLine.indexOf(' ');
+		if(start < 0 || start + 4 > responseLine.length()) {
+			return -1;
+		}
+		int code = 0;
+		for(int i = start + 1; i < start + 4; i++) {
+			char c = responseLine.charAt(i);
+			if(c < '0' || c > '9') {
+				return -1;
+			}
+			code = (code * 10) + (c - '0');
+		}
+		return code;
+	}
+	
+	/** @param protocol The protocol version of the message, e.g.
+	 *            <tt>HTTP/1.1</tt>
+	 * @param headers The message's headers
+	 * @return Whether or not the connection may be kept open after the
+	 *         message has been read */
+	public static final boolean isKeepAlive(String protocol, List<String> headers) {
+		String connection = getHeader(headers, "Connection");
+		if(hasToken(connection, "close")) {
+			return false;
+		}
+		return protocol.equalsIgnoreCase("HTTP/1.0") ? hasToken(connection, "keep-alive") : true;
+	}
+	
+	/** Reads and discards a response body, leaving the input stream
+	 * positioned at the start of the next response.
+	 *
+	 * @param in The input stream to read from
+	 * @param requestMethod The method of the request that was answered
+	 * @param statusCode The response's status code
+	 * @param headers The response's headers
+	 * @return The number of body bytes that were discarded, or <tt>-1</tt> if
+	 *         the body is delimited by the connection being closed (in which
+	 *         case the connection cannot be reused)
+	 * @throws IOException Thrown if an error occurred while reading data
+	 *             from the input stream */
+	public static final long discardBody(InputStream in, String requestMethod, int statusCode, List<String> headers) throws IOException {
+		if(requestMethod.equalsIgnoreCase("HEAD") || (statusCode >= 100 && statusCode < 200) || statusCode == 204 || statusCode == 304) {
+			return 0L;
+		}
+		if(hasToken(getHeader(headers, "Transfer-Encoding"), "chunked")) {
+			long total = 0L;
+			String line;
+			while((line = Link.readLine(in)) != null) {
+				int end = line.indexOf(';');
+				String hex = (end < 0 ? line : line.substring(0, end)).strip();
+				final long length;
+				try {
+					length = Long.parseLong(hex, 16);
+				} catch(NumberFormatException ex) {
+					throw new IOException("Invalid chunk size: \"".concat(line).concat("\""), ex);
+				}
+				if(length == 0L) {
+					while((line = Link.readLine(in)) != null && !line.isEmpty()) {// Trailers
+					}
+					return total;
+				}
+				skipFully(in, length);
+				Link.readLine(in);// The chunk's trailing CRLF
+				total += length;
+			}
+			throw new EOFException("Connection closed in the middle of a chunked response body");
+		}
+		String contentLength = getHeader(headers, "Content-Length");
+		if(contentLength != null) {
+			final long length;
+			try {
+				length = Long.parseLong(contentLength);
+			} catch(NumberFormatException ex) {
+				return -1L;
+			}
+			skipFully(in, length);
+			return length;
+		}
+		return -1L;
+	}
+	
+	/** @param in The input stream to read from
+	 * @param count The exact number of bytes to skip
+	 * @throws IOException Thrown if the end of the stream was reached early
+	 *             or an error occurred while reading data */
+	public static final void skipFully(InputStream in, long count) throws IOException {
+		byte[] buf = new byte[(int) Math.min(8192L, Math.max(1L, count))];
+		while(count > 0) {
+			int read = in.read(buf, 0, (int) Math.min(buf.length, count));
+			if(read == -1) {
+				throw new EOFException("Connection closed with " + count + " byte(s) of the response body remaining");
+			}
+			count -= read;
+		}
+	}
+	
+}
@@ -0,0 +1,377 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.server;
+
+import com.gmail.br45entei.util.LatencyHistogram;
+
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Connects to dual-stack hosts by racing connection attempts across address
+ * families, as described in RFC 8305 ("Happy Eyeballs Version 2").<br>
+ * The host's addresses are interleaved by family, starting with the
+ * preferred one. The first attempt is started right away and each following
+ * attempt is started after a short stagger delay (or immediately, if every
+ * earlier attempt has already failed); whichever connects first wins and the
+ * rest are abandoned. All attempts are driven by a single selector on the
+ * calling thread.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class HappyEyeballs {
+	
+	private static final HappyEyeballs defaultInstance = new HappyEyeballs(DNSCache.getDefault());
+	
+	/** @return The instance used by {@link Link} */
+	public static final HappyEyeballs getDefault() {
+		return defaultInstance;
+	}
+	
+	/** Connection statistics for a single address family.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class FamilyStats {
+		
+		private final String family;
+		private final AtomicLong attempts = new AtomicLong(), wins = new AtomicLong(), failures = new AtomicLong(), abandoned = new AtomicLong();
+		/** How long successful connection attempts took */
+		public final LatencyHistogram connectLatency;
+		
+		protected FamilyStats(String family) {
+			this.family = family;
+			this.connectLatency = new LatencyHistogram(family.concat(" connect"));
+		}
+		
+		/** @return The number of connection attempts that were started */
+		public final long getAttempts() {
+			return this.attempts.get();
+		}
+		
+		/** @return The number of attempts that won their race */
+		public final long getWins() {
+			return this.wins.get();
+		}
+		
+		/** @return The number of attempts that failed */
+		public final long getFailures() {
+			return this.failures.get();
+		}
+		
+		/** @return The number of attempts that were still in progress when
+		 *         another attempt won (or the race timed out) */
+		public final long getAbandoned() {
+			return this.abandoned.get();
+		}
+		
+		@Override
+		public String toString() {
+			return this.family.concat(": attempts=").concat(Long.toString(this.getAttempts())).concat(", wins=").concat(Long.toString(this.getWins())).concat(", failures=").concat(Long.toString(this.getFailures())).concat(", abandoned=").concat(Long.toString(this.getAbandoned())).concat("\r\n").concat(this.connectLatency.toString());
+		}
+		
+	}
+	
+	private static final class Attempt {
+		
+		protected final SocketChannel channel;
+		protected final FamilyStats stats;
+		protected final long startTime = System.nanoTime();
+		
+		protected Attempt(SocketChannel channel, FamilyStats stats) {
+			this.channel = channel;
+			this.stats = stats;
+		}
+		
+	}
+	
+	private final DNSCache dns;
+	private volatile long staggerDelay = 250L;
+	private volatile Boolean preferIPv6 = null;
+	
+	public final FamilyStats ipv4 = new FamilyStats("IPv4"), ipv6 = new FamilyStats("IPv6");
+	
+	/** @param dns The DNS cache to resolve hosts with */
+	public HappyEyeballs(DNSCache dns) {
+		this.dns = dns;
+	}
+	
+	/** @return The delay, in milliseconds, between starting one connection
+	 *         attempt and the next */
+	public final long getStaggerDelay() {
+		return this.staggerDelay;
+	}
+	
+	/** @param staggerDelay The delay, in milliseconds, between starting one
+	 *            connection attempt and the next (RFC 8305 recommends 250)
+	 * @return This instance */
+	public final HappyEyeballs setStaggerDelay(long staggerDelay) {
+		this.staggerDelay = Math.max(10L, staggerDelay);
+		return this;
+	}
+	
+	/** @param preferIPv6 Whether IPv6 (<tt>true</tt>) or IPv4
+	 *            (<tt>false</tt>) addresses should be tried first, or
+	 *            <tt><b>null</b></tt> to prefer the family of the first
+	 *            address returned by the resolver (the default)
+	 * @return This instance */
+	public final HappyEyeballs setPreferIPv6(Boolean preferIPv6) {
+		this.preferIPv6 = preferIPv6;
+		return this;
+	}
+	
+	private final FamilyStats statsFor(InetAddress address) {
+		return address instanceof Inet6Address ? this.ipv6 : this.ipv4;
+	}
+	
+	/** @param addresses The addresses to sort
+	 * @return The given addresses interleaved by family, starting with the
+	 *         preferred family; addresses of the same family keep their
+	 *         order */
+	public final List<InetAddress> sort(InetAddress[] addresses) {
+		List<InetAddress> v6 = new ArrayList<>(), v4 = new ArrayList<>();
+		for(InetAddress address : addresses) {
+			(address instanceof Inet6Address ? v6 : v4).add(address);
+		}
+		Boolean preferIPv6 = this.preferIPv6;
+		boolean v6First = preferIPv6 != null ? preferIPv6.booleanValue() : addresses.length > 0 && addresses[0] instanceof Inet6Address;
+		List<InetAddress> first = v6First ? v6 : v4, second = v6First ? v4 : v6;
+		List<InetAddress> sorted = new ArrayList<>(addresses.length);
+		for(int i = 0; i < Math.max(first.size(), second.size()); i++) {
+			if(i < first.size()) {
+				sorted.add(first.get(i));
+			}
+			if(i < second.size()) {
+				sorted.add(second.get(i));
+			}
+		}
+		return sorted;
+	}
+	
+	/** @param host The host to connect to
+	 * @param port The port to connect to
+	 * @param timeout The overall connect timeout in milliseconds, or zero for
+	 *            none
+	 * @return The connected (blocking) socket
+	 * @throws IOException Thrown if the host couldn't be resolved, every
+	 *             attempt failed, or the timeout elapsed */
+	public final Socket connect(String host, int port, int timeout) throws IOException {
+		return this.connect(host, port, timeout, SocketProfile.SYSTEM);
+	}
+	
+	/** @param host The host to connect to
+	 * @param port The port to connect to
+	 * @param timeout The overall connect timeout in milliseconds, or zero for
+	 *            none
+	 * @param profile The socket options to apply to each attempt before it
+	 *            connects
+	 * @return The connected (blocking) socket
+	 * @throws IOException Thrown if the host couldn't be resolved, every
+	 *             attempt failed, or the timeout elapsed */
+	public final Socket connect(String host, int port, int timeout, SocketProfile profile) throws IOException {
+		return this.connect(host, null, port, timeout, profile);
+	}
+	
+	/** @param host The host to connect to
+	 * @param first The address to start the race with, such as the one that
+	 *            {@link DNSCache#getAddress(String, int)} handed out for the
+	 *            host, or <tt><b>null</b></tt> to start with the cache's next
+	 *            address in round-robin order
+	 * @param port The port to connect to
+	 * @param timeout The overall connect timeout in milliseconds, or zero for
+	 *            none
+	 * @param profile The socket options to apply to each attempt before it
+	 *            connects
+	 * @return The connected (blocking) socket
+	 * @throws IOException Thrown if the host couldn't be resolved, every
+	 *             attempt failed, or the timeout elapsed */
+	public final Socket connect(String host, InetAddress first, int port, int timeout, SocketProfile profile) throws IOException {
+		InetSocketAddress route = Link.getRoute(host, port);
+		if(route != null) {// See Link.addRoute(String, int, InetSocketAddress)
+			return this.connect(Collections.singletonList(route.getAddress()), route.getPort(), timeout, profile);
+		}
+		InetAddress[] addresses = first == null ? this.dns.resolveNext(host) : startingWith(this.dns.resolve(host), first);
+		return this.connect(this.sort(addresses), port, timeout, profile);
+	}
+	
+	/** @return The given addresses rotated so that the given one comes first
+	 *         (or with it prepended, if it isn't one of them) */
+	private static final InetAddress[] startingWith(InetAddress[] addresses, InetAddress first) {
+		int start = Arrays.asList(addresses).indexOf(first);
+		InetAddress[] rotated = new InetAddress[start < 0 ? addresses.length + 1 : addresses.length];
+		if(start < 0) {
+			rotated[0] = first;
+			System.arraycopy(addresses, 0, rotated, 1, addresses.length);
+			return rotated;
+		}
+		for(int i = 0; i < addresses.length; i++) {
+			rotated[i] = addresses[(start + i) % addresses.length];
+		}
+		return rotated;
+	}
+	
+	/** @param addresses The addresses to race, in the order in which they
+	 *            should be tried
+	 * @param port The port to connect to
+	 * @param timeout The overall connect timeout in milliseconds, or zero for
+	 *            none
+	 * @return The connected (blocking) socket
+	 * @throws IOException Thrown if every attempt failed or the timeout
+	 *             elapsed */
+	public final Socket connect(List<InetAddress> addresses, int port, int timeout) throws IOException {
+		return this.connect(addresses, port, timeout, SocketProfile.SYSTEM);
+	}
+	
+	/** @param addresses The addresses to race, in the order in which they
+	 *            should be tried
+	 * @param port The port to connect to
+	 * @param timeout The overall connect timeout in milliseconds, or zero for
+	 *            none
+	 * @param profile The socket options to apply to each attempt before it
+	 *            connects
+	 * @return The connected (blocking) socket
+	 * @throws IOException Thrown if every attempt failed or the timeout
+	 *             elapsed */
+	public final Socket connect(List<InetAddress> addresses, int port, int timeout, SocketProfile profile) throws IOException {
+		if(addresses.isEmpty()) {
+			throw new ConnectException("No addresses to connect to");
+		}
+		if(addresses.size() == 1) {// Nothing to race
+			InetAddress address = addresses.get(0);
+			FamilyStats stats = this.statsFor(address);
+			stats.attempts.incrementAndGet();
+			Socket socket = new Socket();
+			final long startTime = System.nanoTime();
+			try {
+				profile.apply(socket);
+				socket.connect(new InetSocketAddress(address, port), timeout);
+			} catch(IOException ex) {
+				stats.failures.incrementAndGet();
+				socket.close();
+				throw ex;
+			}
+			stats.connectLatency.record(System.nanoTime() - startTime);
+			stats.wins.incrementAndGet();
+			return socket;
+		}
+		
+		final long staggerNanos = TimeUnit.MILLISECONDS.toNanos(this.staggerDelay);
+		final boolean hasDeadline = timeout > 0;// System.nanoTime() may be negative, so there is no value that can stand for "never"
+		final long deadline = hasDeadline ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout) : 0L;
+		List<Attempt> attempts = new ArrayList<>(addresses.size());
+		Attempt winner = null;
+		IOException lastFailure = null;
+		int next = 0, inProgress = 0;
+		long nextAttemptTime = System.nanoTime();
+		Selector selector = Selector.open();
+		try {
+			while(winner == null) {
+				long now = System.nanoTime();
+				if(next < addresses.size() && (now - nextAttemptTime >= 0 || inProgress == 0)) {
+					InetAddress address = addresses.get(next++);
+					nextAttemptTime = now + staggerNanos;
+					SocketChannel channel = SocketChannel.open();
+					Attempt attempt = new Attempt(channel, this.statsFor(address));
+					attempt.stats.attempts.incrementAndGet();
+					attempts.add(attempt);
+					try {
+						profile.apply(channel);
+						channel.configureBlocking(false);
+						if(channel.connect(new InetSocketAddress(address, port))) {
+							winner = attempt;
+						} else {
+							channel.register(selector, SelectionKey.OP_CONNECT, attempt);
+							inProgress++;
+						}
+					} catch(IOException ex) {
+						attempt.stats.failures.incrementAndGet();
+						attempts.remove(attempt);
+						channel.close();
+						lastFailure = ex;
+					}
+					continue;
+				}
+				if(inProgress == 0) {
+					throw lastFailure != null ? lastFailure : new ConnectException("Failed to connect to any address");
+				}
+				if(hasDeadline && now - deadline >= 0) {
+					throw new SocketTimeoutException("Connect timed out after " + timeout + "ms");
+				}
+				long wait = 0L;// Until an attempt finishes
+				if(next < addresses.size() || hasDeadline) {
+					long wakeTime = next < addresses.size() && (!hasDeadline || nextAttemptTime - deadline < 0) ? nextAttemptTime : deadline;
+					wait = Math.max(1L, TimeUnit.NANOSECONDS.toMillis(wakeTime - now + 999999L));
+				}
+				selector.select(wait);
+				for(SelectionKey key : selector.selectedKeys()) {
+					Attempt attempt = (Attempt) key.attachment();
+					try {
+						if(attempt.channel.finishConnect()) {
+							winner = attempt;
+							break;
+						}
+					} catch(IOException ex) {
+						attempt.stats.failures.incrementAndGet();
+						attempts.remove(attempt);
+						key.cancel();
+						attempt.channel.close();
+						inProgress--;
+						lastFailure = ex;
+						nextAttemptTime = System.nanoTime();// Don't wait out the stagger delay after a failure
+					}
+				}
+				selector.selectedKeys().clear();
+			}
+		} finally {
+			selector.close();// Deregisters every channel so that the winner can go back to blocking mode
+			for(Attempt attempt : attempts) {
+				if(attempt != winner) {
+					attempt.stats.abandoned.incrementAndGet();
+					attempt.channel.close();
+				}
+			}
+		}
+		winner.stats.connectLatency.record(System.nanoTime() - winner.startTime);
+		winner.stats.wins.incrementAndGet();
+		winner.channel.configureBlocking(true);
+		return winner.channel.socket();
+	}
+	
+	@Override
+	public String toString() {
+		return this.ipv6.toString().concat("\r\n").concat(this.ipv4.toString());
+	}
+	
+}
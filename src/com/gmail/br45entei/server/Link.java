@@ -23,6 +23,8 @@
  *******************************************************************************/
 package com.gmail.br45entei.server;
 
+import com.gmail.br45entei.ssl.SSLEngineChannel;
+
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -35,10 +37,19 @@ import java.net.URI;
 import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.UnknownHostException;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.SocketChannel;
 import java.nio.charset.StandardCharsets;
+import java.security.NoSuchAlgorithmException;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 import javax.net.ServerSocketFactory;
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLEngine;
 import javax.net.ssl.SSLServerSocketFactory;
 import javax.net.ssl.SSLSocket;
 import javax.net.ssl.SSLSocketFactory;
@@ -46,17 +57,172 @@ import javax.net.ssl.SSLSocketFactory;
 /** @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
 public final class Link {
 	
+	private static final Map<String, InetSocketAddress> routes = new ConcurrentHashMap<>();
+	
+	private static final String getRouteKey(String host, int port) {
+		return host.toLowerCase(Locale.ENGLISH).concat(":").concat(Integer.toString(port));
+	}
+	
+	/** Routes every connection made to the given host and port (through this
+	 * class or {@link HappyEyeballs}) to another address instead, such as a
+	 * {@link NetworkEmulator} in front of the real server. TLS handshakes are
+	 * still performed with the original host name.
+	 *
+	 * @param host The host name or IP address that connections are made to
+	 *            (as given, i.e. <tt>localhost</tt> and <tt>127.0.0.1</tt>
+	 *            are routed separately)
+	 * @param port The port that connections are made to
+	 * @param via The (resolved) address to connect to instead
+	 * @return The address that connections were previously routed to, or
+	 *         <tt><b>null</b></tt> if there wasn't one
+	 * @throws IllegalArgumentException Thrown if the given address is
+	 *             {@link InetSocketAddress#isUnresolved() unresolved} */
+	public static final InetSocketAddress addRoute(String host, int port, InetSocketAddress via) throws IllegalArgumentException {
+		if(via.isUnresolved()) {
+			throw new IllegalArgumentException("Cannot route connections to an unresolved address: ".concat(via.toString()));
+		}
+		return routes.put(getRouteKey(host, port), via);
+	}
+	
+	/** @param host The host name or IP address that connections are made to
+	 * @param port The port that connections are made to
+	 * @return The address that connections were routed to, or
+	 *         <tt><b>null</b></tt> if they weren't being routed */
+	public static final InetSocketAddress removeRoute(String host, int port) {
+		return routes.remove(getRouteKey(host, port));
+	}
+	
+	/** @param host The host name or IP address that a connection is being
+	 *            made to
+	 * @param port The port that the connection is being made to
+	 * @return The address to connect to instead, or <tt><b>null</b></tt> if
+	 *         connections to the given host and port aren't being routed */
+	public static final InetSocketAddress getRoute(String host, int port) {
+		return routes.isEmpty() ? null : routes.get(getRouteKey(host, port));
+	}
+	
 	public static final Socket createSocket(InetSocketAddress endpoint, boolean ssl) throws IOException {
 		return createSocket(endpoint, 0, ssl);
 	}
 	
+	/** @param endpoint The endpoint to connect to. If the endpoint is
+	 *            unresolved, every address its host resolves to is raced
+	 *            using {@link HappyEyeballs}.
+	 * @param timeout The connect timeout in milliseconds, or zero for none
+	 * @param ssl Whether or not to perform a TLS handshake once connected
+	 * @return The connected socket
+	 * @throws IOException Thrown if the connection could not be established */
 	public static final Socket createSocket(InetSocketAddress endpoint, int timeout, boolean ssl) throws IOException {
-		Socket sock = ssl ? SSLSocketFactory.getDefault().createSocket() : new Socket();
-		sock.connect(endpoint, timeout);
-		if(ssl) {
-			((SSLSocket) sock).startHandshake();
+		return createSocket(endpoint, timeout, ssl, SocketProfile.SYSTEM);
+	}
+	
+	/** @param endpoint The endpoint to connect to. If the endpoint is
+	 *            unresolved, every address its host resolves to is raced
+	 *            using {@link HappyEyeballs}.
+	 * @param timeout The connect timeout in milliseconds, or zero for none
+	 * @param ssl Whether or not to perform a TLS handshake once connected
+	 * @param profile The socket options to apply before connecting
+	 * @return The connected socket
+	 * @throws IOException Thrown if the connection could not be established */
+	public static final Socket createSocket(InetSocketAddress endpoint, int timeout, boolean ssl, SocketProfile profile) throws IOException {
+		return createSocket(endpoint, timeout, ssl ? (SSLSocketFactory) SSLSocketFactory.getDefault() : null, profile);
+	}
+	
+	/** @param endpoint The endpoint to connect to. If the endpoint is
+	 *            unresolved, every address its host resolves to is raced
+	 *            using {@link HappyEyeballs}.
+	 * @param timeout The connect timeout in milliseconds, or zero for none
+	 * @param factory The factory to perform the TLS handshake with once
+	 *            connected, or <tt><b>null</b></tt> for a plain connection
+	 * @param profile The socket options to apply before connecting
+	 * @return The connected socket
+	 * @throws IOException Thrown if the connection could not be established */
+	public static final Socket createSocket(InetSocketAddress endpoint, int timeout, SSLSocketFactory factory, SocketProfile profile) throws IOException {
+		Socket sock;
+		if(endpoint.isUnresolved()) {
+			sock = HappyEyeballs.getDefault().connect(endpoint.getHostString(), endpoint.getPort(), timeout, profile);
+		} else {
+			InetSocketAddress route = getRoute(endpoint.getHostString(), endpoint.getPort());
+			sock = new Socket();
+			try {
+				profile.apply(sock);
+				sock.connect(route != null ? route : endpoint, timeout);
+			} catch(IOException ex) {
+				sock.close();
+				throw ex;
+			}
+		}
+		return factory == null ? sock : startTLS(sock, endpoint.getHostString(), endpoint.getPort(), factory);
+	}
+	
+	/** Layers TLS on top of the given connected socket and performs the
+	 * handshake. The socket is closed if the handshake fails.
+	 *
+	 * @param sock The connected socket
+	 * @param host The server's host name (sent via SNI if it isn't an IP
+	 *            address)
+	 * @param port The server's port
+	 * @param factory The factory to create the SSL socket with
+	 * @return The SSL socket, whose handshake has completed
+	 * @throws IOException Thrown if the handshake failed */
+	public static final SSLSocket startTLS(Socket sock, String host, int port, SSLSocketFactory factory) throws IOException {
+		try {
+			SSLSocket sslSocket = (SSLSocket) factory.createSocket(sock, host, port, true);
+			sslSocket.startHandshake();
+			return sslSocket;
+		} catch(IOException ex) {
+			sock.close();
+			throw ex;
+		}
+	}
+	
+	/** Opens a (blocking) channel to the given endpoint, layering TLS on top
+	 * of it with an {@link SSLEngineChannel} if requested.<br>
+	 * Unlike {@link #createSocket(InetSocketAddress, int, boolean)}, the
+	 * returned channel may be switched to non-blocking mode (via
+	 * {@link SSLEngineChannel#getChannel()} for TLS channels) and driven by a
+	 * selector, which is what should be used when many concurrent connections
+	 * are needed.
+	 * 
+	 * @param endpoint The address to connect to
+	 * @param timeout The connect timeout in milliseconds, or zero for none
+	 * @param context The SSL context to create the engine from, or
+	 *            <tt><b>null</b></tt> for a plain-text connection
+	 * @return The connected channel, whose TLS handshake (if any) has
+	 *         completed
+	 * @throws IOException Thrown if the connection or handshake failed */
+	public static final ByteChannel openChannel(InetSocketAddress endpoint, int timeout, SSLContext context) throws IOException {
+		SocketChannel channel = SocketChannel.open();
+		try {
+			InetSocketAddress route = getRoute(endpoint.getHostString(), endpoint.getPort());
+			channel.socket().connect(route != null ? route : endpoint, timeout);
+			channel.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+			if(context == null) {
+				return channel;
+			}
+			SSLEngine engine = context.createSSLEngine(endpoint.getHostString(), endpoint.getPort());
+			engine.setUseClientMode(true);
+			SSLEngineChannel ssl = new SSLEngineChannel(channel, engine);
+			ssl.handshake();
+			return ssl;
+		} catch(IOException | RuntimeException ex) {
+			channel.close();
+			throw ex;
+		}
+	}
+	
+	/** @param endpoint The address to connect to
+	 * @param timeout The connect timeout in milliseconds, or zero for none
+	 * @param ssl Whether or not to use TLS (with the default SSL context)
+	 * @return The connected channel
+	 * @throws IOException Thrown if the connection or handshake failed
+	 * @see #openChannel(InetSocketAddress, int, SSLContext) */
+	public static final ByteChannel openChannel(InetSocketAddress endpoint, int timeout, boolean ssl) throws IOException {
+		try {
+			return openChannel(endpoint, timeout, ssl ? SSLContext.getDefault() : null);
+		} catch(NoSuchAlgorithmException ex) {
+			throw new IOException("Failed to obtain the default SSL context", ex);
 		}
-		return sock;
 	}
 	
 	/** @param in The input stream to read from
@@ -98,71 +264,218 @@ public final class Link {
 	public final int port;
 	public final String requestPath;
 	
-	private static final boolean isValid(String host) {
-		if(host.startsWith("[") && host.endsWith("]")) {
-			host = host.substring(1, host.length() - 1);
-		}
+	public static final boolean isInt(String str) {
 		try {
-			InetAddress.getByName(host).getHostAddress();
+			Integer.parseInt(str);
 			return true;
-		} catch(Throwable ex) {
+		} catch(NumberFormatException | NullPointerException ex) {
 			return false;
 		}
 	}
 	
-	public static final boolean isInt(String str) {
-		try {
-			Integer.parseInt(str);
-			return true;
-		} catch(NumberFormatException | NullPointerException ex) {
+	private static final int indexOf(CharSequence s, char c, int start, int end) {
+		for(int i = start; i < end; i++) {
+			if(s.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private static final int lastIndexOf(CharSequence s, char c, int start, int end) {
+		for(int i = end - 1; i >= start; i--) {
+			if(s.charAt(i) == c) {
+				return i;
+			}
+		}
+		return -1;
+	}
+	
+	private static final boolean isHexDigit(char c) {
+		return (c >= '0' && c <= '9') || (c >= 'a' && c <= 'f') || (c >= 'A' && c <= 'F');
+	}
+	
+	/** Parses a port number without throwing any exceptions.
+	 * 
+	 * @param s The text containing the port
+	 * @param start The index of the port's first digit
+	 * @param end The index just past the port's last digit
+	 * @return The port number, or <tt>-1</tt> if the given range is empty,
+	 *         contains anything other than decimal digits, or is greater than
+	 *         <tt>65535</tt> */
+	public static final int parsePort(CharSequence s, int start, int end) {
+		if(start >= end || end - start > 5) {
+			return -1;
+		}
+		int port = 0;
+		for(int i = start; i < end; i++) {
+			char c = s.charAt(i);
+			if(c < '0' || c > '9') {
+				return -1;
+			}
+			port = (port * 10) + (c - '0');
+		}
+		return port > 65535 ? -1 : port;
+	}
+	
+	/** @param s The text to check
+	 * @param start The index of the address' first character
+	 * @param end The index just past the address' last character
+	 * @return Whether or not the given range is a dotted-quad IPv4 address
+	 *         (e.g. <tt>127.0.0.1</tt>) */
+	public static final boolean isIPv4Literal(CharSequence s, int start, int end) {
+		int parts = 0;
+		int i = start;
+		while(true) {
+			int value = 0, digits = 0;
+			while(i < end) {
+				char c = s.charAt(i);
+				if(c < '0' || c > '9') {
+					break;
+				}
+				if(++digits > 3) {
+					return false;
+				}
+				value = (value * 10) + (c - '0');
+				i++;
+			}
+			if(digits == 0 || value > 255) {
+				return false;
+			}
+			parts++;
+			if(i == end) {
+				return parts == 4;
+			}
+			if(s.charAt(i) != '.' || parts == 4) {
+				return false;
+			}
+			i++;
+		}
+	}
+	
+	/** @param s The text to check
+	 * @param start The index of the address' first character
+	 * @param end The index just past the address' last character
+	 * @return Whether or not the given range is an IPv6 address, optionally
+	 *         with an embedded IPv4 address (e.g. <tt>::ffff:10.0.0.1</tt>),
+	 *         a zone ID (e.g. <tt>fe80::1%eth0</tt>), and/or surrounding
+	 *         square brackets */
+	public static final boolean isIPv6Literal(CharSequence s, int start, int end) {
+		if(end - start >= 2 && s.charAt(start) == '[' && s.charAt(end - 1) == ']') {
+			start++;
+			end--;
+		}
+		int zone = indexOf(s, '%', start, end);
+		if(zone >= 0) {
+			if(zone == end - 1 || indexOf(s, ']', zone, end) >= 0) {
+				return false;
+			}
+			end = zone;
+		}
+		if(end - start < 2) {
 			return false;
 		}
+		int groups = 0;
+		boolean doubleColon = false;
+		int i = start;
+		if(s.charAt(i) == ':') {
+			if(s.charAt(i + 1) != ':') {
+				return false;
+			}
+			doubleColon = true;
+			i += 2;
+		}
+		while(i < end) {
+			int groupStart = i;
+			while(i < end && isHexDigit(s.charAt(i))) {
+				if(i - groupStart == 4) {
+					return false;
+				}
+				i++;
+			}
+			if(i < end && s.charAt(i) == '.') {// An embedded IPv4 address takes up the last two groups
+				if(!isIPv4Literal(s, groupStart, end)) {
+					return false;
+				}
+				groups += 2;
+				break;
+			}
+			if(i == groupStart) {
+				return false;
+			}
+			groups++;
+			if(i == end) {
+				break;
+			}
+			if(s.charAt(i) != ':') {
+				return false;
+			}
+			if(++i == end) {
+				return false;
+			}
+			if(s.charAt(i) == ':') {
+				if(doubleColon) {
+					return false;
+				}
+				doubleColon = true;
+				i++;
+			}
+		}
+		return doubleColon ? groups <= 7 : groups == 8;
 	}
 	
+	/** @param host The host to check
+	 * @return Whether or not the given host is an IPv4 or IPv6 address
+	 *         literal (as opposed to a hostname that would need to be
+	 *         resolved) */
+	public static final boolean isIPLiteral(CharSequence host) {
+		return isIPv4Literal(host, 0, host.length()) || isIPv6Literal(host, 0, host.length());
+	}
+	
+	/** Parses the given URI (or bare <tt>host[:port][/path]</tt> authority)
+	 * without performing any DNS lookups.<br>
+	 * IPv6 addresses may be written with or without square brackets; when
+	 * written without them, a trailing <tt>:port</tt> is only recognized if
+	 * what precedes it is still a valid IPv6 address.
+	 * 
+	 * @param uri The URI to parse */
 	public Link(String uri) {
 		this.URI = uri;
-		String protocol = uri.contains("://") ? uri.substring(0, uri.indexOf("://") + 3) : "http://";
-		uri = uri.contains("://") ? uri.substring(protocol.length()) : uri;
-		String requestPath = uri.contains("/") ? uri.substring(uri.indexOf("/")) : "/";
-		String host = uri.endsWith(requestPath) ? uri.substring(0, uri.length() - requestPath.length()) : uri;
-		String getPort = protocol.equalsIgnoreCase("https://") ? "443" : "80";
-		if(host.contains(":")) {
-			if(host.indexOf(":") != host.lastIndexOf(":")) {//IPv6
-				String tmp = getPort;
-				getPort = host.substring(host.lastIndexOf(":") + 1);
-				String check = host.substring(0, host.lastIndexOf(":"));
-				if(isInt(getPort) && isValid(check)) {
-					host = check;
-					/*} else if(CodeUtil.isInt(getPort)) {
-						check = host.substring(0, host.lastIndexOf(":") + 1);
-						getPort = host.substring(host.lastIndexOf(":") + 1);
-						if(CodeUtil.isInt(getPort) && isValid(check)) {
-							host = check;
-						} else {
-							getPort = tmp;
-						}*/
-				} else {
-					getPort = tmp;
+		final int schemeEnd = uri.indexOf("://");
+		String protocol = schemeEnd >= 0 ? uri.substring(0, schemeEnd + 3) : "http://";
+		final int authorityStart = schemeEnd >= 0 ? schemeEnd + 3 : 0;
+		final int pathStart = uri.indexOf('/', authorityStart);
+		int hostStart = authorityStart, hostEnd = pathStart >= 0 ? pathStart : uri.length();
+		
+		int port = protocol.equalsIgnoreCase("https://") ? 443 : 80;
+		int lastColon = lastIndexOf(uri, ':', hostStart, hostEnd);
+		if(lastColon >= 0) {
+			if(indexOf(uri, ':', hostStart, hostEnd) != lastColon) {//IPv6
+				int check = parsePort(uri, lastColon + 1, hostEnd);
+				if(check >= 0 && isIPv6Literal(uri, hostStart, lastColon)) {
+					port = check;
+					hostEnd = lastColon;
 				}
 			} else {//IPv4, hostnames
-				getPort = host.substring(host.lastIndexOf(":") + 1);
-				host = host.substring(0, host.lastIndexOf(":"));
+				port = parsePort(uri, lastColon + 1, hostEnd);
+				hostEnd = lastColon;
 			}
 		}
-		if(host.startsWith("[") && host.endsWith("]")) {
-			host = host.substring(1, host.length() - 1);
-		}
-		if(isInt(getPort)) {
-			this.port = Integer.parseInt(getPort);
-		} else {
-			this.port = -1;
+		if(hostEnd - hostStart >= 2 && uri.charAt(hostStart) == '[' && uri.charAt(hostEnd - 1) == ']') {
+			hostStart++;
+			hostEnd--;
 		}
-		if(this.port == 443 && !this.URI.contains("://")) {
+		if(port == 443 && schemeEnd < 0) {
 			protocol = "https://";
 		}
+		String host = uri.substring(hostStart, hostEnd);
+		if(indexOf(host, '%', 0, host.length()) >= 0 && indexOf(host, ':', 0, host.length()) >= 0) {
+			host = host.replace("%25", "%");// Percent-encoded IPv6 zone ID (RFC 6874)
+		}
 		this.protocol = protocol;
 		this.host = host;
-		this.requestPath = requestPath;
+		this.port = port;
+		this.requestPath = pathStart >= 0 ? uri.substring(pathStart) : "/";
 	}
 	
 	public static final boolean isSSL(String protocol, int port) {
@@ -173,8 +486,21 @@ public final class Link {
 		return isSSL(this.protocol, this.port);
 	}
 	
+	/** @return The value of a <tt>Host</tt> header for this link: its host
+	 *         (in square brackets if it is an IPv6 address), followed by its
+	 *         port unless that is the default one for its protocol */
+	public String getHostHeader() {
+		String host = indexOf(this.host, ':', 0, this.host.length()) >= 0 ? "[".concat(this.host.replace("%", "%25")).concat("]") : this.host;
+		boolean defaultPort = this.protocol.equalsIgnoreCase("https://") ? this.port == 443 : this.port == 80;
+		return defaultPort ? host : host.concat(":").concat(Integer.toString(this.port));
+	}
+	
+	/** @return The next of this link's host's addresses (in round-robin
+	 *         order) from the {@link DNSCache#getDefault() default DNS
+	 *         cache}, or an unresolved address if the host couldn't be
+	 *         resolved */
 	public InetSocketAddress getAddress() {
-		return new InetSocketAddress(this.host, this.port);
+		return DNSCache.getDefault().getAddress(this.host, this.port);
 	}
 	
 	public ServerSocket bindSocket() throws UnknownHostException, IOException {
@@ -203,12 +529,33 @@ public final class Link {
 		return factory.createServerSocket(this.port, backlog, ifAddress);
 	}
 	
+	/** Binds several acceptors to this link's port. Unlike
+	 * {@link #bindSocket(int, InetAddress)}, TLS is left up to the caller
+	 * (see {@link SSLEngineChannel}).
+	 *
+	 * @param acceptors The number of acceptor threads
+	 * @param backlog The listen backlog of each channel, or zero for the
+	 *            platform's default
+	 * @param receiveBufferSize The receive buffer size that accepted sockets
+	 *            inherit, or zero for the platform's default
+	 * @param ifAddress The local address to bind to, or
+	 *            <tt><b>null</b></tt> for the wildcard address
+	 * @return The bound (but not yet started) acceptors
+	 * @throws IOException Thrown if a channel could not be bound */
+	public MultiAcceptor bindAcceptors(int acceptors, int backlog, int receiveBufferSize, InetAddress ifAddress) throws IOException {
+		return new MultiAcceptor(new InetSocketAddress(ifAddress, this.port), acceptors, backlog, receiveBufferSize);
+	}
+	
 	public Socket connectSocket() throws IOException {
 		return this.connectSocket(0);
 	}
 	
 	public Socket connectSocket(int timeout) throws IOException {
-		return createSocket(this.getAddress(), timeout, this.isSSL());
+		return createSocket(InetSocketAddress.createUnresolved(this.host, this.port), timeout, this.isSSL());
+	}
+	
+	public ByteChannel openChannel(int timeout, SSLContext context) throws IOException {
+		return openChannel(this.getAddress(), timeout, this.isSSL() ? context : null);
 	}
 	
 	public URI toURI() throws URISyntaxException {
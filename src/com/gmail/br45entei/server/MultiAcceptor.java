@@ -0,0 +1,299 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.server;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/** Accepts connections on one port with several threads at once.<br>
+ * Where the platform supports <tt>SO_REUSEPORT</tt> (e.g. Linux), each
+ * acceptor gets its own {@link ServerSocketChannel} bound to the same port
+ * and the kernel spreads incoming connections across them. Elsewhere, the
+ * acceptors all share a single channel.<br>
+ * <br>
+ * Accepted channels are in blocking mode and are handed to the handler on the
+ * acceptor's own thread, so the handler should pass them off to a worker (or
+ * wrap them in an {@link com.gmail.br45entei.ssl.SSLEngineChannel
+ * SSLEngineChannel} and do so) rather than serve them itself.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class MultiAcceptor implements Closeable {
+	
+	/** A single accepting thread and its statistics.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Acceptor {
+		
+		private final int id;
+		private final ServerSocketChannel channel;
+		private final AtomicLong accepted = new AtomicLong(), errors = new AtomicLong();
+		private volatile long windowStart = System.nanoTime(), windowCount = 0L;
+		private volatile double rate = -1.0;
+		private volatile Thread thread;
+		
+		protected Acceptor(int id, ServerSocketChannel channel) {
+			this.id = id;
+			this.channel = channel;
+		}
+		
+		/** @return This acceptor's index */
+		public final int getId() {
+			return this.id;
+		}
+		
+		/** @return The channel this acceptor accepts connections from */
+		public final ServerSocketChannel getChannel() {
+			return this.channel;
+		}
+		
+		/** @return The number of connections accepted so far */
+		public final long getAccepted() {
+			return this.accepted.get();
+		}
+		
+		/** @return The number of accept calls that failed */
+		public final long getErrors() {
+			return this.errors.get();
+		}
+		
+		/** @return The number of connections accepted per second, measured
+		 *         over the last full second (or over the current one, if it
+		 *         has taken longer or is the first) */
+		public final double getAcceptRate() {
+			long elapsed = System.nanoTime() - this.windowStart;
+			if(this.rate < 0.0 || elapsed >= TimeUnit.SECONDS.toNanos(1L)) {
+				return this.windowCount / (Math.max(1L, elapsed) / 1000000000.0);
+			}
+			return this.rate;
+		}
+		
+		protected final void onAccept() {
+			this.accepted.incrementAndGet();
+			long now = System.nanoTime();
+			long elapsed = now - this.windowStart;
+			if(elapsed >= TimeUnit.SECONDS.toNanos(1L)) {
+				this.rate = this.windowCount / (elapsed / 1000000000.0);
+				this.windowStart = now;
+				this.windowCount = 1L;
+			} else {
+				this.windowCount++;
+			}
+		}
+		
+		@Override
+		public String toString() {
+			return "Acceptor #".concat(Integer.toString(this.id)).concat(": accepted=").concat(Long.toString(this.getAccepted())).concat(", errors=").concat(Long.toString(this.getErrors())).concat(", rate=").concat(String.format("%.1f", Double.valueOf(this.getAcceptRate()))).concat("/s");
+		}
+		
+	}
+	
+	private final List<Acceptor> acceptors;
+	private final List<ServerSocketChannel> channels = new ArrayList<>();
+	private final boolean reusePort;
+	private final InetSocketAddress localAddress;
+	private volatile int sendBufferSize = 0;
+	private volatile boolean closed = false;
+	
+	/** Binds the given number of acceptors to the given endpoint.
+	 *
+	 * @param endpoint The address to bind to. If its port is zero, an
+	 *            ephemeral port is chosen and shared by every acceptor.
+	 * @param acceptors The number of acceptor threads
+	 * @param backlog The listen backlog of each channel, or zero for the
+	 *            platform's default
+	 * @param receiveBufferSize The receive buffer size that accepted sockets
+	 *            inherit, or zero for the platform's default
+	 * @throws IOException Thrown if a channel could not be bound */
+	public MultiAcceptor(InetSocketAddress endpoint, int acceptors, int backlog, int receiveBufferSize) throws IOException {
+		acceptors = Math.max(1, acceptors);
+		List<Acceptor> list = new ArrayList<>(acceptors);
+		boolean reusePort = false;
+		InetSocketAddress localAddress = endpoint;
+		try {
+			for(int i = 0; i < acceptors; i++) {
+				if(i > 0 && !reusePort) {
+					list.add(new Acceptor(i, this.channels.get(0)));
+					continue;
+				}
+				ServerSocketChannel channel = ServerSocketChannel.open();
+				this.channels.add(channel);
+				if(i == 0) {
+					reusePort = acceptors > 1 && channel.supportedOptions().contains(StandardSocketOptions.SO_REUSEPORT);
+				}
+				channel.setOption(StandardSocketOptions.SO_REUSEADDR, Boolean.TRUE);
+				if(reusePort) {
+					channel.setOption(StandardSocketOptions.SO_REUSEPORT, Boolean.TRUE);
+				}
+				if(receiveBufferSize > 0) {// Must be set before binding for windows larger than 64K to be negotiated
+					channel.setOption(StandardSocketOptions.SO_RCVBUF, Integer.valueOf(receiveBufferSize));
+				}
+				channel.bind(localAddress, backlog);
+				if(i == 0) {
+					localAddress = new InetSocketAddress(endpoint.getAddress(), ((InetSocketAddress) channel.getLocalAddress()).getPort());
+				}
+				list.add(new Acceptor(i, channel));
+			}
+		} catch(IOException ex) {
+			this.closeChannels();
+			throw ex;
+		}
+		this.acceptors = Collections.unmodifiableList(list);
+		this.reusePort = reusePort;
+		this.localAddress = localAddress;
+	}
+	
+	/** @param sendBufferSize The send buffer size to set on each accepted
+	 *            socket, or zero for the platform's default
+	 * @return This acceptor */
+	public final MultiAcceptor setSendBufferSize(int sendBufferSize) {
+		this.sendBufferSize = sendBufferSize;
+		return this;
+	}
+	
+	/** @return Whether or not each acceptor has its own
+	 *         <tt>SO_REUSEPORT</tt> channel */
+	public final boolean isReusePort() {
+		return this.reusePort;
+	}
+	
+	/** @return The address the acceptors are bound to */
+	public final InetSocketAddress getLocalAddress() {
+		return this.localAddress;
+	}
+	
+	/** @return The acceptors */
+	public final List<Acceptor> getAcceptors() {
+		return this.acceptors;
+	}
+	
+	/** @return The total number of connections accepted by every acceptor */
+	public final long getAccepted() {
+		long accepted = 0L;
+		for(Acceptor acceptor : this.acceptors) {
+			accepted += acceptor.getAccepted();
+		}
+		return accepted;
+	}
+	
+	/** @return The combined accept rate of every acceptor, in connections per
+	 *         second */
+	public final double getAcceptRate() {
+		double rate = 0.0;
+		for(Acceptor acceptor : this.acceptors) {
+			rate += acceptor.getAcceptRate();
+		}
+		return rate;
+	}
+	
+	/** Starts every acceptor's thread.
+	 *
+	 * @param handler The handler that accepted channels are given to
+	 * @throws IllegalStateException Thrown if the acceptors have already been
+	 *             started or closed */
+	public final void start(Consumer<SocketChannel> handler) throws IllegalStateException {
+		if(this.closed) {
+			throw new IllegalStateException("This acceptor has been closed!");
+		}
+		for(Acceptor acceptor : this.acceptors) {
+			if(acceptor.thread != null) {
+				throw new IllegalStateException("This acceptor has already been started!");
+			}
+			Thread thread = new Thread(() -> this.acceptLoop(acceptor, handler), "Acceptor #" + acceptor.id + " (" + this.localAddress + ")");
+			thread.setDaemon(true);
+			acceptor.thread = thread;
+			thread.start();
+		}
+	}
+	
+	private final void acceptLoop(Acceptor acceptor, Consumer<SocketChannel> handler) {
+		while(!this.closed) {
+			SocketChannel channel;
+			try {
+				channel = acceptor.channel.accept();
+			} catch(ClosedChannelException ex) {
+				break;
+			} catch(IOException ex) {// e.g. EMFILE; back off briefly rather than spinning
+				acceptor.errors.incrementAndGet();
+				try {
+					Thread.sleep(10L);
+				} catch(InterruptedException ignored) {
+					Thread.currentThread().interrupt();
+					break;
+				}
+				continue;
+			}
+			acceptor.onAccept();
+			try {
+				if(this.sendBufferSize > 0) {
+					channel.setOption(StandardSocketOptions.SO_SNDBUF, Integer.valueOf(this.sendBufferSize));
+				}
+				handler.accept(channel);
+			} catch(Throwable ex) {
+				System.err.println("Failed to hand off accepted connection:");
+				ex.printStackTrace(System.err);
+				try {
+					channel.close();
+				} catch(IOException ignored) {
+				}
+			}
+		}
+	}
+	
+	private final void closeChannels() {
+		for(ServerSocketChannel channel : this.channels) {
+			try {
+				channel.close();
+			} catch(IOException ignored) {
+			}
+		}
+	}
+	
+	/** Closes every channel, which stops the acceptor threads. */
+	@Override
+	public final void close() {
+		this.closed = true;
+		this.closeChannels();
+	}
+	
+	@Override
+	public String toString() {
+		String str = "Acceptors on ".concat(this.localAddress.toString()).concat(this.reusePort ? " (SO_REUSEPORT)" : " (shared channel)");
+		for(Acceptor acceptor : this.acceptors) {
+			str = str.concat("\r\n").concat(acceptor.toString());
+		}
+		return str;
+	}
+	
+}
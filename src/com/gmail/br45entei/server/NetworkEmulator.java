@@ -0,0 +1,727 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.server;
+
+import com.gmail.br45entei.util.TimerWheel;
+import com.gmail.br45entei.util.TimerWheel.Timeout;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A local TCP proxy that emulates a slower network between its clients and
+ * a target server, so that latency under constrained bandwidth can be
+ * measured reproducibly on one machine.<br>
+ * <br>
+ * Each direction of each connection is given its own
+ * {@link Conditions}: a one-way delay (plus random jitter, which can't
+ * reorder the byte stream) and a token-bucket bandwidth limit. Data that is
+ * read from one side is held until it is due and then written to the other
+ * side. Every connection is served by a single selector thread, and the data
+ * is released by timeouts on a {@link TimerWheel} rather than by sleeping
+ * threads. Once too much data is in flight in one direction, reading from its
+ * sender stops until some of it has been delivered, so a slow link pushes
+ * back on the sender the way a real one would.<br>
+ * <br>
+ * Clients that connect through {@link Link} (or {@link HappyEyeballs}) can be
+ * routed through an emulator transparently with {@link #route(String, int)}.
+ * <br>
+ * Usage: <tt>NetworkEmulator &lt;listen host:port&gt; &lt;target
+ * host:port&gt; [uplink conditions] [downlink conditions]</tt>, where
+ * conditions look like <tt>delay=50,jitter=5,rate=256k,burst=16k</tt> (see
+ * {@link Conditions#parse(String)}).
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class NetworkEmulator implements Closeable {
+	
+	/** The conditions applied to one direction of a connection.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Conditions {
+		
+		/** No delay and no bandwidth limit */
+		public static final Conditions NONE = new Conditions(0L, 0L, 0L, 0L);
+		
+		/** The one-way delay, in nanoseconds */
+		public final long delayNanos;
+		/** The most that the delay varies by in either direction, in
+		 * nanoseconds */
+		public final long jitterNanos;
+		/** The bandwidth limit in bytes per second, or zero for none */
+		public final long bytesPerSecond;
+		/** The size of the token bucket, i.e. the most that may be sent at
+		 * once after the link has been idle, in bytes */
+		public final long burstBytes;
+		
+		/** @param delayMillis The one-way delay, in milliseconds
+		 * @param jitterMillis The most that the delay varies by in either
+		 *            direction, in milliseconds
+		 * @param bytesPerSecond The bandwidth limit in bytes per second, or
+		 *            zero for none
+		 * @param burstBytes The size of the token bucket in bytes, or zero for
+		 *            a tenth of a second's worth (but at least 1500 bytes) */
+		public Conditions(long delayMillis, long jitterMillis, long bytesPerSecond, long burstBytes) {
+			this.delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, delayMillis));
+			this.jitterNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0L, jitterMillis));
+			this.bytesPerSecond = Math.max(0L, bytesPerSecond);
+			this.burstBytes = burstBytes > 0L ? burstBytes : Math.max(1500L, this.bytesPerSecond / 10L);
+		}
+		
+		private static final long parseAmount(String value) throws NumberFormatException {
+			value = value.strip().toLowerCase(Locale.ENGLISH);
+			long multiplier = 1L;
+			switch(value.isEmpty() ? ' ' : value.charAt(value.length() - 1)) {
+			case 'k':
+				multiplier = 1024L;
+				break;
+			case 'm':
+				multiplier = 1024L * 1024L;
+				break;
+			case 'g':
+				multiplier = 1024L * 1024L * 1024L;
+				break;
+			default:
+				break;
+			}
+			long amount = Long.parseLong(multiplier == 1L ? value : value.substring(0, value.length() - 1));
+			if(amount < 0L) {
+				throw new NumberFormatException("Negative amount: ".concat(value));
+			}
+			return Math.multiplyExact(amount, multiplier);
+		}
+		
+		/** @param s A comma-separated list of conditions, e.g.
+		 *            <tt>delay=50,jitter=5,rate=256k,burst=16k</tt>. The delay
+		 *            and jitter are in milliseconds; the rate (in bytes per
+		 *            second) and burst size (in bytes) may have a <tt>k</tt>,
+		 *            <tt>m</tt> or <tt>g</tt> suffix. Anything left out is
+		 *            zero.
+		 * @return The parsed conditions
+		 * @throws IllegalArgumentException Thrown if the given string is
+		 *             malformed */
+		public static final Conditions parse(String s) throws IllegalArgumentException {
+			long delay = 0L, jitter = 0L, rate = 0L, burst = 0L;
+			for(String condition : s.split(",")) {
+				if(condition.isBlank()) {
+					continue;
+				}
+				int equals = condition.indexOf('=');
+				String name = equals < 0 ? condition.strip() : condition.substring(0, equals).strip();
+				try {
+					long value = parseAmount(equals < 0 ? "" : condition.substring(equals + 1));
+					switch(name.toLowerCase(Locale.ENGLISH)) {
+					case "delay":
+						delay = value;
+						break;
+					case "jitter":
+						jitter = value;
+						break;
+					case "rate":
+						rate = value;
+						break;
+					case "burst":
+						burst = value;
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown condition: ".concat(name));
+					}
+				} catch(NumberFormatException | ArithmeticException ex) {
+					throw new IllegalArgumentException("Invalid condition: ".concat(condition.strip()), ex);
+				}
+			}
+			return new Conditions(delay, jitter, rate, burst);
+		}
+		
+		@Override
+		public String toString() {
+			return "delay=".concat(Long.toString(TimeUnit.NANOSECONDS.toMillis(this.delayNanos))).concat("ms, jitter=").concat(Long.toString(TimeUnit.NANOSECONDS.toMillis(this.jitterNanos))).concat("ms, rate=").concat(this.bytesPerSecond == 0L ? "unlimited" : Long.toString(this.bytesPerSecond).concat("B/s, burst=").concat(Long.toString(this.burstBytes)).concat("B"));
+		}
+		
+	}
+	
+	/** Data that has been read from one side of a connection and is waiting
+	 * to be written to the other, or the end of the stream if
+	 * <tt>data</tt> is <tt><b>null</b></tt>. */
+	private static final class Segment {
+		
+		protected final ByteBuffer data;
+		protected final long deliveryTime;
+		
+		protected Segment(ByteBuffer data, long deliveryTime) {
+			this.data = data;
+			this.deliveryTime = deliveryTime;
+		}
+		
+	}
+	
+	/** One direction of a connection. Everything but {@link #timeout} is only
+	 * touched by the selector thread. */
+	private final class Pipe {
+		
+		protected final Connection connection;
+		protected final SocketChannel source, sink;
+		protected final Conditions conditions;
+		protected final ArrayDeque<Segment> queue = new ArrayDeque<>();
+		protected final AtomicLong transferred;
+		protected ByteBuffer writing;
+		protected long queuedBytes, lastRefill = System.nanoTime(), lastDelivery;
+		protected double tokens;
+		protected boolean ended, shutdown;
+		protected volatile Timeout timeout;
+		
+		protected Pipe(Connection connection, SocketChannel source, SocketChannel sink, Conditions conditions, AtomicLong transferred) {
+			this.connection = connection;
+			this.source = source;
+			this.sink = sink;
+			this.conditions = conditions;
+			this.transferred = transferred;
+			this.tokens = conditions.burstBytes;
+		}
+		
+		protected final boolean isReading() {
+			return !this.ended && this.queuedBytes < NetworkEmulator.this.queueLimit;
+		}
+		
+		protected final boolean isDone() {
+			return this.shutdown;
+		}
+		
+		/** @return The most that should be read at once, so that a low
+		 *         bandwidth limit is spread out evenly rather than sent in
+		 *         large bursts */
+		protected final int getReadSize() {
+			return this.conditions.bytesPerSecond == 0L ? 65536 : (int) Math.max(512L, Math.min(65536L, this.conditions.bytesPerSecond / 100L));
+		}
+		
+		protected final long getDeliveryTime(long now, int length) {
+			Conditions c = this.conditions;
+			long departure = now;
+			if(c.bytesPerSecond > 0L && length > 0) {// Token bucket; a deficit is paid off before anything else may depart
+				this.tokens = Math.min(c.burstBytes, this.tokens + (((now - this.lastRefill) * (double) c.bytesPerSecond) / 1.0e9));
+				this.lastRefill = now;
+				this.tokens -= length;
+				if(this.tokens < 0.0) {
+					departure = now + (long) ((-this.tokens * 1.0e9) / c.bytesPerSecond);
+				}
+			}
+			long delay = c.delayNanos;
+			if(c.jitterNanos > 0L) {
+				delay = Math.max(0L, delay + NetworkEmulator.this.random.nextLong(-c.jitterNanos, c.jitterNanos + 1L));
+			}
+			// Jitter may not reorder a byte stream; later data waits for earlier data instead
+			this.lastDelivery = Math.max(this.lastDelivery, departure + delay);
+			return this.lastDelivery;
+		}
+		
+	}
+	
+	private final class Connection {
+		
+		protected final SocketChannel client, server;
+		protected final Pipe uplink, downlink;
+		protected SelectionKey clientKey, serverKey;
+		protected boolean connected = false, closed = false;
+		
+		protected Connection(SocketChannel client, SocketChannel server, Conditions uplink, Conditions downlink) {
+			this.client = client;
+			this.server = server;
+			this.uplink = new Pipe(this, client, server, uplink, NetworkEmulator.this.bytesUp);
+			this.downlink = new Pipe(this, server, client, downlink, NetworkEmulator.this.bytesDown);
+		}
+		
+	}
+	
+	/** The tolerance for releasing data early, which saves rescheduling data
+	 * that is due within a fraction of the timer wheel's tick */
+	private static final long RELEASE_TOLERANCE = TimeUnit.MICROSECONDS.toNanos(500L);
+	
+	private final ServerSocketChannel listener;
+	private final InetSocketAddress target;
+	private final Selector selector;
+	private final TimerWheel wheel;
+	private final boolean ownWheel;
+	private final Queue<Pipe> due = new ConcurrentLinkedQueue<>();
+	private final List<String> routes = new ArrayList<>();
+	private final SplittableRandom random = new SplittableRandom();
+	private volatile Conditions uplink = Conditions.NONE, downlink = Conditions.NONE;
+	private volatile int queueLimit = 256 * 1024;
+	private volatile Thread thread;
+	private volatile boolean closed = false;
+	
+	private final AtomicLong accepted = new AtomicLong(), failed = new AtomicLong(), bytesUp = new AtomicLong(), bytesDown = new AtomicLong();
+	private final AtomicInteger active = new AtomicInteger();
+	
+	/** @param listen The address to listen on (a port of zero picks an
+	 *            ephemeral port; see {@link #getLocalAddress()})
+	 * @param target The server to forward connections to (resolved once,
+	 *            here, if it isn't already)
+	 * @throws IOException Thrown if the target could not be resolved or the
+	 *             listening socket could not be bound */
+	public NetworkEmulator(InetSocketAddress listen, InetSocketAddress target) throws IOException {
+		this(listen, target, null);
+	}
+	
+	/** @param listen The address to listen on (a port of zero picks an
+	 *            ephemeral port; see {@link #getLocalAddress()})
+	 * @param target The server to forward connections to (resolved once,
+	 *            here, if it isn't already, so that the selector thread never
+	 *            waits on DNS)
+	 * @param wheel The timer wheel to schedule deliveries on, or
+	 *            <tt><b>null</b></tt> to create one with one millisecond
+	 *            ticks (which is closed along with this emulator)
+	 * @throws IOException Thrown if the target could not be resolved or the
+	 *             listening socket could not be bound */
+	public NetworkEmulator(InetSocketAddress listen, InetSocketAddress target, TimerWheel wheel) throws IOException {
+		if(target.isUnresolved()) {
+			target = DNSCache.getDefault().getAddress(target.getHostString(), target.getPort());
+			if(target.isUnresolved()) {
+				throw new UnknownHostException(target.getHostString());
+			}
+		}
+		this.target = target;
+		this.selector = Selector.open();
+		try {
+			this.listener = ServerSocketChannel.open();
+			this.listener.setOption(StandardSocketOptions.SO_REUSEADDR, Boolean.TRUE);
+			this.listener.bind(listen);
+			this.listener.configureBlocking(false);
+		} catch(IOException ex) {
+			this.selector.close();
+			throw ex;
+		}
+		this.ownWheel = wheel == null;
+		this.wheel = wheel != null ? wheel : new TimerWheel("NetworkEmulator timer", 1L, 1024);
+	}
+	
+	/** @return The address that this emulator is listening on */
+	public final InetSocketAddress getLocalAddress() {
+		try {
+			return (InetSocketAddress) this.listener.getLocalAddress();
+		} catch(IOException ex) {
+			throw new IllegalStateException("This emulator has been closed!", ex);
+		}
+	}
+	
+	/** @return The server that connections are forwarded to */
+	public final InetSocketAddress getTarget() {
+		return this.target;
+	}
+	
+	/** @param conditions The conditions to apply to both directions of new
+	 *            connections
+	 * @return This emulator */
+	public final NetworkEmulator setConditions(Conditions conditions) {
+		this.uplink = this.downlink = conditions;
+		return this;
+	}
+	
+	/** @param uplink The conditions to apply to data sent from clients to the
+	 *            server on new connections
+	 * @param downlink The conditions to apply to data sent from the server to
+	 *            clients on new connections
+	 * @return This emulator */
+	public final NetworkEmulator setConditions(Conditions uplink, Conditions downlink) {
+		this.uplink = uplink;
+		this.downlink = downlink;
+		return this;
+	}
+	
+	/** @return The conditions applied to data sent from clients to the
+	 *         server */
+	public final Conditions getUplink() {
+		return this.uplink;
+	}
+	
+	/** @return The conditions applied to data sent from the server to
+	 *         clients */
+	public final Conditions getDownlink() {
+		return this.downlink;
+	}
+	
+	/** @param queueLimit The most data, in bytes, that may be in flight in
+	 *            one direction of a connection before reading from its sender
+	 *            stops
+	 * @return This emulator */
+	public final NetworkEmulator setQueueLimit(int queueLimit) {
+		this.queueLimit = Math.max(1, queueLimit);
+		return this;
+	}
+	
+	/** Routes connections made through {@link Link} (and
+	 * {@link HappyEyeballs}) to the given host and port through this
+	 * emulator, until it is closed.
+	 *
+	 * @param host The host name or IP address that connections are made to
+	 * @param port The port that connections are made to
+	 * @return This emulator
+	 * @see Link#addRoute(String, int, InetSocketAddress) */
+	public final NetworkEmulator route(String host, int port) {
+		InetSocketAddress local = this.getLocalAddress();
+		if(local.getAddress().isAnyLocalAddress()) {
+			local = new InetSocketAddress(InetAddress.getLoopbackAddress(), local.getPort());
+		}
+		Link.addRoute(host, port, local);
+		synchronized(this.routes) {
+			this.routes.add(host.concat(":").concat(Integer.toString(port)));
+		}
+		return this;
+	}
+	
+	/** Starts this emulator's selector thread.
+	 *
+	 * @return This emulator
+	 * @throws IOException Thrown if the listening socket could not be
+	 *             registered with the selector
+	 * @throws IllegalStateException Thrown if this emulator has already been
+	 *             started or closed */
+	public final NetworkEmulator start() throws IOException, IllegalStateException {
+		if(this.closed || this.thread != null) {
+			throw new IllegalStateException(this.closed ? "This emulator has been closed!" : "This emulator has already been started!");
+		}
+		this.listener.register(this.selector, SelectionKey.OP_ACCEPT);
+		Thread thread = new Thread(this::run, "NetworkEmulator (".concat(this.getLocalAddress().toString()).concat(" -> ").concat(this.target.getHostString()).concat(":").concat(Integer.toString(this.target.getPort())).concat(")"));
+		thread.setDaemon(true);
+		this.thread = thread;
+		thread.start();
+		return this;
+	}
+	
+	private final void run() {
+		while(!this.closed) {
+			try {
+				this.selector.select();
+			} catch(IOException ex) {
+				System.err.println("NetworkEmulator: selector failed: ".concat(ex.toString()));
+				break;
+			}
+			Pipe pipe;
+			while((pipe = this.due.poll()) != null) {
+				this.deliver(pipe);
+			}
+			for(SelectionKey key : this.selector.selectedKeys()) {
+				if(!key.isValid()) {
+					continue;
+				}
+				if(key.isAcceptable()) {
+					this.accept();
+					continue;
+				}
+				Connection connection = (Connection) key.attachment();
+				try {
+					if(key.isConnectable()) {
+						if(!connection.server.finishConnect()) {
+							continue;// Still connecting; the server key stays interested in OP_CONNECT
+						}
+						connection.connected = true;
+					}
+					boolean client = key.channel() == connection.client;
+					if(key.isValid() && key.isReadable()) {
+						this.read(client ? connection.uplink : connection.downlink);
+					}
+					if(key.isValid() && key.isWritable()) {
+						this.deliver(client ? connection.downlink : connection.uplink);
+					}
+					this.updateInterest(connection);
+				} catch(IOException ex) {
+					if(!connection.connected) {
+						this.failed.incrementAndGet();
+					}
+					this.close(connection);
+				}
+			}
+			this.selector.selectedKeys().clear();
+		}
+	}
+	
+	private final void accept() {
+		SocketChannel client;
+		try {
+			client = this.listener.accept();
+		} catch(IOException ex) {
+			return;
+		}
+		if(client == null) {
+			return;
+		}
+		this.accepted.incrementAndGet();
+		SocketChannel server = null;
+		try {
+			client.configureBlocking(false);
+			client.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+			server = SocketChannel.open();
+			server.configureBlocking(false);
+			server.setOption(StandardSocketOptions.TCP_NODELAY, Boolean.TRUE);
+			Connection connection = new Connection(client, server, this.uplink, this.downlink);
+			connection.connected = server.connect(this.target);
+			connection.clientKey = client.register(this.selector, 0, connection);
+			connection.serverKey = server.register(this.selector, connection.connected ? 0 : SelectionKey.OP_CONNECT, connection);
+			this.active.incrementAndGet();
+			this.updateInterest(connection);
+		} catch(IOException ex) {
+			this.failed.incrementAndGet();
+			try {
+				client.close();
+				if(server != null) {
+					server.close();
+				}
+			} catch(IOException ignored) {
+			}
+		}
+	}
+	
+	private final void read(Pipe pipe) throws IOException {
+		if(!pipe.isReading()) {
+			return;
+		}
+		ByteBuffer buf = ByteBuffer.allocate(pipe.getReadSize());
+		int read = pipe.source.read(buf);
+		if(read == 0) {
+			return;
+		}
+		long now = System.nanoTime();
+		boolean idle = pipe.queue.isEmpty() && pipe.writing == null;
+		if(read < 0) {
+			pipe.ended = true;
+			pipe.queue.add(new Segment(null, pipe.getDeliveryTime(now, 0)));
+		} else {
+			buf.flip();
+			pipe.queuedBytes += read;
+			pipe.queue.add(new Segment(buf, pipe.getDeliveryTime(now, read)));
+		}
+		if(idle) {
+			this.deliver(pipe);
+		}
+	}
+	
+	/** Writes the pipe's data that is due to its sink, and schedules the
+	 * delivery of the rest. */
+	private final void deliver(Pipe pipe) {
+		Connection connection = pipe.connection;
+		if(connection.closed || !connection.connected) {
+			return;
+		}
+		try {
+			long now = System.nanoTime();
+			for(;;) {
+				if(pipe.writing != null) {
+					int written = pipe.sink.write(pipe.writing);
+					pipe.transferred.addAndGet(written);
+					if(pipe.writing.hasRemaining()) {
+						break;// Wait for the sink to become writable
+					}
+					pipe.queuedBytes -= pipe.writing.limit();
+					pipe.writing = null;
+				}
+				Segment segment = pipe.queue.peek();
+				if(segment == null) {
+					break;
+				}
+				if(segment.deliveryTime - now > RELEASE_TOLERANCE) {
+					this.schedule(pipe, segment.deliveryTime - now);
+					break;
+				}
+				pipe.queue.poll();
+				if(segment.data == null) {
+					pipe.sink.shutdownOutput();
+					pipe.shutdown = true;
+					break;
+				}
+				pipe.writing = segment.data;
+			}
+			if(connection.uplink.isDone() && connection.downlink.isDone()) {
+				this.close(connection);
+				return;
+			}
+			this.updateInterest(connection);
+		} catch(IOException ex) {
+			this.close(connection);
+		}
+	}
+	
+	private final void schedule(Pipe pipe, long delay) {
+		Timeout timeout = pipe.timeout;
+		if(timeout != null) {
+			timeout.cancel();
+		}
+		pipe.timeout = this.wheel.schedule(() -> {
+			this.due.add(pipe);
+			this.selector.wakeup();
+		}, delay, TimeUnit.NANOSECONDS);
+	}
+	
+	private final void updateInterest(Connection connection) {
+		if(connection.closed) {
+			return;
+		}
+		if(!connection.connected) {
+			connection.serverKey.interestOps(SelectionKey.OP_CONNECT);
+			connection.clientKey.interestOps(0);
+			return;
+		}
+		connection.clientKey.interestOps((connection.uplink.isReading() ? SelectionKey.OP_READ : 0) | (connection.downlink.writing != null ? SelectionKey.OP_WRITE : 0));
+		connection.serverKey.interestOps((connection.downlink.isReading() ? SelectionKey.OP_READ : 0) | (connection.uplink.writing != null ? SelectionKey.OP_WRITE : 0));
+	}
+	
+	private final void close(Connection connection) {
+		if(connection.closed) {
+			return;
+		}
+		connection.closed = true;
+		this.active.decrementAndGet();
+		for(Pipe pipe : new Pipe[] {connection.uplink, connection.downlink}) {
+			Timeout timeout = pipe.timeout;
+			if(timeout != null) {
+				timeout.cancel();
+			}
+		}
+		try {
+			connection.client.close();
+		} catch(IOException ignored) {
+		}
+		try {
+			connection.server.close();
+		} catch(IOException ignored) {
+		}
+	}
+	
+	/** @return The number of connections accepted so far */
+	public final long getAcceptedConnections() {
+		return this.accepted.get();
+	}
+	
+	/** @return The number of connections currently open */
+	public final int getActiveConnections() {
+		return this.active.get();
+	}
+	
+	/** @return The number of connections whose connection to the target
+	 *         server failed */
+	public final long getFailedConnections() {
+		return this.failed.get();
+	}
+	
+	/** @return The number of bytes delivered from clients to the server */
+	public final long getBytesUp() {
+		return this.bytesUp.get();
+	}
+	
+	/** @return The number of bytes delivered from the server to clients */
+	public final long getBytesDown() {
+		return this.bytesDown.get();
+	}
+	
+	/** Stops accepting connections, closes every open connection and removes
+	 * any routes that were added with {@link #route(String, int)}. */
+	@Override
+	public final void close() {
+		this.closed = true;
+		synchronized(this.routes) {
+			for(String route : this.routes) {
+				int colon = route.lastIndexOf(':');
+				Link.removeRoute(route.substring(0, colon), Integer.parseInt(route.substring(colon + 1)));
+			}
+			this.routes.clear();
+		}
+		try {
+			this.listener.close();
+		} catch(IOException ignored) {
+		}
+		this.selector.wakeup();
+		Thread thread = this.thread;
+		if(thread != null && thread != Thread.currentThread()) {
+			try {
+				thread.join(1000L);
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+		for(SelectionKey key : this.selector.keys()) {
+			if(key.attachment() instanceof Connection) {
+				this.close((Connection) key.attachment());
+			}
+		}
+		try {
+			this.selector.close();
+		} catch(IOException ignored) {
+		}
+		if(this.ownWheel) {
+			this.wheel.close();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		return "NetworkEmulator -> ".concat(this.target.getHostString()).concat(":").concat(Integer.toString(this.target.getPort())).concat(": connections=").concat(Long.toString(this.getAcceptedConnections())).concat(" (").concat(Integer.toString(this.getActiveConnections())).concat(" open, ").concat(Long.toString(this.getFailedConnections())).concat(" failed), up=").concat(Long.toString(this.getBytesUp())).concat("B [").concat(this.uplink.toString()).concat("], down=").concat(Long.toString(this.getBytesDown())).concat("B [").concat(this.downlink.toString()).concat("]");
+	}
+	
+	private static final InetSocketAddress parseAddress(String s) {
+		Link link = new Link(s.contains("://") ? s : "tcp://".concat(s));
+		return InetSocketAddress.createUnresolved(link.host, link.port);
+	}
+	
+	/** Runs a network emulator until the process is killed.
+	 *
+	 * @param args Program command line arguments
+	 * @throws IOException Thrown if the listening socket could not be
+	 *             bound */
+	public static final void main(String[] args) throws IOException {
+		if(args.length < 2) {
+			System.err.println("Usage: NetworkEmulator <listen host:port> <target host:port> [uplink conditions] [downlink conditions]");
+			System.err.println("Conditions look like: delay=50,jitter=5,rate=256k,burst=16k");
+			return;
+		}
+		InetSocketAddress listen = parseAddress(args[0]);
+		Conditions uplink = args.length >= 3 ? Conditions.parse(args[2]) : Conditions.NONE;
+		Conditions downlink = args.length >= 4 ? Conditions.parse(args[3]) : uplink;
+		try(NetworkEmulator emulator = new NetworkEmulator(new InetSocketAddress(listen.getHostString(), listen.getPort()), parseAddress(args[1]))) {
+			emulator.setConditions(uplink, downlink).start();
+			System.out.println("Network emulator listening on ".concat(emulator.getLocalAddress().toString()).concat(": ").concat(emulator.toString()));
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> System.out.println(emulator.toString())));
+			try {
+				emulator.thread.join();
+			} catch(InterruptedException ex) {
+				Thread.currentThread().interrupt();
+			}
+		}
+	}
+	
+}
@@ -0,0 +1,58 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.server;
+
+import com.gmail.br45entei.server.RequestDeadlines.Phase;
+
+import java.net.SocketTimeoutException;
+
+/** Thrown when one phase of a request does not complete before its deadline.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public class PhaseTimeoutException extends SocketTimeoutException {
+	
+	private static final long serialVersionUID = 4621539738307813625L;
+	
+	private final Phase phase;
+	private final long limit;
+	
+	/** @param phase The phase that timed out
+	 * @param limit The phase's time limit, in milliseconds */
+	public PhaseTimeoutException(Phase phase, long limit) {
+		super(phase.getDescription().concat(" timed out after ").concat(Long.toString(limit)).concat("ms"));
+		this.phase = phase;
+		this.limit = limit;
+	}
+	
+	/** @return The phase that timed out */
+	public final Phase getPhase() {
+		return this.phase;
+	}
+	
+	/** @return The phase's time limit, in milliseconds */
+	public final long getLimit() {
+		return this.limit;
+	}
+	
+}
@@ -0,0 +1,241 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.server;
+
+import com.gmail.br45entei.util.TimerWheel;
+import com.gmail.br45entei.util.TimerWheel.Timeout;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** Enforces per-phase deadlines on a single request by closing its socket
+ * once a phase runs out of time.<br>
+ * A deadline for the request as a whole is armed as soon as this object is
+ * created; the other phases are armed one at a time with
+ * {@link #start(Phase)}. Every timer is scheduled on a shared
+ * {@link TimerWheel}, so no thread is needed per request.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class RequestDeadlines implements Closeable {
+	
+	/** The phases of a request that may be given their own deadlines.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static enum Phase {
+		/** Establishing the TCP connection */
+		CONNECT("Connect"),
+		/** Performing the TLS handshake */
+		TLS_HANDSHAKE("TLS handshake"),
+		/** Waiting for the response's status line once the request has been
+		 * sent */
+		FIRST_BYTE("Waiting for the response"),
+		/** Reading the rest of the response's headers */
+		HEADERS("Reading the response headers"),
+		/** The request as a whole, including the response body */
+		TOTAL("Request");
+		
+		private final String description;
+		
+		private Phase(String description) {
+			this.description = description;
+		}
+		
+		/** @return A human-readable description of this phase */
+		public final String getDescription() {
+			return this.description;
+		}
+		
+	}
+	
+	private static final AtomicLongArray timeouts = new AtomicLongArray(Phase.values().length);
+	
+	/** @param phase The phase to check
+	 * @return The number of requests (across all instances) that timed out in
+	 *         the given phase */
+	public static final long getTimeouts(Phase phase) {
+		return timeouts.get(phase.ordinal());
+	}
+	
+	/** @return A summary of how many requests timed out in each phase, or an
+	 *         empty string if none have */
+	public static final String getTimeoutSummary() {
+		String summary = "";
+		for(Phase phase : Phase.values()) {
+			long count = getTimeouts(phase);
+			if(count > 0) {
+				summary = summary.concat(summary.isEmpty() ? "Timeouts: " : ", ").concat(phase.name()).concat("=").concat(Long.toString(count));
+			}
+		}
+		return summary;
+	}
+	
+	private final TimerWheel wheel;
+	private final long[] limits = new long[Phase.values().length];
+	private final long startTime = System.nanoTime();
+	private final Timeout total;
+	private volatile Timeout current;
+	private volatile Phase currentPhase;
+	private volatile Socket socket;
+	private volatile Phase expiredPhase;
+	
+	/** @param wheel The wheel to schedule timers on
+	 * @param connect The connect timeout in milliseconds
+	 * @param tlsHandshake The TLS handshake timeout in milliseconds
+	 * @param firstByte How long to wait for the response to start, in
+	 *            milliseconds
+	 * @param headers How long to wait for the rest of the response headers,
+	 *            in milliseconds
+	 * @param total The timeout for the whole request (including the body), in
+	 *            milliseconds
+	 *            <br>
+	 *            Limits of zero or less disable the corresponding deadline. */
+	public RequestDeadlines(TimerWheel wheel, long connect, long tlsHandshake, long firstByte, long headers, long total) {
+		this.wheel = wheel;
+		this.limits[Phase.CONNECT.ordinal()] = connect;
+		this.limits[Phase.TLS_HANDSHAKE.ordinal()] = tlsHandshake;
+		this.limits[Phase.FIRST_BYTE.ordinal()] = firstByte;
+		this.limits[Phase.HEADERS.ordinal()] = headers;
+		this.limits[Phase.TOTAL.ordinal()] = total;
+		this.total = total > 0 ? wheel.schedule(() -> this.expire(Phase.TOTAL), total, TimeUnit.MILLISECONDS) : null;
+	}
+	
+	/** @param phase The phase
+	 * @return The phase's time limit in milliseconds, or zero if it has none */
+	public final long getLimit(Phase phase) {
+		return Math.max(0L, this.limits[phase.ordinal()]);
+	}
+	
+	/** @return The timeout to pass to
+	 *         {@link HappyEyeballs#connect(String, int, int)} and the like:
+	 *         the connect limit or the time left for the whole request,
+	 *         whichever is sooner, or zero for none */
+	public final int getConnectTimeout() {
+		long timeout = this.getLimit(Phase.CONNECT);
+		long total = this.getLimit(Phase.TOTAL);
+		if(total > 0) {
+			long remaining = Math.max(1L, total - TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - this.startTime));
+			timeout = timeout > 0 ? Math.min(timeout, remaining) : remaining;
+		}
+		return (int) Math.min(Integer.MAX_VALUE, timeout);
+	}
+	
+	/** @param socket The socket to close when a deadline passes. If a
+	 *            deadline has already passed, the socket is closed
+	 *            immediately. */
+	public final void setSocket(Socket socket) {
+		this.socket = socket;
+		if(this.expiredPhase != null) {
+			this.closeSocket();
+		}
+	}
+	
+	/** Arms the deadline for the given phase, ending the current phase.<br>
+	 * The connect phase is not timed by the wheel since there is no socket to
+	 * close yet; pass {@link #getConnectTimeout()} to the connect call
+	 * instead.
+	 *
+	 * @param phase The phase that is starting */
+	public final void start(Phase phase) {
+		this.end();
+		this.currentPhase = phase;
+		long limit = this.limits[phase.ordinal()];
+		if(limit > 0 && phase != Phase.CONNECT && phase != Phase.TOTAL) {
+			this.current = this.wheel.schedule(() -> this.expire(phase), limit, TimeUnit.MILLISECONDS);
+		}
+	}
+	
+	/** Disarms the current phase's deadline (the deadline for the whole
+	 * request stays armed). */
+	public final void end() {
+		Timeout timeout = this.current;
+		if(timeout != null) {
+			timeout.cancel();
+			this.current = null;
+		}
+		this.currentPhase = null;
+	}
+	
+	private final void expire(Phase phase) {
+		if(this.expiredPhase != null) {
+			return;
+		}
+		this.expiredPhase = phase;
+		timeouts.incrementAndGet(phase.ordinal());
+		this.closeSocket();
+	}
+	
+	private final void closeSocket() {
+		Socket socket = this.socket;
+		if(socket != null) {
+			try {
+				socket.close();
+			} catch(IOException ignored) {
+			}
+		}
+	}
+	
+	/** @return The phase whose deadline passed, or <tt><b>null</b></tt> if no
+	 *         deadline has passed */
+	public final Phase getExpiredPhase() {
+		return this.expiredPhase;
+	}
+	
+	/** Classifies an exception thrown while the request was in progress.
+	 *
+	 * @param ex The exception that was thrown
+	 * @return A {@link PhaseTimeoutException} (with the given exception as
+	 *         its cause) if a deadline has passed or the given exception is a
+	 *         connect timeout, or the given exception otherwise */
+	public final IOException check(IOException ex) {
+		if(ex instanceof PhaseTimeoutException) {
+			return ex;
+		}
+		Phase phase = this.expiredPhase;
+		if(phase == null && ex instanceof SocketTimeoutException && this.currentPhase == Phase.CONNECT) {
+			phase = Phase.CONNECT;
+			timeouts.incrementAndGet(phase.ordinal());
+			this.expiredPhase = phase;
+		}
+		if(phase == null) {
+			return ex;
+		}
+		PhaseTimeoutException timeout = new PhaseTimeoutException(phase, this.getLimit(phase));
+		timeout.initCause(ex);
+		return timeout;
+	}
+	
+	/** Disarms every deadline. The socket is left open. */
+	@Override
+	public final void close() {
+		this.end();
+		if(this.total != null) {
+			this.total.cancel();
+		}
+	}
+	
+}
@@ -0,0 +1,273 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.server;
+
+import java.io.IOException;
+import java.net.Socket;
+import java.net.SocketOption;
+import java.net.StandardSocketOptions;
+import java.nio.channels.NetworkChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+import jdk.net.ExtendedSocketOptions;
+
+/** A named set of socket options that can be applied to client sockets and
+ * channels before they connect.<br>
+ * Options that are left unset keep the platform's defaults, and options that
+ * the platform doesn't support (such as <tt>TCP_QUICKACK</tt> outside of
+ * Linux) are silently skipped.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class SocketProfile {
+	
+	private static final Map<String, SocketProfile> profiles = Collections.synchronizedMap(new LinkedHashMap<>());
+	
+	/** Leaves every option at the platform's default */
+	public static final SocketProfile SYSTEM = register(new SocketProfile("system", 0, 0, null, null, null, null, 0));
+	/** Disables Nagle's algorithm; this is what requests have always used */
+	public static final SocketProfile DEFAULT = register(new SocketProfile("default", 0, 0, Boolean.TRUE, null, null, null, 0));
+	/** Disables Nagle's algorithm and delayed ACKs */
+	public static final SocketProfile LOW_LATENCY = register(new SocketProfile("low-latency", 0, 0, Boolean.TRUE, null, null, Boolean.TRUE, 0));
+	/** Uses large (1 MiB) socket buffers for bulk transfers */
+	public static final SocketProfile THROUGHPUT = register(new SocketProfile("throughput", 1 << 20, 1 << 20, Boolean.FALSE, null, null, null, 0));
+	/** Probes idle connections after 30 seconds so that dead peers are
+	 * noticed */
+	public static final SocketProfile KEEPALIVE = register(new SocketProfile("keepalive", 0, 0, Boolean.TRUE, Boolean.TRUE, null, null, 30));
+	/** Resets connections on close instead of leaving them in
+	 * <tt>TIME_WAIT</tt>, for connection churn tests */
+	public static final SocketProfile SHORT_LIVED = register(new SocketProfile("short-lived", 0, 0, Boolean.TRUE, null, Integer.valueOf(0), null, 0));
+	
+	/** @param profile The profile to register
+	 * @return The given profile */
+	public static final SocketProfile register(SocketProfile profile) {
+		profiles.put(profile.name.toLowerCase(), profile);
+		return profile;
+	}
+	
+	/** @return Every registered profile */
+	public static final Collection<SocketProfile> getProfiles() {
+		synchronized(profiles) {
+			return Collections.unmodifiableCollection(new ArrayList<>(profiles.values()));
+		}
+	}
+	
+	/** @param name The name of a registered profile, or a comma-separated
+	 *            list of options, e.g.
+	 *            <tt>sndbuf=65536,rcvbuf=65536,nodelay=true,keepalive=true,linger=0,quickack=true,keepidle=30</tt>
+	 * @return The matching profile
+	 * @throws IllegalArgumentException Thrown if no profile has the given name
+	 *             and it isn't a valid list of options */
+	public static final SocketProfile forName(String name) throws IllegalArgumentException {
+		SocketProfile profile = profiles.get(name.strip().toLowerCase());
+		return profile != null ? profile : parse(name.strip(), name);
+	}
+	
+	/** @param name The name to give the new profile
+	 * @param options A comma-separated list of options (see
+	 *            {@link #forName(String)})
+	 * @return The new (unregistered) profile
+	 * @throws IllegalArgumentException Thrown if an option is unknown or has
+	 *             an invalid value */
+	public static final SocketProfile parse(String name, String options) throws IllegalArgumentException {
+		int sendBufferSize = 0, receiveBufferSize = 0, keepIdle = 0;
+		Boolean tcpNoDelay = null, keepAlive = null, quickAck = null;
+		Integer linger = null;
+		for(String option : options.split(Pattern.quote(","))) {
+			option = option.strip();
+			if(option.isEmpty()) {
+				continue;
+			}
+			int equals = option.indexOf('=');
+			if(equals < 0) {
+				throw new IllegalArgumentException("Expected name=value, got: \"".concat(option).concat("\""));
+			}
+			String key = option.substring(0, equals).strip().toLowerCase(), value = option.substring(equals + 1).strip();
+			try {
+				switch(key) {
+				case "sndbuf":
+					sendBufferSize = Integer.parseInt(value);
+					break;
+				case "rcvbuf":
+					receiveBufferSize = Integer.parseInt(value);
+					break;
+				case "nodelay":
+					tcpNoDelay = Boolean.valueOf(value);
+					break;
+				case "keepalive":
+					keepAlive = Boolean.valueOf(value);
+					break;
+				case "linger":
+					linger = Integer.valueOf(value);
+					break;
+				case "quickack":
+					quickAck = Boolean.valueOf(value);
+					break;
+				case "keepidle":
+					keepIdle = Integer.parseInt(value);
+					break;
+				default:
+					throw new IllegalArgumentException("Unknown socket option: \"".concat(key).concat("\""));
+				}
+			} catch(NumberFormatException ex) {
+				throw new IllegalArgumentException("Invalid value for socket option \"".concat(key).concat("\": \"").concat(value).concat("\""), ex);
+			}
+		}
+		return new SocketProfile(name, sendBufferSize, receiveBufferSize, tcpNoDelay, keepAlive, linger, quickAck, keepIdle);
+	}
+	
+	private final String name;
+	private final int sendBufferSize, receiveBufferSize, keepIdle;
+	private final Boolean tcpNoDelay, keepAlive, quickAck;
+	private final Integer linger;
+	
+	/** @param name The profile's name
+	 * @param sendBufferSize <tt>SO_SNDBUF</tt>, or zero to leave it alone
+	 * @param receiveBufferSize <tt>SO_RCVBUF</tt>, or zero to leave it alone
+	 * @param tcpNoDelay <tt>TCP_NODELAY</tt>, or <tt><b>null</b></tt> to
+	 *            leave it alone
+	 * @param keepAlive <tt>SO_KEEPALIVE</tt>, or <tt><b>null</b></tt> to
+	 *            leave it alone
+	 * @param linger <tt>SO_LINGER</tt> in seconds (negative to disable), or
+	 *            <tt><b>null</b></tt> to leave it alone
+	 * @param quickAck <tt>TCP_QUICKACK</tt> (Linux only), or
+	 *            <tt><b>null</b></tt> to leave it alone
+	 * @param keepIdle <tt>TCP_KEEPIDLE</tt> in seconds, or zero to leave it
+	 *            alone (only used if keep-alive is enabled) */
+	public SocketProfile(String name, int sendBufferSize, int receiveBufferSize, Boolean tcpNoDelay, Boolean keepAlive, Integer linger, Boolean quickAck, int keepIdle) {
+		this.name = name;
+		this.sendBufferSize = sendBufferSize;
+		this.receiveBufferSize = receiveBufferSize;
+		this.tcpNoDelay = tcpNoDelay;
+		this.keepAlive = keepAlive;
+		this.linger = linger;
+		this.quickAck = quickAck;
+		this.keepIdle = keepIdle;
+	}
+	
+	/** @return This profile's name */
+	public final String getName() {
+		return this.name;
+	}
+	
+	private static final <T> void setOption(Object target, SocketOption<T> option, T value) throws IOException {
+		if(target instanceof NetworkChannel) {
+			NetworkChannel channel = (NetworkChannel) target;
+			if(channel.supportedOptions().contains(option)) {
+				channel.setOption(option, value);
+			}
+		} else {
+			Socket socket = (Socket) target;
+			if(socket.supportedOptions().contains(option)) {
+				socket.setOption(option, value);
+			}
+		}
+	}
+	
+	private final void applyTo(Object target) throws IOException {
+		if(this.sendBufferSize > 0) {
+			setOption(target, StandardSocketOptions.SO_SNDBUF, Integer.valueOf(this.sendBufferSize));
+		}
+		if(this.receiveBufferSize > 0) {
+			setOption(target, StandardSocketOptions.SO_RCVBUF, Integer.valueOf(this.receiveBufferSize));
+		}
+		if(this.tcpNoDelay != null) {
+			setOption(target, StandardSocketOptions.TCP_NODELAY, this.tcpNoDelay);
+		}
+		if(this.keepAlive != null) {
+			setOption(target, StandardSocketOptions.SO_KEEPALIVE, this.keepAlive);
+			if(this.keepAlive.booleanValue() && this.keepIdle > 0) {
+				setOption(target, ExtendedSocketOptions.TCP_KEEPIDLE, Integer.valueOf(this.keepIdle));
+			}
+		}
+		if(this.linger != null) {
+			setOption(target, StandardSocketOptions.SO_LINGER, this.linger);
+		}
+		if(this.quickAck != null) {
+			setOption(target, ExtendedSocketOptions.TCP_QUICKACK, this.quickAck);
+		}
+	}
+	
+	/** Applies this profile to the given socket. Buffer sizes only affect the
+	 * TCP window if they are set before the socket connects.
+	 *
+	 * @param socket The socket to apply this profile to
+	 * @return The given socket
+	 * @throws IOException Thrown if an option could not be set */
+	public final Socket apply(Socket socket) throws IOException {
+		this.applyTo(socket.getChannel() != null ? socket.getChannel() : socket);
+		return socket;
+	}
+	
+	/** Applies this profile to the given channel. Buffer sizes only affect
+	 * the TCP window if they are set before the channel connects.
+	 *
+	 * @param <T> The channel's type
+	 * @param channel The channel to apply this profile to
+	 * @return The given channel
+	 * @throws IOException Thrown if an option could not be set */
+	public final <T extends NetworkChannel> T apply(T channel) throws IOException {
+		this.applyTo(channel);
+		return channel;
+	}
+	
+	@Override
+	public String toString() {
+		String str = this.name.concat(" [");
+		String sep = "";
+		if(this.sendBufferSize > 0) {
+			str = str.concat(sep).concat("sndbuf=").concat(Integer.toString(this.sendBufferSize));
+			sep = ",";
+		}
+		if(this.receiveBufferSize > 0) {
+			str = str.concat(sep).concat("rcvbuf=").concat(Integer.toString(this.receiveBufferSize));
+			sep = ",";
+		}
+		if(this.tcpNoDelay != null) {
+			str = str.concat(sep).concat("nodelay=").concat(this.tcpNoDelay.toString());
+			sep = ",";
+		}
+		if(this.keepAlive != null) {
+			str = str.concat(sep).concat("keepalive=").concat(this.keepAlive.toString());
+			sep = ",";
+		}
+		if(this.keepIdle > 0) {
+			str = str.concat(sep).concat("keepidle=").concat(Integer.toString(this.keepIdle));
+			sep = ",";
+		}
+		if(this.linger != null) {
+			str = str.concat(sep).concat("linger=").concat(this.linger.toString());
+			sep = ",";
+		}
+		if(this.quickAck != null) {
+			str = str.concat(sep).concat("quickack=").concat(this.quickAck.toString());
+		}
+		return str.concat("]");
+	}
+	
+}
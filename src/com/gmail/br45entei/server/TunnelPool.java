@@ -0,0 +1,134 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.server;
+
+import com.gmail.br45entei.server.ConnectionPool.PooledConnection;
+import com.gmail.br45entei.util.LatencyHistogram;
+
+import java.io.Closeable;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** Keeps track of established <tt>CONNECT</tt> tunnels through forward
+ * proxies so that they can be reused for later requests to the same origin,
+ * and records how long it takes to establish a tunnel separately from how
+ * long the origin server takes to respond through it.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class TunnelPool implements Closeable {
+	
+	private final ConnectionPool pool;
+	private final AtomicLong retries = new AtomicLong();
+	
+	/** The time taken from sending a <tt>CONNECT</tt> request to the proxy
+	 * until the proxy reported that the tunnel was established */
+	public final LatencyHistogram connectLatency = new LatencyHistogram("Proxy CONNECT");
+	/** The time taken from sending a request through an established tunnel
+	 * until the origin's response headers were read */
+	public final LatencyHistogram originLatency = new LatencyHistogram("Origin (tunneled)");
+	
+	/** Creates a new tunnel pool that keeps up to four idle tunnels per
+	 * proxy and origin pair for thirty seconds each. */
+	public TunnelPool() {
+		this(4, 30000L);
+	}
+	
+	/** @param maxIdlePerOrigin The maximum number of idle tunnels kept for
+	 *            any one proxy and origin pair
+	 * @param idleTimeout The amount of time, in milliseconds, that a tunnel
+	 *            may sit idle before it is closed */
+	public TunnelPool(int maxIdlePerOrigin, long idleTimeout) {
+		this.pool = new ConnectionPool(maxIdlePerOrigin, idleTimeout);
+	}
+	
+	/** @param proxyHost The proxy's hostname or IP address
+	 * @param proxyPort The proxy's port
+	 * @param proxySSL Whether or not the connection to the proxy itself uses
+	 *            TLS
+	 * @param origin The origin server the tunnel leads to
+	 * @param hostHeader The <tt>Host</tt> header sent to the proxy and the
+	 *            origin (which is also the proxy's SNI name, if it uses TLS),
+	 *            or <tt><b>null</b></tt> if the default one is sent
+	 * @param serverName The SNI name of the TLS session with the origin, or
+	 *            <tt><b>null</b></tt> if the tunnel doesn't use TLS
+	 * @return The key identifying tunnels to the given origin through the
+	 *         given proxy, so that origins that share a proxy and endpoint
+	 *         but differ by virtual host never share a tunnel (or its TLS
+	 *         session) */
+	public static final String getKey(String proxyHost, int proxyPort, boolean proxySSL, Link origin, String hostHeader, String serverName) {
+		String key = (proxySSL ? "https://" : "http://").concat(proxyHost).concat(":").concat(Integer.toString(proxyPort)).concat(" -> ").concat(origin.isSSL() ? "https://" : "http://").concat(origin.host).concat(":").concat(Integer.toString(origin.port));
+		if(hostHeader != null) {
+			key = key.concat(" (Host: ").concat(hostHeader.toLowerCase(Locale.ENGLISH)).concat(")");
+		}
+		if(serverName != null) {
+			key = key.concat(" (SNI: ").concat(serverName.toLowerCase(Locale.ENGLISH)).concat(")");
+		}
+		return key;
+	}
+	
+	/** @param key The key returned by
+	 *            {@link #getKey(String, int, boolean, Link, String, String)}
+	 * @return An idle, established tunnel, or <tt><b>null</b></tt> if there
+	 *         isn't one */
+	public final PooledConnection acquire(String key) {
+		return this.pool.acquire(key);
+	}
+	
+	/** @param key The key returned by
+	 *            {@link #getKey(String, int, boolean, Link, String, String)}
+	 * @param tunnel The tunnel to return to the pool
+	 * @return Whether or not the tunnel was kept for reuse */
+	public final boolean release(String key, PooledConnection tunnel) {
+		return this.pool.release(key, tunnel);
+	}
+	
+	/** Counts a request that had to be sent again through a new tunnel,
+	 * because the reused one had been closed by the proxy or origin while it
+	 * sat idle. */
+	public final void recordRetry() {
+		this.retries.incrementAndGet();
+	}
+	
+	/** @return The number of requests that had to be sent again through a
+	 *         new tunnel */
+	public final long getRetryCount() {
+		return this.retries.get();
+	}
+	
+	/** @return The underlying connection pool */
+	public final ConnectionPool getPool() {
+		return this.pool;
+	}
+	
+	@Override
+	public final void close() {
+		this.pool.close();
+	}
+	
+	@Override
+	public String toString() {
+		return "Tunnels: ".concat(this.pool.toString()).concat(", retries=").concat(Long.toString(this.getRetryCount())).concat("\r\n").concat(this.connectLatency.toString()).concat("\r\n").concat(this.originLatency.toString());
+	}
+	
+}
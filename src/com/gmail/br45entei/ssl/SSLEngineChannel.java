@@ -0,0 +1,570 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.ssl;
+
+import com.gmail.br45entei.util.DirectBufferPool;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SocketChannel;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLEngineResult;
+import javax.net.ssl.SSLEngineResult.HandshakeStatus;
+import javax.net.ssl.SSLException;
+
+/** A TLS transport built on an {@link SSLEngine} on top of a
+ * {@link SocketChannel}.<br>
+ * Unlike an {@link javax.net.ssl.SSLSocket SSLSocket}, this works with both
+ * blocking and non-blocking channels, so many connections can share a single
+ * selector thread. Network and application data are staged in direct
+ * buffers borrowed from {@link DirectBufferPool}s, and each buffer is given
+ * back as soon as it is empty, so an idle connection holds no buffers at all.
+ * <br>
+ * <br>
+ * The engine's delegated tasks (certificate validation, key generation,
+ * etc.) are run on a small, bounded, shared executor. In non-blocking mode,
+ * {@link #handshake()}, {@link #read(ByteBuffer)} and
+ * {@link #write(ByteBuffer)} return early while tasks are pending; the
+ * optional {@link #setTaskListener(Runnable) task listener} is called once
+ * they are done so that the owner can wake its selector.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class SSLEngineChannel implements ByteChannel {
+	
+	private static final ByteBuffer EMPTY = ByteBuffer.allocate(0);
+	private static volatile ExecutorService taskExecutor = null;
+	
+	/** @return The shared, bounded executor that runs the delegated tasks of
+	 *         every {@link SSLEngineChannel}. When it is saturated, tasks are
+	 *         run by the thread that submitted them. */
+	public static final ExecutorService getTaskExecutor() {
+		ExecutorService executor = taskExecutor;
+		if(executor == null) {
+			synchronized(SSLEngineChannel.class) {
+				if((executor = taskExecutor) == null) {
+					final AtomicInteger threadNumber = new AtomicInteger();
+					int threads = Math.max(2, Runtime.getRuntime().availableProcessors());
+					executor = taskExecutor = new ThreadPoolExecutor(0, threads, 30L, TimeUnit.SECONDS, new ArrayBlockingQueue<>(threads * 64), (r) -> {
+						Thread thread = new Thread(r, "SSLEngine-Task-".concat(Integer.toString(threadNumber.incrementAndGet())));
+						thread.setDaemon(true);
+						return thread;
+					}, new ThreadPoolExecutor.CallerRunsPolicy());
+				}
+			}
+		}
+		return executor;
+	}
+	
+	private final SocketChannel channel;
+	private final SSLEngine engine;
+	private final DirectBufferPool netPool, appPool;
+	
+	/** Incoming network data, in fill mode (or <tt><b>null</b></tt> if there
+	 * isn't any) */
+	private ByteBuffer netIn = null;
+	/** Outgoing network data, in drain mode (or <tt><b>null</b></tt> if there
+	 * isn't any) */
+	private ByteBuffer netOut = null;
+	/** Decrypted application data, in drain mode (or <tt><b>null</b></tt> if
+	 * there isn't any) */
+	private ByteBuffer appIn = null;
+	
+	private final AtomicInteger pendingTasks = new AtomicInteger();
+	private volatile Throwable taskFailure = null;
+	private volatile Runnable taskListener = null;
+	
+	private volatile boolean handshakeComplete = false;
+	private volatile boolean inboundDone = false;
+	private volatile boolean closed = false;
+	
+	/** @param channel The connected channel to layer TLS on top of
+	 * @param engine The engine to use. Its client/server mode should already
+	 *            be set. */
+	public SSLEngineChannel(SocketChannel channel, SSLEngine engine) {
+		this.channel = channel;
+		this.engine = engine;
+		this.netPool = DirectBufferPool.getShared(engine.getSession().getPacketBufferSize());
+		this.appPool = DirectBufferPool.getShared(engine.getSession().getApplicationBufferSize());
+	}
+	
+	/** @return The underlying socket channel */
+	public final SocketChannel getChannel() {
+		return this.channel;
+	}
+	
+	/** @return The underlying SSL engine */
+	public final SSLEngine getEngine() {
+		return this.engine;
+	}
+	
+	/** @param listener The code to run (on an executor thread) whenever the
+	 *            engine's delegated tasks have all completed, or
+	 *            <tt><b>null</b></tt> */
+	public final void setTaskListener(Runnable listener) {
+		this.taskListener = listener;
+	}
+	
+	/** @return Whether or not the initial handshake has completed */
+	public final boolean isHandshakeComplete() {
+		return this.handshakeComplete;
+	}
+	
+	/** @return Whether or not any delegated tasks are still running */
+	public final boolean isTaskPending() {
+		return this.pendingTasks.get() > 0;
+	}
+	
+	/** @return Whether or not there is outgoing data that couldn't be written
+	 *         to the channel yet (non-blocking mode only) */
+	public final boolean isFlushPending() {
+		return this.netOut != null && this.netOut.hasRemaining();
+	}
+	
+	/** @return Whether or not decrypted data is waiting to be read, in which
+	 *         case {@link #read(ByteBuffer)} will return data without
+	 *         waiting for the channel to become readable */
+	public final boolean hasBufferedData() {
+		return this.appIn != null && this.appIn.hasRemaining();
+	}
+	
+	@Override
+	public final boolean isOpen() {
+		return !this.closed && this.channel.isOpen();
+	}
+	
+	private final void checkTaskFailure() throws SSLException {
+		Throwable failure = this.taskFailure;
+		if(failure != null) {
+			throw new SSLException("Delegated task failed", failure);
+		}
+	}
+	
+	/** Hands the engine's delegated tasks to the shared executor.
+	 *
+	 * @return Whether or not the tasks have completed (always
+	 *         <tt>true</tt> for blocking channels)
+	 * @throws IOException Thrown if waiting for the tasks was interrupted or
+	 *             a task failed */
+	private final boolean runDelegatedTasks() throws IOException {
+		Runnable task;
+		ExecutorService executor = getTaskExecutor();
+		while((task = this.engine.getDelegatedTask()) != null) {
+			final Runnable t = task;
+			this.pendingTasks.incrementAndGet();
+			executor.execute(() -> {
+				try {
+					t.run();
+				} catch(Throwable ex) {
+					this.taskFailure = ex;
+				} finally {
+					if(this.pendingTasks.decrementAndGet() == 0) {
+						synchronized(this.pendingTasks) {
+							this.pendingTasks.notifyAll();
+						}
+						Runnable listener = this.taskListener;
+						if(listener != null) {
+							listener.run();
+						}
+					}
+				}
+			});
+		}
+		if(this.channel.isBlocking()) {
+			synchronized(this.pendingTasks) {
+				while(this.pendingTasks.get() > 0) {
+					try {
+						this.pendingTasks.wait();
+					} catch(InterruptedException ex) {
+						Thread.currentThread().interrupt();
+						throw new InterruptedIOException("Interrupted while waiting for SSLEngine tasks");
+					}
+				}
+			}
+		}
+		this.checkTaskFailure();
+		return this.pendingTasks.get() == 0;
+	}
+	
+	/** Writes as much pending outgoing network data to the channel as it will
+	 * accept.
+	 *
+	 * @return Whether or not all of the pending data was written
+	 * @throws IOException Thrown if an I/O error occurs */
+	public final boolean flush() throws IOException {
+		ByteBuffer buf = this.netOut;
+		if(buf == null) {
+			return true;
+		}
+		while(buf.hasRemaining()) {
+			if(this.channel.write(buf) == 0 && !this.channel.isBlocking()) {
+				return false;
+			}
+		}
+		this.netOut = null;
+		this.netPool.release(buf);
+		return true;
+	}
+	
+	/** Wraps the given application data into {@link #netOut}.
+	 *
+	 * @return The engine's result */
+	private final SSLEngineResult wrap(ByteBuffer src) throws IOException {
+		ByteBuffer buf = this.netPool.acquire();
+		try {
+			while(true) {
+				SSLEngineResult result = this.engine.wrap(src, buf);
+				if(result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+					// The session's packet size grew, so the pooled buffer is too small
+					ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(buf.capacity() * 2, this.engine.getSession().getPacketBufferSize()));
+					buf.flip();
+					bigger.put(buf);
+					this.netPool.release(buf);
+					buf = bigger;
+					continue;
+				}
+				buf.flip();
+				if(buf.hasRemaining()) {
+					this.netOut = buf;
+					buf = null;
+				}
+				return result;
+			}
+		} finally {
+			if(buf != null) {
+				this.netPool.release(buf);
+			}
+		}
+	}
+	
+	/** Reads more network data from the channel into {@link #netIn}.
+	 *
+	 * @return The number of bytes read, or <tt>-1</tt> if the end of stream
+	 *         was reached */
+	private final int fill() throws IOException {
+		if(this.netIn == null) {
+			this.netIn = this.netPool.acquire();
+		} else if(!this.netIn.hasRemaining()) {
+			// A single record is larger than the buffer; this only happens when the peer's packet size grew
+			ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(this.netIn.capacity() * 2, this.engine.getSession().getPacketBufferSize()));
+			this.netIn.flip();
+			bigger.put(this.netIn);
+			this.netPool.release(this.netIn);
+			this.netIn = bigger;
+		}
+		int read = this.channel.read(this.netIn);
+		if(this.netIn.position() == 0) {
+			this.netPool.release(this.netIn);
+			this.netIn = null;
+		}
+		return read;
+	}
+	
+	/** Unwraps buffered network data into the given buffer.
+	 *
+	 * @param dst The buffer to unwrap into, which must be in fill mode
+	 * @return The engine's result, or <tt><b>null</b></tt> if there was no
+	 *         network data to unwrap */
+	private final SSLEngineResult unwrap(ByteBuffer dst) throws IOException {
+		if(this.netIn == null) {
+			return null;
+		}
+		this.netIn.flip();
+		SSLEngineResult result;
+		try {
+			result = this.engine.unwrap(this.netIn, dst);
+		} finally {
+			this.netIn.compact();
+		}
+		if(this.netIn.position() == 0) {
+			this.netPool.release(this.netIn);
+			this.netIn = null;
+		}
+		return result;
+	}
+	
+	/** Unwraps buffered network data into {@link #appIn}, growing it if the
+	 * engine needs more room.
+	 *
+	 * @return The engine's result, or <tt><b>null</b></tt> if there was no
+	 *         network data to unwrap */
+	private final SSLEngineResult unwrapToAppIn() throws IOException {
+		ByteBuffer buf = this.appIn;
+		if(buf == null) {
+			buf = this.appPool.acquire();
+		} else {
+			buf.compact();
+		}
+		try {
+			while(true) {
+				SSLEngineResult result = this.unwrap(buf);
+				if(result != null && result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+					ByteBuffer bigger = ByteBuffer.allocateDirect(Math.max(buf.capacity() * 2, this.engine.getSession().getApplicationBufferSize()));
+					buf.flip();
+					bigger.put(buf);
+					this.appPool.release(buf);
+					buf = bigger;
+					continue;
+				}
+				return result;
+			}
+		} finally {
+			buf.flip();
+			if(buf.hasRemaining()) {
+				this.appIn = buf;
+			} else {
+				this.appIn = null;
+				this.appPool.release(buf);
+			}
+		}
+	}
+	
+	/** Performs (or continues) the TLS handshake.<br>
+	 * For blocking channels, this returns once the handshake has completed.
+	 * For non-blocking channels, this returns <tt>false</tt> whenever it
+	 * would have to wait for the channel or for delegated tasks, and should be
+	 * called again once the channel is ready or the task listener has been
+	 * notified.
+	 *
+	 * @return Whether or not the handshake has completed
+	 * @throws IOException Thrown if the handshake fails or the connection is
+	 *             closed during it */
+	public final boolean handshake() throws IOException {
+		if(this.handshakeComplete) {
+			return true;
+		}
+		if(this.engine.getHandshakeStatus() == HandshakeStatus.NOT_HANDSHAKING) {
+			this.engine.beginHandshake();
+		}
+		return this.processHandshake();
+	}
+	
+	private final boolean processHandshake() throws IOException {
+		while(true) {
+			this.checkTaskFailure();
+			if(this.pendingTasks.get() > 0 || !this.flush()) {
+				return false;
+			}
+			HandshakeStatus status = this.engine.getHandshakeStatus();
+			switch(status) {
+			case NOT_HANDSHAKING:
+			case FINISHED:
+				this.handshakeComplete = true;
+				return true;
+			case NEED_TASK:
+				if(!this.runDelegatedTasks()) {
+					return false;
+				}
+				continue;
+			case NEED_WRAP: {
+				SSLEngineResult result = this.wrap(EMPTY);
+				if(result.getStatus() == SSLEngineResult.Status.CLOSED && !this.isFlushPending()) {
+					throw new SSLException("SSLEngine closed during handshake");
+				}
+				continue;
+			}
+			case NEED_UNWRAP:
+			case NEED_UNWRAP_AGAIN:
+			default: {
+				SSLEngineResult result = this.unwrapToAppIn();
+				if(result == null || result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+					if(status == HandshakeStatus.NEED_UNWRAP_AGAIN && result != null) {
+						continue;
+					}
+					int read = this.fill();
+					if(read == -1) {
+						this.inboundDone = true;
+						throw new EOFException("Connection closed during TLS handshake");
+					}
+					if(read == 0) {
+						return false;
+					}
+					continue;
+				}
+				if(result.getStatus() == SSLEngineResult.Status.CLOSED) {
+					this.inboundDone = true;
+					throw new SSLException("Peer closed the connection during the TLS handshake");
+				}
+				continue;
+			}
+			}
+		}
+	}
+	
+	/** Reads decrypted application data into the given buffer.
+	 *
+	 * @return The number of bytes read, <tt>0</tt> if no data is available
+	 *         yet (non-blocking mode only), or <tt>-1</tt> if the peer has
+	 *         closed the connection */
+	@Override
+	public final int read(ByteBuffer dst) throws IOException {
+		if(this.closed) {
+			throw new ClosedChannelException();
+		}
+		if(!this.handshake()) {
+			return 0;
+		}
+		while(true) {
+			if(this.appIn != null) {
+				int n = Math.min(dst.remaining(), this.appIn.remaining());
+				if(n > 0) {
+					int limit = this.appIn.limit();
+					this.appIn.limit(this.appIn.position() + n);
+					dst.put(this.appIn);
+					this.appIn.limit(limit);
+				}
+				if(!this.appIn.hasRemaining()) {
+					this.appPool.release(this.appIn);
+					this.appIn = null;
+				}
+				return n;
+			}
+			if(this.inboundDone) {
+				return -1;
+			}
+			SSLEngineResult result = null;
+			if(this.netIn != null) {
+				if(dst.remaining() >= this.engine.getSession().getApplicationBufferSize()) {
+					// Big enough to decrypt straight into, skipping a copy
+					result = this.unwrap(dst);
+					if(result.getStatus() == SSLEngineResult.Status.OK && result.bytesProduced() > 0) {
+						this.continueHandshake(result);
+						return result.bytesProduced();
+					}
+				}
+				if(result == null || result.getStatus() == SSLEngineResult.Status.BUFFER_OVERFLOW) {
+					result = this.unwrapToAppIn();
+				}
+			}
+			if(result == null || result.getStatus() == SSLEngineResult.Status.BUFFER_UNDERFLOW) {
+				int read = this.fill();
+				if(read == -1) {
+					this.inboundDone = true;
+					try {
+						this.engine.closeInbound();
+					} catch(SSLException ex) {
+						// The peer didn't send close_notify; treat it as a normal end of stream just like SSLSocket does
+					}
+					return -1;
+				}
+				if(read == 0) {
+					return 0;
+				}
+				continue;
+			}
+			if(result.getStatus() == SSLEngineResult.Status.CLOSED) {
+				this.inboundDone = true;
+				this.flush();
+				continue;// Return whatever was decrypted before the close_notify, then -1
+			}
+			if(!this.continueHandshake(result)) {
+				return 0;
+			}
+		}
+	}
+	
+	/** Deals with post-handshake messages (session tickets, key updates,
+	 * renegotiation) that a wrap or unwrap may have run into.
+	 *
+	 * @return Whether or not processing can continue right away */
+	private final boolean continueHandshake(SSLEngineResult result) throws IOException {
+		HandshakeStatus status = result.getHandshakeStatus();
+		if(status != HandshakeStatus.NOT_HANDSHAKING && status != HandshakeStatus.FINISHED) {
+			return this.processHandshake();
+		}
+		return true;
+	}
+	
+	/** Encrypts and writes application data from the given buffer.
+	 *
+	 * @return The number of bytes consumed from the buffer, which may be less
+	 *         than what it contained if the channel is non-blocking and could
+	 *         not accept any more data */
+	@Override
+	public final int write(ByteBuffer src) throws IOException {
+		if(this.closed) {
+			throw new ClosedChannelException();
+		}
+		if(!this.handshake() || !this.flush()) {
+			return 0;
+		}
+		int consumed = 0;
+		while(src.hasRemaining()) {
+			SSLEngineResult result = this.wrap(src);
+			consumed += result.bytesConsumed();
+			if(result.getStatus() == SSLEngineResult.Status.CLOSED) {
+				throw new SSLException("SSLEngine is closed");
+			}
+			if(!this.flush()) {
+				break;
+			}
+			if(!this.continueHandshake(result)) {
+				break;
+			}
+		}
+		return consumed;
+	}
+	
+	/** Sends a <tt>close_notify</tt> alert (on a best-effort basis), closes
+	 * the underlying channel and gives back any buffers that were still held. */
+	@Override
+	public final void close() throws IOException {
+		if(this.closed) {
+			return;
+		}
+		this.closed = true;
+		try {
+			this.engine.closeOutbound();
+			if(this.flush() && !this.engine.isOutboundDone()) {
+				this.wrap(EMPTY);
+				this.flush();
+			}
+		} catch(IOException ignored) {
+		} finally {
+			this.channel.close();
+			if(this.netIn != null) {
+				this.netPool.release(this.netIn);
+				this.netIn = null;
+			}
+			if(this.netOut != null) {
+				this.netPool.release(this.netOut);
+				this.netOut = null;
+			}
+			if(this.appIn != null) {
+				this.appPool.release(this.appIn);
+				this.appIn = null;
+			}
+		}
+	}
+	
+}
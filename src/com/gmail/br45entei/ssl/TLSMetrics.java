@@ -0,0 +1,603 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.ssl;
+
+import com.gmail.br45entei.util.LatencyHistogram;
+
+import java.io.FilterInputStream;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.net.SocketAddress;
+import java.net.SocketException;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.net.ssl.HandshakeCompletedEvent;
+import javax.net.ssl.HandshakeCompletedListener;
+import javax.net.ssl.SSLSession;
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/** Per-connection TLS metrics: the negotiated protocol and cipher suite, how
+ * long the handshake took, whether the session was resumed, and how many
+ * bytes and TLS records went over the wire compared to how much application
+ * data was actually exchanged.<br>
+ * <br>
+ * Wire-level figures are collected by layering the {@link SSLSocket} on top
+ * of a {@link #createMeteredSocket() metered socket}, which parses the TLS
+ * record headers as they pass through it. Application-level figures are
+ * collected by the streams returned from {@link #meter(InputStream)} and
+ * {@link #meter(OutputStream)}.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class TLSMetrics implements HandshakeCompletedListener {
+	
+	/** Counts bytes and TLS records as they pass through a stream.<br>
+	 * Each record starts with a five byte header whose last two bytes are the
+	 * length of the record's body.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	private static final class RecordCounter {
+		
+		private final AtomicLong bytes = new AtomicLong(), records = new AtomicLong();
+		private int headerPos = 0, length = 0, bodyRemaining = 0;
+		
+		protected final void update(int b) {
+			this.bytes.incrementAndGet();
+			if(this.bodyRemaining > 0) {
+				this.bodyRemaining--;
+				return;
+			}
+			this.header(b);
+		}
+		
+		protected final void update(byte[] b, int off, int len) {
+			this.bytes.addAndGet(len);
+			while(len > 0) {
+				if(this.bodyRemaining > 0) {
+					int n = Math.min(len, this.bodyRemaining);
+					this.bodyRemaining -= n;
+					off += n;
+					len -= n;
+					continue;
+				}
+				this.header(b[off++] & 0xFF);
+				len--;
+			}
+		}
+		
+		private final void header(int b) {
+			if(this.headerPos == 3) {
+				this.length = b << 8;
+			} else if(this.headerPos == 4) {
+				this.length |= b;
+			}
+			if(++this.headerPos == 5) {
+				this.records.incrementAndGet();
+				this.headerPos = 0;
+				this.bodyRemaining = this.length;
+			}
+		}
+		
+	}
+	
+	/** A plain socket that counts the TLS records and bytes that pass through
+	 * it. If it was created around an existing socket (such as a proxy
+	 * tunnel), all socket operations are delegated to that socket.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	private final class MeteredSocket extends Socket {
+		
+		private final Socket delegate;
+		private volatile InputStream in;
+		private volatile OutputStream out;
+		
+		protected MeteredSocket(Socket delegate) {
+			this.delegate = delegate;
+		}
+		
+		@Override
+		public final InputStream getInputStream() throws IOException {
+			if(this.in == null) {
+				final InputStream in = this.delegate == null ? super.getInputStream() : this.delegate.getInputStream();
+				final RecordCounter counter = TLSMetrics.this.netRead;
+				this.in = new FilterInputStream(in) {
+					@Override
+					public int read() throws IOException {
+						int b = super.read();
+						if(b != -1) {
+							counter.update(b);
+						}
+						return b;
+					}
+					
+					@Override
+					public int read(byte[] b, int off, int len) throws IOException {
+						int read = super.read(b, off, len);
+						if(read > 0) {
+							counter.update(b, off, read);
+						}
+						return read;
+					}
+				};
+			}
+			return this.in;
+		}
+		
+		@Override
+		public final OutputStream getOutputStream() throws IOException {
+			if(this.out == null) {
+				final OutputStream out = this.delegate == null ? super.getOutputStream() : this.delegate.getOutputStream();
+				final RecordCounter counter = TLSMetrics.this.netWritten;
+				this.out = new FilterOutputStream(out) {
+					@Override
+					public void write(int b) throws IOException {
+						this.out.write(b);
+						counter.update(b);
+					}
+					
+					@Override
+					public void write(byte[] b, int off, int len) throws IOException {
+						this.out.write(b, off, len);
+						counter.update(b, off, len);
+					}
+				};
+			}
+			return this.out;
+		}
+		
+		@Override
+		public final boolean isConnected() {
+			return this.delegate == null ? super.isConnected() : this.delegate.isConnected();
+		}
+		
+		@Override
+		public final boolean isBound() {
+			return this.delegate == null ? super.isBound() : this.delegate.isBound();
+		}
+		
+		@Override
+		public final boolean isClosed() {
+			return this.delegate == null ? super.isClosed() : this.delegate.isClosed();
+		}
+		
+		@Override
+		public final boolean isInputShutdown() {
+			return this.delegate == null ? super.isInputShutdown() : this.delegate.isInputShutdown();
+		}
+		
+		@Override
+		public final boolean isOutputShutdown() {
+			return this.delegate == null ? super.isOutputShutdown() : this.delegate.isOutputShutdown();
+		}
+		
+		@Override
+		public final void shutdownInput() throws IOException {
+			if(this.delegate == null) {
+				super.shutdownInput();
+			} else {
+				this.delegate.shutdownInput();
+			}
+		}
+		
+		@Override
+		public final void shutdownOutput() throws IOException {
+			if(this.delegate == null) {
+				super.shutdownOutput();
+			} else {
+				this.delegate.shutdownOutput();
+			}
+		}
+		
+		@Override
+		public final synchronized void close() throws IOException {
+			if(this.delegate == null) {
+				super.close();
+			} else {
+				this.delegate.close();
+			}
+		}
+		
+		@Override
+		public final InetAddress getInetAddress() {
+			return this.delegate == null ? super.getInetAddress() : this.delegate.getInetAddress();
+		}
+		
+		@Override
+		public final InetAddress getLocalAddress() {
+			return this.delegate == null ? super.getLocalAddress() : this.delegate.getLocalAddress();
+		}
+		
+		@Override
+		public final int getPort() {
+			return this.delegate == null ? super.getPort() : this.delegate.getPort();
+		}
+		
+		@Override
+		public final int getLocalPort() {
+			return this.delegate == null ? super.getLocalPort() : this.delegate.getLocalPort();
+		}
+		
+		@Override
+		public final SocketAddress getRemoteSocketAddress() {
+			return this.delegate == null ? super.getRemoteSocketAddress() : this.delegate.getRemoteSocketAddress();
+		}
+		
+		@Override
+		public final SocketAddress getLocalSocketAddress() {
+			return this.delegate == null ? super.getLocalSocketAddress() : this.delegate.getLocalSocketAddress();
+		}
+		
+		@Override
+		public final synchronized void setSoTimeout(int timeout) throws SocketException {
+			if(this.delegate == null) {
+				super.setSoTimeout(timeout);
+			} else {
+				this.delegate.setSoTimeout(timeout);
+			}
+		}
+		
+		@Override
+		public final synchronized int getSoTimeout() throws SocketException {
+			return this.delegate == null ? super.getSoTimeout() : this.delegate.getSoTimeout();
+		}
+		
+		@Override
+		public final void setTcpNoDelay(boolean on) throws SocketException {
+			if(this.delegate == null) {
+				super.setTcpNoDelay(on);
+			} else {
+				this.delegate.setTcpNoDelay(on);
+			}
+		}
+		
+		@Override
+		public final boolean getTcpNoDelay() throws SocketException {
+			return this.delegate == null ? super.getTcpNoDelay() : this.delegate.getTcpNoDelay();
+		}
+		
+		@Override
+		public final String toString() {
+			return this.delegate == null ? super.toString() : "Metered[".concat(this.delegate.toString()).concat("]");
+		}
+		
+	}
+	
+	/** Aggregates the metrics of many TLS connections.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Aggregate {
+		
+		public final LatencyHistogram handshakes = new LatencyHistogram("TLS handshake");
+		private final AtomicLong connections = new AtomicLong(), resumed = new AtomicLong();
+		private final AtomicLong appBytesRead = new AtomicLong(), appBytesWritten = new AtomicLong();
+		private final AtomicLong netBytesRead = new AtomicLong(), netBytesWritten = new AtomicLong();
+		private final AtomicLong recordsRead = new AtomicLong(), recordsWritten = new AtomicLong();
+		private final Map<String, AtomicLong> protocols = new ConcurrentHashMap<>(), cipherSuites = new ConcurrentHashMap<>();
+		
+		/** @return The number of connections whose handshakes were recorded */
+		public final long getConnections() {
+			return this.connections.get();
+		}
+		
+		/** @return The number of connections that resumed an earlier session */
+		public final long getResumed() {
+			return this.resumed.get();
+		}
+		
+		/** @return The total number of application data bytes read */
+		public final long getAppBytesRead() {
+			return this.appBytesRead.get();
+		}
+		
+		/** @return The total number of application data bytes written */
+		public final long getAppBytesWritten() {
+			return this.appBytesWritten.get();
+		}
+		
+		/** @return The total number of bytes read off of the wire, including
+		 *         TLS record headers, padding, MACs and handshake messages */
+		public final long getNetBytesRead() {
+			return this.netBytesRead.get();
+		}
+		
+		/** @return The total number of bytes written to the wire, including
+		 *         TLS record headers, padding, MACs and handshake messages */
+		public final long getNetBytesWritten() {
+			return this.netBytesWritten.get();
+		}
+		
+		/** @return The total number of TLS records read */
+		public final long getRecordsRead() {
+			return this.recordsRead.get();
+		}
+		
+		/** @return The total number of TLS records written */
+		public final long getRecordsWritten() {
+			return this.recordsWritten.get();
+		}
+		
+		/** @return A snapshot of how many connections negotiated each
+		 *         protocol version */
+		public final Map<String, Long> getProtocols() {
+			return snapshot(this.protocols);
+		}
+		
+		/** @return A snapshot of how many connections negotiated each cipher
+		 *         suite */
+		public final Map<String, Long> getCipherSuites() {
+			return snapshot(this.cipherSuites);
+		}
+		
+		private static final Map<String, Long> snapshot(Map<String, AtomicLong> map) {
+			Map<String, Long> copy = new TreeMap<>();
+			for(Entry<String, AtomicLong> entry : map.entrySet()) {
+				copy.put(entry.getKey(), Long.valueOf(entry.getValue().get()));
+			}
+			return copy;
+		}
+		
+		protected final void addHandshake(TLSMetrics metrics) {
+			this.connections.incrementAndGet();
+			if(metrics.sessionResumed) {
+				this.resumed.incrementAndGet();
+			}
+			this.handshakes.record(metrics.handshakeTime);
+			this.protocols.computeIfAbsent(String.valueOf(metrics.protocol), (k) -> new AtomicLong()).incrementAndGet();
+			this.cipherSuites.computeIfAbsent(String.valueOf(metrics.cipherSuite), (k) -> new AtomicLong()).incrementAndGet();
+		}
+		
+		@Override
+		public String toString() {
+			long connections = this.getConnections();
+			long appBytes = this.getAppBytesRead() + this.getAppBytesWritten();
+			long netBytes = this.getNetBytesRead() + this.getNetBytesWritten();
+			return "TLS connections: ".concat(Long.toString(connections)).concat(" (").concat(Long.toString(this.getResumed())).concat(" resumed)\r\n")//
+					.concat(this.handshakes.toString()).concat("\r\n")//
+					.concat("Protocols: ").concat(this.getProtocols().toString()).concat("\r\n")//
+					.concat("Cipher suites: ").concat(this.getCipherSuites().toString()).concat("\r\n")//
+					.concat("Application data: ").concat(Long.toString(this.getAppBytesRead())).concat(" bytes read, ").concat(Long.toString(this.getAppBytesWritten())).concat(" bytes written\r\n")//
+					.concat("On the wire: ").concat(Long.toString(this.getNetBytesRead())).concat(" bytes (").concat(Long.toString(this.getRecordsRead())).concat(" records) read, ")//
+					.concat(Long.toString(this.getNetBytesWritten())).concat(" bytes (").concat(Long.toString(this.getRecordsWritten())).concat(" records) written\r\n")//
+					.concat("TLS overhead: ").concat(Long.toString(Math.max(0L, netBytes - appBytes))).concat(" bytes (").concat(netBytes == 0 ? "0.0" : String.format("%.1f", Double.valueOf(((netBytes - appBytes) * 100.0) / netBytes))).concat("% of all bytes on the wire)");
+		}
+		
+	}
+	
+	protected final RecordCounter netRead = new RecordCounter(), netWritten = new RecordCounter();
+	private final AtomicLong appRead = new AtomicLong(), appWritten = new AtomicLong();
+	
+	private volatile long handshakeStartTime = 0L, handshakeStartMillis = 0L;
+	protected volatile long handshakeTime = -1L;
+	protected volatile boolean sessionResumed = false;
+	protected volatile String protocol = null, cipherSuite = null;
+	
+	private boolean handshakeReported = false;
+	private long reportedAppRead, reportedAppWritten, reportedNetRead, reportedNetWritten, reportedRecordsRead, reportedRecordsWritten;
+	
+	/** @return A new, unconnected socket that counts the TLS records and bytes
+	 *         that are sent and received through it. Pass it to
+	 *         {@link #layer(SSLSocketFactory, Socket, String, int)} once it
+	 *         has been connected. */
+	public final Socket createMeteredSocket() {
+		return new MeteredSocket(null);
+	}
+	
+	/** Layers a new {@link SSLSocket} on top of the given connected socket,
+	 * counting every TLS record that passes between the two.
+	 *
+	 * @param factory The factory to create the SSL socket with
+	 * @param socket The connected socket. Sockets that weren't created by
+	 *            {@link #createMeteredSocket()} (such as proxy tunnels) are
+	 *            wrapped so that they can be metered as well.
+	 * @param host The server's host name
+	 * @param port The server's port
+	 * @return The new SSL socket, whose handshake hasn't been started yet
+	 * @throws IOException Thrown if the SSL socket could not be created */
+	public final SSLSocket layer(SSLSocketFactory factory, Socket socket, String host, int port) throws IOException {
+		if(!(socket instanceof MeteredSocket)) {
+			socket = new MeteredSocket(socket);
+		}
+		SSLSocket sslSocket = (SSLSocket) factory.createSocket(socket, host, port, true);
+		sslSocket.addHandshakeCompletedListener(this);
+		return sslSocket;
+	}
+	
+	/** Starts (and waits for) the given socket's handshake, timing how long it
+	 * takes.
+	 *
+	 * @param socket The socket returned by
+	 *            {@link #layer(SSLSocketFactory, Socket, String, int)}
+	 * @throws IOException Thrown if the handshake fails */
+	public final void startHandshake(SSLSocket socket) throws IOException {
+		this.handshakeStartMillis = System.currentTimeMillis();
+		this.handshakeStartTime = System.nanoTime();
+		socket.startHandshake();
+		this.handshakeTime = System.nanoTime() - this.handshakeStartTime;
+		if(this.protocol == null) {// Just in case the listener hasn't been called yet
+			this.setSession(socket.getSession());
+		}
+	}
+	
+	@Override
+	public final void handshakeCompleted(HandshakeCompletedEvent event) {
+		this.setSession(event.getSession());
+	}
+	
+	private final void setSession(SSLSession session) {
+		this.protocol = session.getProtocol();
+		this.cipherSuite = session.getCipherSuite();
+		this.sessionResumed = this.handshakeStartMillis != 0L && session.getCreationTime() < this.handshakeStartMillis;
+	}
+	
+	/** @param in The SSL socket's input stream
+	 * @return A stream that counts the application data read from the given
+	 *         stream */
+	public final InputStream meter(InputStream in) {
+		final AtomicLong counter = this.appRead;
+		return new FilterInputStream(in) {
+			@Override
+			public int read() throws IOException {
+				int b = super.read();
+				if(b != -1) {
+					counter.incrementAndGet();
+				}
+				return b;
+			}
+			
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException {
+				int read = super.read(b, off, len);
+				if(read > 0) {
+					counter.addAndGet(read);
+				}
+				return read;
+			}
+		};
+	}
+	
+	/** @param out The SSL socket's output stream
+	 * @return A stream that counts the application data written to the given
+	 *         stream */
+	public final OutputStream meter(OutputStream out) {
+		final AtomicLong counter = this.appWritten;
+		return new FilterOutputStream(out) {
+			@Override
+			public void write(int b) throws IOException {
+				this.out.write(b);
+				counter.incrementAndGet();
+			}
+			
+			@Override
+			public void write(byte[] b, int off, int len) throws IOException {
+				this.out.write(b, off, len);
+				counter.addAndGet(len);
+			}
+		};
+	}
+	
+	/** @return The negotiated protocol version, or <tt><b>null</b></tt> if
+	 *         the handshake hasn't completed */
+	public final String getProtocol() {
+		return this.protocol;
+	}
+	
+	/** @return The negotiated cipher suite, or <tt><b>null</b></tt> if the
+	 *         handshake hasn't completed */
+	public final String getCipherSuite() {
+		return this.cipherSuite;
+	}
+	
+	/** @return How long the handshake took in nanoseconds, or <tt>-1</tt> if
+	 *         it hasn't completed */
+	public final long getHandshakeTime() {
+		return this.handshakeTime;
+	}
+	
+	/** @return Whether or not the handshake resumed an earlier session */
+	public final boolean isSessionResumed() {
+		return this.sessionResumed;
+	}
+	
+	/** @return The number of application data bytes read so far */
+	public final long getAppBytesRead() {
+		return this.appRead.get();
+	}
+	
+	/** @return The number of application data bytes written so far */
+	public final long getAppBytesWritten() {
+		return this.appWritten.get();
+	}
+	
+	/** @return The number of bytes read off of the wire so far */
+	public final long getNetBytesRead() {
+		return this.netRead.bytes.get();
+	}
+	
+	/** @return The number of bytes written to the wire so far */
+	public final long getNetBytesWritten() {
+		return this.netWritten.bytes.get();
+	}
+	
+	/** @return The number of TLS records read so far */
+	public final long getRecordsRead() {
+		return this.netRead.records.get();
+	}
+	
+	/** @return The number of TLS records written so far */
+	public final long getRecordsWritten() {
+		return this.netWritten.records.get();
+	}
+	
+	/** @return The number of bytes sent and received on the wire that were
+	 *         not application data */
+	public final long getOverhead() {
+		return Math.max(0L, (this.getNetBytesRead() + this.getNetBytesWritten()) - (this.getAppBytesRead() + this.getAppBytesWritten()));
+	}
+	
+	/** Adds this connection's metrics to the given aggregate.<br>
+	 * This may be called more than once for the same connection (e.g. after
+	 * each request on a kept-alive connection); only what has changed since
+	 * the last call is added.
+	 *
+	 * @param aggregate The aggregate to add this connection's metrics to */
+	public final synchronized void reportTo(Aggregate aggregate) {
+		if(!this.handshakeReported && this.handshakeTime >= 0L) {
+			this.handshakeReported = true;
+			aggregate.addHandshake(this);
+		}
+		long appRead = this.getAppBytesRead(), appWritten = this.getAppBytesWritten();
+		long netRead = this.getNetBytesRead(), netWritten = this.getNetBytesWritten();
+		long recordsRead = this.getRecordsRead(), recordsWritten = this.getRecordsWritten();
+		aggregate.appBytesRead.addAndGet(appRead - this.reportedAppRead);
+		aggregate.appBytesWritten.addAndGet(appWritten - this.reportedAppWritten);
+		aggregate.netBytesRead.addAndGet(netRead - this.reportedNetRead);
+		aggregate.netBytesWritten.addAndGet(netWritten - this.reportedNetWritten);
+		aggregate.recordsRead.addAndGet(recordsRead - this.reportedRecordsRead);
+		aggregate.recordsWritten.addAndGet(recordsWritten - this.reportedRecordsWritten);
+		this.reportedAppRead = appRead;
+		this.reportedAppWritten = appWritten;
+		this.reportedNetRead = netRead;
+		this.reportedNetWritten = netWritten;
+		this.reportedRecordsRead = recordsRead;
+		this.reportedRecordsWritten = recordsWritten;
+	}
+	
+	@Override
+	public String toString() {
+		return String.valueOf(this.protocol).concat(" ").concat(String.valueOf(this.cipherSuite))//
+				.concat(", handshake: ").concat(this.handshakeTime < 0L ? "incomplete" : LatencyHistogram.toMillis(this.handshakeTime).concat("ms")).concat(this.sessionResumed ? " (resumed session)" : " (new session)")//
+				.concat(", application data: ").concat(Long.toString(this.getAppBytesRead())).concat(" bytes in/").concat(Long.toString(this.getAppBytesWritten())).concat(" bytes out")//
+				.concat(", records: ").concat(Long.toString(this.getRecordsRead())).concat(" in/").concat(Long.toString(this.getRecordsWritten())).concat(" out")//
+				.concat(", TLS overhead: ").concat(Long.toString(this.getOverhead())).concat(" bytes");
+	}
+	
+}
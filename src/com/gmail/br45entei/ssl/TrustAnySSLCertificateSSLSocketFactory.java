@@ -67,6 +67,12 @@ public class TrustAnySSLCertificateSSLSocketFactory extends SSLSocketFactory {
 		this.ctx.init(null, new TrustManager[] {tm}, SecureRandom.getInstanceStrong());
 	}
 	
+	/** @return The SSL context that this factory's sockets are created from,
+	 *         for use with {@link javax.net.ssl.SSLEngine SSLEngine}s */
+	public SSLContext getContext() {
+		return this.ctx;
+	}
+	
 	@Override
 	public String[] getDefaultCipherSuites() {
 		return this.ctx.getSocketFactory().getDefaultCipherSuites();
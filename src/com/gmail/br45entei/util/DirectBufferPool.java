@@ -0,0 +1,122 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.util;
+
+import java.nio.ByteBuffer;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/** A bounded pool of equally sized direct {@link ByteBuffer}s.<br>
+ * Direct buffers are expensive to allocate and are only freed when they are
+ * garbage collected, so connections that need them for a short amount of
+ * time should borrow them from a pool instead of allocating their own.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class DirectBufferPool {
+	
+	private static final Map<Integer, DirectBufferPool> shared = new ConcurrentHashMap<>();
+	
+	/** The maximum number of idle buffers that the shared pools keep around */
+	public static volatile int sharedPoolMaxIdle = 256;
+	
+	/** @param capacity The capacity of the pool's buffers
+	 * @return The shared pool for buffers of the given capacity */
+	public static final DirectBufferPool getShared(int capacity) {
+		return shared.computeIfAbsent(Integer.valueOf(capacity), (c) -> new DirectBufferPool(c.intValue(), sharedPoolMaxIdle));
+	}
+	
+	private final int capacity;
+	private final int maxIdle;
+	private final Queue<ByteBuffer> idle = new ConcurrentLinkedQueue<>();
+	private final AtomicInteger idleCount = new AtomicInteger(), inUse = new AtomicInteger();
+	private final AtomicLong allocations = new AtomicLong();
+	
+	/** @param capacity The capacity of each buffer
+	 * @param maxIdle The maximum number of released buffers to keep for
+	 *            reuse; any more than that are left for the garbage
+	 *            collector */
+	public DirectBufferPool(int capacity, int maxIdle) {
+		this.capacity = capacity;
+		this.maxIdle = maxIdle;
+	}
+	
+	/** @return The capacity of this pool's buffers */
+	public final int getCapacity() {
+		return this.capacity;
+	}
+	
+	/** @return A cleared buffer. It should be given back with
+	 *         {@link #release(ByteBuffer)} once it is no longer needed. */
+	public final ByteBuffer acquire() {
+		this.inUse.incrementAndGet();
+		ByteBuffer buf = this.idle.poll();
+		if(buf != null) {
+			this.idleCount.decrementAndGet();
+			return buf;
+		}
+		this.allocations.incrementAndGet();
+		return ByteBuffer.allocateDirect(this.capacity);
+	}
+	
+	/** @param buf The buffer to give back to this pool. Buffers that did not
+	 *            come from this pool are ignored. */
+	public final void release(ByteBuffer buf) {
+		if(buf == null || !buf.isDirect() || buf.capacity() != this.capacity) {
+			return;
+		}
+		this.inUse.decrementAndGet();
+		if(this.idleCount.incrementAndGet() > this.maxIdle) {
+			this.idleCount.decrementAndGet();
+			return;
+		}
+		buf.clear();
+		this.idle.offer(buf);
+	}
+	
+	/** @return The number of buffers that have been acquired but not yet
+	 *         released */
+	public final int getInUse() {
+		return this.inUse.get();
+	}
+	
+	/** @return The number of released buffers waiting to be reused */
+	public final int getIdle() {
+		return this.idleCount.get();
+	}
+	
+	/** @return The number of buffers this pool has had to allocate */
+	public final long getAllocations() {
+		return this.allocations.get();
+	}
+	
+	@Override
+	public String toString() {
+		return "DirectBufferPool[capacity=".concat(Integer.toString(this.capacity)).concat(", inUse=").concat(Integer.toString(this.getInUse())).concat(", idle=").concat(Integer.toString(this.getIdle())).concat(", allocations=").concat(Long.toString(this.getAllocations())).concat("]");
+	}
+	
+}
@@ -0,0 +1,179 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/** A lock-free, log-linear histogram of nanosecond durations.<br>
+ * Values are grouped into buckets with roughly three percent precision, which
+ * is plenty for reporting latency percentiles without keeping every sample.
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class LatencyHistogram {
+	
+	private static final int SUB_BUCKET_BITS = 5;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+	private static final int LINEAR_LIMIT = SUB_BUCKETS << 1;
+	private static final int BUCKET_COUNT = LINEAR_LIMIT + ((63 - SUB_BUCKET_BITS) * SUB_BUCKETS);
+	
+	private final String name;
+	private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+	private final AtomicLong count = new AtomicLong();
+	private final AtomicLong total = new AtomicLong();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+	
+	/** @param name The name of this histogram, used by {@link #toString()} */
+	public LatencyHistogram(String name) {
+		this.name = name;
+	}
+	
+	private static final int indexOf(long value) {
+		if(value < LINEAR_LIMIT) {
+			return (int) value;
+		}
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int shift = exponent - SUB_BUCKET_BITS;
+		int subBucket = (int) ((value >>> shift) & (SUB_BUCKETS - 1));
+		return LINEAR_LIMIT + ((exponent - (SUB_BUCKET_BITS + 1)) * SUB_BUCKETS) + subBucket;
+	}
+	
+	private static final long valueOf(int index) {
+		if(index < LINEAR_LIMIT) {
+			return index;
+		}
+		index -= LINEAR_LIMIT;
+		int exponent = (index / SUB_BUCKETS) + SUB_BUCKET_BITS + 1;
+		int shift = exponent - SUB_BUCKET_BITS;
+		long lowerBound = ((long) (SUB_BUCKETS + (index % SUB_BUCKETS))) << shift;
+		return lowerBound + ((1L << shift) >>> 1);// Middle of the bucket
+	}
+	
+	/** @return The name of this histogram */
+	public final String getName() {
+		return this.name;
+	}
+	
+	/** Records the given duration.
+	 *
+	 * @param nanos The duration to record, in nanoseconds. Negative values
+	 *            are recorded as zero. */
+	public final void record(long nanos) {
+		nanos = Math.max(0L, nanos);
+		this.buckets.incrementAndGet(indexOf(nanos));
+		this.count.incrementAndGet();
+		this.total.addAndGet(nanos);
+		this.min.accumulateAndGet(nanos, Math::min);
+		this.max.accumulateAndGet(nanos, Math::max);
+	}
+	
+	/** Adds all of the samples recorded by the given histogram to this one.
+	 *
+	 * @param other The histogram whose samples will be added */
+	public final void add(LatencyHistogram other) {
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			long value = other.buckets.get(i);
+			if(value != 0) {
+				this.buckets.addAndGet(i, value);
+			}
+		}
+		this.count.addAndGet(other.count.get());
+		this.total.addAndGet(other.total.get());
+		this.min.accumulateAndGet(other.min.get(), Math::min);
+		this.max.accumulateAndGet(other.max.get(), Math::max);
+	}
+	
+	/** Discards all recorded samples. */
+	public final void reset() {
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			this.buckets.set(i, 0L);
+		}
+		this.count.set(0L);
+		this.total.set(0L);
+		this.min.set(Long.MAX_VALUE);
+		this.max.set(Long.MIN_VALUE);
+	}
+	
+	/** @return The number of recorded samples */
+	public final long getCount() {
+		return this.count.get();
+	}
+	
+	/** @return The smallest recorded duration in nanoseconds, or zero if
+	 *         nothing has been recorded */
+	public final long getMin() {
+		return this.count.get() == 0 ? 0L : this.min.get();
+	}
+	
+	/** @return The largest recorded duration in nanoseconds, or zero if
+	 *         nothing has been recorded */
+	public final long getMax() {
+		return this.count.get() == 0 ? 0L : this.max.get();
+	}
+	
+	/** @return The mean of all recorded durations in nanoseconds */
+	public final double getMean() {
+		long count = this.count.get();
+		return count == 0 ? 0.0 : this.total.get() / (double) count;
+	}
+	
+	/** @param percentile The percentile to fetch, from <tt>0.0</tt> to
+	 *            <tt>100.0</tt>
+	 * @return The (approximate) duration in nanoseconds at the given
+	 *         percentile, or zero if nothing has been recorded */
+	public final long getPercentile(double percentile) {
+		long count = this.count.get();
+		if(count == 0) {
+			return 0L;
+		}
+		long target = Math.max(1L, (long) Math.ceil((Math.min(100.0, Math.max(0.0, percentile)) / 100.0) * count));
+		long seen = 0;
+		for(int i = 0; i < BUCKET_COUNT; i++) {
+			seen += this.buckets.get(i);
+			if(seen >= target) {
+				return Math.min(this.getMax(), Math.max(this.getMin(), valueOf(i)));
+			}
+		}
+		return this.getMax();
+	}
+	
+	/** @param nanos The duration in nanoseconds
+	 * @return The duration in milliseconds, formatted to two decimal places */
+	public static final String toMillis(double nanos) {
+		return String.format("%.2f", Double.valueOf(nanos / 1000000.0));
+	}
+	
+	@Override
+	public String toString() {
+		return this.name.concat(": n=").concat(Long.toString(this.getCount()))//
+				.concat(", mean=").concat(toMillis(this.getMean()))//
+				.concat("ms, p50=").concat(toMillis(this.getPercentile(50.0)))//
+				.concat("ms, p90=").concat(toMillis(this.getPercentile(90.0)))//
+				.concat("ms, p99=").concat(toMillis(this.getPercentile(99.0)))//
+				.concat("ms, p99.9=").concat(toMillis(this.getPercentile(99.9)))//
+				.concat("ms, max=").concat(toMillis(this.getMax())).concat("ms");
+	}
+	
+}
@@ -23,6 +23,11 @@
  *******************************************************************************/
 package com.gmail.br45entei.util;
 
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
 /** @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
 public class ThreadUtil {
 	
@@ -36,4 +41,46 @@ public class ThreadUtil {
 		return null;
 	}
 	
+	private static volatile Boolean virtualThreadsSupported = null;
+	
+	/** Creates an executor that starts a new virtual thread for each task.<br>
+	 * Virtual threads were added in Java 21 (and were a preview feature in
+	 * Java 19 and 20), so they are looked up by reflection here.
+	 *
+	 * @param name The prefix of each thread's name (which is followed by a
+	 *            sequence number starting at one)
+	 * @return The new executor
+	 * @throws UnsupportedOperationException Thrown if the running JVM does not
+	 *             support virtual threads */
+	public static final ExecutorService newVirtualThreadPerTaskExecutor(String name) throws UnsupportedOperationException {
+		try {
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			builder = builderClass.getMethod("name", String.class, Long.TYPE).invoke(builder, name, Long.valueOf(1L));
+			ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			return (ExecutorService) Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class).invoke(null, factory);
+		} catch(InvocationTargetException ex) {// e.g. a preview release run without --enable-preview
+			Throwable cause = ex.getCause();
+			throw new UnsupportedOperationException("Virtual threads are not available: ".concat(String.valueOf(cause)), cause);
+		} catch(ReflectiveOperationException | ClassCastException ex) {
+			throw new UnsupportedOperationException("Virtual threads are not available in Java ".concat(System.getProperty("java.specification.version")), ex);
+		}
+	}
+	
+	/** @return Whether or not the running JVM supports virtual threads
+	 * @see #newVirtualThreadPerTaskExecutor(String) */
+	public static final boolean isVirtualThreadSupported() {
+		Boolean supported = virtualThreadsSupported;
+		if(supported == null) {
+			try {
+				newVirtualThreadPerTaskExecutor("probe").shutdown();
+				supported = Boolean.TRUE;
+			} catch(UnsupportedOperationException ex) {
+				supported = Boolean.FALSE;
+			}
+			virtualThreadsSupported = supported;
+		}
+		return supported.booleanValue();
+	}
+	
 }
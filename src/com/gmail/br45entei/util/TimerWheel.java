@@ -0,0 +1,216 @@
+/*******************************************************************************
+ * 
+ * Copyright © 2023 Brian Reid (br45entei@gmail.com)
+ * 
+ * Permission is hereby granted, free of charge, to any person obtaining a copy
+ * of this software and associated documentation files (the "Software"), to deal
+ * in the Software without restriction, including without limitation the rights
+ * to use, copy, modify, merge, publish, distribute, sublicense, and/or sell
+ * copies of the Software, and to permit persons to whom the Software is
+ * furnished to do so, subject to the following conditions:
+ * 
+ * The above copyright notice and this permission notice shall be included in all
+ * copies or substantial portions of the Software.
+ * 
+ * THE SOFTWARE IS PROVIDED "AS IS", WITHOUT WARRANTY OF ANY KIND, EXPRESS OR
+ * IMPLIED, INCLUDING BUT NOT LIMITED TO THE WARRANTIES OF MERCHANTABILITY,
+ * FITNESS FOR A PARTICULAR PURPOSE AND NONINFRINGEMENT. IN NO EVENT SHALL THE
+ * AUTHORS OR COPYRIGHT HOLDERS BE LIABLE FOR ANY CLAIM, DAMAGES OR OTHER
+ * LIABILITY, WHETHER IN AN ACTION OF CONTRACT, TORT OR OTHERWISE, ARISING FROM,
+ * OUT OF OR IN CONNECTION WITH THE SOFTWARE OR THE USE OR OTHER DEALINGS IN THE
+ * SOFTWARE.
+ * 
+ *******************************************************************************/
+package com.gmail.br45entei.util;
+
+import java.io.Closeable;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/** A hashed timer wheel that runs any number of timeouts on one thread.<br>
+ * Timeouts are sorted into buckets by the tick in which they expire, so
+ * scheduling and cancelling a timeout are both constant-time operations no
+ * matter how many are pending. The cost is precision: a timeout may fire up
+ * to one tick late.<br>
+ * <br>
+ * Timeout tasks are run on the wheel's own thread and should therefore be
+ * short (e.g. closing a socket).
+ *
+ * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+public final class TimerWheel implements Closeable {
+	
+	private static volatile TimerWheel shared;
+	
+	/** @return The timer wheel shared by every request (10ms ticks, 512
+	 *         buckets) */
+	public static final TimerWheel getShared() {
+		TimerWheel wheel = shared;
+		if(wheel == null) {
+			synchronized(TimerWheel.class) {
+				if((wheel = shared) == null) {
+					shared = wheel = new TimerWheel("TimerWheel", 10L, 512);
+				}
+			}
+		}
+		return wheel;
+	}
+	
+	/** A task scheduled on a {@link TimerWheel}.
+	 *
+	 * @author Brian Reid &lt;br45entei&#064;gmail.com&gt; */
+	public static final class Timeout {
+		
+		private static final int PENDING = 0, CANCELLED = 1, EXPIRED = 2;
+		
+		private final Runnable task;
+		private final long deadline;
+		private final AtomicInteger state = new AtomicInteger(PENDING);
+		protected long remainingRounds;
+		
+		protected Timeout(Runnable task, long deadline) {
+			this.task = task;
+			this.deadline = deadline;
+		}
+		
+		/** Cancels this timeout so that its task is never run.
+		 *
+		 * @return Whether or not this timeout was cancelled before it
+		 *         expired */
+		public final boolean cancel() {
+			return this.state.compareAndSet(PENDING, CANCELLED);
+		}
+		
+		/** @return Whether or not this timeout has been cancelled */
+		public final boolean isCancelled() {
+			return this.state.get() == CANCELLED;
+		}
+		
+		/** @return Whether or not this timeout's task has been run */
+		public final boolean isExpired() {
+			return this.state.get() == EXPIRED;
+		}
+		
+		protected final boolean expire() {
+			if(!this.state.compareAndSet(PENDING, EXPIRED)) {
+				return false;
+			}
+			try {
+				this.task.run();
+			} catch(Throwable ex) {
+				System.err.println("Timeout task threw an exception:");
+				ex.printStackTrace(System.err);
+			}
+			return true;
+		}
+		
+	}
+	
+	private final long tickNanos;
+	private final ArrayDeque<Timeout>[] buckets;
+	private final int mask;
+	private final Queue<Timeout> scheduled = new ConcurrentLinkedQueue<>();
+	private final AtomicLong pending = new AtomicLong(), expired = new AtomicLong();
+	private final Thread thread;
+	private final long startTime = System.nanoTime();
+	private volatile boolean closed = false;
+	
+	/** @param name The name of the wheel's thread
+	 * @param tickMillis How often, in milliseconds, the wheel checks for
+	 *            expired timeouts
+	 * @param wheelSize The number of buckets (rounded up to a power of two) */
+	public TimerWheel(String name, long tickMillis, int wheelSize) {
+		this.tickNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, tickMillis));
+		int size = Integer.highestOneBit(Math.max(2, wheelSize) * 2 - 1);
+		this.buckets = newBuckets(size);
+		for(int i = 0; i < size; i++) {
+			this.buckets[i] = new ArrayDeque<>();
+		}
+		this.mask = size - 1;
+		this.thread = new Thread(this::run, name);
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static final ArrayDeque<Timeout>[] newBuckets(int size) {
+		return (ArrayDeque<Timeout>[]) new ArrayDeque<?>[size];
+	}
+	
+	/** @param task The task to run once the given delay has elapsed
+	 * @param delay The delay
+	 * @param unit The delay's unit
+	 * @return The scheduled timeout, which may be cancelled
+	 * @throws IllegalStateException Thrown if this wheel has been closed */
+	public final Timeout schedule(Runnable task, long delay, TimeUnit unit) throws IllegalStateException {
+		if(this.closed) {
+			throw new IllegalStateException("This timer wheel has been closed!");
+		}
+		Timeout timeout = new Timeout(task, System.nanoTime() + Math.max(0L, unit.toNanos(delay)));
+		this.pending.incrementAndGet();
+		this.scheduled.add(timeout);
+		return timeout;
+	}
+	
+	/** @return The number of timeouts that have been scheduled but have not
+	 *         yet expired or been cleaned up after being cancelled */
+	public final long getPendingCount() {
+		return this.pending.get();
+	}
+	
+	/** @return The number of timeouts whose tasks have been run */
+	public final long getExpiredCount() {
+		return this.expired.get();
+	}
+	
+	private final void run() {
+		long tick = 0;
+		while(!this.closed) {
+			final long tickTime = this.startTime + ((tick + 1) * this.tickNanos);
+			long wait;
+			while((wait = tickTime - System.nanoTime()) > 0 && !this.closed) {
+				LockSupport.parkNanos(this, wait);
+			}
+			
+			Timeout timeout;
+			while((timeout = this.scheduled.poll()) != null) {
+				if(timeout.isCancelled()) {
+					this.pending.decrementAndGet();
+					continue;
+				}
+				long expiresOnTick = (timeout.deadline - this.startTime) / this.tickNanos;
+				timeout.remainingRounds = (expiresOnTick - tick) / this.buckets.length;
+				this.buckets[(int) (Math.max(expiresOnTick, tick) & this.mask)].add(timeout);
+			}
+			
+			Iterator<Timeout> it = this.buckets[(int) (tick & this.mask)].iterator();
+			while(it.hasNext()) {
+				timeout = it.next();
+				if(timeout.remainingRounds > 0 && !timeout.isCancelled()) {
+					timeout.remainingRounds--;
+					continue;
+				}
+				it.remove();
+				this.pending.decrementAndGet();
+				if(timeout.expire()) {
+					this.expired.incrementAndGet();
+				}
+			}
+			tick++;
+		}
+	}
+	
+	/** Stops this wheel's thread. Timeouts that are still pending will never
+	 * fire. */
+	@Override
+	public final void close() {
+		this.closed = true;
+		LockSupport.unpark(this.thread);
+	}
+	
+}